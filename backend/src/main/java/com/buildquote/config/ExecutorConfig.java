@@ -1,5 +1,6 @@
 package com.buildquote.config;
 
+import com.buildquote.service.LlmRequestScheduler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
@@ -16,6 +17,7 @@ public class ExecutorConfig {
         executor.setThreadNamePrefix("enrichment-");
         executor.setWaitForTasksToCompleteOnShutdown(true);
         executor.setAwaitTerminationSeconds(30);
+        executor.setTaskDecorator(LlmRequestScheduler::propagatePriority);
         executor.initialize();
         return executor;
     }
@@ -29,6 +31,22 @@ public class ExecutorConfig {
         executor.setThreadNamePrefix("pipeline-");
         executor.setWaitForTasksToCompleteOnShutdown(true);
         executor.setAwaitTerminationSeconds(30);
+        executor.setTaskDecorator(LlmRequestScheduler::propagatePriority);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean("matchingExecutor")
+    public ThreadPoolTaskExecutor matchingExecutor() {
+        // Scoring is in-memory and CPU-bound, so size to the cores
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(200);
+        executor.setThreadNamePrefix("matching-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
         executor.initialize();
         return executor;
     }
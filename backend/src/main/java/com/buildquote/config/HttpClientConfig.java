@@ -0,0 +1,18 @@
+package com.buildquote.config;
+
+import com.buildquote.service.OutboundHttpService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestTemplate;
+
+@Configuration
+public class HttpClientConfig {
+
+    /**
+     * Shared RestTemplate for external APIs: pooled connections, timeouts and per-host limits.
+     */
+    @Bean
+    public RestTemplate restTemplate(OutboundHttpService outboundHttpService) {
+        return outboundHttpService.newRestTemplate();
+    }
+}
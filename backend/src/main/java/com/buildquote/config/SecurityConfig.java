@@ -50,7 +50,8 @@ public class SecurityConfig {
                 .requestMatchers("/api/projects/health").permitAll()
                 // Public parsing (no save)
                 .requestMatchers("/api/projects/parse", "/api/projects/parse-file", "/api/projects/parse-files", "/api/projects/estimate-prices").permitAll()
-                // Public company browsing and stats
+                // Company directory maintenance is admin-only; browsing and stats are public
+                .requestMatchers("/api/companies/directory/**").hasRole("ADMIN")
                 .requestMatchers("/api/companies/**").permitAll()
                 .requestMatchers("/api/batch/stats").permitAll()
                 // Public supplier search
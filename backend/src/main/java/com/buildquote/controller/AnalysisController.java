@@ -5,6 +5,10 @@ import com.buildquote.dto.NegotiationDto;
 import com.buildquote.dto.NegotiationRequest;
 import com.buildquote.dto.NegotiationRoundDto;
 import com.buildquote.security.UserPrincipal;
+import com.buildquote.service.AiCacheService;
+import com.buildquote.service.AnthropicService;
+import com.buildquote.service.LlmBatchService;
+import com.buildquote.service.LlmRequestScheduler;
 import com.buildquote.service.NegotiationService;
 import com.buildquote.service.QuoteComparisonService;
 import lombok.RequiredArgsConstructor;
@@ -25,6 +29,10 @@ public class AnalysisController {
 
     private final QuoteComparisonService quoteComparisonService;
     private final NegotiationService negotiationService;
+    private final AnthropicService anthropicService;
+    private final AiCacheService aiCacheService;
+    private final LlmBatchService llmBatchService;
+    private final LlmRequestScheduler llmRequestScheduler;
 
     @GetMapping("/campaign/{id}/compare")
     public ResponseEntity<ComparisonResultDto> compareBids(@PathVariable UUID id,
@@ -42,6 +50,13 @@ public class AnalysisController {
         return ResponseEntity.ok(analysis);
     }
 
+    @PostMapping("/campaign/{id}/analyze-bids/batch")
+    public ResponseEntity<Map<String, Object>> queueBidAnalyses(@PathVariable UUID id,
+                                                                 @AuthenticationPrincipal UserPrincipal principal) {
+        log.info("Queueing batch bid analyses for campaign: {}", id);
+        return ResponseEntity.ok(quoteComparisonService.queueCampaignBidAnalyses(id));
+    }
+
     @GetMapping("/bid/{id}/negotiate")
     public ResponseEntity<NegotiationDto> negotiationStrategy(@PathVariable UUID id,
                                                                @AuthenticationPrincipal UserPrincipal principal) {
@@ -66,4 +81,24 @@ public class AnalysisController {
         List<NegotiationRoundDto> rounds = negotiationService.listRounds(id);
         return ResponseEntity.ok(rounds);
     }
+
+    @GetMapping("/llm/usage")
+    public ResponseEntity<Map<String, Object>> getLlmUsage() {
+        return ResponseEntity.ok(anthropicService.getUsageStats());
+    }
+
+    @GetMapping("/llm/batches")
+    public ResponseEntity<Map<String, Object>> getLlmBatchStatus() {
+        return ResponseEntity.ok(llmBatchService.getStatus());
+    }
+
+    @GetMapping("/llm/scheduler")
+    public ResponseEntity<Map<String, Object>> getLlmSchedulerStats() {
+        return ResponseEntity.ok(llmRequestScheduler.getStats());
+    }
+
+    @GetMapping("/llm/cache")
+    public ResponseEntity<Map<String, Object>> getLlmCacheStats() {
+        return ResponseEntity.ok(aiCacheService.getStats());
+    }
 }
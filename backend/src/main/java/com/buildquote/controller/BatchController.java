@@ -1,6 +1,7 @@
 package com.buildquote.controller;
 
 import com.buildquote.service.BatchHarvestService;
+import com.buildquote.service.RegistryOpenDataService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
@@ -16,9 +17,12 @@ public class BatchController {
     private static final Logger log = LoggerFactory.getLogger(BatchController.class);
 
     private final BatchHarvestService batchHarvestService;
+    private final RegistryOpenDataService registryOpenDataService;
 
-    public BatchController(BatchHarvestService batchHarvestService) {
+    public BatchController(BatchHarvestService batchHarvestService,
+                           RegistryOpenDataService registryOpenDataService) {
         this.batchHarvestService = batchHarvestService;
+        this.registryOpenDataService = registryOpenDataService;
     }
 
     /**
@@ -54,6 +58,17 @@ public class BatchController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * Resume the most recent interrupted harvest where it stopped
+     */
+    @Secured("ROLE_ADMIN")
+    @PostMapping("/harvest/resume")
+    public ResponseEntity<Map<String, Object>> resumeHarvest() {
+        log.info("Resuming interrupted harvest...");
+        Map<String, Object> result = batchHarvestService.resumeHarvest();
+        return ResponseEntity.ok(result);
+    }
+
     /**
      * Run email scraping only
      */
@@ -87,6 +102,27 @@ public class BatchController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * Start importing the registry open-data dumps from disk and re-enriching all suppliers from
+     * them. Returns the run id; progress and the result are on /registry/status
+     */
+    @Secured("ROLE_ADMIN")
+    @PostMapping("/registry/import")
+    public ResponseEntity<Map<String, Object>> importRegistryOpenData() {
+        log.info("Starting registry open-data import...");
+        Map<String, Object> result = registryOpenDataService.startImport();
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Get registry open-data import status and table sizes
+     */
+    @Secured("ROLE_ADMIN")
+    @GetMapping("/registry/status")
+    public ResponseEntity<Map<String, Object>> getRegistryStatus() {
+        return ResponseEntity.ok(registryOpenDataService.getStatus());
+    }
+
     /**
      * Get current status
      */
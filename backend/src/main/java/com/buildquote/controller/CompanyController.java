@@ -1,8 +1,10 @@
 package com.buildquote.controller;
 
 import com.buildquote.dto.CompanyPageResponse;
+import com.buildquote.service.CompanyDirectoryService;
 import com.buildquote.service.CompanyService;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -11,9 +13,11 @@ import org.springframework.web.bind.annotation.*;
 public class CompanyController {
 
     private final CompanyService companyService;
+    private final CompanyDirectoryService companyDirectoryService;
 
-    public CompanyController(CompanyService companyService) {
+    public CompanyController(CompanyService companyService, CompanyDirectoryService companyDirectoryService) {
         this.companyService = companyService;
+        this.companyDirectoryService = companyDirectoryService;
     }
 
     @GetMapping
@@ -24,9 +28,10 @@ public class CompanyController {
             @RequestParam(required = false, defaultValue = "name") String sort,
             @RequestParam(required = false, defaultValue = "asc") String dir,
             @RequestParam(required = false) String category,
-            @RequestParam(required = false) String city
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String cursor
     ) {
-        CompanyPageResponse response = companyService.getCompanies(page, size, search, sort, dir, category, city);
+        CompanyPageResponse response = companyService.getCompanies(page, size, search, sort, dir, category, city, cursor);
         return ResponseEntity.ok(response);
     }
 
@@ -35,4 +40,16 @@ public class CompanyController {
         long count = companyService.getTotalCount();
         return ResponseEntity.ok(java.util.Map.of("count", count));
     }
+
+    @Secured("ROLE_ADMIN")
+    @GetMapping("/directory/status")
+    public ResponseEntity<java.util.Map<String, Object>> getDirectoryStatus() {
+        return ResponseEntity.ok(companyDirectoryService.getStatus());
+    }
+
+    @Secured("ROLE_ADMIN")
+    @PostMapping("/directory/rebuild")
+    public ResponseEntity<java.util.Map<String, Object>> rebuildDirectory() {
+        return ResponseEntity.ok(companyDirectoryService.rebuild());
+    }
 }
@@ -2,6 +2,9 @@ package com.buildquote.controller;
 
 import com.buildquote.service.ContactCrawlerService;
 import com.buildquote.service.ContactEnrichmentService;
+import com.buildquote.service.CrawlFrontierService;
+import com.buildquote.service.CrawlResultWriter;
+import com.buildquote.service.OutboundHttpService;
 import com.buildquote.service.WebsiteCrawlerService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
@@ -17,13 +20,40 @@ public class CrawlerController {
     private final ContactCrawlerService contactCrawlerService;
     private final WebsiteCrawlerService websiteCrawlerService;
     private final ContactEnrichmentService contactEnrichmentService;
+    private final OutboundHttpService outboundHttpService;
+    private final CrawlFrontierService crawlFrontierService;
+    private final CrawlResultWriter crawlResultWriter;
 
     public CrawlerController(ContactCrawlerService contactCrawlerService,
                             WebsiteCrawlerService websiteCrawlerService,
-                            ContactEnrichmentService contactEnrichmentService) {
+                            ContactEnrichmentService contactEnrichmentService,
+                            OutboundHttpService outboundHttpService,
+                            CrawlFrontierService crawlFrontierService,
+                            CrawlResultWriter crawlResultWriter) {
         this.contactCrawlerService = contactCrawlerService;
         this.websiteCrawlerService = websiteCrawlerService;
         this.contactEnrichmentService = contactEnrichmentService;
+        this.outboundHttpService = outboundHttpService;
+        this.crawlFrontierService = crawlFrontierService;
+        this.crawlResultWriter = crawlResultWriter;
+    }
+
+    // Shared outbound HTTP layer (requests, robots.txt refusals, truncations)
+    @GetMapping("/http/stats")
+    public ResponseEntity<Map<String, Object>> getHttpStats() {
+        return ResponseEntity.ok(outboundHttpService.getStats());
+    }
+
+    // Crawl frontier (known URLs, due for re-crawl, change rate)
+    @GetMapping("/frontier/stats")
+    public ResponseEntity<Map<String, Object>> getFrontierStats() {
+        return ResponseEntity.ok(crawlFrontierService.getStats());
+    }
+
+    // Batched result writer (pending, written, failed updates)
+    @GetMapping("/writer/stats")
+    public ResponseEntity<Map<String, Object>> getWriterStats() {
+        return ResponseEntity.ok(crawlResultWriter.getStats());
     }
 
     // Google Places crawler (costs money)
@@ -1,6 +1,8 @@
 package com.buildquote.controller;
 
+import com.buildquote.service.CacheInvalidationBus;
 import com.buildquote.service.CacheWarmupService;
+import com.buildquote.service.GazetteerService;
 import com.buildquote.service.GooglePlacesService;
 import com.buildquote.service.SupplierSearchService;
 import lombok.RequiredArgsConstructor;
@@ -23,6 +25,8 @@ public class SupplierSearchController {
 
     private final SupplierSearchService supplierSearchService;
     private final CacheWarmupService cacheWarmupService;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final GazetteerService gazetteerService;
 
     /**
      * SSE endpoint for streaming supplier search results.
@@ -150,6 +154,22 @@ public class SupplierSearchController {
         return ResponseEntity.ok(cacheWarmupService.getWarmupStatus());
     }
 
+    /**
+     * Get cache invalidation bus status.
+     */
+    @GetMapping("/cache/invalidation")
+    public ResponseEntity<Map<String, Object>> getInvalidationStatus() {
+        return ResponseEntity.ok(cacheInvalidationBus.getStatus());
+    }
+
+    /**
+     * Get gazetteer and supplier geocoding status.
+     */
+    @GetMapping("/geocoding")
+    public ResponseEntity<Map<String, Object>> getGeocodingStatus() {
+        return ResponseEntity.ok(gazetteerService.getStatus());
+    }
+
     /**
      * Cleanup old cache entries manually.
      */
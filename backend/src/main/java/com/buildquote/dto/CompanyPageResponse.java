@@ -18,4 +18,6 @@ public class CompanyPageResponse {
     private int totalPages;
     private boolean hasNext;
     private boolean hasPrevious;
+    // Opaque keyset cursor for the next page; pass back as ?cursor= to seek instead of offsetting
+    private String nextCursor;
 }
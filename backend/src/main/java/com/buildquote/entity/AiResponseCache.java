@@ -27,8 +27,11 @@ public class AiResponseCache {
 
     private String model;
 
-    @Column(nullable = false, columnDefinition = "TEXT")
-    private String responseText;
+    @Column(columnDefinition = "TEXT")
+    private String responseText; // legacy rows only, new rows use responsePayload
+
+    @Column(columnDefinition = "BYTEA")
+    private byte[] responsePayload;
 
     private Integer inputTokens;
     private Integer outputTokens;
@@ -30,8 +30,11 @@ public class FileHashCache {
     @Column(name = "prompt_hash", nullable = false, length = 64)
     private String promptHash;
 
-    @Column(name = "response_json", nullable = false, columnDefinition = "TEXT")
-    private String responseJson;
+    @Column(name = "response_json", columnDefinition = "TEXT")
+    private String responseJson; // legacy rows only, new rows use responsePayload
+
+    @Column(name = "response_payload", columnDefinition = "BYTEA")
+    private byte[] responsePayload;
 
     @Column(name = "hit_count", nullable = false)
     @Builder.Default
@@ -22,7 +22,10 @@ public class GooglePlacesCache {
     private String location;
 
     @Column(columnDefinition = "TEXT")
-    private String resultsJson; // JSON array of PlaceResult
+    private String resultsJson; // JSON array of PlaceResult (legacy rows)
+
+    @Column(columnDefinition = "BYTEA")
+    private byte[] resultsPayload; // PayloadCodec-encoded List<PlaceResult>
 
     private Integer resultCount;
 
@@ -0,0 +1,68 @@
+package com.buildquote.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "llm_batch_requests")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LlmBatchRequest {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false, length = 50)
+    private String purpose;
+
+    @Column(nullable = false)
+    private UUID entityId;
+
+    @Column(columnDefinition = "TEXT")
+    private String systemPrompt;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String prompt;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer cacheTtlHours = 24;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    @Builder.Default
+    private BatchStatus status = BatchStatus.PENDING;
+
+    @Column(length = 100)
+    private String batchId;
+
+    @Column(columnDefinition = "TEXT")
+    private String responseText;
+
+    @Column(columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime submittedAt;
+    private LocalDateTime completedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    public enum BatchStatus {
+        PENDING, SUBMITTING, SUBMITTED, SUCCEEDED, FAILED
+    }
+}
@@ -43,7 +43,10 @@ public class Pipeline {
     private Integer totalSteps = 0;
 
     @Column(columnDefinition = "TEXT")
-    private String contextJson;
+    private String contextJson; // legacy rows only, new rows use contextPayload
+
+    @Column(columnDefinition = "BYTEA")
+    private byte[] contextPayload;
 
     @Column(columnDefinition = "TEXT")
     private String errorMessage;
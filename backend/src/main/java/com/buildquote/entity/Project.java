@@ -33,6 +33,10 @@ public class Project {
 
     private String location;
 
+    // Geocoded from location; cleared in the database when location changes
+    private Double latitude;
+    private Double longitude;
+
     private BigDecimal budget;
 
     @Enumerated(EnumType.STRING)
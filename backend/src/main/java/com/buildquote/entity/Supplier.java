@@ -2,11 +2,11 @@ package com.buildquote.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.UUID;
-import jakarta.persistence.AttributeConverter;
-import jakarta.persistence.Converter;
 
 @Entity
 @Table(name = "suppliers")
@@ -30,12 +30,17 @@ public class Supplier {
     private String city;
     private String county;
 
-    @Column(length = 2000)
-    @Convert(converter = StringArrayConverter.class)
+    // Set by GazetteerService from city/county; cleared in the database when either changes
+    private Double latitude;
+    private Double longitude;
+    private LocalDateTime geocodedAt;
+
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(columnDefinition = "text[]")
     private String[] categories;
 
-    @Column(length = 2000)
-    @Convert(converter = StringArrayConverter.class)
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(columnDefinition = "text[]")
     private String[] serviceAreas;
 
     private String source;
@@ -62,22 +67,3 @@ public class Supplier {
     private LocalDateTime createdAt = LocalDateTime.now();
     private LocalDateTime updatedAt = LocalDateTime.now();
 }
-
-@Converter
-class StringArrayConverter implements AttributeConverter<String[], String> {
-    @Override
-    public String convertToDatabaseColumn(String[] attribute) {
-        if (attribute == null || attribute.length == 0) {
-            return null;
-        }
-        return String.join(",", attribute);
-    }
-
-    @Override
-    public String[] convertToEntityAttribute(String dbData) {
-        if (dbData == null || dbData.isEmpty()) {
-            return new String[0];
-        }
-        return dbData.split(",");
-    }
-}
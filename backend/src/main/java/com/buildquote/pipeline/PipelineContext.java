@@ -1,5 +1,6 @@
 package com.buildquote.pipeline;
 
+import com.buildquote.util.PayloadCodec;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Data;
@@ -64,4 +65,47 @@ public class PipelineContext {
             return new PipelineContext();
         }
     }
+
+    /**
+     * Encode for the binary payload column. If some value cannot be serialized, the context is stored
+     * without the offending entries rather than failing the caller.
+     */
+    public byte[] toPayload() {
+        try {
+            return PayloadCodec.encodeValue(this);
+        } catch (Exception e) {
+            log.error("Failed to serialize PipelineContext: {}", e.getMessage());
+        }
+        PipelineContext safe = new PipelineContext();
+        safe.setPipelineId(pipelineId);
+        safe.setProjectId(projectId);
+        safe.setUserId(userId);
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            try {
+                MAPPER.writeValueAsBytes(entry.getValue());
+                safe.put(entry.getKey(), entry.getValue());
+            } catch (Exception e) {
+                log.warn("Dropping unserializable context value '{}': {}", entry.getKey(), e.getMessage());
+            }
+        }
+        try {
+            return PayloadCodec.encodeValue(safe);
+        } catch (Exception e) {
+            log.error("Failed to serialize PipelineContext without unserializable values: {}", e.getMessage());
+            return PayloadCodec.encodeValue(new PipelineContext());
+        }
+    }
+
+    /**
+     * Restore from the binary payload column, falling back to the legacy JSON column for older pipelines.
+     */
+    public static PipelineContext fromPayload(byte[] payload, String legacyJson) {
+        if (payload == null) return fromJson(legacyJson);
+        try {
+            return PayloadCodec.decodeValue(payload, PipelineContext.class);
+        } catch (Exception e) {
+            log.error("Failed to decode PipelineContext payload: {}", e.getMessage());
+            return new PipelineContext();
+        }
+    }
 }
@@ -6,6 +6,7 @@ import com.buildquote.entity.Project;
 import com.buildquote.entity.User;
 import com.buildquote.repository.PipelineRepository;
 import com.buildquote.repository.PipelineStepRepository;
+import com.buildquote.service.LlmRequestScheduler;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -173,7 +174,7 @@ public class PipelineEngine {
         pipeline.setStartedAt(LocalDateTime.now());
         pipelineRepository.save(pipeline);
 
-        PipelineContext context = PipelineContext.fromJson(pipeline.getContextJson());
+        PipelineContext context = PipelineContext.fromPayload(pipeline.getContextPayload(), pipeline.getContextJson());
         context.setPipelineId(pipelineId);
         if (pipeline.getProject() != null) {
             context.setProjectId(pipeline.getProject().getId());
@@ -228,11 +229,12 @@ public class PipelineEngine {
             stepRepository.save(step);
 
             pipeline.setCurrentStep(i);
-            pipeline.setContextJson(context.toJson());
+            storeContext(pipeline, context);
             pipelineRepository.save(pipeline);
 
             try {
-                StepResult result = handler.execute(context);
+                StepResult result = LlmRequestScheduler.withPriority(
+                        LlmRequestScheduler.Priority.PIPELINE, () -> handler.execute(context));
 
                 if (result.getStatus() == StepResult.Status.SUCCESS) {
                     step.setStatus(PipelineStep.StepStatus.COMPLETED);
@@ -247,7 +249,7 @@ public class PipelineEngine {
                     step.setStatus(PipelineStep.StepStatus.PENDING);
                     stepRepository.save(step);
                     pipeline.setStatus(Pipeline.PipelineStatus.PAUSED);
-                    pipeline.setContextJson(context.toJson());
+                    storeContext(pipeline, context);
                     pipelineRepository.save(pipeline);
                     log.info("Pipeline {} paused at step {} ({}): awaiting",
                             pipelineId, i, step.getStepType());
@@ -273,7 +275,7 @@ public class PipelineEngine {
         // All steps completed
         pipeline.setStatus(Pipeline.PipelineStatus.COMPLETED);
         pipeline.setCompletedAt(LocalDateTime.now());
-        pipeline.setContextJson(context.toJson());
+        storeContext(pipeline, context);
         pipelineRepository.save(pipeline);
         log.info("Pipeline {} completed successfully", pipelineId);
     }
@@ -300,9 +302,14 @@ public class PipelineEngine {
 
             pipeline.setStatus(Pipeline.PipelineStatus.FAILED);
             pipeline.setErrorMessage("Step '" + step.getStepName() + "' failed: " + error);
-            pipeline.setContextJson(context.toJson());
+            storeContext(pipeline, context);
             pipelineRepository.save(pipeline);
             log.error("Pipeline {} failed at step {}: {}", pipeline.getId(), step.getStepOrder(), error);
         }
     }
+
+    private void storeContext(Pipeline pipeline, PipelineContext context) {
+        pipeline.setContextPayload(context.toPayload());
+        pipeline.setContextJson(null);
+    }
 }
@@ -6,8 +6,10 @@ import com.buildquote.pipeline.PipelineContext;
 import com.buildquote.pipeline.StepHandler;
 import com.buildquote.pipeline.StepResult;
 import com.buildquote.repository.ProjectRepository;
+import com.buildquote.service.GazetteerService;
 import com.buildquote.service.SupplierMatchingService;
 import com.buildquote.service.SupplierMatchingService.ScoredSupplier;
+import com.buildquote.util.GeoPoint;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -22,6 +24,7 @@ public class MatchSuppliersStepHandler implements StepHandler {
 
     private final ProjectRepository projectRepository;
     private final SupplierMatchingService supplierMatchingService;
+    private final GazetteerService gazetteerService;
 
     @Override
     public String getStepType() {
@@ -35,15 +38,31 @@ public class MatchSuppliersStepHandler implements StepHandler {
                 .orElseThrow(() -> new RuntimeException("Project not found"));
 
         String location = project.getLocation() != null ? project.getLocation() : "Tallinn";
+
+        // Geocode the project once; the coordinates are cleared if its location changes
+        GeoPoint projectPoint = null;
+        if (project.getLatitude() != null && project.getLongitude() != null) {
+            projectPoint = new GeoPoint(project.getLatitude(), project.getLongitude());
+        } else {
+            projectPoint = gazetteerService.geocode(location).orElse(null);
+            if (projectPoint != null && project.getLocation() != null) {
+                project.setLatitude(projectPoint.latitude());
+                project.setLongitude(projectPoint.longitude());
+            }
+        }
         Map<String, Integer> supplierCounts = new HashMap<>();
         List<String> allSupplierIds = new ArrayList<>();
         int totalMatched = 0;
 
+        // All stages are scored together; stages sharing a category share one ranking
+        Map<String, List<ScoredSupplier>> scoredByCategory =
+                supplierMatchingService.findAndScoreSuppliers(project.getStages(), location, projectPoint);
+
         for (ProjectStage stage : project.getStages()) {
             String category = stage.getCategory();
             if (category == null) continue;
 
-            List<ScoredSupplier> scored = supplierMatchingService.findAndScoreSuppliers(stage, location);
+            List<ScoredSupplier> scored = scoredByCategory.getOrDefault(category, List.of());
 
             // Store top matches as JSON in the stage
             stage.setMatchedSuppliersJson(supplierMatchingService.toJson(scored));
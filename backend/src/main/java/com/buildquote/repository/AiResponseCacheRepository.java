@@ -16,10 +16,6 @@ public interface AiResponseCacheRepository extends JpaRepository<AiResponseCache
 
     Optional<AiResponseCache> findByCacheKeyAndExpiresAtAfter(String cacheKey, LocalDateTime now);
 
-    @Modifying
-    @Query("UPDATE AiResponseCache c SET c.hitCount = c.hitCount + 1 WHERE c.id = :id")
-    void incrementHitCount(@Param("id") UUID id);
-
     @Modifying
     @Query("DELETE FROM AiResponseCache c WHERE c.expiresAt < :now")
     int deleteExpired(@Param("now") LocalDateTime now);
@@ -4,6 +4,7 @@ import com.buildquote.entity.FileHashCache;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
@@ -13,6 +14,23 @@ public interface FileHashCacheRepository extends JpaRepository<FileHashCache, UU
 
     Optional<FileHashCache> findByCacheKeyAndOperationType(String cacheKey, String operationType);
 
+    @Modifying
+    @Query(value = """
+            INSERT INTO file_hash_cache (cache_key, operation_type, prompt_hash, response_payload, hit_count, created_at, expires_at)
+            VALUES (:cacheKey, :operationType, :promptHash, :payload, 0, NOW(), :expiresAt)
+            ON CONFLICT (cache_key) DO UPDATE SET
+                operation_type = EXCLUDED.operation_type,
+                prompt_hash = EXCLUDED.prompt_hash,
+                response_payload = EXCLUDED.response_payload,
+                response_json = NULL,
+                hit_count = 0,
+                created_at = NOW(),
+                expires_at = EXCLUDED.expires_at
+            """, nativeQuery = true)
+    int upsert(@Param("cacheKey") String cacheKey, @Param("operationType") String operationType,
+               @Param("promptHash") String promptHash, @Param("payload") byte[] payload,
+               @Param("expiresAt") LocalDateTime expiresAt);
+
     @Modifying
     @Query("DELETE FROM FileHashCache f WHERE f.expiresAt < :now")
     int deleteExpired(LocalDateTime now);
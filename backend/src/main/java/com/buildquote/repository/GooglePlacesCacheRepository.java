@@ -13,16 +13,13 @@ import java.util.Optional;
 @Repository
 public interface GooglePlacesCacheRepository extends JpaRepository<GooglePlacesCache, Long> {
 
-    @Query("SELECT c FROM GooglePlacesCache c WHERE c.category = :category AND c.location = :location AND c.searchedAt > :minDate ORDER BY c.searchedAt DESC")
-    Optional<GooglePlacesCache> findValidCache(
-        @Param("category") String category,
-        @Param("location") String location,
-        @Param("minDate") LocalDateTime minDate
-    );
+    // Refreshed entries are inserted as new rows, so pick the newest one
+    Optional<GooglePlacesCache> findFirstByCategoryAndLocationAndSearchedAtAfterOrderBySearchedAtDesc(
+        String category, String location, LocalDateTime minDate);
 
-    @Modifying
-    @Query("UPDATE GooglePlacesCache c SET c.lastUsedAt = :now, c.useCount = c.useCount + 1 WHERE c.id = :id")
-    void incrementUseCount(@Param("id") Long id, @Param("now") LocalDateTime now);
+    default Optional<GooglePlacesCache> findValidCache(String category, String location, LocalDateTime minDate) {
+        return findFirstByCategoryAndLocationAndSearchedAtAfterOrderBySearchedAtDesc(category, location, minDate);
+    }
 
     @Modifying
     @Query("DELETE FROM GooglePlacesCache c WHERE c.searchedAt < :cutoffDate")
@@ -0,0 +1,74 @@
+package com.buildquote.repository;
+
+import com.buildquote.entity.LlmBatchRequest;
+import com.buildquote.entity.LlmBatchRequest.BatchStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface LlmBatchRequestRepository extends JpaRepository<LlmBatchRequest, UUID> {
+
+    List<LlmBatchRequest> findByStatusOrderByCreatedAtAsc(BatchStatus status, Pageable pageable);
+
+    List<LlmBatchRequest> findByBatchIdAndStatus(String batchId, BatchStatus status);
+
+    boolean existsByPurposeAndEntityIdAndStatusIn(String purpose, UUID entityId, Collection<BatchStatus> statuses);
+
+    /**
+     * Claim up to {@code limit} pending requests for one submission by moving them to SUBMITTING
+     * under the given claim token. Rows locked by another replica are skipped.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE llm_batch_requests SET status = 'SUBMITTING', batch_id = :claim, submitted_at = NOW()
+            WHERE id IN (SELECT id FROM llm_batch_requests WHERE status = 'PENDING'
+                         ORDER BY created_at LIMIT :limit FOR UPDATE SKIP LOCKED)
+            """, nativeQuery = true)
+    int claimPending(@Param("claim") String claim, @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE LlmBatchRequest r SET r.status = com.buildquote.entity.LlmBatchRequest.BatchStatus.SUBMITTED, " +
+           "r.batchId = :batchId WHERE r.batchId = :claim " +
+           "AND r.status = com.buildquote.entity.LlmBatchRequest.BatchStatus.SUBMITTING")
+    int markSubmitted(@Param("claim") String claim, @Param("batchId") String batchId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE LlmBatchRequest r SET r.status = com.buildquote.entity.LlmBatchRequest.BatchStatus.PENDING, " +
+           "r.batchId = NULL, r.submittedAt = NULL WHERE r.batchId = :claim " +
+           "AND r.status = com.buildquote.entity.LlmBatchRequest.BatchStatus.SUBMITTING")
+    int releaseClaim(@Param("claim") String claim);
+
+    /**
+     * Fail claims whose submission never got recorded. They may or may not have reached the
+     * provider, so they are not resubmitted automatically.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE LlmBatchRequest r SET r.status = com.buildquote.entity.LlmBatchRequest.BatchStatus.FAILED, " +
+           "r.errorMessage = 'Submission outcome unknown', r.completedAt = CURRENT_TIMESTAMP " +
+           "WHERE r.status = com.buildquote.entity.LlmBatchRequest.BatchStatus.SUBMITTING AND r.submittedAt < :before")
+    int failStaleClaims(@Param("before") LocalDateTime before);
+
+    @Query("SELECT DISTINCT r.batchId FROM LlmBatchRequest r WHERE r.status = :status AND r.batchId IS NOT NULL")
+    List<String> findDistinctBatchIdsByStatus(@Param("status") BatchStatus status);
+
+    @Query("SELECT r.status, COUNT(r) FROM LlmBatchRequest r GROUP BY r.status")
+    List<Object[]> countByStatus();
+
+    @Modifying
+    @Query("DELETE FROM LlmBatchRequest r WHERE r.status IN :statuses AND r.completedAt < :before")
+    int deleteFinishedBefore(@Param("statuses") Collection<BatchStatus> statuses, @Param("before") LocalDateTime before);
+}
@@ -21,15 +21,27 @@ public interface SupplierRepository extends JpaRepository<Supplier, UUID> {
 
     boolean existsByGooglePlaceId(String googlePlaceId);
 
-    @Query(value = "SELECT COUNT(*) FROM suppliers WHERE categories LIKE CONCAT('%', :category, '%')", nativeQuery = true)
+    // categories and service_areas are text[] with GIN indexes; @> and && use them
+
+    @Query(value = "SELECT COUNT(*) FROM suppliers WHERE categories @> ARRAY[CAST(:category AS text)]", nativeQuery = true)
     int countByCategory(@Param("category") String category);
 
-    @Query(value = "SELECT COUNT(*) FROM suppliers WHERE categories LIKE CONCAT('%', :category, '%') AND service_areas LIKE CONCAT('%', :city, '%')", nativeQuery = true)
+    // City and service areas compare case-insensitively; the category GIN index still narrows the scan
+    @Query(value = "SELECT COUNT(*) FROM suppliers WHERE categories @> ARRAY[CAST(:category AS text)] " +
+           "AND (LOWER(city) = LOWER(:city) " +
+           "OR EXISTS (SELECT 1 FROM unnest(service_areas) AS a(area) WHERE LOWER(a.area) = LOWER(:city)))",
+           nativeQuery = true)
     int countByCategoryAndCity(@Param("category") String category, @Param("city") String city);
 
-    @Query(value = "SELECT * FROM suppliers WHERE categories LIKE CONCAT('%', :category, '%') LIMIT :limit", nativeQuery = true)
+    @Query(value = "SELECT * FROM suppliers WHERE categories @> ARRAY[CAST(:category AS text)] LIMIT :limit", nativeQuery = true)
     List<Supplier> findByCategory(@Param("category") String category, @Param("limit") int limit);
 
+    /**
+     * Suppliers in any of the given categories.
+     */
+    @Query(value = "SELECT * FROM suppliers WHERE categories && CAST(:categories AS text[]) LIMIT :limit", nativeQuery = true)
+    List<Supplier> findByAnyCategory(@Param("categories") String[] categories, @Param("limit") int limit);
+
     @Query("SELECT s FROM Supplier s WHERE " +
            "(:search IS NULL OR :search = '' OR " +
            "LOWER(s.companyName) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
@@ -42,17 +54,16 @@ public interface SupplierRepository extends JpaRepository<Supplier, UUID> {
     long countAll();
 
     /**
-     * Batch count suppliers by multiple categories - much faster than individual queries.
-     * Returns list of [category, count] arrays.
+     * Supplier counts per (category, city), one row per category a supplier belongs to.
+     * Returns list of [category, city, count] arrays.
      */
-    @Query(value = "SELECT categories, COUNT(*) as cnt FROM suppliers " +
-                   "WHERE categories IS NOT NULL GROUP BY categories", nativeQuery = true)
-    List<Object[]> countAllByCategory();
+    @Query(value = "SELECT c.category, s.city, COUNT(*) as cnt FROM suppliers s " +
+           "CROSS JOIN LATERAL unnest(s.categories) AS c(category) GROUP BY c.category, s.city", nativeQuery = true)
+    List<Object[]> countAllByCategoryAndCity();
 
     /**
-     * Get total count per city for quick lookups.
+     * Supplier counts per city. Returns list of [city, count] arrays.
      */
-    @Query(value = "SELECT city, COUNT(*) as cnt FROM suppliers " +
-                   "WHERE city IS NOT NULL GROUP BY city", nativeQuery = true)
+    @Query(value = "SELECT city, COUNT(*) as cnt FROM suppliers GROUP BY city", nativeQuery = true)
     List<Object[]> countAllByCity();
 }
@@ -2,36 +2,93 @@ package com.buildquote.service;
 
 import com.buildquote.entity.AiResponseCache;
 import com.buildquote.repository.AiResponseCacheRepository;
+import com.buildquote.util.LruCache;
+import com.buildquote.util.PayloadCodec;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * AI response cache with two tiers: a bounded in-process LRU in front of ai_response_cache.
+ * Hit counts are accumulated in memory and flushed to the table in batches, so a hot
+ * cached prompt no longer turns every read into a row update.
+ */
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class AiCacheService {
 
     private final AiResponseCacheRepository cacheRepository;
+    private final JdbcTemplate jdbcTemplate;
 
     private static final int DEFAULT_TTL_HOURS = 24;
 
+    @Value("${ai.cache.local.max-entries:2000}")
+    private int localMaxEntries;
+
+    @Value("${ai.cache.local.ttl-minutes:60}")
+    private int localTtlMinutes;
+
+    @Value("${ai.cache.negative-ttl-seconds:30}")
+    private int negativeTtlSeconds;
+
+    private LruCache<String, LocalEntry> localCache;
+    private LruCache<String, String> negativeCache;
+
+    // cacheKey -> hits not yet written to ai_response_cache.hit_count
+    private final ConcurrentHashMap<String, LongAdder> pendingHits = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, NamespaceStats> namespaceStats = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void initLocalCache() {
+        localCache = new LruCache<>(localMaxEntries, Duration.ofMinutes(localTtlMinutes).toMillis(),
+                (key, entry) -> stats(entry.model()).evictions.increment());
+        negativeCache = new LruCache<>(localMaxEntries, Duration.ofSeconds(negativeTtlSeconds).toMillis());
+    }
+
     public Optional<String> getCached(String prompt, String model) {
         String key = generateCacheKey(prompt, model);
+        NamespaceStats stats = stats(model);
+
+        LocalEntry local = localCache.get(key);
+        if (local != null) {
+            stats.localHits.increment();
+            recordHit(key);
+            return Optional.of(local.response());
+        }
+
+        if (negativeCache.get(key) != null) {
+            stats.misses.increment();
+            return Optional.empty();
+        }
+
         Optional<AiResponseCache> cached = cacheRepository.findByCacheKeyAndExpiresAtAfter(key, LocalDateTime.now());
 
         if (cached.isPresent()) {
-            cacheRepository.incrementHitCount(cached.get().getId());
+            String response = decodeResponse(cached.get());
+            stats.dbHits.increment();
+            putLocal(key, model, response, cached.get().getExpiresAt());
+            recordHit(key);
             log.debug("AI cache hit for key: {}", key.substring(0, 16));
-            return Optional.of(cached.get().getResponseText());
+            return Optional.of(response);
         }
 
+        stats.misses.increment();
+        negativeCache.put(key, model);
         return Optional.empty();
     }
 
@@ -43,15 +100,19 @@ public class AiCacheService {
     @Transactional
     public void cache(String prompt, String model, String response, int ttlHours) {
         String key = generateCacheKey(prompt, model);
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(ttlHours);
 
         AiResponseCache entry = AiResponseCache.builder()
                 .cacheKey(key)
                 .model(model)
-                .responseText(response)
-                .expiresAt(LocalDateTime.now().plusHours(ttlHours))
+                .responsePayload(PayloadCodec.encodeText(response))
+                .expiresAt(expiresAt)
                 .hitCount(0)
                 .build();
 
+        negativeCache.invalidate(key);
+        putLocal(key, model, response, expiresAt);
+
         try {
             cacheRepository.save(entry);
             log.debug("AI response cached with key: {}", key.substring(0, 16));
@@ -61,6 +122,32 @@ public class AiCacheService {
         }
     }
 
+    /**
+     * Write accumulated hit counts in one JDBC batch.
+     */
+    @Scheduled(fixedDelayString = "${ai.cache.hit-flush-interval-ms:30000}")
+    @PreDestroy
+    public void flushHitCounts() {
+        if (pendingHits.isEmpty()) return;
+
+        List<Object[]> updates = new ArrayList<>();
+        for (String key : new ArrayList<>(pendingHits.keySet())) {
+            LongAdder adder = pendingHits.remove(key);
+            if (adder != null && adder.sum() > 0) {
+                updates.add(new Object[] { adder.sum(), key });
+            }
+        }
+        if (updates.isEmpty()) return;
+
+        try {
+            jdbcTemplate.batchUpdate(
+                    "UPDATE ai_response_cache SET hit_count = hit_count + ? WHERE cache_key = ?", updates);
+            log.debug("Flushed AI cache hit counts for {} entries", updates.size());
+        } catch (Exception e) {
+            log.warn("Failed to flush AI cache hit counts: {}", e.getMessage());
+        }
+    }
+
     @Scheduled(fixedRate = 3600000) // Every hour
     @Transactional
     public void cleanupExpired() {
@@ -70,6 +157,55 @@ public class AiCacheService {
         }
     }
 
+    /**
+     * Hit, miss and eviction rates per cache namespace (the model argument).
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> namespaces = new TreeMap<>();
+        namespaceStats.forEach((namespace, s) -> {
+            long localHits = s.localHits.sum();
+            long dbHits = s.dbHits.sum();
+            long misses = s.misses.sum();
+            long lookups = localHits + dbHits + misses;
+
+            Map<String, Object> ns = new LinkedHashMap<>();
+            ns.put("localHits", localHits);
+            ns.put("dbHits", dbHits);
+            ns.put("misses", misses);
+            ns.put("hitRate", lookups > 0 ? (double) (localHits + dbHits) / lookups : 0.0);
+            ns.put("localHitRate", lookups > 0 ? (double) localHits / lookups : 0.0);
+            ns.put("evictions", s.evictions.sum());
+            namespaces.put(namespace, ns);
+        });
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("local", localCache.getStats());
+        stats.put("negative", negativeCache.getStats());
+        stats.put("pendingHitFlushes", pendingHits.size());
+        stats.put("namespaces", namespaces);
+        return stats;
+    }
+
+    private String decodeResponse(AiResponseCache entry) {
+        return entry.getResponsePayload() != null
+                ? PayloadCodec.decodeText(entry.getResponsePayload())
+                : entry.getResponseText();
+    }
+
+    private void putLocal(String key, String model, String response, LocalDateTime expiresAt) {
+        long untilExpiry = Duration.between(LocalDateTime.now(), expiresAt).toMillis();
+        long ttl = Math.min(untilExpiry, Duration.ofMinutes(localTtlMinutes).toMillis());
+        localCache.put(key, new LocalEntry(model, response), ttl);
+    }
+
+    private void recordHit(String key) {
+        pendingHits.computeIfAbsent(key, k -> new LongAdder()).increment();
+    }
+
+    private NamespaceStats stats(String model) {
+        return namespaceStats.computeIfAbsent(model != null ? model : "default", k -> new NamespaceStats());
+    }
+
     private String generateCacheKey(String prompt, String model) {
         try {
             String input = model + ":" + prompt;
@@ -86,4 +222,13 @@ public class AiCacheService {
             throw new RuntimeException("SHA-256 not available", e);
         }
     }
+
+    private record LocalEntry(String model, String response) {}
+
+    private static final class NamespaceStats {
+        private final LongAdder localHits = new LongAdder();
+        private final LongAdder dbHits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+    }
 }
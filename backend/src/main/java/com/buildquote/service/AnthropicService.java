@@ -2,16 +2,23 @@ package com.buildquote.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @Slf4j
@@ -26,12 +33,41 @@ public class AnthropicService {
     @Value("${anthropic.model}")
     private String model;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    // Shorter prefixes are never cached by the API, so a breakpoint on them only wastes the marker
+    @Value("${anthropic.cache.min-prompt-tokens:1024}")
+    private int minCacheablePromptTokens;
+
+    private static final int MAX_RATE_LIMIT_RETRIES = 2;
+    private static final long DEFAULT_RETRY_AFTER_SECONDS = 30;
+
+    // Generations take far longer than the default API read timeout
+    @Value("${anthropic.api.timeout-ms:180000}")
+    private long timeoutMs;
+
+    private RestTemplate restTemplate;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    // Token usage counters (since startup)
+    private final AtomicLong callCount = new AtomicLong(0);
+    private final AtomicLong uncachedInputTokens = new AtomicLong(0);
+    private final AtomicLong cacheWriteInputTokens = new AtomicLong(0);
+    private final AtomicLong cacheReadInputTokens = new AtomicLong(0);
+    private final AtomicLong outputTokens = new AtomicLong(0);
+
+    @Autowired
+    private LlmRequestScheduler requestScheduler;
+
+    @Autowired(required = false)
     private AiCacheService aiCacheService;
 
+    @Autowired
+    private OutboundHttpService outboundHttpService;
+
+    @PostConstruct
+    void init() {
+        restTemplate = outboundHttpService.newRestTemplate(Duration.ofMillis(timeoutMs));
+    }
+
     /**
      * Call Claude with automatic caching support.
      * If AiCacheService is available, checks cache first and stores response after.
@@ -55,174 +91,335 @@ public class AnthropicService {
     }
 
     public String callClaude(String prompt) {
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("x-api-key", apiKey);
-            headers.set("anthropic-version", "2023-06-01");
-
-            Map<String, Object> requestBody = Map.of(
-                "model", model,
-                "max_tokens", 4096,
-                "messages", List.of(
-                    Map.of("role", "user", "content", prompt)
-                )
-            );
-
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(
-                apiUrl,
-                HttpMethod.POST,
-                entity,
-                String.class
-            );
-
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                JsonNode root = objectMapper.readTree(response.getBody());
-                JsonNode content = root.path("content");
-                if (content.isArray() && content.size() > 0) {
-                    return content.get(0).path("text").asText();
-                }
-            }
+        return callClaude(null, prompt);
+    }
 
-            log.error("Unexpected response from Anthropic API: {}", response.getBody());
-            return null;
-        } catch (Exception e) {
-            log.error("Error calling Anthropic API: {}", e.getMessage(), e);
-            return null;
-        }
+    /**
+     * Call Claude with a static system prompt and a variable user prompt.
+     * The system prompt is marked for server-side prompt caching, so repeated
+     * calls with the same instructions only pay for the user part.
+     */
+    public String callClaude(String systemPrompt, String userPrompt) {
+        return sendMessage(systemPrompt, userPrompt, "Anthropic API");
     }
 
     /**
      * Call Claude Vision API with an image for construction plan analysis
      */
     public String callClaudeVision(byte[] imageData, String mediaType, String prompt) {
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("x-api-key", apiKey);
-            headers.set("anthropic-version", "2023-06-01");
+        return callClaudeVision(imageData, mediaType, null, prompt);
+    }
 
-            String base64Image = Base64.getEncoder().encodeToString(imageData);
+    /**
+     * Call Claude Vision API with an image, a cacheable system prompt and an optional user prompt
+     */
+    public String callClaudeVision(byte[] imageData, String mediaType, String systemPrompt, String userPrompt) {
+        log.info("Calling Claude Vision API with image of size {} bytes", imageData.length);
+        return callClaudeVisionMultiple(List.of(imageData), List.of(mediaType), systemPrompt, userPrompt);
+    }
+
+    /**
+     * Call Claude Vision API with multiple images
+     */
+    public String callClaudeVisionMultiple(List<byte[]> images, List<String> mediaTypes, String prompt) {
+        return callClaudeVisionMultiple(images, mediaTypes, null, prompt);
+    }
 
-            // Build content array with image and text
-            List<Map<String, Object>> contentParts = new ArrayList<>();
+    /**
+     * Call Claude Vision API with multiple images, a cacheable system prompt and an optional user prompt
+     */
+    public String callClaudeVisionMultiple(List<byte[]> images, List<String> mediaTypes,
+                                           String systemPrompt, String userPrompt) {
+        List<Map<String, Object>> contentParts = new ArrayList<>();
 
-            // Add image
+        // Add all images
+        for (int i = 0; i < images.size(); i++) {
+            String base64Image = Base64.getEncoder().encodeToString(images.get(i));
             contentParts.add(Map.of(
                 "type", "image",
                 "source", Map.of(
                     "type", "base64",
-                    "media_type", mediaType,
+                    "media_type", mediaTypes.get(i),
                     "data", base64Image
                 )
             ));
+        }
 
-            // Add text prompt
+        // Add text prompt
+        if (userPrompt != null && !userPrompt.isBlank()) {
             contentParts.add(Map.of(
                 "type", "text",
-                "text", prompt
+                "text", userPrompt
             ));
+        }
 
-            Map<String, Object> requestBody = Map.of(
-                "model", model,
-                "max_tokens", 4096,
-                "messages", List.of(
-                    Map.of("role", "user", "content", contentParts)
-                )
-            );
+        if (images.size() > 1) {
+            log.info("Calling Claude Vision API with {} images", images.size());
+        }
+        return sendMessage(systemPrompt, contentParts, "Anthropic Vision API");
+    }
 
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+    /**
+     * Get token usage since startup, split into uncached, cache-write and cache-read input tokens.
+     */
+    public Map<String, Object> getUsageStats() {
+        long uncached = uncachedInputTokens.get();
+        long cacheWrite = cacheWriteInputTokens.get();
+        long cacheRead = cacheReadInputTokens.get();
+        long totalInput = uncached + cacheWrite + cacheRead;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("calls", callCount.get());
+        stats.put("inputTokens", totalInput);
+        stats.put("uncachedInputTokens", uncached);
+        stats.put("cacheWriteInputTokens", cacheWrite);
+        stats.put("cacheReadInputTokens", cacheRead);
+        stats.put("outputTokens", outputTokens.get());
+        stats.put("cacheReadRatio", totalInput > 0 ? (double) cacheRead / totalInput : 0.0);
+        return stats;
+    }
 
-            log.info("Calling Claude Vision API with image of size {} bytes", imageData.length);
+    /**
+     * Submit prompts as a single message batch. Returns the batch id, or null on failure.
+     */
+    public String createMessageBatch(List<BatchRequest> requests) {
+        try {
+            List<Map<String, Object>> batchRequests = new ArrayList<>();
+            for (BatchRequest request : requests) {
+                batchRequests.add(Map.of(
+                    "custom_id", request.customId(),
+                    "params", buildMessageParams(request.systemPrompt(), request.userPrompt())
+                ));
+            }
 
+            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(Map.of("requests", batchRequests), createHeaders());
             ResponseEntity<String> response = restTemplate.exchange(
-                apiUrl,
+                apiUrl + "/batches",
                 HttpMethod.POST,
                 entity,
                 String.class
             );
 
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                JsonNode root = objectMapper.readTree(response.getBody());
-                JsonNode content = root.path("content");
-                if (content.isArray() && content.size() > 0) {
-                    return content.get(0).path("text").asText();
-                }
+                String batchId = objectMapper.readTree(response.getBody()).path("id").asText(null);
+                log.info("Submitted message batch {} with {} requests", batchId, requests.size());
+                return batchId;
             }
 
-            log.error("Unexpected response from Anthropic Vision API: {}", response.getBody());
+            log.error("Unexpected response from Anthropic Batch API: {}", response.getBody());
             return null;
         } catch (Exception e) {
-            log.error("Error calling Anthropic Vision API: {}", e.getMessage(), e);
+            log.error("Error submitting message batch: {}", e.getMessage(), e);
             return null;
         }
     }
 
     /**
-     * Call Claude Vision API with multiple images
+     * Get message batch metadata (processing_status, request_counts, results_url).
      */
-    public String callClaudeVisionMultiple(List<byte[]> images, List<String> mediaTypes, String prompt) {
+    public JsonNode getMessageBatch(String batchId) {
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("x-api-key", apiKey);
-            headers.set("anthropic-version", "2023-06-01");
-
-            List<Map<String, Object>> contentParts = new ArrayList<>();
-
-            // Add all images
-            for (int i = 0; i < images.size(); i++) {
-                String base64Image = Base64.getEncoder().encodeToString(images.get(i));
-                contentParts.add(Map.of(
-                    "type", "image",
-                    "source", Map.of(
-                        "type", "base64",
-                        "media_type", mediaTypes.get(i),
-                        "data", base64Image
-                    )
-                ));
-            }
-
-            // Add text prompt
-            contentParts.add(Map.of(
-                "type", "text",
-                "text", prompt
-            ));
-
-            Map<String, Object> requestBody = Map.of(
-                "model", model,
-                "max_tokens", 4096,
-                "messages", List.of(
-                    Map.of("role", "user", "content", contentParts)
-                )
+            ResponseEntity<String> response = restTemplate.exchange(
+                apiUrl + "/batches/" + batchId,
+                HttpMethod.GET,
+                new HttpEntity<>(createHeaders()),
+                String.class
             );
+            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
+                return objectMapper.readTree(response.getBody());
+            }
+            return null;
+        } catch (Exception e) {
+            log.error("Error fetching message batch {}: {}", batchId, e.getMessage());
+            return null;
+        }
+    }
 
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-
-            log.info("Calling Claude Vision API with {} images", images.size());
-
+    /**
+     * Download and parse the JSONL results of an ended message batch.
+     */
+    public List<BatchResult> getMessageBatchResults(String resultsUrl) {
+        try {
             ResponseEntity<String> response = restTemplate.exchange(
-                apiUrl,
-                HttpMethod.POST,
-                entity,
+                resultsUrl,
+                HttpMethod.GET,
+                new HttpEntity<>(createHeaders()),
                 String.class
             );
+            if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
+                return null;
+            }
 
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                JsonNode root = objectMapper.readTree(response.getBody());
-                JsonNode content = root.path("content");
-                if (content.isArray() && content.size() > 0) {
-                    return content.get(0).path("text").asText();
+            List<BatchResult> results = new ArrayList<>();
+            for (String line : response.getBody().split("\n")) {
+                if (line.isBlank()) continue;
+                JsonNode row = objectMapper.readTree(line);
+                String customId = row.path("custom_id").asText();
+                JsonNode result = row.path("result");
+                String type = result.path("type").asText();
+                if ("succeeded".equals(type)) {
+                    JsonNode message = result.path("message");
+                    recordUsage(message.path("usage"), "Anthropic Batch API");
+                    results.add(new BatchResult(customId, extractText(message), null));
+                } else {
+                    String error = result.path("error").path("error").path("message").asText(type);
+                    results.add(new BatchResult(customId, null, error));
                 }
             }
-
-            log.error("Unexpected response from Anthropic Vision API: {}", response.getBody());
-            return null;
+            return results;
         } catch (Exception e) {
-            log.error("Error calling Anthropic Vision API: {}", e.getMessage(), e);
+            log.error("Error fetching message batch results: {}", e.getMessage(), e);
             return null;
         }
     }
+
+    private String sendMessage(String systemPrompt, Object userContent, String apiName) {
+        int estimatedTokens = estimateInputTokens(systemPrompt, userContent);
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(
+            buildMessageParams(systemPrompt, userContent), createHeaders());
+
+        for (int attempt = 0; ; attempt++) {
+            LlmRequestScheduler.Permit permit;
+            try {
+                permit = requestScheduler.acquire(estimatedTokens);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (Exception e) {
+                log.error("Error calling {}: {}", apiName, e.getMessage());
+                return null;
+            }
+
+            boolean success = false;
+            try {
+                ResponseEntity<String> response = restTemplate.exchange(
+                    apiUrl,
+                    HttpMethod.POST,
+                    entity,
+                    String.class
+                );
+
+                if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
+                    JsonNode root = objectMapper.readTree(response.getBody());
+                    requestScheduler.recordActualInputTokens(permit, recordUsage(root.path("usage"), apiName));
+                    success = true;
+                    String text = extractText(root);
+                    if (text != null) {
+                        return text;
+                    }
+                }
+
+                log.error("Unexpected response from {}: {}", apiName, response.getBody());
+                return null;
+            } catch (HttpClientErrorException.TooManyRequests e) {
+                requestScheduler.onRateLimited(parseRetryAfter(e));
+                if (attempt < MAX_RATE_LIMIT_RETRIES) {
+                    continue;
+                }
+                log.error("Error calling {}: rate limited after {} attempts", apiName, attempt + 1);
+                return null;
+            } catch (Exception e) {
+                log.error("Error calling {}: {}", apiName, e.getMessage(), e);
+                return null;
+            } finally {
+                requestScheduler.release(permit, success);
+            }
+        }
+    }
+
+    private long parseRetryAfter(HttpClientErrorException e) {
+        String retryAfter = e.getResponseHeaders() != null ? e.getResponseHeaders().getFirst("retry-after") : null;
+        try {
+            return retryAfter != null ? Long.parseLong(retryAfter.trim()) : DEFAULT_RETRY_AFTER_SECONDS;
+        } catch (NumberFormatException ex) {
+            return DEFAULT_RETRY_AFTER_SECONDS;
+        }
+    }
+
+    /**
+     * Rough input token estimate for admission control: ~4 characters per token, ~1600 tokens per image.
+     */
+    private int estimateInputTokens(String systemPrompt, Object userContent) {
+        long chars = systemPrompt != null ? systemPrompt.length() : 0;
+        int tokens = 0;
+        if (userContent instanceof String text) {
+            chars += text.length();
+        } else if (userContent instanceof List<?> parts) {
+            for (Object part : parts) {
+                if (part instanceof Map<?, ?> map) {
+                    if ("image".equals(map.get("type"))) {
+                        tokens += 1600;
+                    } else if (map.get("text") instanceof String text) {
+                        chars += text.length();
+                    }
+                }
+            }
+        }
+        return tokens + (int) (chars / 4);
+    }
+
+    private HttpHeaders createHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("x-api-key", apiKey);
+        headers.set("anthropic-version", "2023-06-01");
+        return headers;
+    }
+
+    private Map<String, Object> buildMessageParams(String systemPrompt, Object userContent) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("model", model);
+        params.put("max_tokens", 4096);
+        if (systemPrompt != null && !systemPrompt.isBlank()) {
+            Map<String, Object> block = new HashMap<>();
+            block.put("type", "text");
+            block.put("text", systemPrompt);
+            if (estimateInputTokens(systemPrompt, null) >= minCacheablePromptTokens) {
+                block.put("cache_control", Map.of("type", "ephemeral"));
+            }
+            params.put("system", List.of(block));
+        }
+        params.put("messages", List.of(
+            Map.of("role", "user", "content", userContent)
+        ));
+        return params;
+    }
+
+    private String extractText(JsonNode message) {
+        JsonNode content = message.path("content");
+        if (content.isArray() && content.size() > 0) {
+            return content.get(0).path("text").asText();
+        }
+        return null;
+    }
+
+    /**
+     * Accumulate usage counters and return the input tokens that count against the rate limit.
+     */
+    private long recordUsage(JsonNode usage, String apiName) {
+        if (usage.isMissingNode()) return 0;
+
+        long input = usage.path("input_tokens").asLong(0);
+        long cacheWrite = usage.path("cache_creation_input_tokens").asLong(0);
+        long cacheRead = usage.path("cache_read_input_tokens").asLong(0);
+        long output = usage.path("output_tokens").asLong(0);
+
+        callCount.incrementAndGet();
+        uncachedInputTokens.addAndGet(input);
+        cacheWriteInputTokens.addAndGet(cacheWrite);
+        cacheReadInputTokens.addAndGet(cacheRead);
+        outputTokens.addAndGet(output);
+
+        log.debug("{} usage: input={} cacheWrite={} cacheRead={} output={}",
+            apiName, input, cacheWrite, cacheRead, output);
+        return input + cacheWrite;
+    }
+
+    public record BatchRequest(String customId, String systemPrompt, String userPrompt) {}
+
+    public record BatchResult(String customId, String text, String error) {
+        public boolean succeeded() {
+            return error == null && text != null;
+        }
+    }
 }
@@ -2,6 +2,8 @@ package com.buildquote.service;
 
 import com.buildquote.entity.Supplier;
 import com.buildquote.repository.SupplierRepository;
+import com.buildquote.util.ContactExtractor;
+import com.buildquote.util.RateLimiter;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
@@ -10,17 +12,11 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,6 +24,13 @@ public class BatchHarvestService {
 
     private static final Logger log = LoggerFactory.getLogger(BatchHarvestService.class);
 
+    private static final long STATS_CACHE_MS = 30_000;
+
+    // Text search returns at most three pages of 20 results
+    private static final int MAX_SEARCH_PAGES = 3;
+    private static final int MAX_SEARCH_ATTEMPTS = 3;
+    private static final int PARALLEL_WORKERS = 6;
+
     // 12 construction categories with Estonian search terms
     private static final Map<String, String> SEARCH_TERMS = new LinkedHashMap<>();
     static {
@@ -60,17 +63,13 @@ public class BatchHarvestService {
         "Kaubamaja", "Stockmann", "H&M", "Zara", "Sportland"
     };
 
-    // Email regex pattern
-    private static final Pattern EMAIL_PATTERN = Pattern.compile(
-        "[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,6}");
-
-    // Phone regex pattern (Estonian format)
-    private static final Pattern PHONE_PATTERN = Pattern.compile(
-        "(?:\\+372|372)?\\s*[0-9]{3,4}\\s*[0-9]{3,4}");
-
     private final GooglePlacesService googlePlacesService;
     private final SupplierRepository supplierRepository;
     private final JdbcTemplate jdbcTemplate;
+    private final SupplierDeduplicationService deduplicationService;
+    private final HarvestCheckpointService checkpointService;
+    private final OutboundHttpService outboundHttpService;
+    private final CrawlResultWriter crawlResultWriter;
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final ExecutorService parallelExecutor = Executors.newFixedThreadPool(6);
 
@@ -91,11 +90,23 @@ public class BatchHarvestService {
     private String lastError = null;
     private LocalDateTime startedAt = null;
     private LocalDateTime completedAt = null;
+    private volatile UUID currentJobId = null;
 
-    public BatchHarvestService(GooglePlacesService googlePlacesService, SupplierRepository supplierRepository, JdbcTemplate jdbcTemplate) {
+    private volatile Map<String, Object> cachedStats;
+    private volatile long cachedStatsAt;
+
+    public BatchHarvestService(GooglePlacesService googlePlacesService, SupplierRepository supplierRepository, JdbcTemplate jdbcTemplate,
+                              SupplierDeduplicationService deduplicationService,
+                              HarvestCheckpointService checkpointService,
+                              OutboundHttpService outboundHttpService,
+                              CrawlResultWriter crawlResultWriter) {
         this.googlePlacesService = googlePlacesService;
         this.supplierRepository = supplierRepository;
         this.jdbcTemplate = jdbcTemplate;
+        this.deduplicationService = deduplicationService;
+        this.checkpointService = checkpointService;
+        this.outboundHttpService = outboundHttpService;
+        this.crawlResultWriter = crawlResultWriter;
     }
 
     public Map<String, Object> getStatus() {
@@ -115,14 +126,37 @@ public class BatchHarvestService {
         status.put("completedAt", completedAt);
         status.put("lastError", lastError);
         status.put("totalSuppliers", supplierRepository.count());
+
+        UUID jobId = currentJobId;
+        if (jobId == null) {
+            jobId = checkpointService.findUnfinishedJob().map(HarvestCheckpointService.Job::id).orElse(null);
+        }
+        if (jobId != null) {
+            status.put("job", checkpointService.getProgress(jobId));
+        }
         return status;
     }
 
+    /**
+     * Supplier coverage breakdowns, computed with aggregate queries. The dashboard polls this,
+     * so the result is reused for a short while; harvest runs drop it when they finish.
+     */
     public Map<String, Object> getStats() {
+        Map<String, Object> cached = cachedStats;
+        if (cached != null && System.currentTimeMillis() - cachedStatsAt < STATS_CACHE_MS) {
+            return cached;
+        }
+
         Map<String, Object> stats = new HashMap<>();
 
-        List<Supplier> allSuppliers = supplierRepository.findAll();
-        long supplierCount = allSuppliers.size();
+        Map<String, Object> coverage = jdbcTemplate.queryForMap("""
+            SELECT COUNT(*) AS total,
+                   COUNT(*) FILTER (WHERE email IS NOT NULL AND email <> '') AS with_email,
+                   COUNT(*) FILTER (WHERE phone IS NOT NULL AND phone <> '') AS with_phone,
+                   COUNT(*) FILTER (WHERE website IS NOT NULL AND website <> '') AS with_website
+            FROM suppliers
+            """);
+        long supplierCount = ((Number) coverage.get("total")).longValue();
 
         // Include crawler.company count (31,000+ Estonian construction companies)
         long crawlerCount = 0;
@@ -136,51 +170,47 @@ public class BatchHarvestService {
         stats.put("totalCompanies", total);
         stats.put("suppliersUnified", supplierCount);
         stats.put("crawlerCompanies", crawlerCount);
-
-        // Count with email
-        long withEmail = allSuppliers.stream()
-            .filter(s -> s.getEmail() != null && !s.getEmail().isEmpty())
-            .count();
-        stats.put("withEmail", withEmail);
-
-        // Count with phone
-        long withPhone = allSuppliers.stream()
-            .filter(s -> s.getPhone() != null && !s.getPhone().isEmpty())
-            .count();
-        stats.put("withPhone", withPhone);
-
-        // Count with website
-        long withWebsite = allSuppliers.stream()
-            .filter(s -> s.getWebsite() != null && !s.getWebsite().isEmpty())
-            .count();
-        stats.put("withWebsite", withWebsite);
+        stats.put("withEmail", ((Number) coverage.get("with_email")).longValue());
+        stats.put("withPhone", ((Number) coverage.get("with_phone")).longValue());
+        stats.put("withWebsite", ((Number) coverage.get("with_website")).longValue());
 
         // By category (count suppliers that have each category in their categories array)
         Map<String, Long> byCategory = new HashMap<>();
         for (String cat : SEARCH_TERMS.keySet()) {
-            long count = allSuppliers.stream()
-                .filter(s -> s.getCategories() != null && Arrays.asList(s.getCategories()).contains(cat))
-                .count();
-            byCategory.put(cat, count);
-        }
-        stats.put("byCategory", byCategory);
+            byCategory.put(cat, 0L);
+        }
+        jdbcTemplate.query("""
+            SELECT c.category, COUNT(DISTINCT s.id) AS cnt
+            FROM suppliers s, unnest(s.categories) AS c(category)
+            WHERE c.category = ANY (?)
+            GROUP BY c.category
+            """,
+            rs -> { byCategory.put(rs.getString("category"), rs.getLong("cnt")); },
+            (Object) SEARCH_TERMS.keySet().toArray(new String[0]));
+        stats.put("byCategory", Map.copyOf(byCategory));
 
         // By city
-        Map<String, Long> byCity = allSuppliers.stream()
-            .filter(s -> s.getCity() != null && !s.getCity().isEmpty())
-            .collect(Collectors.groupingBy(Supplier::getCity, Collectors.counting()));
-        stats.put("byCity", byCity);
+        stats.put("byCity", Map.copyOf(groupCounts("city")));
 
         // By source
-        Map<String, Long> bySource = allSuppliers.stream()
-            .filter(s -> s.getSource() != null && !s.getSource().isEmpty())
-            .collect(Collectors.groupingBy(Supplier::getSource, Collectors.counting()));
-        stats.put("bySource", bySource);
+        stats.put("bySource", Map.copyOf(groupCounts("source")));
 
-        return stats;
+        // Shared between callers until it expires, so hand out an immutable copy
+        Map<String, Object> result = Map.copyOf(stats);
+        cachedStats = result;
+        cachedStatsAt = System.currentTimeMillis();
+        return result;
+    }
+
+    private Map<String, Long> groupCounts(String column) {
+        Map<String, Long> counts = new HashMap<>();
+        jdbcTemplate.query(
+            "SELECT " + column + " AS value, COUNT(*) AS cnt FROM suppliers " +
+            "WHERE " + column + " IS NOT NULL AND " + column + " <> '' GROUP BY " + column,
+            rs -> { counts.put(rs.getString("value"), rs.getLong("cnt")); });
+        return counts;
     }
 
-    @Transactional
     public Map<String, Object> runFullHarvest() {
         if (isRunning.get()) {
             return Map.of("success", false, "error", "Harvest is already running", "status", getStatus());
@@ -196,7 +226,7 @@ public class BatchHarvestService {
 
         try {
             // Step 1: Google Places harvest
-            runGooglePlacesHarvest();
+            runGooglePlacesHarvest("FULL", 1);
 
             // Step 2: Filter non-construction
             filterNonConstruction();
@@ -238,10 +268,16 @@ public class BatchHarvestService {
         seenNames.clear();
         lastError = null;
         completedAt = null;
+        currentJobId = null;
     }
 
-    private void runGooglePlacesHarvest() {
-        currentStatus = "HARVESTING_GOOGLE_PLACES";
+    /**
+     * Run the Google Places searches as a checkpointed job. An unfinished job from an earlier,
+     * interrupted run is picked up instead of starting over, so completed searches are not paid
+     * for twice. Each worker claims one (category, city, page) item at a time.
+     */
+    private void runGooglePlacesHarvest(String mode, int workers) throws Exception {
+        currentStatus = workers > 1 ? "HARVESTING_PARALLEL" : "HARVESTING_GOOGLE_PLACES";
 
         // Pre-load existing place IDs
         supplierRepository.findAll().forEach(s -> {
@@ -250,73 +286,120 @@ public class BatchHarvestService {
         });
         log.info("Loaded {} existing suppliers", seenPlaceIds.size());
 
-        // 12 categories × 14 cities = 168 searches
-        totalSearches.set(SEARCH_TERMS.size() * CITIES.length);
-        log.info("Starting Google Places harvest: {} categories × {} cities = {} searches",
-            SEARCH_TERMS.size(), CITIES.length, totalSearches.get());
-
-        for (Map.Entry<String, String> entry : SEARCH_TERMS.entrySet()) {
-            String category = entry.getKey();
-            String searchTerm = entry.getValue();
-
-            for (String city : CITIES) {
-                try {
-                    currentTask = category + " in " + city;
-                    log.info("[{}/{}] Searching: {} in {}",
-                        completedSearches.get() + 1, totalSearches.get(), searchTerm, city);
-
-                    List<GooglePlacesService.PlaceResult> results =
-                        googlePlacesService.searchPlaces(searchTerm, city);
+        UUID jobId = checkpointService.findUnfinishedJob()
+            .map(job -> {
+                log.info("Resuming {} harvest job {} started at {}", job.mode(), job.id(), job.createdAt());
+                return job.id();
+            })
+            .orElseGet(() -> checkpointService.createJob(mode, harvestSeeds()));
+        currentJobId = jobId;
+        checkpointService.markRunning(jobId);
+
+        Map<String, Object> progress = checkpointService.getProgress(jobId);
+        totalSearches.set(((Number) progress.get("total")).intValue());
+        completedSearches.set(((Number) progress.get("done")).intValue() + ((Number) progress.get("failed")).intValue());
+        log.info("Starting Google Places harvest: {}/{} searches already done, {} worker(s)",
+            completedSearches.get(), totalSearches.get(), workers);
+
+        // Sequential runs keep the old 1 search/sec pace; parallel runs share a higher budget
+        RateLimiter rateLimiter = new RateLimiter(workers > 1 ? 5.0 : 1.0, workers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < workers; w++) {
+            futures.add(parallelExecutor.submit(() -> {
+                harvestWorker(jobId, rateLimiter);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        // Items left open belong to a worker that is still running elsewhere or was cut off
+        if (checkpointService.countOpenItems(jobId) == 0) {
+            checkpointService.finishJob(jobId, "COMPLETED", null);
+        }
+        log.info("Google Places harvest complete: {} new suppliers", newCount.get());
+    }
 
-                    foundCount.addAndGet(results.size());
-                    log.info("  Found {} results", results.size());
+    private void harvestWorker(UUID jobId, RateLimiter rateLimiter) throws InterruptedException {
+        Optional<HarvestCheckpointService.WorkItem> next;
+        while ((next = checkpointService.claimNext(jobId, MAX_SEARCH_ATTEMPTS)).isPresent()) {
+            HarvestCheckpointService.WorkItem item = next.get();
+            try {
+                rateLimiter.acquire();
+                currentTask = item.category() + " in " + item.city()
+                    + (item.pageNumber() > 1 ? " (page " + item.pageNumber() + ")" : "");
+                log.info("[{}/{}] Searching: {}", completedSearches.get() + 1, totalSearches.get(), currentTask);
+
+                GooglePlacesService.SearchPage page =
+                    googlePlacesService.searchPlacesPage(item.searchTerm(), item.city(), item.pageToken());
+
+                foundCount.addAndGet(page.results.size());
+                List<Supplier> added = new ArrayList<>();
+                for (GooglePlacesService.PlaceResult place : page.results) {
+                    Supplier supplier = processPlace(place, item.category(), item.city());
+                    if (supplier != null) added.add(supplier);
+                }
+                saveNewSuppliers(added);
 
-                    for (GooglePlacesService.PlaceResult place : results) {
-                        processPlace(place, category, city);
-                    }
+                if (checkpointService.complete(item, page.results.size(), page.nextPageToken, MAX_SEARCH_PAGES)) {
+                    totalSearches.incrementAndGet();
+                }
+                completedSearches.incrementAndGet();
 
-                    completedSearches.incrementAndGet();
-                    Thread.sleep(1000); // Rate limit: 1/sec
-
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    throw new RuntimeException("Harvest interrupted", e);
-                } catch (Exception e) {
-                    log.error("Error processing {} in {}: {}", category, city, e.getMessage());
-                    lastError = category + "/" + city + ": " + e.getMessage();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw e;
+            } catch (Exception e) {
+                log.error("Error processing {} in {}: {}", item.category(), item.city(), e.getMessage());
+                lastError = item.category() + "/" + item.city() + ": " + e.getMessage();
+                checkpointService.fail(item, e.getMessage(), MAX_SEARCH_ATTEMPTS);
+                if (item.attempts() >= MAX_SEARCH_ATTEMPTS) {
                     completedSearches.incrementAndGet();
                 }
             }
         }
+    }
 
-        log.info("Google Places harvest complete: {} new suppliers", newCount.get());
+    private List<HarvestCheckpointService.Seed> harvestSeeds() {
+        // 12 categories × 14 cities = 168 searches, plus further pages as they are found
+        List<HarvestCheckpointService.Seed> seeds = new ArrayList<>();
+        for (Map.Entry<String, String> entry : SEARCH_TERMS.entrySet()) {
+            for (String city : CITIES) {
+                seeds.add(new HarvestCheckpointService.Seed(entry.getKey(), entry.getValue(), city));
+            }
+        }
+        return seeds;
     }
 
-    private void processPlace(GooglePlacesService.PlaceResult place, String category, String searchCity) {
-        // Skip duplicates by place ID
-        if (place.placeId != null && seenPlaceIds.contains(place.placeId)) {
+    /**
+     * Build a supplier for a new place, or return null for duplicates and blacklisted names.
+     * The caller saves the suppliers of a whole search page in one batch.
+     */
+    private Supplier processPlace(GooglePlacesService.PlaceResult place, String category, String searchCity) {
+        // Claim the place ID and the name; add() is atomic, so of several workers that see the
+        // same place only one gets past here
+        if (place.placeId != null && !seenPlaceIds.add(place.placeId)) {
             duplicateCount.incrementAndGet();
-            return;
+            return null;
         }
 
-        // Skip duplicates by name
         String normalizedName = normalizeCompanyName(place.name);
-        if (seenNames.contains(normalizedName)) {
+        if (!seenNames.add(normalizedName)) {
             duplicateCount.incrementAndGet();
-            return;
+            return null;
         }
 
-        // Skip blacklisted names
+        // Skip blacklisted names (the claims stay: the place is never added)
         if (isBlacklisted(place.name)) {
             filteredCount.incrementAndGet();
-            return;
+            return null;
         }
 
         // Check DB for existing
         if (place.placeId != null && supplierRepository.existsByGooglePlaceId(place.placeId)) {
-            seenPlaceIds.add(place.placeId);
             duplicateCount.incrementAndGet();
-            return;
+            return null;
         }
 
         // Create supplier
@@ -336,13 +419,26 @@ public class BatchHarvestService {
         supplier.setCreatedAt(LocalDateTime.now());
         supplier.setUpdatedAt(LocalDateTime.now());
         supplier.setTrustScore(calculateTrustScore(place));
+        return supplier;
+    }
 
-        supplierRepository.save(supplier);
-        if (place.placeId != null) seenPlaceIds.add(place.placeId);
-        seenNames.add(normalizedName);
-        newCount.incrementAndGet();
-
-        log.debug("  + Added: {} ({})", place.name, place.city);
+    private void saveNewSuppliers(List<Supplier> added) {
+        if (added.isEmpty()) return;
+        try {
+            // One transaction and batched INSERTs (hibernate.jdbc.batch_size) per search page
+            supplierRepository.saveAll(added);
+        } catch (RuntimeException e) {
+            // Forget them again so a retry of this page can add them
+            for (Supplier supplier : added) {
+                if (supplier.getGooglePlaceId() != null) seenPlaceIds.remove(supplier.getGooglePlaceId());
+                seenNames.remove(normalizeCompanyName(supplier.getCompanyName()));
+            }
+            throw e;
+        }
+        newCount.addAndGet(added.size());
+        for (Supplier supplier : added) {
+            log.debug("  + Added: {} ({})", supplier.getCompanyName(), supplier.getCity());
+        }
     }
 
     private void filterNonConstruction() {
@@ -384,190 +480,66 @@ public class BatchHarvestService {
 
                 String html = fetchWebsite(supplier.getWebsite());
                 if (html != null) {
+                    ContactExtractor.Contacts found = ContactExtractor.extract(html, supplier.getWebsite());
+
                     // Extract email
-                    Set<String> emails = extractEmails(html);
-                    if (!emails.isEmpty()) {
-                        String bestEmail = chooseBestEmail(emails, supplier.getCompanyName());
-                        if (bestEmail != null) {
-                            supplier.setEmail(bestEmail);
-                            emailsScraped.incrementAndGet();
-                            log.debug("  Found email for {}: {}", supplier.getCompanyName(), bestEmail);
-                        }
+                    String bestEmail = found.bestEmail();
+                    if (bestEmail != null) {
+                        emailsScraped.incrementAndGet();
+                        log.debug("  Found email for {}: {}", supplier.getCompanyName(), bestEmail);
                     }
 
                     // Extract phone if missing
+                    String phone = null;
                     if (supplier.getPhone() == null || supplier.getPhone().isEmpty()) {
-                        Set<String> phones = extractPhones(html);
-                        if (!phones.isEmpty()) {
-                            supplier.setPhone(phones.iterator().next());
+                        phone = ContactExtractor.toInternational(found.bestPhone());
+                        if (phone != null) {
                             phonesScraped.incrementAndGet();
                         }
                     }
 
-                    supplier.setUpdatedAt(LocalDateTime.now());
-                    supplierRepository.save(supplier);
+                    if (bestEmail != null || phone != null) {
+                        crawlResultWriter.writeSupplierContact(
+                            new CrawlResultWriter.SupplierContact(supplier.getId(), phone, bestEmail));
+                    }
                 }
 
-                Thread.sleep(1000); // Rate limit: 1 website/sec
-
             } catch (Exception e) {
                 log.debug("Error scraping {}: {}", supplier.getWebsite(), e.getMessage());
             }
         }
 
+        crawlResultWriter.flush();
         log.info("Website scraping complete: {} emails, {} phones found",
             emailsScraped.get(), phonesScraped.get());
     }
 
     private String fetchWebsite(String urlStr) {
         try {
-            if (!urlStr.startsWith("http")) {
-                urlStr = "https://" + urlStr;
-            }
-
-            URL url = new URL(urlStr);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setConnectTimeout(5000);
-            conn.setReadTimeout(5000);
-            conn.setRequestProperty("User-Agent", "Mozilla/5.0 (compatible; BuildQuote/1.0)");
-            conn.setInstanceFollowRedirects(true);
-
-            int status = conn.getResponseCode();
-            if (status != 200) return null;
-
-            StringBuilder content = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(conn.getInputStream()))) {
-                String line;
-                int lines = 0;
-                while ((line = reader.readLine()) != null && lines < 500) {
-                    content.append(line).append("\n");
-                    lines++;
-                }
-            }
-
-            return content.toString();
-
+            OutboundHttpService.Response response = outboundHttpService.get(urlStr);
+            return response.isOk() ? response.body() : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
         } catch (Exception e) {
             return null;
         }
     }
 
-    private Set<String> extractEmails(String html) {
-        Set<String> emails = new HashSet<>();
-        Matcher matcher = EMAIL_PATTERN.matcher(html.toLowerCase());
-        while (matcher.find()) {
-            String email = matcher.group();
-            // Filter out common non-business emails
-            if (!email.contains("example.com") &&
-                !email.contains("domain.com") &&
-                !email.contains("email.com") &&
-                !email.contains("wixpress") &&
-                !email.contains("sentry.io") &&
-                !email.contains("google") &&
-                !email.contains("facebook") &&
-                !email.endsWith(".png") &&
-                !email.endsWith(".jpg") &&
-                !email.endsWith(".gif")) {
-                emails.add(email);
-            }
-        }
-        return emails;
-    }
-
-    private Set<String> extractPhones(String html) {
-        Set<String> phones = new HashSet<>();
-        Matcher matcher = PHONE_PATTERN.matcher(html);
-        while (matcher.find()) {
-            String phone = matcher.group().replaceAll("\\s+", "");
-            if (phone.length() >= 7) {
-                if (!phone.startsWith("+") && !phone.startsWith("372")) {
-                    phone = "+372" + phone;
-                } else if (phone.startsWith("372")) {
-                    phone = "+" + phone;
-                }
-                phones.add(phone);
-            }
-        }
-        return phones;
-    }
-
-    private String chooseBestEmail(Set<String> emails, String companyName) {
-        // Prefer info@, kontakt@, office@ emails
-        for (String email : emails) {
-            if (email.startsWith("info@") || email.startsWith("kontakt@") ||
-                email.startsWith("office@") || email.startsWith("post@")) {
-                return email;
-            }
-        }
-        // Otherwise return first valid email
-        return emails.isEmpty() ? null : emails.iterator().next();
-    }
-
     private void deduplicateSuppliers() {
         currentStatus = "DEDUPLICATING";
         currentTask = "Removing duplicates";
         log.info("Deduplicating suppliers...");
 
-        Map<String, List<Supplier>> byName = supplierRepository.findAll().stream()
-            .collect(Collectors.groupingBy(s -> normalizeCompanyName(s.getCompanyName())));
-
-        int removed = 0;
-        for (Map.Entry<String, List<Supplier>> entry : byName.entrySet()) {
-            List<Supplier> dups = entry.getValue();
-            if (dups.size() > 1) {
-                // Keep the one with most contact info
-                dups.sort((a, b) -> {
-                    int scoreA = contactScore(a);
-                    int scoreB = contactScore(b);
-                    return scoreB - scoreA; // Descending
-                });
-
-                // Delete all except first
-                for (int i = 1; i < dups.size(); i++) {
-                    supplierRepository.delete(dups.get(i));
-                    removed++;
-                }
-            }
-        }
-
-        // Also dedupe by registry code
-        Map<String, List<Supplier>> byRegCode = supplierRepository.findAll().stream()
-            .filter(s -> s.getRegistryCode() != null && !s.getRegistryCode().isEmpty())
-            .collect(Collectors.groupingBy(Supplier::getRegistryCode));
-
-        for (Map.Entry<String, List<Supplier>> entry : byRegCode.entrySet()) {
-            List<Supplier> dups = entry.getValue();
-            if (dups.size() > 1) {
-                dups.sort((a, b) -> contactScore(b) - contactScore(a));
-                for (int i = 1; i < dups.size(); i++) {
-                    supplierRepository.delete(dups.get(i));
-                    removed++;
-                }
-            }
-        }
+        int removed = deduplicationService.deduplicate();
 
         log.info("Deduplication complete: removed {} duplicates", removed);
         duplicateCount.addAndGet(removed);
-    }
-
-    private int contactScore(Supplier s) {
-        int score = 0;
-        if (s.getEmail() != null && !s.getEmail().isEmpty()) score += 3;
-        if (s.getPhone() != null && !s.getPhone().isEmpty()) score += 2;
-        if (s.getWebsite() != null && !s.getWebsite().isEmpty()) score += 1;
-        if (s.getAddress() != null && !s.getAddress().isEmpty()) score += 1;
-        if (s.getGoogleRating() != null) score += 1;
-        return score;
+        cachedStats = null;
     }
 
     private String normalizeCompanyName(String name) {
-        if (name == null) return "";
-        return name.toLowerCase()
-            .replaceAll("\\s+", " ")
-            .replaceAll("[^a-zäöüõ0-9 ]", "")
-            .replaceAll("\\b(oü|ou|as|osaühing|aktsiaselts|mtü|fie)\\b", "")
-            .trim();
+        return SupplierDeduplicationService.normalizeName(name);
     }
 
     private boolean isBlacklisted(String name) {
@@ -593,6 +565,7 @@ public class BatchHarvestService {
     }
 
     private void logFinalStats() {
+        cachedStats = null;
         Map<String, Object> stats = getStats();
         log.info("========================================");
         log.info("HARVEST COMPLETED");
@@ -609,7 +582,6 @@ public class BatchHarvestService {
     }
 
     // Additional method for Google Places only harvest
-    @Transactional
     public Map<String, Object> runGooglePlacesOnly() {
         if (isRunning.get()) {
             return Map.of("success", false, "error", "Harvest is already running");
@@ -623,7 +595,7 @@ public class BatchHarvestService {
         startedAt = LocalDateTime.now();
 
         try {
-            runGooglePlacesHarvest();
+            runGooglePlacesHarvest("GOOGLE", 1);
             filterNonConstruction();
             currentStatus = "COMPLETED";
             completedAt = LocalDateTime.now();
@@ -641,9 +613,8 @@ public class BatchHarvestService {
 
     /**
      * PARALLEL Google Places harvest - 6x faster than sequential.
-     * Runs all category searches for a city in parallel.
+     * Six workers claim searches from the same checkpointed job.
      */
-    @Transactional
     public Map<String, Object> runParallelHarvest() {
         if (isRunning.get()) {
             return Map.of("success", false, "error", "Harvest is already running");
@@ -655,74 +626,9 @@ public class BatchHarvestService {
         resetCounters();
         isRunning.set(true);
         startedAt = LocalDateTime.now();
-        currentStatus = "HARVESTING_PARALLEL";
 
         try {
-            // Pre-load existing place IDs
-            supplierRepository.findAll().forEach(s -> {
-                if (s.getGooglePlaceId() != null) seenPlaceIds.add(s.getGooglePlaceId());
-                if (s.getCompanyName() != null) seenNames.add(normalizeCompanyName(s.getCompanyName()));
-            });
-
-            totalSearches.set(SEARCH_TERMS.size() * CITIES.length);
-            log.info("Starting PARALLEL harvest: {} categories × {} cities = {} searches",
-                SEARCH_TERMS.size(), CITIES.length, totalSearches.get());
-
-            // Process each city with all categories in parallel
-            for (String city : CITIES) {
-                currentTask = "Parallel search in " + city;
-                log.info("Searching {} categories in {} in parallel...", SEARCH_TERMS.size(), city);
-
-                List<CompletableFuture<List<GooglePlacesService.PlaceResult>>> futures = new ArrayList<>();
-
-                for (Map.Entry<String, String> entry : SEARCH_TERMS.entrySet()) {
-                    String category = entry.getKey();
-                    String searchTerm = entry.getValue();
-
-                    CompletableFuture<List<GooglePlacesService.PlaceResult>> future =
-                        CompletableFuture.supplyAsync(() -> {
-                            try {
-                                return googlePlacesService.searchPlaces(searchTerm, city);
-                            } catch (Exception e) {
-                                log.warn("Search failed for {} in {}: {}", category, city, e.getMessage());
-                                return Collections.emptyList();
-                            }
-                        }, parallelExecutor);
-
-                    futures.add(future);
-                }
-
-                // Wait for all searches in this city to complete
-                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
-                    .get(60, TimeUnit.SECONDS);
-
-                // Process results
-                int categoryIndex = 0;
-                for (Map.Entry<String, String> entry : SEARCH_TERMS.entrySet()) {
-                    String category = entry.getKey();
-                    try {
-                        List<GooglePlacesService.PlaceResult> results = futures.get(categoryIndex).get();
-                        foundCount.addAndGet(results.size());
-
-                        for (GooglePlacesService.PlaceResult place : results) {
-                            processPlace(place, category, city);
-                        }
-
-                        completedSearches.incrementAndGet();
-                    } catch (Exception e) {
-                        log.warn("Failed to process results for {} in {}", category, city);
-                        completedSearches.incrementAndGet();
-                    }
-                    categoryIndex++;
-                }
-
-                log.info("  {} completed: {}/{} total searches done",
-                    city, completedSearches.get(), totalSearches.get());
-
-                // Brief pause between cities to avoid API limits
-                Thread.sleep(500);
-            }
-
+            runGooglePlacesHarvest("PARALLEL", PARALLEL_WORKERS);
             filterNonConstruction();
             currentStatus = "COMPLETED";
             completedAt = LocalDateTime.now();
@@ -739,6 +645,21 @@ public class BatchHarvestService {
         return getStatus();
     }
 
+    /**
+     * Continue the most recent unfinished harvest job with the steps of the run that created it.
+     */
+    public Map<String, Object> resumeHarvest() {
+        Optional<HarvestCheckpointService.Job> job = checkpointService.findUnfinishedJob();
+        if (job.isEmpty()) {
+            return Map.of("success", false, "error", "No unfinished harvest job to resume");
+        }
+        return switch (job.get().mode()) {
+            case "PARALLEL" -> runParallelHarvest();
+            case "GOOGLE" -> runGooglePlacesOnly();
+            default -> runFullHarvest();
+        };
+    }
+
     // Method to just scrape emails
     @Transactional
     public Map<String, Object> runEmailScrape() {
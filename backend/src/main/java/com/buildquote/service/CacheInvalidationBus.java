@@ -0,0 +1,260 @@
+package com.buildquote.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Listens on the Postgres cache_invalidation channel and fans row changes out to
+ * in-memory caches on this node. Triggers on suppliers, market_prices and
+ * component_recipes publish the changed keys (see V16), so every replica sees
+ * writes made on any other replica or directly in the database.
+ *
+ * Uses its own connection rather than one from the pool, since LISTEN ties up
+ * the session for the lifetime of the node.
+ */
+@Service
+@Slf4j
+public class CacheInvalidationBus {
+
+    private static final String CHANNEL = "cache_invalidation";
+    private static final int POLL_TIMEOUT_MS = 10000;
+    private static final long MAX_BACKOFF_MS = 60000;
+    private static final String CRAWLER_TABLE = "crawler.company";
+
+    private final List<CacheInvalidationListener> listeners;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${cache.invalidation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    private Map<String, List<CacheInvalidationListener>> listenerMap;
+    private volatile boolean running;
+    private volatile boolean connected;
+    private volatile boolean crawlerAttached;
+    private volatile LocalDateTime lastEventAt;
+    private Thread listenerThread;
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+    private final AtomicLong overflows = new AtomicLong();
+    private final ConcurrentHashMap<String, LongAdder> receivedByTable = new ConcurrentHashMap<>();
+
+    public CacheInvalidationBus(@Lazy List<CacheInvalidationListener> listeners, JdbcTemplate jdbcTemplate) {
+        this.listeners = listeners;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    private Map<String, List<CacheInvalidationListener>> getListenerMap() {
+        if (listenerMap == null) {
+            Map<String, List<CacheInvalidationListener>> map = new HashMap<>();
+            for (CacheInvalidationListener listener : listeners) {
+                for (String table : listener.getInvalidationTables()) {
+                    map.computeIfAbsent(table, k -> new ArrayList<>()).add(listener);
+                }
+            }
+            listenerMap = map;
+        }
+        return listenerMap;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Cache invalidation bus disabled");
+            return;
+        }
+        running = true;
+        ensureCrawlerAttached();
+        listenerThread = new Thread(this::listenLoop, "cache-invalidation");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    /**
+     * Attach the crawler.company trigger once the crawler has created its schema (see V27). Checked
+     * on every cycle, so a dropped and re-created crawler schema gets its trigger back.
+     */
+    @Scheduled(fixedDelayString = "${cache.invalidation.attach-check-interval-ms:600000}",
+               initialDelayString = "${cache.invalidation.attach-check-interval-ms:600000}")
+    public void ensureCrawlerAttached() {
+        if (!enabled) return;
+        try {
+            Boolean hasTrigger = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS(SELECT 1 FROM pg_trigger WHERE tgname = 'trg_company_cache_invalidation' " +
+                    "AND tgrelid = to_regclass('crawler.company'))", Boolean.class);
+            if (Boolean.TRUE.equals(hasTrigger)) {
+                crawlerAttached = true;
+                return;
+            }
+            crawlerAttached = Boolean.TRUE.equals(
+                    jdbcTemplate.queryForObject("SELECT cache_invalidation_attach_crawler()", Boolean.class));
+            if (crawlerAttached) {
+                log.info("Attached {} to the cache invalidation bus", CRAWLER_TABLE);
+                // Changes made before the trigger existed were never published
+                for (CacheInvalidationListener listener : getListenerMap().getOrDefault(CRAWLER_TABLE, List.of())) {
+                    try {
+                        listener.onResync();
+                    } catch (Exception e) {
+                        log.warn("Cache resync failed for {}: {}", listener.getClass().getSimpleName(), e.getMessage());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            crawlerAttached = false;
+            log.warn("Could not attach {} to the cache invalidation bus: {}", CRAWLER_TABLE, e.getMessage());
+        }
+    }
+
+    private void listenLoop() {
+        long backoff = 1000;
+        boolean firstConnect = true;
+
+        while (running) {
+            try (Connection conn = DriverManager.getConnection(url, username, password)) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pgConn = conn.unwrap(PGConnection.class);
+                connected = true;
+                backoff = 1000;
+                log.info("Cache invalidation bus listening on {}", CHANNEL);
+
+                if (!firstConnect) {
+                    // Anything published while we were disconnected is lost
+                    reconnects.incrementAndGet();
+                    resyncAll();
+                }
+                firstConnect = false;
+
+                while (running) {
+                    PGNotification[] notifications = pgConn.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications == null) continue;
+                    for (PGNotification notification : notifications) {
+                        dispatch(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) break;
+                log.warn("Cache invalidation connection lost: {}, retrying in {}ms", e.getMessage(), backoff);
+            } finally {
+                connected = false;
+            }
+
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+        }
+    }
+
+    private void dispatch(String payload) {
+        CacheInvalidationListener.Event event;
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(payload);
+            event = new CacheInvalidationListener.Event(
+                    node.path("table").asText(),
+                    node.path("op").asText(),
+                    node.path("old"),
+                    node.path("new"));
+        } catch (Exception e) {
+            log.warn("Ignoring malformed cache invalidation payload: {}", e.getMessage());
+            return;
+        }
+
+        received.incrementAndGet();
+        receivedByTable.computeIfAbsent(event.table(), k -> new LongAdder()).increment();
+        lastEventAt = LocalDateTime.now();
+
+        if (node.path("overflow").asBoolean(false)) {
+            // The row's keys did not fit in a notification (see V26): reload the whole table
+            overflows.incrementAndGet();
+            for (CacheInvalidationListener listener : getListenerMap().getOrDefault(event.table(), List.of())) {
+                try {
+                    listener.onResync();
+                } catch (Exception e) {
+                    log.warn("Cache resync failed for {}: {}", listener.getClass().getSimpleName(), e.getMessage());
+                }
+            }
+            return;
+        }
+
+        for (CacheInvalidationListener listener : getListenerMap().getOrDefault(event.table(), List.of())) {
+            try {
+                listener.onInvalidation(event);
+            } catch (Exception e) {
+                log.warn("Cache invalidation listener {} failed for {} {}: {}",
+                        listener.getClass().getSimpleName(), event.op(), event.table(), e.getMessage());
+            }
+        }
+    }
+
+    private void resyncAll() {
+        for (CacheInvalidationListener listener : listeners) {
+            try {
+                listener.onResync();
+            } catch (Exception e) {
+                log.warn("Cache resync failed for {}: {}", listener.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> byTable = new TreeMap<>();
+        receivedByTable.forEach((table, count) -> byTable.put(table, count.sum()));
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("connected", connected);
+        status.put("received", received.get());
+        status.put("receivedByTable", byTable);
+        status.put("reconnects", reconnects.get());
+        status.put("overflows", overflows.get());
+        status.put("crawlerAttached", crawlerAttached);
+        status.put("lastEventAt", lastEventAt != null ? lastEventAt.toString() : null);
+        status.put("subscribedTables", new TreeSet<>(getListenerMap().keySet()));
+        return status;
+    }
+}
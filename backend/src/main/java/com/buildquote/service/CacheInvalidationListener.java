@@ -0,0 +1,28 @@
+package com.buildquote.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Set;
+
+/**
+ * Receives row-change notifications from the cache invalidation bus for the tables it owns.
+ */
+public interface CacheInvalidationListener {
+
+    Set<String> getInvalidationTables();
+
+    void onInvalidation(Event event);
+
+    /**
+     * Called after the bus reconnects, when notifications may have been missed, and when a change
+     * to one of this listener's tables was too large to publish with its keys.
+     */
+    default void onResync() {
+    }
+
+    /**
+     * A changed row: op is INSERT, UPDATE or DELETE; oldKeys/newKeys hold the key columns
+     * published by the table's trigger (empty object for the side that does not exist).
+     */
+    record Event(String table, String op, JsonNode oldKeys, JsonNode newKeys) {}
+}
@@ -1,19 +1,32 @@
 package com.buildquote.service;
 
+import com.buildquote.util.RateLimiter;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Demand-driven warmup of the Google Places cache.
+ *
+ * Keys are ranked by how often and how recently they were used and how soon they go stale,
+ * so quota goes to entries that are likely to be requested again before they expire.
+ * Google calls are paced by a token bucket on the dispatching thread; workers never sleep.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -21,8 +34,9 @@ public class CacheWarmupService {
 
     private final SupplierSearchService supplierSearchService;
     private final GooglePlacesService googlePlacesService;
+    private final JdbcTemplate jdbcTemplate;
 
-    // Top 20 categories (all categories)
+    // Seed keys for a cold cache, before any demand has been observed
     private static final List<String> TOP_CATEGORIES = Arrays.asList(
         "GENERAL_CONSTRUCTION",
         "ELECTRICAL",
@@ -38,7 +52,6 @@ public class CacheWarmupService {
         "DEMOLITION"
     );
 
-    // Top 5 cities by population/activity
     private static final List<String> TOP_CITIES = Arrays.asList(
         "Tallinn",
         "Tartu",
@@ -47,49 +60,59 @@ public class CacheWarmupService {
         "Rakvere"
     );
 
-    // Additional cities for extended warmup
-    private static final List<String> ALL_CITIES = Arrays.asList(
-        "Tallinn", "Tartu", "Pärnu", "Narva", "Rakvere",
-        "Viljandi", "Kuressaare", "Haapsalu", "Jõhvi", "Võru",
-        "Paide", "Valga", "Rapla", "Põlva"
-    );
+    // Uses older than this count for 1/e of a fresh use
+    private static final double DEMAND_DECAY_DAYS = 7.0;
+    private static final double MIN_DEMAND_SCORE = 0.5;
 
-    private final ExecutorService warmupExecutor = Executors.newFixedThreadPool(4);
+    @Value("${places.warmup.requests-per-second:2}")
+    private double requestsPerSecond;
 
-    /**
-     * Nightly cache warmup - runs at 3:00 AM every day.
-     * Pre-warms top 20 categories × top 5 cities = 60 searches.
-     */
-    @Scheduled(cron = "0 0 3 * * *") // 3:00 AM daily
-    public void nightlyWarmup() {
-        log.info("Starting nightly cache warmup at {}", LocalDateTime.now());
+    @Value("${places.warmup.concurrency:4}")
+    private int concurrency;
 
-        if (!googlePlacesService.isConfigured()) {
-            log.warn("Google Places API not configured, skipping warmup");
-            return;
-        }
+    @Value("${places.warmup.max-refreshes-per-run:300}")
+    private int maxRefreshesPerRun;
+
+    @Value("${places.warmup.horizon-hours:48}")
+    private int horizonHours;
 
-        warmupCache(TOP_CATEGORIES, TOP_CITIES);
+    @Value("${places.warmup.demand-window-days:30}")
+    private int demandWindowDays;
+
+    @Value("${places.warmup.max-run-minutes:30}")
+    private int maxRunMinutes;
+
+    private RateLimiter rateLimiter;
+    private ExecutorService warmupExecutor;
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    @PostConstruct
+    void init() {
+        rateLimiter = new RateLimiter(requestsPerSecond, 1);
+        warmupExecutor = Executors.newFixedThreadPool(concurrency);
     }
 
     /**
-     * Weekly extended warmup - runs Sunday at 4:00 AM.
-     * Pre-warms all categories × all cities.
+     * Nightly cache warmup - runs at 3:00 AM every day.
+     * Refreshes the highest-demand keys that go stale within the horizon.
      */
-    @Scheduled(cron = "0 0 4 * * SUN") // 4:00 AM every Sunday
-    public void weeklyExtendedWarmup() {
-        log.info("Starting weekly extended cache warmup at {}", LocalDateTime.now());
+    @Scheduled(cron = "0 0 3 * * *") // 3:00 AM daily
+    public void nightlyWarmup() {
+        log.info("Starting nightly cache warmup at {}", LocalDateTime.now());
 
         if (!googlePlacesService.isConfigured()) {
             log.warn("Google Places API not configured, skipping warmup");
             return;
         }
 
-        warmupCache(TOP_CATEGORIES, ALL_CITIES);
+        runWarmup(horizonHours);
     }
 
     /**
-     * Manual warmup trigger.
+     * Manual warmup trigger. Extended warmup considers every key that will go stale
+     * within the soft TTL instead of just the next horizon. Runs in the background.
      */
     public void triggerWarmup(boolean extended) {
         log.info("Manual cache warmup triggered (extended: {})", extended);
@@ -97,84 +120,209 @@ public class CacheWarmupService {
         if (!googlePlacesService.isConfigured()) {
             throw new IllegalStateException("Google Places API not configured");
         }
+        if (running.get()) {
+            throw new IllegalStateException("Cache warmup already running");
+        }
 
-        List<String> cities = extended ? ALL_CITIES : TOP_CITIES;
-        warmupCache(TOP_CATEGORIES, cities);
+        int horizon = extended ? supplierSearchService.getSoftTtlDays() * 24 : horizonHours;
+        dispatcher.execute(() -> runWarmup(horizon));
     }
 
-    /**
-     * Warm up cache for given categories and cities.
-     * Uses parallel execution with rate limiting.
-     */
-    private void warmupCache(List<String> categories, List<String> cities) {
-        int totalSearches = categories.size() * cities.size();
-        AtomicInteger completed = new AtomicInteger(0);
-        AtomicInteger cached = new AtomicInteger(0);
+    private void runWarmup(int horizon) {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Cache warmup already running, skipping");
+            return;
+        }
+        try {
+            warmup(horizon);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void warmup(int horizon) {
         LocalDateTime startTime = LocalDateTime.now();
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(maxRunMinutes);
 
-        log.info("Warming up cache: {} categories × {} cities = {} searches",
-            categories.size(), cities.size(), totalSearches);
+        List<WarmupCandidate> candidates = rankCandidates(horizon);
+        if (candidates.isEmpty() && countDemandKeys() == 0) {
+            candidates = seedCandidates();
+        }
+        int planned = Math.min(candidates.size(), maxRefreshesPerRun);
+
+        log.info("Warming up cache: {} candidate keys, refreshing top {}", candidates.size(), planned);
 
-        // Create all futures
-        List<CompletableFuture<Void>> futures = new java.util.ArrayList<>();
+        AtomicInteger refreshed = new AtomicInteger(0);
+        AtomicInteger kept = new AtomicInteger(0);
+        AtomicInteger failed = new AtomicInteger(0);
+        AtomicInteger resultsCached = new AtomicInteger(0);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        int dispatched = 0;
 
-        for (String category : categories) {
-            for (String city : cities) {
-                CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+        try {
+            for (WarmupCandidate candidate : candidates.subList(0, planned)) {
+                if (System.nanoTime() > deadline) {
+                    log.warn("Cache warmup hit the {} minute budget after {} refreshes", maxRunMinutes, dispatched);
+                    break;
+                }
+                rateLimiter.acquire();
+                dispatched++;
+                futures.add(CompletableFuture.runAsync(() -> {
                     try {
-                        // This will fetch and cache if not already cached
-                        var results = supplierSearchService.searchCached(category, city);
-                        int done = completed.incrementAndGet();
-                        cached.addAndGet(results.size());
-
-                        if (done % 10 == 0 || done == totalSearches) {
-                            log.info("Warmup progress: {}/{} ({} results cached)",
-                                done, totalSearches, cached.get());
+                        int count = supplierSearchService.refreshEntry(candidate.category(), candidate.location());
+                        if (count >= 0) {
+                            refreshed.incrementAndGet();
+                            resultsCached.addAndGet(count);
+                        } else {
+                            kept.incrementAndGet();
                         }
-
-                        // Rate limit: 500ms between API calls
-                        Thread.sleep(500);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
                     } catch (Exception e) {
-                        log.warn("Warmup failed for {}:{}: {}", category, city, e.getMessage());
-                        completed.incrementAndGet();
+                        failed.incrementAndGet();
+                        log.warn("Warmup failed for {}:{}: {}", candidate.category(), candidate.location(), e.getMessage());
                     }
-                }, warmupExecutor);
-
-                futures.add(future);
+                }, warmupExecutor));
             }
-        }
 
-        // Wait for all to complete with timeout
-        try {
-            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
-                .get(30, TimeUnit.MINUTES);
+            long remaining = Math.max(0, deadline - System.nanoTime());
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(remaining, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Cache warmup interrupted");
         } catch (Exception e) {
-            log.error("Cache warmup interrupted: {}", e.getMessage());
+            log.error("Cache warmup did not finish: {}", e.getMessage());
         }
 
-        LocalDateTime endTime = LocalDateTime.now();
-        long durationSeconds = java.time.Duration.between(startTime, endTime).getSeconds();
+        long durationSeconds = Duration.between(startTime, LocalDateTime.now()).getSeconds();
+        log.info("Cache warmup completed: {} refreshed, {} kept, {} failed in {} seconds, {} total results cached",
+            refreshed.get(), kept.get(), failed.get(), durationSeconds, resultsCached.get());
 
-        log.info("Cache warmup completed: {} searches in {} seconds, {} total results cached",
-            completed.get(), durationSeconds, cached.get());
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("startedAt", startTime.toString());
+        run.put("durationSeconds", durationSeconds);
+        run.put("horizonHours", horizon);
+        run.put("candidates", candidates.size());
+        run.put("dispatched", dispatched);
+        run.put("refreshed", refreshed.get());
+        run.put("keptExisting", kept.get());
+        run.put("failed", failed.get());
+        run.put("resultsCached", resultsCached.get());
+        run.put("topKeys", candidates.stream().limit(10)
+            .map(c -> c.category() + ":" + c.location()).toList());
+        lastRun = run;
 
         // Cleanup old entries after warmup
         supplierSearchService.cleanupOldCache();
     }
 
     /**
-     * Get warmup status.
+     * Rank keys used within the demand window that go stale within the horizon.
+     * Score = decayed use count, boosted up to 2x as the key approaches (or passes) soft expiry.
      */
-    public java.util.Map<String, Object> getWarmupStatus() {
-        java.util.Map<String, Object> status = new java.util.HashMap<>();
-        status.put("topCategories", TOP_CATEGORIES.size());
-        status.put("topCities", TOP_CITIES.size());
-        status.put("allCities", ALL_CITIES.size());
-        status.put("dailyWarmupSearches", TOP_CATEGORIES.size() * TOP_CITIES.size());
-        status.put("weeklyWarmupSearches", TOP_CATEGORIES.size() * ALL_CITIES.size());
-        status.put("cacheStats", supplierSearchService.getCacheStats());
+    private List<WarmupCandidate> rankCandidates(int horizon) {
+        LocalDateTime now = LocalDateTime.now();
+        double softTtlHours = supplierSearchService.getSoftTtlDays() * 24.0;
+
+        List<WarmupCandidate> candidates = new ArrayList<>();
+        for (Map<String, Object> row : queryDemand()) {
+            long uses = ((Number) row.get("uses")).longValue();
+            LocalDateTime lastUsed = ((Timestamp) row.get("last_used")).toLocalDateTime();
+            LocalDateTime searched = ((Timestamp) row.get("searched")).toLocalDateTime();
+
+            double hoursToStale = softTtlHours - Duration.between(searched, now).toMinutes() / 60.0;
+            if (hoursToStale > horizon) continue;
+
+            double daysSinceUse = Duration.between(lastUsed, now).toMinutes() / 1440.0;
+            double demand = uses * Math.exp(-daysSinceUse / DEMAND_DECAY_DAYS);
+            if (demand < MIN_DEMAND_SCORE) continue;
+
+            double urgency = 1 + Math.min(1, Math.max(0, (horizon - hoursToStale) / horizon));
+            candidates.add(new WarmupCandidate(
+                (String) row.get("category"), (String) row.get("location"), demand * urgency));
+        }
+
+        candidates.sort(Comparator.comparingDouble(WarmupCandidate::score).reversed());
+        return candidates;
+    }
+
+    private List<WarmupCandidate> seedCandidates() {
+        List<WarmupCandidate> seeds = new ArrayList<>();
+        for (String city : TOP_CITIES) {
+            for (String category : TOP_CATEGORIES) {
+                seeds.add(new WarmupCandidate(category, city, 0));
+            }
+        }
+        log.info("No cache demand recorded yet, seeding {} default keys", seeds.size());
+        return seeds;
+    }
+
+    private List<Map<String, Object>> queryDemand() {
+        return jdbcTemplate.queryForList("""
+            SELECT category, location,
+                   SUM(COALESCE(use_count, 0)) AS uses,
+                   MAX(COALESCE(last_used_at, searched_at)) AS last_used,
+                   MAX(searched_at) AS searched
+            FROM google_places_cache
+            GROUP BY category, location
+            HAVING MAX(COALESCE(last_used_at, searched_at)) > ?
+            """, Timestamp.valueOf(LocalDateTime.now().minusDays(demandWindowDays)));
+    }
+
+    private long countDemandKeys() {
+        Long count = jdbcTemplate.queryForObject(
+            "SELECT COUNT(DISTINCT (category, location)) FROM google_places_cache", Long.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Share of recent demand that is currently served from fresh entries. Uses are weighted,
+     * so a stale hot key counts for more than a stale one-off search.
+     */
+    private Map<String, Object> coverage() {
+        double softTtlHours = supplierSearchService.getSoftTtlDays() * 24.0;
+        LocalDateTime now = LocalDateTime.now();
+
+        long keys = 0;
+        long freshKeys = 0;
+        long uses = 0;
+        long freshUses = 0;
+        for (Map<String, Object> row : queryDemand()) {
+            long keyUses = ((Number) row.get("uses")).longValue();
+            LocalDateTime searched = ((Timestamp) row.get("searched")).toLocalDateTime();
+            boolean fresh = Duration.between(searched, now).toMinutes() / 60.0 < softTtlHours;
+            keys++;
+            uses += keyUses;
+            if (fresh) {
+                freshKeys++;
+                freshUses += keyUses;
+            }
+        }
+
+        Map<String, Object> coverage = new LinkedHashMap<>();
+        coverage.put("demandKeys", keys);
+        coverage.put("freshKeys", freshKeys);
+        coverage.put("keyCoverage", keys > 0 ? (double) freshKeys / keys : 0.0);
+        coverage.put("demandWeightedCoverage", uses > 0 ? (double) freshUses / uses : 0.0);
+        return coverage;
+    }
+
+    /**
+     * Get warmup status: last run, coverage of recent demand and the live hit ratio.
+     */
+    public Map<String, Object> getWarmupStatus() {
+        Map<String, Object> cacheStats = supplierSearchService.getCacheStats();
+
+        Map<String, Object> status = new HashMap<>();
+        status.put("running", running.get());
+        status.put("requestsPerSecond", requestsPerSecond);
+        status.put("maxRefreshesPerRun", maxRefreshesPerRun);
+        status.put("horizonHours", horizonHours);
+        status.put("demandWindowDays", demandWindowDays);
+        status.put("lastRun", lastRun);
+        status.put("coverage", coverage());
+        status.put("liveHitRatio", cacheStats.get("hitRatio"));
+        status.put("cacheStats", cacheStats);
         return status;
     }
+
+    private record WarmupCandidate(String category, String location, double score) {}
 }
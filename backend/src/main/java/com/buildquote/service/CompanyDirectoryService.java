@@ -0,0 +1,79 @@
+package com.buildquote.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the company_directory read model attached to its sources. Row triggers on suppliers,
+ * company_enrichments and crawler.company maintain it incrementally (see V22, V28); this only
+ * attaches the crawler.company trigger whenever the crawler's table exists without it, and
+ * offers a full rebuild.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CompanyDirectoryService {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile boolean crawlerAttached;
+
+    @PostConstruct
+    void init() {
+        ensureCrawlerAttached();
+    }
+
+    @Scheduled(fixedDelayString = "${company-directory.attach-check-interval-ms:3600000}", initialDelayString = "${company-directory.attach-check-interval-ms:3600000}")
+    public void ensureCrawlerAttached() {
+        // Checked every cycle: a re-created crawler schema comes back without the trigger
+        try {
+            Boolean hasTrigger = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS(SELECT 1 FROM pg_trigger WHERE tgname = 'trg_crawler_company_directory' " +
+                    "AND tgrelid = to_regclass('crawler.company'))",
+                    Boolean.class);
+            if (Boolean.TRUE.equals(hasTrigger)) {
+                crawlerAttached = true;
+                return;
+            }
+            crawlerAttached = Boolean.TRUE.equals(
+                    jdbcTemplate.queryForObject("SELECT company_directory_attach_crawler()", Boolean.class));
+            if (crawlerAttached) {
+                log.info("Attached crawler.company to company_directory");
+            }
+        } catch (Exception e) {
+            crawlerAttached = false;
+            log.warn("Could not attach crawler.company to company_directory: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuild every row from the sources. Only needed if triggers were disabled during a bulk load.
+     */
+    public Map<String, Object> rebuild() {
+        long start = System.currentTimeMillis();
+        jdbcTemplate.execute("SELECT company_directory_refresh_suppliers(NULL)");
+        // Re-backfills the crawler rows and re-creates the trigger when the table exists
+        crawlerAttached = Boolean.TRUE.equals(
+                jdbcTemplate.queryForObject("SELECT company_directory_attach_crawler()", Boolean.class));
+
+        Map<String, Object> result = getStatus();
+        result.put("durationMs", System.currentTimeMillis() - start);
+        log.info("Rebuilt company_directory in {}ms", result.get("durationMs"));
+        return result;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("crawlerAttached", crawlerAttached);
+        jdbcTemplate.query("SELECT origin, COUNT(*) AS cnt FROM company_directory GROUP BY origin",
+                rs -> { status.put(rs.getString("origin").toLowerCase(), rs.getLong("cnt")); });
+        return status;
+    }
+}
@@ -19,7 +19,7 @@ import java.util.*;
 @Service
 @Slf4j
 @RequiredArgsConstructor
-public class CompanyEnrichmentPipelineService {
+public class CompanyEnrichmentPipelineService implements LlmBatchResultHandler {
 
     private final CompanyEnrichmentRepository enrichmentRepository;
     private final SupplierRepository supplierRepository;
@@ -27,9 +27,14 @@ public class CompanyEnrichmentPipelineService {
     private final AnthropicService anthropicService;
     private final AiCacheService aiCacheService;
     private final EstonianRegistryService estonianRegistryService;
+    private final LlmBatchService llmBatchService;
     private final ObjectMapper objectMapper;
 
     private static final int CACHE_DAYS = 30;
+    private static final int LLM_CACHE_HOURS = 168; // 7 days
+
+    private static final String TIER2_PURPOSE = "tier2-enrichment";
+    private static final String TIER3_PURPOSE = "tier3-enrichment";
 
     @Transactional
     public CompanyEnrichment enrichTier1(UUID supplierId) {
@@ -99,7 +104,111 @@ public class CompanyEnrichmentPipelineService {
             enrichment = enrichmentRepository.findBySupplierId(supplierId).orElseThrow();
         }
 
-        String prompt = String.format("""
+        String prompt = buildTier2Prompt(enrichment);
+
+        Optional<String> cached = aiCacheService.getCached(prompt, TIER2_PURPOSE);
+        String response = cached.orElseGet(() -> {
+            String r = anthropicService.callClaude(prompt);
+            if (r != null) aiCacheService.cache(prompt, TIER2_PURPOSE, r, LLM_CACHE_HOURS);
+            return r;
+        });
+
+        applyTier2Response(enrichment, response);
+        enrichment = enrichmentRepository.save(enrichment);
+        log.info("Tier 2 enrichment completed for supplier: {}", enrichment.getSupplier().getCompanyName());
+        return enrichment;
+    }
+
+    @Transactional
+    public CompanyEnrichment enrichTier3(UUID supplierId) {
+        CompanyEnrichment enrichment = enrichmentRepository.findBySupplierId(supplierId)
+                .orElseThrow(() -> new RuntimeException("Enrichment not found - run Tier 1+2 first"));
+
+        String prompt = buildTier3Prompt(enrichment);
+
+        Optional<String> cached = aiCacheService.getCached(prompt, TIER3_PURPOSE);
+        String response = cached.orElseGet(() -> {
+            String r = anthropicService.callClaude(prompt);
+            if (r != null) aiCacheService.cache(prompt, TIER3_PURPOSE, r, LLM_CACHE_HOURS);
+            return r;
+        });
+
+        applyTier3Response(enrichment, response);
+        enrichment = enrichmentRepository.save(enrichment);
+        log.info("Tier 3 enrichment completed for supplier: {}", enrichment.getSupplier().getCompanyName());
+        return enrichment;
+    }
+
+    /**
+     * Daily re-enrichment of expired entries. Tier 1 runs inline; the LLM tiers go through
+     * message batches so the nightly run doesn't eat into interactive rate limits.
+     */
+    @Scheduled(fixedRate = 86400000) // Daily
+    @Transactional
+    public void batchEnrich() {
+        // Re-enrich expired entries
+        List<CompanyEnrichment> expired = enrichmentRepository.findByCacheExpiresAtBefore(LocalDateTime.now());
+        for (CompanyEnrichment enrichment : expired) {
+            try {
+                UUID supplierId = enrichment.getSupplier().getId();
+                queueTier2(enrichTier1(supplierId));
+            } catch (Exception e) {
+                log.error("Batch enrichment failed for supplier {}: {}", enrichment.getSupplier().getId(), e.getMessage());
+            }
+        }
+        if (!expired.isEmpty()) {
+            log.info("Batch enrichment queued for {} suppliers", expired.size());
+        }
+    }
+
+    @Override
+    public Set<String> getBatchPurposes() {
+        return Set.of(TIER2_PURPOSE, TIER3_PURPOSE);
+    }
+
+    @Override
+    @Transactional
+    public void handleBatchResult(String purpose, UUID supplierId, String response) {
+        CompanyEnrichment enrichment = enrichmentRepository.findBySupplierId(supplierId).orElse(null);
+        if (enrichment == null) {
+            log.warn("Enrichment for supplier {} disappeared before batch result arrived", supplierId);
+            return;
+        }
+
+        if (TIER2_PURPOSE.equals(purpose)) {
+            applyTier2Response(enrichment, response);
+            queueTier3(enrichmentRepository.save(enrichment));
+        } else if (TIER3_PURPOSE.equals(purpose)) {
+            applyTier3Response(enrichment, response);
+            enrichmentRepository.save(enrichment);
+            log.info("Batched enrichment completed for supplier: {}", enrichment.getSupplier().getCompanyName());
+        }
+    }
+
+    private void queueTier2(CompanyEnrichment enrichment) {
+        String prompt = buildTier2Prompt(enrichment);
+        Optional<String> cached = aiCacheService.getCached(prompt, TIER2_PURPOSE);
+        if (cached.isPresent()) {
+            applyTier2Response(enrichment, cached.get());
+            queueTier3(enrichmentRepository.save(enrichment));
+        } else {
+            llmBatchService.enqueue(TIER2_PURPOSE, enrichment.getSupplier().getId(), null, prompt, LLM_CACHE_HOURS);
+        }
+    }
+
+    private void queueTier3(CompanyEnrichment enrichment) {
+        String prompt = buildTier3Prompt(enrichment);
+        Optional<String> cached = aiCacheService.getCached(prompt, TIER3_PURPOSE);
+        if (cached.isPresent()) {
+            applyTier3Response(enrichment, cached.get());
+            enrichmentRepository.save(enrichment);
+        } else {
+            llmBatchService.enqueue(TIER3_PURPOSE, enrichment.getSupplier().getId(), null, prompt, LLM_CACHE_HOURS);
+        }
+    }
+
+    private String buildTier2Prompt(CompanyEnrichment enrichment) {
+        return String.format("""
             Based on these facts about a construction company, generate:
             1. A professional summary (2-3 sentences)
             2. Their specialties/strengths as a comma-separated list
@@ -112,14 +221,9 @@ public class CompanyEnrichmentPipelineService {
               "specialties": "string - comma separated"
             }
             """, enrichment.getCrawlerFactsJson());
+    }
 
-        Optional<String> cached = aiCacheService.getCached(prompt, "tier2-enrichment");
-        String response = cached.orElseGet(() -> {
-            String r = anthropicService.callClaude(prompt);
-            if (r != null) aiCacheService.cache(prompt, "tier2-enrichment", r, 168); // 7 days
-            return r;
-        });
-
+    private void applyTier2Response(CompanyEnrichment enrichment, String response) {
         if (response != null) {
             try {
                 String json = extractJson(response);
@@ -133,16 +237,9 @@ public class CompanyEnrichmentPipelineService {
         }
 
         enrichment.setTier2CompletedAt(LocalDateTime.now());
-        enrichment = enrichmentRepository.save(enrichment);
-        log.info("Tier 2 enrichment completed for supplier: {}", enrichment.getSupplier().getCompanyName());
-        return enrichment;
     }
 
-    @Transactional
-    public CompanyEnrichment enrichTier3(UUID supplierId) {
-        CompanyEnrichment enrichment = enrichmentRepository.findBySupplierId(supplierId)
-                .orElseThrow(() -> new RuntimeException("Enrichment not found - run Tier 1+2 first"));
-
+    private String buildTier3Prompt(CompanyEnrichment enrichment) {
         Supplier supplier = enrichment.getSupplier();
 
         // Build deep analysis prompt with bid history and registry data
@@ -153,7 +250,7 @@ public class CompanyEnrichmentPipelineService {
                     : "No tax debt";
         }
 
-        String prompt = String.format("""
+        return String.format("""
             Deep analysis of construction company for risk/reliability scoring:
 
             Company: %s
@@ -200,14 +297,9 @@ public class CompanyEnrichmentPipelineService {
                 enrichment.getEmployeeCount() != null ? enrichment.getEmployeeCount() : "Unknown",
                 enrichment.getAnnualRevenue() != null ? "EUR " + enrichment.getAnnualRevenue() : "Unknown",
                 enrichment.getPublicProcurementCount() != null ? enrichment.getPublicProcurementCount() : "Unknown");
+    }
 
-        Optional<String> cached = aiCacheService.getCached(prompt, "tier3-enrichment");
-        String response = cached.orElseGet(() -> {
-            String r = anthropicService.callClaude(prompt);
-            if (r != null) aiCacheService.cache(prompt, "tier3-enrichment", r, 168);
-            return r;
-        });
-
+    private void applyTier3Response(CompanyEnrichment enrichment, String response) {
         if (response != null) {
             try {
                 String json = extractJson(response);
@@ -225,29 +317,6 @@ public class CompanyEnrichmentPipelineService {
 
         enrichment.setTier3CompletedAt(LocalDateTime.now());
         enrichment.setCacheExpiresAt(LocalDateTime.now().plusDays(CACHE_DAYS));
-        enrichment = enrichmentRepository.save(enrichment);
-        log.info("Tier 3 enrichment completed for supplier: {}", supplier.getCompanyName());
-        return enrichment;
-    }
-
-    @Scheduled(fixedRate = 86400000) // Daily
-    @Transactional
-    public void batchEnrich() {
-        // Re-enrich expired entries
-        List<CompanyEnrichment> expired = enrichmentRepository.findByCacheExpiresAtBefore(LocalDateTime.now());
-        for (CompanyEnrichment enrichment : expired) {
-            try {
-                UUID supplierId = enrichment.getSupplier().getId();
-                enrichTier1(supplierId);
-                enrichTier2(supplierId);
-                enrichTier3(supplierId);
-            } catch (Exception e) {
-                log.error("Batch enrichment failed for supplier {}: {}", enrichment.getSupplier().getId(), e.getMessage());
-            }
-        }
-        if (!expired.isEmpty()) {
-            log.info("Batch enrichment completed for {} suppliers", expired.size());
-        }
     }
 
     private String extractJson(String response) {
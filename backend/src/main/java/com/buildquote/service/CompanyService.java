@@ -6,7 +6,9 @@ import com.buildquote.entity.CompanyEnrichment;
 import com.buildquote.entity.Supplier;
 import com.buildquote.repository.CompanyEnrichmentRepository;
 import com.buildquote.repository.SupplierRepository;
-import jakarta.annotation.PostConstruct;
+import com.buildquote.util.LruCache;
+import com.buildquote.util.SqlArrays;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -14,8 +16,10 @@ import org.springframework.data.domain.Sort;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -28,7 +32,10 @@ public class CompanyService {
     private final SupplierSearchService supplierSearchService;
     private final CompanyEnrichmentRepository enrichmentRepository;
     private final JdbcTemplate jdbcTemplate;
-    private volatile boolean crawlerSchemaExists = false;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LruCache<String, Long> totalCache = new LruCache<>(500, 60_000);
+    private final LruCache<String, String> pageCursors = new LruCache<>(5000, 30 * 60_000);
 
     public CompanyService(SupplierRepository supplierRepository, SupplierSearchService supplierSearchService,
                           CompanyEnrichmentRepository enrichmentRepository, JdbcTemplate jdbcTemplate) {
@@ -38,36 +45,21 @@ public class CompanyService {
         this.jdbcTemplate = jdbcTemplate;
     }
 
-    @PostConstruct
-    public void init() {
-        checkCrawlerSchema();
-    }
-
-    private void checkCrawlerSchema() {
-        try {
-            Boolean exists = jdbcTemplate.queryForObject(
-                "SELECT EXISTS(SELECT 1 FROM information_schema.schemata WHERE schema_name = 'crawler')",
-                Boolean.class);
-            crawlerSchemaExists = Boolean.TRUE.equals(exists);
-        } catch (Exception e) {
-            crawlerSchemaExists = false;
-        }
-    }
-
     public CompanyPageResponse getCompanies(int page, int size, String search, String sortBy, String sortDir) {
         return getCompanies(page, size, search, sortBy, sortDir, null, null);
     }
 
     public CompanyPageResponse getCompanies(int page, int size, String search, String sortBy, String sortDir, String category, String city) {
-        // Try combined query first if crawler schema exists, otherwise use suppliers only
-        if (crawlerSchemaExists) {
-            try {
-                return getCompaniesFromCombinedQuery(page, size, search, sortBy, sortDir, category, city);
-            } catch (Exception e) {
-                System.err.println("CompanyService combined query failed, falling back to suppliers only: " + e.getMessage());
-                // Re-check schema availability for future requests
-                checkCrawlerSchema();
-            }
+        return getCompanies(page, size, search, sortBy, sortDir, category, city, null);
+    }
+
+    public CompanyPageResponse getCompanies(int page, int size, String search, String sortBy, String sortDir,
+                                            String category, String city, String cursor) {
+        // company_directory covers suppliers and crawler.company; suppliers-only JPA query if it fails
+        try {
+            return getCompaniesFromDirectory(page, size, search, sortBy, sortDir, category, city, cursor);
+        } catch (Exception e) {
+            System.err.println("CompanyService directory query failed, falling back to suppliers only: " + e.getMessage());
         }
 
         // Fallback: query suppliers table only via JPA
@@ -98,24 +90,72 @@ public class CompanyService {
                 .build();
     }
 
-    private CompanyPageResponse getCompaniesFromCombinedQuery(int page, int size, String search, String sortBy, String sortDir, String category, String city) {
+    /**
+     * Keyset-paginated search over the company_directory read model (suppliers and crawler.company,
+     * see V22). Rows are ordered by the sort column (nulls last) and then id, so the last row of a
+     * page is a stable cursor and later pages seek past it in the matching index instead of
+     * skipping OFFSET rows. Clients that only send page numbers still get a seek when they page
+     * forward, via the cursors remembered per query.
+     */
+    private CompanyPageResponse getCompaniesFromDirectory(int page, int size, String search, String sortBy, String sortDir,
+                                                              String category, String city, String cursor) {
         String searchPattern = (search != null && !search.isBlank()) ? "%" + search.toLowerCase() + "%" : null;
-        String categoryPattern = (category != null && !category.isBlank()) ? "%" + category + "%" : null;
+        String categoryValue = (category != null && !category.isBlank()) ? category.trim() : null;
         String cityPattern = (city != null && !city.isBlank()) ? "%" + city.toLowerCase() + "%" : null;
-        int offset = page * size;
+        String sortColumn = mapSortFieldSql(sortBy);
+        boolean descending = "desc".equalsIgnoreCase(sortDir);
 
-        String sql = buildCombinedQuery(searchPattern, categoryPattern, cityPattern, sortBy, sortDir, size, offset);
-        String countSql = buildCountQuery(searchPattern, categoryPattern, cityPattern);
-        List<Object> params = buildQueryParams(searchPattern, categoryPattern, cityPattern);
+        String filterKey = searchPattern + "|" + categoryValue + "|" + cityPattern;
+        String pageKey = filterKey + "|" + sortColumn + "|" + descending + "|" + size + "|";
+
+        if (cursor == null && page > 0) {
+            cursor = pageCursors.get(pageKey + page);
+        }
+        PageCursor after = cursor != null ? decodeCursor(cursor) : null;
+
+        List<String> conditions = buildConditions(searchPattern, categoryValue, cityPattern);
+        List<Object> params = buildQueryParams(searchPattern, categoryValue, cityPattern);
+        long totalElements = getTotal(filterKey, conditions, params);
+
+        List<Object> pageParams = new ArrayList<>(params);
+        List<String> pageConditions = new ArrayList<>(conditions);
+        if (after != null) {
+            // Written as row comparisons over the keyset index columns so they become index seeks
+            if (after.nullSort()) {
+                pageConditions.add(String.format("%s IS NULL AND id %s ?", sortColumn, descending ? "<" : ">"));
+            } else if (descending) {
+                pageConditions.add(String.format("((%1$s IS NOT NULL), %1$s, id) < (TRUE, ?, ?)", sortColumn));
+                pageParams.add(after.sortValue());
+            } else {
+                pageConditions.add(String.format("((%1$s IS NULL), %1$s, id) > (FALSE, ?, ?)", sortColumn));
+                pageParams.add(after.sortValue());
+            }
+            pageParams.add(after.id());
+        }
+        // No cursor for a later page (random jump): fall back to OFFSET
+        int offset = after == null ? page * size : 0;
 
-        long totalElements = jdbcTemplate.queryForObject(countSql, Long.class, params.toArray());
+        String sql = buildPageQuery(pageConditions, sortColumn, descending, size + 1, offset);
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(sql, pageParams.toArray());
 
-        List<Map<String, Object>> rows = jdbcTemplate.queryForList(sql, params.toArray());
+        boolean hasNext = rows.size() > size;
+        if (hasNext) {
+            rows = rows.subList(0, size);
+        }
         List<CompanyDto> companies = new ArrayList<>();
         for (Map<String, Object> row : rows) {
             companies.add(mapRowToDto(row));
         }
 
+        String nextCursor = null;
+        if (hasNext) {
+            Map<String, Object> last = rows.get(rows.size() - 1);
+            Object sortValue = last.get(sortColumn);
+            nextCursor = encodeCursor(new PageCursor(sortValue == null,
+                    sortValue != null ? sortValue.toString() : "", last.get("id").toString()));
+            pageCursors.put(pageKey + (page + 1), nextCursor);
+        }
+
         int totalPages = (int) Math.ceil((double) totalElements / size);
 
         return CompanyPageResponse.builder()
@@ -124,95 +164,109 @@ public class CompanyService {
                 .size(size)
                 .totalElements(totalElements)
                 .totalPages(totalPages)
-                .hasNext(page < totalPages - 1)
+                .hasNext(hasNext)
                 .hasPrevious(page > 0)
+                .nextCursor(nextCursor)
                 .build();
     }
 
-    private List<Object> buildQueryParams(String searchPattern, String categoryPattern, String cityPattern) {
-        List<Object> params = new ArrayList<>();
-        if (searchPattern != null) {
-            params.add(searchPattern);
-            params.add(searchPattern);
-        }
-        if (categoryPattern != null) {
-            params.add(categoryPattern);
+    /**
+     * Totals are cached per filter for a minute; the unfiltered total is the count kept by
+     * SupplierSearchService, so neither costs a COUNT(*) on every page.
+     */
+    private long getTotal(String filterKey, List<String> conditions, List<Object> params) {
+        if (conditions.isEmpty()) {
+            long total = supplierSearchService.getTotalSupplierCount();
+            if (total > 0) return total;
         }
-        if (cityPattern != null) {
-            params.add(cityPattern);
-        }
-        return params;
-    }
+        Long cached = totalCache.get(filterKey);
+        if (cached != null) return cached;
 
-    private String buildCombinedQuery(String searchPattern, String categoryPattern, String cityPattern, String sortBy, String sortDir, int limit, int offset) {
-        String orderBy = mapSortFieldSql(sortBy);
-        String direction = "desc".equalsIgnoreCase(sortDir) ? "DESC" : "ASC";
+        Long total = jdbcTemplate.queryForObject(buildCountQuery(conditions), Long.class, params.toArray());
+        long result = total != null ? total : 0;
+        totalCache.put(filterKey, result);
+        return result;
+    }
 
-        StringBuilder whereClause = new StringBuilder();
+    private List<String> buildConditions(String searchPattern, String categoryValue, String cityPattern) {
         List<String> conditions = new ArrayList<>();
-
         if (searchPattern != null) {
             conditions.add("(LOWER(company_name) LIKE ? OR LOWER(city) LIKE ?)");
         }
-        if (categoryPattern != null) {
-            conditions.add("categories LIKE ?");
+        if (categoryValue != null) {
+            conditions.add("categories @> ARRAY[CAST(? AS text)]");
         }
         if (cityPattern != null) {
             conditions.add("LOWER(city) LIKE ?");
         }
-
-        if (!conditions.isEmpty()) {
-            whereClause.append("WHERE ").append(String.join(" AND ", conditions));
-        }
-
-        return String.format("""
-            SELECT id, company_name, email, phone, website, address, city, county, source, categories
-            FROM (
-                SELECT id::text, company_name, email, phone, website, address, city, county, source, categories
-                FROM public.suppliers
-                UNION ALL
-                SELECT id::text, legal_name as company_name,
-                       COALESCE(email[1], '') as email,
-                       COALESCE(phone[1], '') as phone,
-                       website, address, city, county,
-                       'BUSINESS_REGISTRY' as source,
-                       array_to_string(categories, ',') as categories
-                FROM crawler.company
-            ) combined
-            %s
-            ORDER BY %s %s NULLS LAST
-            LIMIT %d OFFSET %d
-            """, whereClause, orderBy, direction, limit, offset);
+        return conditions;
     }
 
-    private String buildCountQuery(String searchPattern, String categoryPattern, String cityPattern) {
-        StringBuilder whereClause = new StringBuilder();
-        List<String> conditions = new ArrayList<>();
-
+    private List<Object> buildQueryParams(String searchPattern, String categoryValue, String cityPattern) {
+        List<Object> params = new ArrayList<>();
         if (searchPattern != null) {
-            conditions.add("(LOWER(company_name) LIKE ? OR LOWER(city) LIKE ?)");
+            params.add(searchPattern);
+            params.add(searchPattern);
         }
-        if (categoryPattern != null) {
-            conditions.add("categories LIKE ?");
+        if (categoryValue != null) {
+            params.add(categoryValue);
         }
         if (cityPattern != null) {
-            conditions.add("LOWER(city) LIKE ?");
+            params.add(cityPattern);
         }
+        return params;
+    }
 
-        if (!conditions.isEmpty()) {
-            whereClause.append("WHERE ").append(String.join(" AND ", conditions));
-        }
+    private static String whereClause(List<String> conditions) {
+        return conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions);
+    }
+
+    private String buildPageQuery(List<String> conditions, String sortColumn, boolean descending, int limit, int offset) {
+        // Same shape as the keyset indexes: (col IS NULL), col, id ascending, or
+        // (col IS NOT NULL), col, id descending; both put nulls last
+        String orderBy = descending
+            ? String.format("(%1$s IS NOT NULL) DESC, %1$s DESC, id DESC", sortColumn)
+            : String.format("(%1$s IS NULL), %1$s, id", sortColumn);
 
         return String.format("""
-            SELECT COUNT(*) FROM (
-                SELECT company_name, city, categories FROM public.suppliers
-                UNION ALL
-                SELECT legal_name as company_name, city, array_to_string(categories, ',') as categories FROM crawler.company
-            ) combined
+            SELECT id, company_name, contact_person, email, phone, website, address, city, county, source,
+                   categories, service_areas, google_rating, google_review_count, trust_score, is_verified,
+                   llm_summary, risk_score, reliability_score
+            FROM company_directory
             %s
-            """, whereClause);
+            ORDER BY %s
+            LIMIT %d%s
+            """, whereClause(conditions), orderBy, limit, offset > 0 ? " OFFSET " + offset : "");
     }
 
+    private String buildCountQuery(List<String> conditions) {
+        return "SELECT COUNT(*) FROM company_directory " + whereClause(conditions);
+    }
+
+    private String encodeCursor(PageCursor cursor) {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(cursor));
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not encode page cursor", e);
+        }
+    }
+
+    /**
+     * Null for a malformed cursor, which falls back to offset paging.
+     */
+    private PageCursor decodeCursor(String cursor) {
+        try {
+            return objectMapper.readValue(Base64.getUrlDecoder().decode(cursor), PageCursor.class);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Position after the last row of a page: the sort column (null flag + value) and id.
+     */
+    record PageCursor(boolean nullSort, String sortValue, String id) {}
+
     private String mapSortFieldSql(String sortBy) {
         if (sortBy == null || sortBy.isEmpty()) {
             return "company_name";
@@ -226,19 +280,10 @@ public class CompanyService {
     }
 
     private CompanyDto mapRowToDto(Map<String, Object> row) {
-        String categoriesStr = row.get("categories") != null ? row.get("categories").toString() : null;
-        List<String> categories = new ArrayList<>();
-        if (categoriesStr != null && !categoriesStr.isEmpty()) {
-            // Handle PostgreSQL array format {val1,val2}
-            categoriesStr = categoriesStr.replaceAll("[{}]", "");
-            if (!categoriesStr.isEmpty()) {
-                categories = Arrays.asList(categoriesStr.split(","));
-            }
-        }
-
         return CompanyDto.builder()
                 .id(row.get("id") != null ? row.get("id").toString() : null)
                 .companyName((String) row.get("company_name"))
+                .contactPerson((String) row.get("contact_person"))
                 .email((String) row.get("email"))
                 .phone((String) row.get("phone"))
                 .website((String) row.get("website"))
@@ -246,8 +291,15 @@ public class CompanyService {
                 .city((String) row.get("city"))
                 .county((String) row.get("county"))
                 .source((String) row.get("source"))
-                .categories(categories)
-                .serviceAreas(List.of())
+                .categories(SqlArrays.toStrings(row.get("categories")))
+                .serviceAreas(SqlArrays.toStrings(row.get("service_areas")))
+                .googleRating((BigDecimal) row.get("google_rating"))
+                .googleReviewCount((Integer) row.get("google_review_count"))
+                .trustScore((Integer) row.get("trust_score"))
+                .isVerified((Boolean) row.get("is_verified"))
+                .llmSummary((String) row.get("llm_summary"))
+                .riskScore((Integer) row.get("risk_score"))
+                .reliabilityScore((Integer) row.get("reliability_score"))
                 .build();
     }
 
@@ -1,14 +1,16 @@
 package com.buildquote.service;
 
+import org.jsoup.nodes.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
@@ -18,25 +20,34 @@ public class ContactCrawlerService {
 
     private final GooglePlacesService googlePlacesService;
     private final JdbcTemplate jdbcTemplate;
+    private final CrawlerEngine crawlerEngine;
+    private final CrawlResultWriter crawlResultWriter;
 
-    private final AtomicBoolean isRunning = new AtomicBoolean(false);
     private final AtomicInteger processedCount = new AtomicInteger(0);
     private final AtomicInteger foundCount = new AtomicInteger(0);
     private final AtomicInteger totalCount = new AtomicInteger(0);
+    private volatile CrawlerEngine.CrawlRun<CompanyTarget> currentRun;
 
-    public ContactCrawlerService(GooglePlacesService googlePlacesService, JdbcTemplate jdbcTemplate) {
+    public ContactCrawlerService(GooglePlacesService googlePlacesService, JdbcTemplate jdbcTemplate,
+                                 CrawlerEngine crawlerEngine, CrawlResultWriter crawlResultWriter) {
         this.googlePlacesService = googlePlacesService;
         this.jdbcTemplate = jdbcTemplate;
+        this.crawlerEngine = crawlerEngine;
+        this.crawlResultWriter = crawlResultWriter;
     }
 
     public Map<String, Object> getStatus() {
-        return Map.of(
-            "isRunning", isRunning.get(),
-            "processed", processedCount.get(),
-            "found", foundCount.get(),
-            "total", totalCount.get(),
-            "googlePlacesConfigured", googlePlacesService.isConfigured()
-        );
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("isRunning", isRunning());
+        status.put("processed", processedCount.get());
+        status.put("found", foundCount.get());
+        status.put("total", totalCount.get());
+        status.put("googlePlacesConfigured", googlePlacesService.isConfigured());
+        CrawlerEngine.CrawlRun<CompanyTarget> run = currentRun;
+        if (run != null) {
+            status.put("crawl", run.getStats());
+        }
+        return status;
     }
 
     public String startCrawling(int limit) {
@@ -44,7 +55,7 @@ public class ContactCrawlerService {
             return "Google Places API key not configured";
         }
 
-        if (isRunning.get()) {
+        if (isRunning()) {
             return "Crawler is already running";
         }
 
@@ -53,95 +64,105 @@ public class ContactCrawlerService {
     }
 
     public void stopCrawling() {
-        isRunning.set(false);
+        CrawlerEngine.CrawlRun<CompanyTarget> run = currentRun;
+        if (run != null) {
+            run.stop();
+        }
+    }
+
+    private boolean isRunning() {
+        CrawlerEngine.CrawlRun<CompanyTarget> run = currentRun;
+        return run != null && run.isRunning();
     }
 
-    @Async
-    public void crawlAsync(int limit) {
-        isRunning.set(true);
+    /**
+     * Start the Google Places lookup in the background. Lookups run concurrently in the crawler
+     * engine's fetch stage, paced by the Places host limit of the outbound HTTP layer.
+     */
+    public synchronized void crawlAsync(int limit) {
+        if (isRunning()) return;
         processedCount.set(0);
         foundCount.set(0);
 
-        try {
-            // Get companies without phone from crawler.company
-            // phone is TEXT[] - empty array {} has array_length NULL
-            String sql = """
-                SELECT id, legal_name, city
-                FROM crawler.company
-                WHERE phone IS NULL OR phone = '{}' OR array_length(phone, 1) IS NULL
-                LIMIT ?
-                """;
-
-            List<Map<String, Object>> companies = jdbcTemplate.queryForList(sql, limit);
-            totalCount.set(companies.size());
-
-            log.info("Starting contact crawl for {} companies", companies.size());
-
-            for (Map<String, Object> company : companies) {
-                if (!isRunning.get()) {
-                    log.info("Crawler stopped by user");
-                    break;
-                }
-
-                String id = company.get("id").toString();
-                String name = (String) company.get("legal_name");
-                String city = (String) company.get("city");
+        // Get companies without phone from crawler.company
+        // phone is TEXT[] - empty array {} has array_length NULL
+        String sql = """
+            SELECT id, legal_name, city
+            FROM crawler.company
+            WHERE phone IS NULL OR phone = '{}' OR array_length(phone, 1) IS NULL
+            LIMIT ?
+            """;
 
-                if (name == null || name.isEmpty()) {
-                    processedCount.incrementAndGet();
-                    continue;
+        List<CompanyTarget> companies = jdbcTemplate.query(sql,
+            (rs, i) -> new CompanyTarget(rs.getString("id"), rs.getString("legal_name"), rs.getString("city")),
+            limit);
+        totalCount.set(companies.size());
+
+        log.info("Starting contact crawl for {} companies", companies.size());
+        currentRun = crawlerEngine.start("google-contacts", companies.iterator(), new CrawlerEngine.Handler<>() {
+            @Override
+            public String prepare(CompanyTarget target) {
+                if (target.name == null || target.name.isEmpty()) {
+                    return null;
                 }
-
-                try {
-                    // Search Google Places
-                    List<GooglePlacesService.PlaceResult> results =
-                        googlePlacesService.searchPlaces(name, city != null ? city : "Estonia");
-
-                    if (!results.isEmpty()) {
-                        // Find best match (first result usually best)
-                        GooglePlacesService.PlaceResult best = results.get(0);
-
-                        // Update database if we found contact info
-                        if (best.phone != null || best.website != null) {
-                            updateCompanyContact(id, best.phone, best.website);
-                            foundCount.incrementAndGet();
-                            log.info("Found contact for {}: phone={}, website={}",
-                                name, best.phone, best.website);
-                        }
-                    }
-
-                    // Rate limiting - Google Places has quotas
-                    Thread.sleep(200); // 5 requests per second max
-
-                } catch (Exception e) {
-                    log.error("Error processing company {}: {}", name, e.getMessage());
+                // Search Google Places
+                List<GooglePlacesService.PlaceResult> results =
+                    googlePlacesService.searchPlaces(target.name, target.city != null ? target.city : "Estonia");
+                if (!results.isEmpty()) {
+                    // Find best match (first result usually best)
+                    target.best = results.get(0);
                 }
+                // Nothing to fetch: the lookup is the whole job
+                return null;
+            }
 
-                processedCount.incrementAndGet();
+            @Override
+            public String onPage(CompanyTarget target, Document page, int pageIndex) {
+                return null;
+            }
 
-                if (processedCount.get() % 100 == 0) {
-                    log.info("Progress: {}/{}, found: {}",
-                        processedCount.get(), totalCount.get(), foundCount.get());
-                }
+            @Override
+            public void onError(CompanyTarget target, int pageIndex, Exception e) {
+                log.error("Error processing company {}: {}", target.name, e.getMessage());
+            }
+
+            @Override
+            public CompletableFuture<Void> persist(List<CompanyTarget> finished) {
+                return saveContacts(finished);
+            }
+        });
+    }
+
+    private CompletableFuture<Void> saveContacts(List<CompanyTarget> finished) {
+        List<CrawlResultWriter.CompanyContact> updates = new ArrayList<>();
+        for (CompanyTarget target : finished) {
+            GooglePlacesService.PlaceResult best = target.best;
+            // Update database if we found contact info
+            if (best != null && (best.phone != null || best.website != null)) {
+                updates.add(new CrawlResultWriter.CompanyContact(target.id, best.phone, null, best.website));
+                foundCount.incrementAndGet();
+                log.info("Found contact for {}: phone={}, website={}", target.name, best.phone, best.website);
             }
+        }
+        CompletableFuture<Void> written = crawlResultWriter.writeCompanyContacts(updates);
 
-        } catch (Exception e) {
-            log.error("Crawler error: {}", e.getMessage(), e);
-        } finally {
-            isRunning.set(false);
-            log.info("Crawling finished. Processed: {}, Found: {}",
-                processedCount.get(), foundCount.get());
+        int processed = processedCount.addAndGet(finished.size());
+        if (processed / 100 != (processed - finished.size()) / 100) {
+            log.info("Progress: {}/{}, found: {}", processed, totalCount.get(), foundCount.get());
         }
+        return written;
     }
 
-    private void updateCompanyContact(String id, String phone, String website) {
-        String sql = """
-            UPDATE crawler.company
-            SET phone = CASE WHEN ? IS NOT NULL THEN ARRAY[?] ELSE phone END,
-                website = COALESCE(?, website)
-            WHERE id = ?::uuid
-            """;
+    private static class CompanyTarget {
+        final String id;
+        final String name;
+        final String city;
+        volatile GooglePlacesService.PlaceResult best;
 
-        jdbcTemplate.update(sql, phone, phone, website, id);
+        CompanyTarget(String id, String name, String city) {
+            this.id = id;
+            this.name = name;
+            this.city = city;
+        }
     }
 }
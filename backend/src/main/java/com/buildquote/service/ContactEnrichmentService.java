@@ -1,9 +1,7 @@
 package com.buildquote.service;
 
-import org.jsoup.Jsoup;
+import com.buildquote.util.ContactExtractor;
 import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -13,10 +11,9 @@ import org.springframework.stereotype.Service;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Combined contact enrichment service.
@@ -30,13 +27,8 @@ public class ContactEnrichmentService {
 
     private final GooglePlacesService googlePlacesService;
     private final JdbcTemplate jdbcTemplate;
-
-    private static final Pattern PHONE_PATTERN = Pattern.compile(
-        "(?:\\+372\\s?)?(?:[5-9]\\d{2}[\\s-]?\\d{4}|\\d{3}[\\s-]?\\d{4})"
-    );
-    private static final Pattern EMAIL_PATTERN = Pattern.compile(
-        "[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}"
-    );
+    private final CrawlerEngine crawlerEngine;
+    private final CrawlResultWriter crawlResultWriter;
 
     private final AtomicBoolean isRunning = new AtomicBoolean(false);
     private final AtomicInteger processedCount = new AtomicInteger(0);
@@ -50,10 +42,14 @@ public class ContactEnrichmentService {
     private volatile String currentCompany = "";
     private volatile String currentStep = "IDLE";
     private volatile LocalDateTime startedAt = null;
+    private volatile CrawlerEngine.CrawlRun<EnrichTarget> currentRun;
 
-    public ContactEnrichmentService(GooglePlacesService googlePlacesService, JdbcTemplate jdbcTemplate) {
+    public ContactEnrichmentService(GooglePlacesService googlePlacesService, JdbcTemplate jdbcTemplate,
+                                    CrawlerEngine crawlerEngine, CrawlResultWriter crawlResultWriter) {
         this.googlePlacesService = googlePlacesService;
         this.jdbcTemplate = jdbcTemplate;
+        this.crawlerEngine = crawlerEngine;
+        this.crawlResultWriter = crawlResultWriter;
     }
 
     public Map<String, Object> getStatus() {
@@ -70,6 +66,10 @@ public class ContactEnrichmentService {
         status.put("errors", errorCount.get());
         status.put("skipped", skippedCount.get());
         status.put("startedAt", startedAt);
+        CrawlerEngine.CrawlRun<EnrichTarget> run = currentRun;
+        if (run != null) {
+            status.put("crawl", run.getStats());
+        }
 
         int total = totalCount.get();
         int processed = processedCount.get();
@@ -93,16 +93,25 @@ public class ContactEnrichmentService {
             return "Enrichment is already running";
         }
 
-        // Run in separate thread (self-invocation bypasses Spring @Async proxy)
-        new Thread(() -> enrichAsync(limit), "contact-enrichment").start();
+        enrichAsync(limit);
         return "Contact enrichment started for " + limit + " companies";
     }
 
     public void stopEnrichment() {
-        isRunning.set(false);
+        CrawlerEngine.CrawlRun<EnrichTarget> run = currentRun;
+        if (run != null) {
+            run.stop();
+            currentStep = "STOPPED";
+        }
     }
 
-    public void enrichAsync(int limit) {
+    /**
+     * Start enrichment in the background. Companies run through the crawler engine: the Google
+     * lookup happens in its fetch stage, website pages are parsed in its parse stage and the
+     * results are written in batches. Returns once the run has started.
+     */
+    public synchronized void enrichAsync(int limit) {
+        if (isRunning.get()) return;
         isRunning.set(true);
         resetCounters();
         startedAt = LocalDateTime.now();
@@ -117,137 +126,160 @@ public class ContactEnrichmentService {
                 LIMIT ?
                 """;
 
-            List<Map<String, Object>> companies = jdbcTemplate.queryForList(sql, limit);
+            List<EnrichTarget> companies = jdbcTemplate.query(sql, (rs, i) -> new EnrichTarget(
+                rs.getString("id"),
+                rs.getString("legal_name"),
+                rs.getString("city"),
+                rs.getString("website"),
+                hasArrayData(rs.getObject("phone")),
+                hasArrayData(rs.getObject("email"))), limit);
             totalCount.set(companies.size());
 
             log.info("Starting contact enrichment for {} companies", companies.size());
+            currentStep = "CRAWLING";
+            CrawlerEngine.CrawlRun<EnrichTarget> run = crawlerEngine.start("enrichment", companies.iterator(), new CrawlerEngine.Handler<>() {
+                @Override
+                public String prepare(EnrichTarget target) {
+                    return lookupCompany(target);
+                }
 
-            for (Map<String, Object> company : companies) {
-                if (!isRunning.get()) {
-                    log.info("Enrichment stopped by user");
-                    currentStep = "STOPPED";
-                    break;
+                @Override
+                public String onPage(EnrichTarget target, Document page, int pageIndex) {
+                    String contactPage = extractContactInfo(page, target.scraped);
+                    return !target.scraped.hasInfo() && pageIndex == 0
+                        ? contactPage
+                        : null;
                 }
 
-                processCompany(company);
-                processedCount.incrementAndGet();
+                @Override
+                public void onError(EnrichTarget target, int pageIndex, Exception e) {
+                    if (pageIndex == 0) {
+                        log.debug("Website scrape error for {} ({}): {}", target.name, target.foundWebsite, e.getMessage());
+                        errorCount.incrementAndGet();
+                    }
+                }
 
-                if (processedCount.get() % 50 == 0) {
-                    log.info("Enrichment progress: {}/{} | phone:{} email:{} errors:{}",
-                        processedCount.get(), totalCount.get(),
-                        phoneFoundCount.get(), emailFoundCount.get(),
-                        errorCount.get());
+                @Override
+                public CompletableFuture<Void> persist(List<EnrichTarget> finished) {
+                    return saveResults(finished);
                 }
-            }
+            });
+            currentRun = run;
+
+            // Watch for the end of the run to flip the status
+            Thread watcher = new Thread(() -> {
+                try {
+                    run.awaitCompletion();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    finishRun();
+                }
+            }, "contact-enrichment");
+            watcher.setDaemon(true);
+            watcher.start();
+
         } catch (Exception e) {
             log.error("Enrichment error: {}", e.getMessage(), e);
-        } finally {
-            isRunning.set(false);
-            currentStep = "COMPLETED";
-            currentCompany = "";
-            log.info("Enrichment finished. Processed:{}, Phone:{}, Email:{}, Errors:{}",
-                processedCount.get(), phoneFoundCount.get(),
-                emailFoundCount.get(), errorCount.get());
+            finishRun();
         }
     }
 
-    private void processCompany(Map<String, Object> company) {
-        String id = company.get("id").toString();
-        String name = (String) company.get("legal_name");
-        String city = (String) company.get("city");
-        String website = (String) company.get("website");
-
-        boolean hasPhone = hasArrayData(company.get("phone"));
-        boolean hasEmail = hasArrayData(company.get("email"));
-        boolean hasWebsite = website != null && !website.isEmpty();
-
-        if (hasPhone && hasEmail) {
-            skippedCount.incrementAndGet();
-            return;
+    private void finishRun() {
+        crawlResultWriter.flush();
+        isRunning.set(false);
+        if (!"STOPPED".equals(currentStep)) {
+            currentStep = "COMPLETED";
         }
+        currentCompany = "";
+        log.info("Enrichment finished. Processed:{}, Phone:{}, Email:{}, Errors:{}",
+            processedCount.get(), phoneFoundCount.get(),
+            emailFoundCount.get(), errorCount.get());
+    }
 
-        if (name == null || name.isEmpty()) {
+    /**
+     * Fetch stage: skip companies that need nothing, ask Google Places for the missing phone and
+     * website, and return the website to scrape if phone or email is still missing.
+     */
+    private String lookupCompany(EnrichTarget target) {
+        if ((target.hasPhone && target.hasEmail) || target.name == null || target.name.isEmpty()) {
+            target.skipped = true;
             skippedCount.incrementAndGet();
-            return;
+            return null;
         }
 
-        currentCompany = name;
-
-        String foundPhone = null;
-        String foundEmail = null;
-        String foundWebsite = website;
-
         // ===== STEP 1: Google Places =====
-        if (!hasPhone || !hasWebsite) {
-            currentStep = "GOOGLE_PLACES";
+        if (!target.hasPhone || !target.hasWebsite) {
             try {
                 List<GooglePlacesService.PlaceResult> results =
-                    googlePlacesService.searchPlaces(name, city != null ? city : "Estonia");
+                    googlePlacesService.searchPlaces(target.name, target.city != null ? target.city : "Estonia");
 
                 if (!results.isEmpty()) {
                     GooglePlacesService.PlaceResult best = results.get(0);
 
-                    if (!hasPhone && best.phone != null && !best.phone.isEmpty()) {
-                        foundPhone = best.phone;
+                    if (!target.hasPhone && best.phone != null && !best.phone.isEmpty()) {
+                        target.foundPhone = best.phone;
                         googleFoundCount.incrementAndGet();
                     }
 
-                    if (!hasWebsite && best.website != null && !best.website.isEmpty()) {
-                        foundWebsite = best.website;
+                    if (!target.hasWebsite && best.website != null && !best.website.isEmpty()) {
+                        target.foundWebsite = best.website;
                     }
                 }
 
-                Thread.sleep(200);
-
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                return;
             } catch (Exception e) {
-                log.debug("Google Places error for {}: {}", name, e.getMessage());
+                log.debug("Google Places error for {}: {}", target.name, e.getMessage());
                 errorCount.incrementAndGet();
             }
         }
 
-        // ===== STEP 2: Website scraping =====
-        boolean needsPhone = !hasPhone && foundPhone == null;
-        boolean needsEmail = !hasEmail;
-
-        if ((needsPhone || needsEmail) && foundWebsite != null && !foundWebsite.isEmpty()) {
-            currentStep = "WEBSITE_SCRAPE";
-            try {
-                ContactInfo scraped = crawlWebsite(foundWebsite);
+        // ===== STEP 2: Website scraping (parse stage) =====
+        boolean needsPhone = !target.hasPhone && target.foundPhone == null;
+        if ((needsPhone || !target.hasEmail) && target.foundWebsite != null && !target.foundWebsite.isEmpty()) {
+            String url = target.foundWebsite.trim();
+            return url.startsWith("http") ? url : "https://" + url;
+        }
+        return null;
+    }
 
-                if (needsPhone && scraped.phone != null) {
-                    foundPhone = scraped.phone;
-                    websiteFoundCount.incrementAndGet();
-                }
+    /**
+     * Persist stage: merge what the website gave us and update the database.
+     */
+    private CompletableFuture<Void> saveResults(List<EnrichTarget> finished) {
+        List<CrawlResultWriter.CompanyContact> updates = new ArrayList<>();
+        for (EnrichTarget target : finished) {
+            if (target.skipped) continue;
+
+            if (!target.hasPhone && target.foundPhone == null && target.scraped.phone != null) {
+                target.foundPhone = target.scraped.phone;
+                websiteFoundCount.incrementAndGet();
+            }
+            String foundEmail = !target.hasEmail ? target.scraped.email : null;
 
-                if (needsEmail && scraped.email != null) {
-                    foundEmail = scraped.email;
-                }
+            // ===== STEP 3: Update database =====
+            CrawlResultWriter.CompanyContact update = contactUpdate(target.id, target.foundPhone, foundEmail,
+                target.foundWebsite, target.hasPhone, target.hasWebsite);
+            if (update != null) updates.add(update);
 
-                Thread.sleep(500);
+            if (target.foundPhone != null) phoneFoundCount.incrementAndGet();
+            if (foundEmail != null) emailFoundCount.incrementAndGet();
 
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                return;
-            } catch (Exception e) {
-                log.debug("Website scrape error for {} ({}): {}", name, foundWebsite, e.getMessage());
-                errorCount.incrementAndGet();
+            if (target.foundPhone != null || foundEmail != null) {
+                log.info("Enriched {}: phone={}, email={}, website={}",
+                    target.name, target.foundPhone, foundEmail, target.foundWebsite);
             }
+            currentCompany = target.name;
         }
-
-        // ===== STEP 3: Update database =====
-        currentStep = "UPDATING";
-        updateCompanyContact(id, foundPhone, foundEmail, foundWebsite, hasPhone, hasWebsite);
-
-        if (foundPhone != null) phoneFoundCount.incrementAndGet();
-        if (foundEmail != null) emailFoundCount.incrementAndGet();
-
-        if (foundPhone != null || foundEmail != null) {
-            log.info("Enriched {}: phone={}, email={}, website={}",
-                name, foundPhone, foundEmail, foundWebsite);
+        CompletableFuture<Void> written = crawlResultWriter.writeCompanyContacts(updates);
+
+        int processed = processedCount.addAndGet(finished.size());
+        if (processed / 50 != (processed - finished.size()) / 50) {
+            log.info("Enrichment progress: {}/{} | phone:{} email:{} errors:{}",
+                processed, totalCount.get(),
+                phoneFoundCount.get(), emailFoundCount.get(),
+                errorCount.get());
         }
+        return written;
     }
 
     private boolean hasArrayData(Object arrayValue) {
@@ -256,173 +288,30 @@ public class ContactEnrichmentService {
         return !str.isEmpty() && !str.equals("{}") && !str.equals("NULL");
     }
 
-    // ===== Website crawling (from WebsiteCrawlerService) =====
-
-    private ContactInfo crawlWebsite(String websiteUrl) {
-        ContactInfo info = new ContactInfo();
-
-        try {
-            if (!websiteUrl.startsWith("http")) {
-                websiteUrl = "https://" + websiteUrl;
-            }
-
-            Document doc = Jsoup.connect(websiteUrl)
-                .userAgent("Mozilla/5.0 (compatible; BuildQuote/1.0)")
-                .timeout(10000)
-                .followRedirects(true)
-                .get();
-
-            extractContactInfo(doc, info);
-
-            if (!info.hasInfo()) {
-                String contactUrl = findContactPageUrl(doc, websiteUrl);
-                if (contactUrl != null) {
-                    try {
-                        Document contactDoc = Jsoup.connect(contactUrl)
-                            .userAgent("Mozilla/5.0 (compatible; BuildQuote/1.0)")
-                            .timeout(10000)
-                            .followRedirects(true)
-                            .get();
-                        extractContactInfo(contactDoc, info);
-                    } catch (Exception e) {
-                        // Ignore contact page errors
-                    }
-                }
-            }
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to crawl: " + e.getMessage());
-        }
-
-        return info;
-    }
-
-    private void extractContactInfo(Document doc, ContactInfo info) {
-        String text = doc.text();
-
-        // Extract phone from tel: links first (most reliable)
-        Elements telLinks = doc.select("a[href^=tel:]");
-        for (Element link : telLinks) {
-            String phone = link.attr("href").replace("tel:", "").trim();
-            phone = cleanPhone(phone);
-            if (isValidEstonianPhone(phone) && info.phone == null) {
-                info.phone = phone;
-                break;
-            }
-        }
-
-        // Extract email from mailto: links
-        Elements mailLinks = doc.select("a[href^=mailto:]");
-        for (Element link : mailLinks) {
-            String email = link.attr("href").replace("mailto:", "").trim();
-            if (email.contains("?")) {
-                email = email.substring(0, email.indexOf("?"));
-            }
-            if (isValidEmail(email) && info.email == null) {
-                info.email = email.toLowerCase();
-                break;
-            }
-        }
-
-        // Regex fallback for phone
-        if (info.phone == null) {
-            Matcher phoneMatcher = PHONE_PATTERN.matcher(text);
-            Set<String> phones = new HashSet<>();
-            while (phoneMatcher.find()) {
-                String phone = cleanPhone(phoneMatcher.group());
-                if (isValidEstonianPhone(phone)) {
-                    phones.add(phone);
-                }
-            }
-            if (!phones.isEmpty()) {
-                info.phone = phones.iterator().next();
-            }
-        }
-
-        // Regex fallback for email
-        if (info.email == null) {
-            Matcher emailMatcher = EMAIL_PATTERN.matcher(text);
-            while (emailMatcher.find()) {
-                String email = emailMatcher.group().toLowerCase();
-                if (!email.contains("example.com") &&
-                    !email.contains("domain.com") &&
-                    !email.startsWith("info@w3") &&
-                    !email.contains("@sentry")) {
-                    info.email = email;
-                    break;
-                }
-            }
-        }
-    }
-
-    private String findContactPageUrl(Document doc, String baseUrl) {
-        String[] patterns = {"kontakt", "contact", "meist", "about", "info"};
-
-        Elements links = doc.select("a[href]");
-        for (Element link : links) {
-            String href = link.attr("abs:href").toLowerCase();
-            String text = link.text().toLowerCase();
-
-            for (String pattern : patterns) {
-                if (href.contains(pattern) || text.contains(pattern)) {
-                    return link.attr("abs:href");
-                }
-            }
-        }
-
-        return null;
-    }
-
-    private String cleanPhone(String phone) {
-        String cleaned = phone.replaceAll("[^0-9+]", "");
-        if (cleaned.startsWith("+372")) {
-            cleaned = cleaned.substring(4);
-        }
-        if (cleaned.startsWith("372") && cleaned.length() > 10) {
-            cleaned = cleaned.substring(3);
-        }
-        return cleaned;
-    }
-
-    private boolean isValidEstonianPhone(String phone) {
-        if (phone == null || phone.isEmpty()) return false;
-        return phone.matches("\\d{7,8}") && phone.charAt(0) >= '2';
-    }
+    // ===== Contact extraction (shared ContactExtractor) =====
 
-    private boolean isValidEmail(String email) {
-        if (email == null || email.isEmpty()) return false;
-        return EMAIL_PATTERN.matcher(email).matches() &&
-               email.contains("@") &&
-               email.contains(".");
+    /**
+     * Fill in whatever is still missing from the page and return its contact page link, if any.
+     */
+    private String extractContactInfo(Document doc, ContactInfo info) {
+        ContactExtractor.Contacts found = ContactExtractor.extract(doc);
+        if (info.phone == null) info.phone = found.bestPhone();
+        if (info.email == null) info.email = found.bestEmail();
+        return found.contactPageUrl();
     }
 
     // ===== Database update =====
 
-    private void updateCompanyContact(String id, String phone, String email,
-                                       String website, boolean hadPhone, boolean hadWebsite) {
-        List<Object> params = new ArrayList<>();
-        List<String> updates = new ArrayList<>();
-
-        if (phone != null && !phone.isEmpty() && !hadPhone) {
-            updates.add("phone = ARRAY[?]");
-            params.add(phone);
-        }
-        if (email != null && !email.isEmpty()) {
-            updates.add("email = ARRAY[?]");
-            params.add(email);
-        }
-        if (website != null && !website.isEmpty() && !hadWebsite) {
-            updates.add("website = ?");
-            params.add(website);
-        }
-
-        if (updates.isEmpty()) return;
-
-        String sql = "UPDATE crawler.company SET " +
-            String.join(", ", updates) +
-            " WHERE id = ?::uuid";
-        params.add(id);
-
-        jdbcTemplate.update(sql, params.toArray());
+    /**
+     * Only fields that were missing are written; null when there is nothing to write.
+     */
+    private CrawlResultWriter.CompanyContact contactUpdate(String id, String phone, String email,
+                                                           String website, boolean hadPhone, boolean hadWebsite) {
+        String newPhone = phone != null && !phone.isEmpty() && !hadPhone ? phone : null;
+        String newEmail = email != null && !email.isEmpty() ? email : null;
+        String newWebsite = website != null && !website.isEmpty() && !hadWebsite ? website : null;
+        if (newPhone == null && newEmail == null && newWebsite == null) return null;
+        return new CrawlResultWriter.CompanyContact(id, newPhone, newEmail, newWebsite);
     }
 
     private void resetCounters() {
@@ -438,6 +327,29 @@ public class ContactEnrichmentService {
         currentStep = "STARTING";
     }
 
+    private static class EnrichTarget {
+        final String id;
+        final String name;
+        final String city;
+        final boolean hasPhone;
+        final boolean hasEmail;
+        final boolean hasWebsite;
+        final ContactInfo scraped = new ContactInfo();
+        volatile boolean skipped;
+        volatile String foundPhone;
+        volatile String foundWebsite;
+
+        EnrichTarget(String id, String name, String city, String website, boolean hasPhone, boolean hasEmail) {
+            this.id = id;
+            this.name = name;
+            this.city = city;
+            this.hasPhone = hasPhone;
+            this.hasEmail = hasEmail;
+            this.hasWebsite = website != null && !website.isEmpty();
+            this.foundWebsite = website;
+        }
+    }
+
     private static class ContactInfo {
         String phone;
         String email;
@@ -0,0 +1,245 @@
+package com.buildquote.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Persistent crawl frontier (see V24).
+ *
+ * Every crawled URL keeps its ETag / Last-Modified validators, a hash of its content and the
+ * time it is next due. Re-crawls send a conditional GET, and a page whose normalised content
+ * hashes the same as last time is reported as unchanged so callers can skip extraction. The
+ * re-crawl interval adapts per URL: it halves when the page changed and grows by half when it
+ * did not, between {@link #MIN_INTERVAL_HOURS} and {@link #MAX_INTERVAL_HOURS}. Failing URLs
+ * back off exponentially.
+ *
+ * Entries are kept per crawler (see V31), since each crawler extracts different things from the
+ * same page. A successful fetch is only written back through {@link #record} once the caller has
+ * persisted what it extracted; until then the page stays due and its old hash stands, so a crash
+ * or a failed write between fetch and persist means the page is fetched and extracted again.
+ */
+@Service
+@RequiredArgsConstructor
+public class CrawlFrontierService {
+
+    private static final int INITIAL_INTERVAL_HOURS = 168;
+    private static final int MIN_INTERVAL_HOURS = 24;
+    private static final int MAX_INTERVAL_HOURS = 24 * 90;
+    private static final int MAX_ERROR_BACKOFF_HOURS = 24 * 30;
+
+    // Markup that changes on every request without the page changing
+    private static final Pattern VOLATILE_MARKUP = Pattern.compile(
+            "(?is)<script\\b.*?</script>|<style\\b.*?</style>|<!--.*?-->|<input[^>]+type=[\"']?hidden[^>]*>");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final OutboundHttpService outboundHttpService;
+    private final JdbcTemplate jdbcTemplate;
+
+    public enum State {
+        /** Not due for a re-crawl yet; nothing was fetched. */
+        NOT_DUE,
+        /** The server answered 304 Not Modified. */
+        NOT_MODIFIED,
+        /** Fetched, but the content hashes the same as last time. */
+        UNCHANGED,
+        /** New or changed content; extract from it. */
+        CHANGED
+    }
+
+    /**
+     * The result of a fetch. {@code visit} is what {@link #record} writes back once the page has
+     * been dealt with; it is null when nothing was fetched.
+     */
+    public record Fetch(State state, OutboundHttpService.Response response, Visit visit) {
+        public boolean needsExtraction() {
+            return state == State.CHANGED;
+        }
+    }
+
+    /** A successful fetch that is not in the frontier yet. */
+    public record Visit(String url, int status, String etag, String lastModified, String contentHash,
+                        boolean changed, int intervalHours) {}
+
+    private record Entry(String etag, String lastModified, String contentHash,
+                         LocalDateTime nextDueAt, int intervalHours, int consecutiveErrors) {}
+
+    /**
+     * Fetch a URL through the frontier of one crawler. Non-2xx answers and network errors are
+     * recorded with a back-off right away and then thrown, like {@link OutboundHttpService#getDocument}.
+     * Successful fetches are not recorded: pass {@link Fetch#visit} to {@link #record} once the
+     * extracted data is stored.
+     */
+    public Fetch fetch(String crawler, String url) throws IOException, InterruptedException {
+        Entry entry = load(crawler, url);
+        if (entry != null && entry.nextDueAt().isAfter(LocalDateTime.now())) {
+            return new Fetch(State.NOT_DUE, null, null);
+        }
+
+        OutboundHttpService.Response response;
+        try {
+            response = entry != null
+                    ? outboundHttpService.get(url, entry.etag(), entry.lastModified())
+                    : outboundHttpService.get(url);
+        } catch (IOException e) {
+            recordError(crawler, url, entry, 0);
+            throw e;
+        }
+
+        if (response.isNotModified()) {
+            return new Fetch(State.NOT_MODIFIED, response, visit(url, entry, response, entry.contentHash(), false));
+        }
+        if (!response.isOk()) {
+            recordError(crawler, url, entry, response.status());
+            throw new IOException("HTTP " + response.status() + " fetching " + response.url());
+        }
+
+        String hash = contentHash(response.body());
+        boolean changed = entry == null || !hash.equals(entry.contentHash());
+        return new Fetch(changed ? State.CHANGED : State.UNCHANGED, response, visit(url, entry, response, hash, changed));
+    }
+
+    /**
+     * Write successful fetches back to the frontier: validators, content hash and the next due
+     * time. Call only after whatever was extracted from the pages has been persisted.
+     */
+    public void record(String crawler, List<Visit> visits) {
+        if (visits.isEmpty()) return;
+        LocalDateTime now = LocalDateTime.now();
+
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO crawl_frontier (crawler, url, host, etag, last_modified, content_hash, last_status,
+                    last_fetched_at, last_changed_at, next_due_at, recrawl_interval_hours,
+                    fetch_count, change_count, consecutive_errors)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 1, ?, 0)
+                ON CONFLICT (crawler, url) DO UPDATE SET
+                    etag = EXCLUDED.etag,
+                    last_modified = EXCLUDED.last_modified,
+                    content_hash = EXCLUDED.content_hash,
+                    last_status = EXCLUDED.last_status,
+                    last_fetched_at = EXCLUDED.last_fetched_at,
+                    last_changed_at = COALESCE(EXCLUDED.last_changed_at, crawl_frontier.last_changed_at),
+                    next_due_at = EXCLUDED.next_due_at,
+                    recrawl_interval_hours = EXCLUDED.recrawl_interval_hours,
+                    fetch_count = crawl_frontier.fetch_count + 1,
+                    change_count = crawl_frontier.change_count + EXCLUDED.change_count,
+                    consecutive_errors = 0
+                """, visits, visits.size(), (ps, v) -> {
+            ps.setString(1, crawler);
+            ps.setString(2, v.url());
+            ps.setString(3, hostOf(v.url()));
+            ps.setString(4, v.etag());
+            ps.setString(5, v.lastModified());
+            ps.setString(6, v.contentHash());
+            ps.setInt(7, v.status());
+            ps.setTimestamp(8, Timestamp.valueOf(now));
+            ps.setTimestamp(9, v.changed() ? Timestamp.valueOf(now) : null);
+            ps.setTimestamp(10, Timestamp.valueOf(now.plusHours(v.intervalHours())));
+            ps.setInt(11, v.intervalHours());
+            ps.setInt(12, v.changed() ? 1 : 0);
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        jdbcTemplate.query("""
+                SELECT COUNT(*) AS urls,
+                       COUNT(*) FILTER (WHERE next_due_at <= NOW()) AS due,
+                       COUNT(*) FILTER (WHERE consecutive_errors > 0) AS failing,
+                       COALESCE(AVG(recrawl_interval_hours), 0) AS avg_interval_hours,
+                       COALESCE(SUM(fetch_count), 0) AS fetches,
+                       COALESCE(SUM(change_count), 0) AS changes
+                FROM crawl_frontier
+                """, rs -> {
+            stats.put("urls", rs.getLong("urls"));
+            stats.put("due", rs.getLong("due"));
+            stats.put("failing", rs.getLong("failing"));
+            stats.put("avgIntervalHours", Math.round(rs.getDouble("avg_interval_hours")));
+            stats.put("fetches", rs.getLong("fetches"));
+            stats.put("changes", rs.getLong("changes"));
+        });
+        return stats;
+    }
+
+    private Entry load(String crawler, String url) {
+        return jdbcTemplate.query("""
+                SELECT etag, last_modified, content_hash, next_due_at, recrawl_interval_hours, consecutive_errors
+                FROM crawl_frontier WHERE crawler = ? AND url = ?
+                """,
+                (rs, i) -> new Entry(rs.getString("etag"), rs.getString("last_modified"), rs.getString("content_hash"),
+                        rs.getTimestamp("next_due_at").toLocalDateTime(), rs.getInt("recrawl_interval_hours"),
+                        rs.getInt("consecutive_errors")),
+                crawler, url).stream().findFirst().orElse(null);
+    }
+
+    private static Visit visit(String url, Entry entry, OutboundHttpService.Response response,
+                               String hash, boolean changed) {
+        int interval;
+        if (entry == null) {
+            interval = INITIAL_INTERVAL_HOURS;
+        } else if (changed) {
+            interval = Math.max(MIN_INTERVAL_HOURS, entry.intervalHours() / 2);
+        } else {
+            interval = Math.min(MAX_INTERVAL_HOURS, entry.intervalHours() + entry.intervalHours() / 2);
+        }
+        // A 304 may omit the validators; keep the ones we sent
+        String etag = response.etag() != null ? response.etag() : entry != null ? entry.etag() : null;
+        String lastModified = response.lastModified() != null ? response.lastModified()
+                : entry != null ? entry.lastModified() : null;
+        return new Visit(url, response.status(), etag, lastModified, hash, changed, interval);
+    }
+
+    private void recordError(String crawler, String url, Entry entry, int status) {
+        int errors = entry != null ? entry.consecutiveErrors() + 1 : 1;
+        long backoff = Math.min(MAX_ERROR_BACKOFF_HOURS, 6L << Math.min(errors - 1, 10));
+        LocalDateTime now = LocalDateTime.now();
+
+        jdbcTemplate.update("""
+                INSERT INTO crawl_frontier (crawler, url, host, last_status, last_fetched_at, next_due_at,
+                    fetch_count, consecutive_errors)
+                VALUES (?, ?, ?, ?, ?, ?, 1, 1)
+                ON CONFLICT (crawler, url) DO UPDATE SET
+                    last_status = EXCLUDED.last_status,
+                    last_fetched_at = EXCLUDED.last_fetched_at,
+                    next_due_at = EXCLUDED.next_due_at,
+                    fetch_count = crawl_frontier.fetch_count + 1,
+                    consecutive_errors = crawl_frontier.consecutive_errors + 1
+                """,
+                crawler, url, hostOf(url), status > 0 ? status : null, Timestamp.valueOf(now),
+                Timestamp.valueOf(now.plusHours(backoff)));
+    }
+
+    static String contentHash(String body) {
+        String normalized = VOLATILE_MARKUP.matcher(body).replaceAll(" ");
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(normalized.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : "";
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+}
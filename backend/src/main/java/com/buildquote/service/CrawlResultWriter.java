@@ -0,0 +1,225 @@
+package com.buildquote.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Buffers contact updates found by the crawlers and writes them as one set-based UPDATE per
+ * batch: the rows travel as parallel arrays and are joined in with unnest(), so a flush is a
+ * single round-trip however many companies it covers. Buffers flush when they reach
+ * {@code crawler.write.batch-size}, on the {@code crawler.write.flush-interval-ms} schedule,
+ * and on shutdown. Every field is "set when not null": a null never clears stored data.
+ * Writes return a future that completes once the rows are in the database, so callers can
+ * hold back anything that depends on them (such as the crawl frontier) until then. A batch that
+ * fails is put back and retried with the next flush, up to {@link #MAX_WRITE_ATTEMPTS} times,
+ * before it is dropped and its futures fail.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CrawlResultWriter {
+
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${crawler.write.batch-size:500}")
+    private int batchSize;
+
+    private final Buffer<CompanyContact> companyContacts = new Buffer<>("company", this::mergeCompanyContacts);
+    private final Buffer<SupplierContact> supplierContacts = new Buffer<>("supplier", this::mergeSupplierContacts);
+
+    /** Contact fields found for a crawler.company row. */
+    public record CompanyContact(String id, String phone, String email, String website) {}
+
+    /** Contact fields found for a suppliers row. */
+    public record SupplierContact(UUID id, String phone, String email) {}
+
+    public CompletableFuture<Void> writeCompanyContacts(Collection<CompanyContact> contacts) {
+        return companyContacts.addAll(contacts, batchSize);
+    }
+
+    public CompletableFuture<Void> writeSupplierContact(SupplierContact contact) {
+        return supplierContacts.addAll(List.of(contact), batchSize);
+    }
+
+    /**
+     * Write everything buffered so far.
+     */
+    @Scheduled(fixedDelayString = "${crawler.write.flush-interval-ms:2000}")
+    @PreDestroy
+    public void flush() {
+        companyContacts.flush();
+        supplierContacts.flush();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("company", companyContacts.getStats());
+        stats.put("supplier", supplierContacts.getStats());
+        return stats;
+    }
+
+    private void mergeCompanyContacts(List<CompanyContact> batch) {
+        // One row per company; later non-null values win, like sequential updates would
+        Map<String, CompanyContact> byId = new LinkedHashMap<>();
+        for (CompanyContact c : batch) {
+            byId.merge(c.id(), c, (old, now) -> new CompanyContact(c.id(),
+                    now.phone() != null ? now.phone() : old.phone(),
+                    now.email() != null ? now.email() : old.email(),
+                    now.website() != null ? now.website() : old.website()));
+        }
+        int n = byId.size();
+        UUID[] ids = new UUID[n];
+        String[] phones = new String[n];
+        String[] emails = new String[n];
+        String[] websites = new String[n];
+        int i = 0;
+        for (CompanyContact c : byId.values()) {
+            ids[i] = UUID.fromString(c.id());
+            phones[i] = c.phone();
+            emails[i] = c.email();
+            websites[i++] = c.website();
+        }
+
+        jdbcTemplate.update("""
+                UPDATE crawler.company c
+                SET phone = CASE WHEN u.phone IS NOT NULL THEN ARRAY[u.phone] ELSE c.phone END,
+                    email = CASE WHEN u.email IS NOT NULL THEN ARRAY[u.email] ELSE c.email END,
+                    website = COALESCE(u.website, c.website)
+                FROM unnest(?::uuid[], ?::text[], ?::text[], ?::text[]) AS u(id, phone, email, website)
+                WHERE c.id = u.id
+                """, ids, phones, emails, websites);
+    }
+
+    private void mergeSupplierContacts(List<SupplierContact> batch) {
+        Map<UUID, SupplierContact> byId = new LinkedHashMap<>();
+        for (SupplierContact s : batch) {
+            byId.merge(s.id(), s, (old, now) -> new SupplierContact(s.id(),
+                    now.phone() != null ? now.phone() : old.phone(),
+                    now.email() != null ? now.email() : old.email()));
+        }
+        int n = byId.size();
+        UUID[] ids = new UUID[n];
+        String[] phones = new String[n];
+        String[] emails = new String[n];
+        int i = 0;
+        for (SupplierContact s : byId.values()) {
+            ids[i] = s.id();
+            phones[i] = s.phone();
+            emails[i++] = s.email();
+        }
+
+        jdbcTemplate.update("""
+                UPDATE suppliers s
+                SET phone = COALESCE(u.phone, s.phone),
+                    email = COALESCE(u.email, s.email),
+                    updated_at = NOW()
+                FROM unnest(?::uuid[], ?::text[], ?::text[]) AS u(id, phone, email)
+                WHERE s.id = u.id
+                """, ids, phones, emails);
+    }
+
+    /**
+     * Pending rows for one table. Flushes are serialised so batches reach the database in the
+     * order they were filled.
+     */
+    private static class Buffer<T> {
+        private final String name;
+        private final Consumer<List<T>> writer;
+        private final Object flushLock = new Object();
+        private List<T> pending = new ArrayList<>();
+        private List<CompletableFuture<Void>> waiting = new ArrayList<>();
+        private final AtomicLong written = new AtomicLong();
+        private final AtomicLong flushes = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+        // Failed attempts of the rows at the head of pending, which were put back by a failed flush
+        private volatile int attempts;
+
+        Buffer(String name, Consumer<List<T>> writer) {
+            this.name = name;
+            this.writer = writer;
+        }
+
+        CompletableFuture<Void> addAll(Collection<T> items, int batchSize) {
+            if (items.isEmpty()) return CompletableFuture.completedFuture(null);
+            CompletableFuture<Void> written = new CompletableFuture<>();
+            boolean full;
+            synchronized (this) {
+                pending.addAll(items);
+                waiting.add(written);
+                full = pending.size() >= batchSize;
+            }
+            // A batch being retried waits for the scheduled flush instead of every add
+            if (full && attempts == 0) flush();
+            return written;
+        }
+
+        void flush() {
+            synchronized (flushLock) {
+                List<T> batch;
+                List<CompletableFuture<Void>> callers;
+                synchronized (this) {
+                    if (pending.isEmpty()) return;
+                    batch = pending;
+                    callers = waiting;
+                    pending = new ArrayList<>();
+                    waiting = new ArrayList<>();
+                }
+                try {
+                    writer.accept(batch);
+                    written.addAndGet(batch.size());
+                    flushes.incrementAndGet();
+                    callers.forEach(f -> f.complete(null));
+                    attempts = 0;
+                } catch (Exception e) {
+                    if (++attempts < MAX_WRITE_ATTEMPTS) {
+                        // Put the batch back ahead of anything added since; the next scheduled flush retries it
+                        retries.incrementAndGet();
+                        log.warn("Failed to write {} {} contact updates (attempt {}), will retry: {}",
+                                batch.size(), name, attempts, e.getMessage());
+                        synchronized (this) {
+                            batch.addAll(pending);
+                            callers.addAll(waiting);
+                            pending = batch;
+                            waiting = callers;
+                        }
+                        return;
+                    }
+                    // Drop the batch: retrying a bad row forever would block every later write.
+                    // Failing the futures keeps the crawl frontier from marking these pages as seen.
+                    attempts = 0;
+                    failed.addAndGet(batch.size());
+                    log.error("Failed to write {} {} contact updates, dropping them: {}", batch.size(), name, e.getMessage());
+                    callers.forEach(f -> f.completeExceptionally(e));
+                }
+            }
+        }
+
+        synchronized Map<String, Object> getStats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("pending", pending.size());
+            stats.put("written", written.get());
+            stats.put("flushes", flushes.get());
+            stats.put("retries", retries.get());
+            stats.put("failed", failed.get());
+            return stats;
+        }
+    }
+}
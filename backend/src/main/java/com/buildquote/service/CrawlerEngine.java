@@ -0,0 +1,462 @@
+package com.buildquote.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pipelined crawler for contact enrichment.
+ *
+ * A run moves targets through four stages connected by bounded queues:
+ * feed (reads the target iterator) -> fetch (many I/O threads, including any API lookup in
+ * {@link Handler#prepare}) -> parse/extract (CPU threads) -> persist (one thread, batched).
+ * Full queues block the stage before them, so a slow database or parser throttles fetching
+ * instead of piling up pages in memory. Per-host politeness is enforced by
+ * {@link OutboundHttpService}, so the fetch pool can be far larger than the number of threads
+ * any single site ever sees. Pages fetched through the frontier are recorded in it, under the
+ * run name, only once the handler reports their target's results as persisted.
+ */
+@Service
+@Slf4j
+public class CrawlerEngine {
+
+    private static final int MAX_PAGES_PER_TARGET = 3;
+    private static final long POLL_MS = 100;
+
+    private final OutboundHttpService outboundHttpService;
+    private final CrawlFrontierService crawlFrontierService;
+
+    @Value("${crawler.frontier.enabled:true}")
+    private boolean frontierEnabled;
+
+    @Value("${crawler.fetch-concurrency:128}")
+    private int fetchConcurrency;
+
+    @Value("${crawler.parse-threads:0}")
+    private int parseThreads;
+
+    @Value("${crawler.queue-capacity:512}")
+    private int queueCapacity;
+
+    @Value("${crawler.persist-batch-size:100}")
+    private int persistBatchSize;
+
+    @Value("${crawler.persist-interval-ms:2000}")
+    private long persistIntervalMs;
+
+    public CrawlerEngine(OutboundHttpService outboundHttpService, CrawlFrontierService crawlFrontierService) {
+        this.outboundHttpService = outboundHttpService;
+        this.crawlFrontierService = crawlFrontierService;
+    }
+
+    /**
+     * What a crawl does with each target. Each method runs on the thread of its stage.
+     */
+    public interface Handler<T> {
+
+        /**
+         * Fetch stage, before any page is fetched. May do blocking lookups (e.g. an API call to
+         * find the website). Returns the first URL to fetch, or null to finish the target now.
+         */
+        String prepare(T target) throws Exception;
+
+        /**
+         * Parse stage. Extract what is needed from the page and return the next URL to fetch for
+         * the same target (e.g. its contact page), or null when the target is finished.
+         */
+        String onPage(T target, Document page, int pageIndex);
+
+        /**
+         * A lookup, fetch or parse failed. The target is finished and still goes to persist.
+         */
+        default void onError(T target, int pageIndex, Exception e) {
+        }
+
+        /**
+         * Persist stage: a batch of finished targets, on a single thread. The returned future
+         * completes when the results are stored, or exceptionally if they could not be.
+         */
+        CompletableFuture<Void> persist(List<T> finished);
+    }
+
+    public <T> CrawlRun<T> start(String name, Iterator<T> targets, Handler<T> handler) {
+        int parsers = parseThreads > 0 ? parseThreads : Math.max(2, Runtime.getRuntime().availableProcessors());
+        CrawlRun<T> run = new CrawlRun<>(name, targets, handler, fetchConcurrency, parsers);
+        run.begin();
+        log.info("Crawl '{}' started: {} fetchers, {} parsers", name, fetchConcurrency, parsers);
+        return run;
+    }
+
+    private record Job<T>(T target, String url, int pageIndex) {}
+
+    private record Fetched<T>(Job<T> job, OutboundHttpService.Response response,
+                              CrawlFrontierService.Visit visit) {}
+
+    /**
+     * One crawl. Stop it with {@link #stop()}; targets already in the pipeline are finished
+     * and persisted, queued ones are dropped.
+     */
+    public class CrawlRun<T> {
+
+        private final String name;
+        private final Iterator<T> targets;
+        private final Handler<T> handler;
+        private final int fetchers;
+        private final int parsers;
+
+        private final BlockingQueue<Job<T>> fetchQueue = new ArrayBlockingQueue<>(queueCapacity);
+        // Follow-up pages bypass the bounded queue; they are limited by the targets in flight
+        private final BlockingQueue<Job<T>> followUps = new LinkedBlockingQueue<>();
+        private final BlockingQueue<Fetched<T>> parseQueue = new ArrayBlockingQueue<>(queueCapacity);
+        private final BlockingQueue<T> persistQueue = new ArrayBlockingQueue<>(queueCapacity);
+        // Frontier visits of targets in flight, recorded once the target is persisted
+        private final Map<T, List<CrawlFrontierService.Visit>> visits = new IdentityHashMap<>();
+
+        private final AtomicBoolean stopped = new AtomicBoolean(false);
+        private final AtomicBoolean feedingDone = new AtomicBoolean(false);
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger activeFetches = new AtomicInteger();
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        private final AtomicLong targetsStarted = new AtomicLong();
+        private final AtomicLong targetsFinished = new AtomicLong();
+        private final AtomicLong pagesFetched = new AtomicLong();
+        private final AtomicLong bytesFetched = new AtomicLong();
+        private final AtomicLong notDue = new AtomicLong();
+        private final AtomicLong unchanged = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong persistErrors = new AtomicLong();
+        private final RateMeter pageRate = new RateMeter();
+        private final RateMeter targetRate = new RateMeter();
+
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final long startedNanos = System.nanoTime();
+        private volatile long finishedNanos;
+
+        private ExecutorService fetchPool;
+        private ExecutorService parsePool;
+        private ExecutorService controlPool;
+
+        CrawlRun(String name, Iterator<T> targets, Handler<T> handler, int fetchers, int parsers) {
+            this.name = name;
+            this.targets = targets;
+            this.handler = handler;
+            this.fetchers = fetchers;
+            this.parsers = parsers;
+        }
+
+        private void begin() {
+            fetchPool = Executors.newFixedThreadPool(fetchers, threadFactory(name + "-fetch-"));
+            parsePool = Executors.newFixedThreadPool(parsers, threadFactory(name + "-parse-"));
+            controlPool = Executors.newFixedThreadPool(2, threadFactory(name + "-"));
+
+            controlPool.submit(this::feed);
+            controlPool.submit(this::persistLoop);
+            for (int i = 0; i < fetchers; i++) fetchPool.submit(this::fetchLoop);
+            for (int i = 0; i < parsers; i++) parsePool.submit(this::parseLoop);
+        }
+
+        public void stop() {
+            stopped.set(true);
+        }
+
+        public boolean isRunning() {
+            return finished.getCount() > 0;
+        }
+
+        public void awaitCompletion() throws InterruptedException {
+            finished.await();
+        }
+
+        public Map<String, Object> getStats() {
+            long end = finishedNanos > 0 ? finishedNanos : System.nanoTime();
+            double elapsedSeconds = Math.max(0.001, (end - startedNanos) / 1e9);
+            long pages = pagesFetched.get();
+            long errorCount = errors.get();
+
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("name", name);
+            stats.put("running", isRunning());
+            stats.put("startedAt", startedAt);
+            stats.put("elapsedSeconds", Math.round(elapsedSeconds));
+            stats.put("targetsStarted", targetsStarted.get());
+            stats.put("targetsFinished", targetsFinished.get());
+            stats.put("pagesFetched", pages);
+            stats.put("bytesFetched", bytesFetched.get());
+            stats.put("notDue", notDue.get());
+            stats.put("unchanged", unchanged.get());
+            stats.put("errors", errorCount);
+            stats.put("persistErrors", persistErrors.get());
+            stats.put("errorRate", pages + errorCount > 0 ? Math.round(1000.0 * errorCount / (pages + errorCount)) / 1000.0 : 0.0);
+            stats.put("targetsPerSecond", Math.round(10.0 * targetsFinished.get() / elapsedSeconds) / 10.0);
+            stats.put("recentTargetsPerSecond", targetRate.perSecond());
+            stats.put("recentPagesPerSecond", pageRate.perSecond());
+            stats.put("activeFetches", activeFetches.get());
+            stats.put("fetchQueue", fetchQueue.size() + followUps.size());
+            stats.put("parseQueue", parseQueue.size());
+            stats.put("persistQueue", persistQueue.size());
+            return stats;
+        }
+
+        private void feed() {
+            try {
+                while (!stopped.get() && targets.hasNext()) {
+                    T target = targets.next();
+                    inFlight.incrementAndGet();
+                    targetsStarted.incrementAndGet();
+                    fetchQueue.put(new Job<>(target, null, 0));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("Crawl '{}' stopped reading targets: {}", name, e.getMessage(), e);
+            } finally {
+                feedingDone.set(true);
+            }
+        }
+
+        private boolean drained() {
+            return feedingDone.get() && inFlight.get() == 0;
+        }
+
+        private void fetchLoop() {
+            try {
+                while (!drained()) {
+                    Job<T> job = followUps.poll();
+                    if (job == null) {
+                        job = fetchQueue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                    }
+                    if (job == null) continue;
+                    if (stopped.get() && job.pageIndex() == 0) {
+                        // Not started yet: drop it
+                        inFlight.decrementAndGet();
+                        continue;
+                    }
+                    fetch(job);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void fetch(Job<T> job) throws InterruptedException {
+            activeFetches.incrementAndGet();
+            try {
+                String url = job.url();
+                if (url == null) {
+                    url = handler.prepare(job.target());
+                    if (url == null) {
+                        finish(job.target());
+                        return;
+                    }
+                    job = new Job<>(job.target(), url, 0);
+                }
+
+                OutboundHttpService.Response response;
+                CrawlFrontierService.Visit visit = null;
+                if (frontierEnabled) {
+                    // Pages that are not due, or did not change since the last crawl, have
+                    // nothing new to extract: finish the target without parsing
+                    CrawlFrontierService.Fetch result = crawlFrontierService.fetch(name, url);
+                    if (result.state() == CrawlFrontierService.State.NOT_DUE) {
+                        notDue.incrementAndGet();
+                        finish(job.target());
+                        return;
+                    }
+                    if (!result.needsExtraction()) {
+                        unchanged.incrementAndGet();
+                        remember(job.target(), result.visit());
+                        finish(job.target());
+                        return;
+                    }
+                    response = result.response();
+                    visit = result.visit();
+                } else {
+                    response = outboundHttpService.get(url);
+                    if (!response.isOk()) {
+                        throw new IOException("HTTP " + response.status() + " fetching " + response.url());
+                    }
+                }
+                pagesFetched.incrementAndGet();
+                bytesFetched.addAndGet(response.body().length());
+                pageRate.record();
+                parseQueue.put(new Fetched<>(job, response, visit));
+
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                fail(job, e);
+            } finally {
+                activeFetches.decrementAndGet();
+            }
+        }
+
+        private void parseLoop() {
+            try {
+                while (!drained()) {
+                    Fetched<T> fetched = parseQueue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                    if (fetched == null) continue;
+
+                    Job<T> job = fetched.job();
+                    try {
+                        Document page = Jsoup.parse(fetched.response().body(), fetched.response().url());
+                        String next = handler.onPage(job.target(), page, job.pageIndex());
+                        // Only a page that was extracted from is worth remembering as seen
+                        remember(job.target(), fetched.visit());
+                        if (next != null && !stopped.get() && job.pageIndex() + 1 < MAX_PAGES_PER_TARGET) {
+                            followUps.add(new Job<>(job.target(), next, job.pageIndex() + 1));
+                        } else {
+                            finish(job.target());
+                        }
+                    } catch (Exception e) {
+                        fail(job, e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void fail(Job<T> job, Exception e) throws InterruptedException {
+            errors.incrementAndGet();
+            try {
+                handler.onError(job.target(), job.pageIndex(), e);
+            } catch (Exception ex) {
+                log.debug("Crawl '{}' error handler failed: {}", name, ex.getMessage());
+            }
+            finish(job.target());
+        }
+
+        private void remember(T target, CrawlFrontierService.Visit visit) {
+            if (visit == null) return;
+            synchronized (visits) {
+                visits.computeIfAbsent(target, t -> new ArrayList<>()).add(visit);
+            }
+        }
+
+        private void finish(T target) throws InterruptedException {
+            persistQueue.put(target);
+        }
+
+        private void persistLoop() {
+            List<T> batch = new ArrayList<>(persistBatchSize);
+            long lastFlush = System.currentTimeMillis();
+            try {
+                while (!drained()) {
+                    T target = persistQueue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                    if (target != null) {
+                        batch.add(target);
+                        persistQueue.drainTo(batch, persistBatchSize - batch.size());
+                    }
+                    boolean due = System.currentTimeMillis() - lastFlush >= persistIntervalMs;
+                    if (batch.size() >= persistBatchSize || (!batch.isEmpty() && (due || feedingDone.get()))) {
+                        flush(batch);
+                        lastFlush = System.currentTimeMillis();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (!batch.isEmpty()) flush(batch);
+                complete();
+            }
+        }
+
+        private void flush(List<T> batch) {
+            List<CrawlFrontierService.Visit> seen = new ArrayList<>();
+            synchronized (visits) {
+                for (T target : batch) {
+                    List<CrawlFrontierService.Visit> targetVisits = visits.remove(target);
+                    if (targetVisits != null) seen.addAll(targetVisits);
+                }
+            }
+            int size = batch.size();
+            try {
+                // Unpersisted results leave their pages due, so the next run extracts them again
+                handler.persist(batch).whenComplete((ignored, e) -> {
+                    if (e != null) {
+                        persistErrors.incrementAndGet();
+                        log.error("Crawl '{}' failed to persist {} results: {}", name, size, e.getMessage());
+                    } else {
+                        recordVisits(seen);
+                    }
+                });
+            } catch (Exception e) {
+                persistErrors.incrementAndGet();
+                log.error("Crawl '{}' failed to persist {} results: {}", name, size, e.getMessage());
+            }
+            targetsFinished.addAndGet(batch.size());
+            targetRate.record(batch.size());
+            inFlight.addAndGet(-batch.size());
+            batch.clear();
+        }
+
+        private void recordVisits(List<CrawlFrontierService.Visit> seen) {
+            try {
+                crawlFrontierService.record(name, seen);
+            } catch (Exception e) {
+                log.warn("Crawl '{}' failed to record {} frontier visits: {}", name, seen.size(), e.getMessage());
+            }
+        }
+
+        private void complete() {
+            finishedNanos = System.nanoTime();
+            fetchPool.shutdown();
+            parsePool.shutdown();
+            controlPool.shutdown();
+            finished.countDown();
+            log.info("Crawl '{}' finished: {}", name, getStats());
+        }
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Events per second over the last minute, in one-second buckets.
+     */
+    private static class RateMeter {
+        private static final int WINDOW = 60;
+        private final long[] counts = new long[WINDOW];
+        private final long[] seconds = new long[WINDOW];
+
+        synchronized void record() {
+            record(1);
+        }
+
+        synchronized void record(int n) {
+            long now = System.currentTimeMillis() / 1000;
+            int slot = (int) (now % WINDOW);
+            if (seconds[slot] != now) {
+                seconds[slot] = now;
+                counts[slot] = 0;
+            }
+            counts[slot] += n;
+        }
+
+        synchronized double perSecond() {
+            long now = System.currentTimeMillis() / 1000;
+            long total = 0;
+            for (int i = 0; i < WINDOW; i++) {
+                if (now - seconds[i] < WINDOW) total += counts[i];
+            }
+            return Math.round(10.0 * total / WINDOW) / 10.0;
+        }
+    }
+}
@@ -18,11 +18,50 @@ import java.util.*;
 @Service
 @RequiredArgsConstructor
 @Slf4j
-public class DependentMaterialService {
+public class DependentMaterialService implements CacheInvalidationListener {
 
     private final ComponentRecipeRepository recipeRepository;
     private final MaterialUnitPriceRepository materialUnitPriceRepository;
 
+    // Recipes change rarely; reloaded after any component_recipes write on any node
+    private volatile List<ComponentRecipe> recipeCache;
+    private volatile long recipeGeneration;
+
+    @Override
+    public Set<String> getInvalidationTables() {
+        return Set.of("component_recipes");
+    }
+
+    @Override
+    public void onInvalidation(Event event) {
+        invalidateRecipes();
+    }
+
+    @Override
+    public void onResync() {
+        invalidateRecipes();
+    }
+
+    private synchronized void invalidateRecipes() {
+        recipeGeneration++;
+        recipeCache = null;
+    }
+
+    private List<ComponentRecipe> getRecipes() {
+        List<ComponentRecipe> recipes = recipeCache;
+        if (recipes == null) {
+            long generation = recipeGeneration;
+            recipes = List.copyOf(recipeRepository.findAll());
+            synchronized (this) {
+                // Don't cache a list loaded while a write was being published
+                if (generation == recipeGeneration) {
+                    recipeCache = recipes;
+                }
+            }
+        }
+        return recipes;
+    }
+
     /**
      * Calculate dependent materials for all detected stages.
      * For each stage: find matching recipes by name (substring), then by category.
@@ -34,7 +73,7 @@ public class DependentMaterialService {
             return Collections.emptyList();
         }
 
-        List<ComponentRecipe> allRecipes = recipeRepository.findAll();
+        List<ComponentRecipe> allRecipes = getRecipes();
         if (allRecipes.isEmpty()) {
             log.info("No component recipes configured, skipping dependent material calculation");
             return Collections.emptyList();
@@ -184,7 +223,7 @@ public class DependentMaterialService {
             return Collections.emptyList();
         }
 
-        List<ComponentRecipe> allRecipes = recipeRepository.findAll();
+        List<ComponentRecipe> allRecipes = getRecipes();
         if (allRecipes.isEmpty()) {
             return Collections.emptyList();
         }
@@ -30,7 +30,11 @@ public class EmailService {
     @Value("${app.base.url:http://localhost:4200}")
     private String appBaseUrl;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
+
+    public EmailService(RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
 
     public boolean sendRfqEmail(String toEmail, String toName, String campaignTitle, String category,
                                  String location, String quantity, String unit, String specifications,
@@ -6,10 +6,14 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
+import java.sql.Date;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
@@ -17,6 +21,8 @@ import java.util.Map;
 
 /**
  * Queries Estonian public data sources by supplier registry code.
+ * Looks in the locally imported open-data tables first (see RegistryOpenDataService) and only
+ * calls the live APIs for companies not found there.
  * Implements graceful degradation: if any query fails, enrich with what we have.
  */
 @Service
@@ -25,6 +31,11 @@ import java.util.Map;
 public class EstonianRegistryService {
 
     private final ObjectMapper objectMapper;
+    private final RestTemplate restTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${registry.live-lookup.enabled:true}")
+    private boolean liveLookupEnabled;
 
     @Data
     @Builder
@@ -57,6 +68,11 @@ public class EstonianRegistryService {
             return RegistryData.builder().build();
         }
 
+        RegistryData local = queryLocalOpenData(registryCode.trim());
+        if (local != null || !liveLookupEnabled) {
+            return local != null ? local : RegistryData.builder().build();
+        }
+
         Map<String, Object> allData = new HashMap<>();
         RegistryData.RegistryDataBuilder builder = RegistryData.builder();
 
@@ -91,11 +107,47 @@ public class EstonianRegistryService {
         return builder.build();
     }
 
+    /**
+     * Look the company up in the imported open-data tables. Returns null when it is not there.
+     */
+    private RegistryData queryLocalOpenData(String registryCode) {
+        try {
+            return jdbcTemplate.query("SELECT * FROM registry_company_facts WHERE registry_code = ?", rs -> {
+                if (!rs.next()) return null;
+                Date registered = rs.getDate("registered_date");
+                Map<String, Object> allData = new HashMap<>();
+                allData.put("source", "open-data");
+                allData.put("name", rs.getString("name"));
+                allData.put("status", rs.getString("status"));
+                String rawJson;
+                try {
+                    rawJson = objectMapper.writeValueAsString(allData);
+                } catch (Exception e) {
+                    rawJson = "{}";
+                }
+                return RegistryData.builder()
+                        .foundingDate(registered != null ? registered.toLocalDate().toString() : null)
+                        .yearsInBusiness(rs.getObject("years_in_business", Integer.class))
+                        .isActive(rs.getObject("is_active", Boolean.class))
+                        .taxDebt(rs.getObject("tax_debt", Boolean.class))
+                        .taxDebtAmount(rs.getBigDecimal("tax_debt_amount"))
+                        .annualRevenue(rs.getBigDecimal("annual_revenue"))
+                        .employeeCount(rs.getObject("employee_count", Integer.class))
+                        .publicProcurementCount(rs.getObject("public_procurement_count", Integer.class))
+                        .financialTrend(rs.getString("financial_trend"))
+                        .rawJson(rawJson)
+                        .build();
+            }, registryCode);
+        } catch (DataAccessException e) {
+            log.debug("Open-data lookup failed for {}: {}", registryCode, e.getMessage());
+            return null;
+        }
+    }
+
     private void queryAriregister(String registryCode, RegistryData.RegistryDataBuilder builder,
                                    Map<String, Object> allData) {
         // Estonian Business Registry API (ariregister.rik.ee)
         // This is a public API that returns basic company info
-        RestTemplate restTemplate = new RestTemplate();
         String url = "https://ariregister.rik.ee/est/api/autocomplete?q=" + registryCode;
 
         try {
@@ -134,7 +186,6 @@ public class EstonianRegistryService {
                                Map<String, Object> allData) {
         // Estonian Tax Board public tax debt API
         // emta.ee provides a public check for active tax debts
-        RestTemplate restTemplate = new RestTemplate();
         String url = "https://www.emta.ee/api/tax-debtor/search?regCode=" + registryCode;
 
         try {
@@ -163,7 +214,6 @@ public class EstonianRegistryService {
                                           Map<String, Object> allData) {
         // Riigihangete Register (public procurement registry)
         // riigihanked.riik.ee has a public search
-        RestTemplate restTemplate = new RestTemplate();
         String url = "https://riigihanked.riik.ee/api/public/v1/suppliers?regCode=" + registryCode;
 
         try {
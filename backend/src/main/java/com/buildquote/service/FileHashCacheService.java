@@ -2,76 +2,153 @@ package com.buildquote.service;
 
 import com.buildquote.entity.FileHashCache;
 import com.buildquote.repository.FileHashCacheRepository;
+import com.buildquote.util.PayloadCodec;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Caches AI results by content hash. Lookups are read-only: hit counts are
+ * accumulated in memory and flushed in batches, like the AI response cache.
+ */
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class FileHashCacheService {
 
+    private static final HexFormat HEX = HexFormat.of();
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
     private final FileHashCacheRepository cacheRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    // cacheKey -> hits not yet written to file_hash_cache.hit_count
+    private final ConcurrentHashMap<String, LongAdder> pendingHits = new ConcurrentHashMap<>();
 
     @Transactional(readOnly = true)
     public Optional<String> getCachedResult(String sha256, String operationType) {
+        return findLive(sha256, operationType).map(entry -> entry.getResponsePayload() != null
+                ? PayloadCodec.decodeText(entry.getResponsePayload())
+                : entry.getResponseJson());
+    }
+
+    /**
+     * Typed lookup. Binary payloads decode straight into the target type; legacy JSON rows still work.
+     */
+    @Transactional(readOnly = true)
+    public <T> Optional<T> getCachedValue(String sha256, String operationType, Class<T> type) {
+        return findLive(sha256, operationType).map(entry -> entry.getResponsePayload() != null
+                ? PayloadCodec.decodeValue(entry.getResponsePayload(), type)
+                : PayloadCodec.decodeJson(entry.getResponseJson(), type));
+    }
+
+    @Transactional
+    public void cacheResult(String sha256, String operationType, String promptHash, String resultJson, int ttlHours) {
+        store(sha256, operationType, promptHash, PayloadCodec.encodeText(resultJson), ttlHours);
+    }
+
+    @Transactional
+    public void cacheValue(String sha256, String operationType, String promptHash, Object value, int ttlHours) {
+        store(sha256, operationType, promptHash, PayloadCodec.encodeValue(value), ttlHours);
+    }
+
+    private Optional<FileHashCache> findLive(String sha256, String operationType) {
         Optional<FileHashCache> cached = cacheRepository.findByCacheKeyAndOperationType(sha256, operationType);
-        if (cached.isPresent()) {
-            FileHashCache entry = cached.get();
-            if (entry.getExpiresAt().isAfter(LocalDateTime.now())) {
-                entry.setHitCount(entry.getHitCount() + 1);
-                cacheRepository.save(entry);
-                log.info("File hash cache HIT for {} (type={}, hits={})", sha256.substring(0, 12), operationType, entry.getHitCount());
-                return Optional.of(entry.getResponseJson());
-            }
+        if (cached.isPresent() && cached.get().getExpiresAt().isAfter(LocalDateTime.now())) {
+            pendingHits.computeIfAbsent(sha256, k -> new LongAdder()).increment();
+            log.info("File hash cache HIT for {} (type={})", sha256.substring(0, 12), operationType);
+            return cached;
         }
         return Optional.empty();
     }
 
-    @Transactional
-    public void cacheResult(String sha256, String operationType, String promptHash, String resultJson, int ttlHours) {
-        // Upsert: delete old entry if exists, insert new
-        cacheRepository.findByCacheKeyAndOperationType(sha256, operationType)
-                .ifPresent(cacheRepository::delete);
-
-        FileHashCache entry = FileHashCache.builder()
-                .cacheKey(sha256)
-                .operationType(operationType)
-                .promptHash(promptHash)
-                .responseJson(resultJson)
-                .hitCount(0)
-                .expiresAt(LocalDateTime.now().plusHours(ttlHours))
-                .build();
-        cacheRepository.save(entry);
-        log.info("Cached file hash result for {} (type={}, ttl={}h)", sha256.substring(0, 12), operationType, ttlHours);
+    private void store(String sha256, String operationType, String promptHash, byte[] payload, int ttlHours) {
+        cacheRepository.upsert(sha256, operationType, promptHash, payload, LocalDateTime.now().plusHours(ttlHours));
+        pendingHits.remove(sha256);
+        log.info("Cached file hash result for {} (type={}, ttl={}h, {} bytes)",
+                sha256.substring(0, 12), operationType, ttlHours, payload.length);
     }
 
-    public String computeSha256(byte[] content) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(content);
-            StringBuilder sb = new StringBuilder(64);
-            for (byte b : hash) {
-                sb.append(String.format("%02x", b));
+    /**
+     * Write accumulated hit counts in one JDBC batch.
+     */
+    @Scheduled(fixedDelayString = "${file-hash-cache.hit-flush-interval-ms:30000}")
+    @PreDestroy
+    public void flushHitCounts() {
+        if (pendingHits.isEmpty()) return;
+
+        List<Object[]> updates = new ArrayList<>();
+        for (String key : new ArrayList<>(pendingHits.keySet())) {
+            LongAdder adder = pendingHits.remove(key);
+            if (adder != null && adder.sum() > 0) {
+                updates.add(new Object[] { adder.sum(), key });
             }
-            return sb.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("SHA-256 not available", e);
         }
+        if (updates.isEmpty()) return;
+
+        try {
+            jdbcTemplate.batchUpdate(
+                    "UPDATE file_hash_cache SET hit_count = hit_count + ? WHERE cache_key = ?", updates);
+            log.debug("Flushed file hash cache hit counts for {} entries", updates.size());
+        } catch (Exception e) {
+            log.warn("Failed to flush file hash cache hit counts: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Hash an upload by streaming it from the servlet container's spooled part,
+     * so large files are never copied onto the heap just to compute a cache key.
+     */
+    public String computeSha256(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return computeSha256(in);
+        }
+    }
+
+    public String computeSha256(InputStream in) throws IOException {
+        MessageDigest digest = newSha256();
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, n);
+        }
+        return HEX.formatHex(digest.digest());
+    }
+
+    public String computeSha256(byte[] content) {
+        return HEX.formatHex(newSha256().digest(content));
     }
 
     public String computePromptHash(String prompt) {
         return computeSha256(prompt.getBytes(StandardCharsets.UTF_8));
     }
 
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not available", e);
+        }
+    }
+
     @Scheduled(fixedRate = 21600000) // Every 6 hours
     @Transactional
     public int evictExpired() {
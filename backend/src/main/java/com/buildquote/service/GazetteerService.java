@@ -0,0 +1,236 @@
+package com.buildquote.service;
+
+import com.buildquote.util.GeoPoint;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Offline geocoding against a local gazetteer of Estonian settlements.
+ *
+ * The gazetteer_settlements table is seeded from the bundled gazetteer/ee_settlements.csv the
+ * first time it is empty, then held in memory. Place names are matched case- and
+ * diacritic-insensitively, ignoring administrative suffixes ("linn", "vald", "maakond").
+ * Suppliers are geocoded once in the background and the result stored on the row; the
+ * database clears it again when city or county changes (see V20).
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class GazetteerService {
+
+    private static final String RESOURCE = "gazetteer/ee_settlements.csv";
+    private static final int GEOCODE_BATCH_SIZE = 1000;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}");
+    private static final Pattern ADMIN_SUFFIX = Pattern.compile("\\b(linn|vald|alev|alevik|kula|maakond|mk|city|county)\\b");
+    private static final Pattern NON_NAME = Pattern.compile("[^a-z\\- ]");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Map<String, List<Settlement>> byName = Map.of();
+    private volatile Map<String, Settlement> countySeats = Map.of();
+
+    @PostConstruct
+    void init() {
+        try {
+            Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM gazetteer_settlements", Integer.class);
+            if (rows == null || rows == 0) {
+                importBundled();
+            }
+            reload();
+        } catch (Exception e) {
+            log.warn("Failed to load gazetteer: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Resolve a place name, optionally within a county, to coordinates. Address-like strings
+     * ("Pärnu mnt 10, Tallinn") are tried part by part from the end. Without a usable place
+     * name, falls back to the county's largest settlement.
+     */
+    public Optional<GeoPoint> geocode(String place, String county) {
+        String countyKey = county != null ? normalizeCounty(county) : null;
+
+        if (place != null && !place.isBlank()) {
+            Settlement match = lookup(place, countyKey);
+            if (match == null) {
+                String[] parts = place.split(",");
+                for (int i = parts.length - 1; i >= 0 && match == null; i--) {
+                    match = lookup(parts[i], countyKey);
+                }
+            }
+            if (match == null) {
+                // A county given as the place ("Harjumaa")
+                match = countySeats.get(normalizeCounty(place));
+            }
+            if (match != null) {
+                return Optional.of(match.point());
+            }
+        }
+
+        if (countyKey != null) {
+            Settlement seat = countySeats.get(countyKey);
+            if (seat != null) {
+                return Optional.of(seat.point());
+            }
+        }
+        return Optional.empty();
+    }
+
+    public Optional<GeoPoint> geocode(String place) {
+        return geocode(place, null);
+    }
+
+    /**
+     * Store coordinates for suppliers not yet geocoded. Suppliers with no recognisable place
+     * are marked as done with null coordinates so they are not retried until they change.
+     */
+    @Scheduled(fixedDelayString = "${gazetteer.geocode-interval-ms:300000}", initialDelayString = "${gazetteer.geocode-initial-delay-ms:60000}")
+    public void geocodePendingSuppliers() {
+        if (byName.isEmpty()) return;
+
+        int geocoded = 0;
+        int unresolved = 0;
+        while (true) {
+            List<Map<String, Object>> pending = jdbcTemplate.queryForList(
+                    "SELECT id, city, county FROM suppliers WHERE geocoded_at IS NULL LIMIT ?", GEOCODE_BATCH_SIZE);
+            if (pending.isEmpty()) break;
+
+            List<Object[]> updates = new ArrayList<>(pending.size());
+            for (Map<String, Object> row : pending) {
+                Optional<GeoPoint> point = geocode((String) row.get("city"), (String) row.get("county"));
+                if (point.isPresent()) {
+                    geocoded++;
+                } else {
+                    unresolved++;
+                }
+                updates.add(new Object[]{
+                        point.map(GeoPoint::latitude).orElse(null),
+                        point.map(GeoPoint::longitude).orElse(null),
+                        row.get("id")});
+            }
+            jdbcTemplate.batchUpdate(
+                    "UPDATE suppliers SET latitude = ?, longitude = ?, geocoded_at = NOW() WHERE id = ?", updates);
+
+            if (pending.size() < GEOCODE_BATCH_SIZE) break;
+        }
+
+        if (geocoded + unresolved > 0) {
+            log.info("Geocoded {} suppliers ({} without a known place)", geocoded + unresolved, unresolved);
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("settlements", byName.values().stream().mapToInt(List::size).sum());
+        status.put("counties", countySeats.size());
+        try {
+            status.put("suppliersGeocoded", jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM suppliers WHERE latitude IS NOT NULL", Long.class));
+            status.put("suppliersPending", jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM suppliers WHERE geocoded_at IS NULL", Long.class));
+        } catch (Exception e) {
+            log.debug("Could not count geocoded suppliers: {}", e.getMessage());
+        }
+        return status;
+    }
+
+    private Settlement lookup(String name, String countyKey) {
+        List<Settlement> candidates = byName.get(normalize(name));
+        if (candidates == null) return null;
+        if (countyKey != null) {
+            for (Settlement s : candidates) {
+                if (countyKey.equals(s.countyKey())) return s;
+            }
+        }
+        return candidates.get(0);
+    }
+
+    private void importBundled() throws Exception {
+        List<Object[]> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ClassPathResource(RESOURCE).getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            boolean header = true;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) continue;
+                if (header) {
+                    header = false;
+                    continue;
+                }
+                String[] cols = line.split(",");
+                if (cols.length < 4) continue;
+                rows.add(new Object[]{
+                        cols[0].trim(),
+                        normalize(cols[0]),
+                        cols[1].trim(),
+                        Double.parseDouble(cols[2].trim()),
+                        Double.parseDouble(cols[3].trim()),
+                        cols.length > 4 && !cols[4].isBlank() ? Integer.parseInt(cols[4].trim()) : null});
+            }
+        }
+
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO gazetteer_settlements (name, name_normalized, county, latitude, longitude, population)
+                VALUES (?, ?, ?, ?, ?, ?)
+                ON CONFLICT (name_normalized, county) DO NOTHING
+                """, rows);
+
+        // Suppliers that found no match against an earlier gazetteer get another chance
+        jdbcTemplate.update("UPDATE suppliers SET geocoded_at = NULL WHERE geocoded_at IS NOT NULL AND latitude IS NULL");
+        log.info("Imported {} settlements into the gazetteer from {}", rows.size(), RESOURCE);
+    }
+
+    private void reload() {
+        Map<String, List<Settlement>> names = new HashMap<>();
+        Map<String, Settlement> seats = new HashMap<>();
+
+        jdbcTemplate.query(
+                "SELECT name_normalized, county, latitude, longitude, population FROM gazetteer_settlements ORDER BY population DESC NULLS LAST",
+                rs -> {
+                    String county = rs.getString("county");
+                    Settlement s = new Settlement(
+                            county != null ? normalizeCounty(county) : null,
+                            new GeoPoint(rs.getDouble("latitude"), rs.getDouble("longitude")));
+                    // Most populous first, so it wins ambiguous names and becomes the county seat
+                    names.computeIfAbsent(rs.getString("name_normalized"), k -> new ArrayList<>()).add(s);
+                    if (s.countyKey() != null) {
+                        seats.putIfAbsent(s.countyKey(), s);
+                    }
+                });
+
+        byName = names;
+        countySeats = seats;
+        log.info("Gazetteer loaded: {} place names, {} counties", names.size(), seats.size());
+    }
+
+    static String normalize(String name) {
+        String s = Normalizer.normalize(name.trim().toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        s = DIACRITICS.matcher(s).replaceAll("");
+        s = NON_NAME.matcher(s).replaceAll(" ");
+        s = ADMIN_SUFFIX.matcher(s).replaceAll(" ");
+        return s.trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * "Harju maakond", "Harjumaa" and "Harju" all normalise to "harju".
+     */
+    static String normalizeCounty(String county) {
+        String s = normalize(county);
+        return s.endsWith("maa") ? s.substring(0, s.length() - 3) : s;
+    }
+
+    private record Settlement(String countyKey, GeoPoint point) {}
+}
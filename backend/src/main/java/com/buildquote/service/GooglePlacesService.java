@@ -21,9 +21,13 @@ public class GooglePlacesService {
     @Value("${google.places.api.key:}")
     private String apiKey;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    public GooglePlacesService(RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
     public static class PlaceResult {
         public String placeId;
         public String name;
@@ -40,96 +44,126 @@ public class GooglePlacesService {
         }
     }
 
+    /**
+     * One page of results from a text search, plus the token for the next page if there is one.
+     */
+    public static class SearchPage {
+        public final List<PlaceResult> results;
+        public final String nextPageToken;
+
+        public SearchPage(List<PlaceResult> results, String nextPageToken) {
+            this.results = results;
+            this.nextPageToken = nextPageToken;
+        }
+    }
+
     public List<PlaceResult> searchPlaces(String query, String location) {
         if (apiKey == null || apiKey.isEmpty()) {
             log.warn("Google Places API key not configured");
             return Collections.emptyList();
         }
 
+        try {
+            return searchPlacesPage(query, location, null).results;
+        } catch (Exception e) {
+            log.error("Error searching Google Places for '{}' in '{}': {}", query, location, e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Fetch a single page of a text search. Unlike {@link #searchPlaces}, failures are thrown so
+     * callers that checkpoint their progress can retry the page instead of recording it as empty.
+     */
+    public SearchPage searchPlacesPage(String query, String location, String pageToken) throws Exception {
+        if (apiKey == null || apiKey.isEmpty()) {
+            throw new IllegalStateException("Google Places API key not configured");
+        }
+
         List<PlaceResult> results = new ArrayList<>();
+        String nextPageToken = null;
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("X-Goog-Api-Key", apiKey);
+        headers.set("X-Goog-FieldMask",
+            "places.id,places.displayName,places.formattedAddress," +
+            "places.nationalPhoneNumber,places.websiteUri,places.rating," +
+            "places.userRatingCount,places.addressComponents,nextPageToken");
+
+        String fullQuery = query + " " + location + " Estonia";
+
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("textQuery", fullQuery);
+        requestBody.put("languageCode", "et");
+        requestBody.put("regionCode", "EE");
+        requestBody.put("maxResultCount", 20);
+        if (pageToken != null) {
+            requestBody.put("pageToken", pageToken);
+        }
 
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("X-Goog-Api-Key", apiKey);
-            headers.set("X-Goog-FieldMask",
-                "places.id,places.displayName,places.formattedAddress," +
-                "places.nationalPhoneNumber,places.websiteUri,places.rating," +
-                "places.userRatingCount,places.addressComponents");
-
-            String fullQuery = query + " " + location + " Estonia";
-
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("textQuery", fullQuery);
-            requestBody.put("languageCode", "et");
-            requestBody.put("regionCode", "EE");
-            requestBody.put("maxResultCount", 20);
-
-            String jsonBody = objectMapper.writeValueAsString(requestBody);
-            HttpEntity<String> entity = new HttpEntity<>(jsonBody, headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(
-                PLACES_API_URL, HttpMethod.POST, entity, String.class);
-
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                JsonNode root = objectMapper.readTree(response.getBody());
-                JsonNode places = root.get("places");
-
-                if (places != null && places.isArray()) {
-                    for (JsonNode place : places) {
-                        PlaceResult result = new PlaceResult();
-                        result.placeId = getTextValue(place, "id");
-
-                        JsonNode displayName = place.get("displayName");
-                        if (displayName != null) {
-                            result.name = getTextValue(displayName, "text");
-                        }
+        String jsonBody = objectMapper.writeValueAsString(requestBody);
+        HttpEntity<String> entity = new HttpEntity<>(jsonBody, headers);
 
-                        result.formattedAddress = getTextValue(place, "formattedAddress");
-                        result.phone = getTextValue(place, "nationalPhoneNumber");
-                        result.website = getTextValue(place, "websiteUri");
+        ResponseEntity<String> response = restTemplate.exchange(
+            PLACES_API_URL, HttpMethod.POST, entity, String.class);
 
-                        if (place.has("rating")) {
-                            result.rating = BigDecimal.valueOf(place.get("rating").asDouble());
-                        }
-                        if (place.has("userRatingCount")) {
-                            result.reviewCount = place.get("userRatingCount").asInt();
-                        }
+        if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
+            JsonNode root = objectMapper.readTree(response.getBody());
+            JsonNode places = root.get("places");
+            nextPageToken = getTextValue(root, "nextPageToken");
+            if (places != null && places.isArray()) {
+                for (JsonNode place : places) {
+                    PlaceResult result = new PlaceResult();
+                    result.placeId = getTextValue(place, "id");
+
+                    JsonNode displayName = place.get("displayName");
+                    if (displayName != null) {
+                        result.name = getTextValue(displayName, "text");
+                    }
+
+                    result.formattedAddress = getTextValue(place, "formattedAddress");
+                    result.phone = getTextValue(place, "nationalPhoneNumber");
+                    result.website = getTextValue(place, "websiteUri");
+
+                    if (place.has("rating")) {
+                        result.rating = BigDecimal.valueOf(place.get("rating").asDouble());
+                    }
+                    if (place.has("userRatingCount")) {
+                        result.reviewCount = place.get("userRatingCount").asInt();
+                    }
 
-                        // Extract city from address components
-                        JsonNode addressComponents = place.get("addressComponents");
-                        if (addressComponents != null && addressComponents.isArray()) {
-                            for (JsonNode comp : addressComponents) {
-                                JsonNode types = comp.get("types");
-                                if (types != null && types.isArray()) {
-                                    for (JsonNode type : types) {
-                                        if ("locality".equals(type.asText())) {
-                                            JsonNode longText = comp.get("longText");
-                                            if (longText != null) {
-                                                result.city = longText.asText();
-                                            }
-                                            break;
+                    // Extract city from address components
+                    JsonNode addressComponents = place.get("addressComponents");
+                    if (addressComponents != null && addressComponents.isArray()) {
+                        for (JsonNode comp : addressComponents) {
+                            JsonNode types = comp.get("types");
+                            if (types != null && types.isArray()) {
+                                for (JsonNode type : types) {
+                                    if ("locality".equals(type.asText())) {
+                                        JsonNode longText = comp.get("longText");
+                                        if (longText != null) {
+                                            result.city = longText.asText();
                                         }
+                                        break;
                                     }
                                 }
                             }
                         }
+                    }
 
-                        if (result.city == null || result.city.isEmpty()) {
-                            result.city = location;
-                        }
+                    if (result.city == null || result.city.isEmpty()) {
+                        result.city = location;
+                    }
 
-                        if (result.placeId != null && result.name != null) {
-                            results.add(result);
-                        }
+                    if (result.placeId != null && result.name != null) {
+                        results.add(result);
                     }
                 }
             }
-        } catch (Exception e) {
-            log.error("Error searching Google Places for '{}' in '{}': {}", query, location, e.getMessage());
         }
 
-        return results;
+        return new SearchPage(results, nextPageToken);
     }
 
     private String getTextValue(JsonNode node, String field) {
@@ -0,0 +1,223 @@
+package com.buildquote.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Persistent work queue for batch harvests (see V23). A job is a set of (category, city, page)
+ * search items; workers claim items with FOR UPDATE SKIP LOCKED and mark them done as they go,
+ * so a crashed or restarted harvest resumes with the items it had not finished. Items claimed
+ * by a worker that died are reclaimed once the claim is older than {@link #CLAIM_TIMEOUT_SECONDS},
+ * until they have used their attempts. Each claim carries a token, and only its holder can
+ * complete or fail the item. Google page tokens expire within minutes, so a next-page item whose
+ * token is older than {@link #PAGE_TOKEN_TTL_SECONDS} restarts its search from the first page.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class HarvestCheckpointService {
+
+    private static final int CLAIM_TIMEOUT_SECONDS = 600;
+    private static final int PAGE_TOKEN_TTL_SECONDS = 120;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record Job(UUID id, String mode, String status, LocalDateTime createdAt) {}
+
+    public record WorkItem(long id, String category, String searchTerm, String city,
+                           int pageNumber, String pageToken, int attempts, String claimedBy) {}
+
+    public record Seed(String category, String searchTerm, String city) {}
+
+    @PostConstruct
+    void init() {
+        try {
+            int interrupted = jdbcTemplate.update("""
+                    UPDATE harvest_jobs SET status = 'INTERRUPTED', updated_at = NOW()
+                    WHERE status = 'RUNNING' AND updated_at < NOW() - make_interval(secs => ?)
+                    """, CLAIM_TIMEOUT_SECONDS);
+            if (interrupted > 0) {
+                log.info("Marked {} stalled harvest job(s) as interrupted; they resume on the next harvest run", interrupted);
+            }
+        } catch (Exception e) {
+            log.warn("Could not check for interrupted harvest jobs: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * The most recent job that has not completed, if any.
+     */
+    public Optional<Job> findUnfinishedJob() {
+        return jdbcTemplate.query("""
+                SELECT id, mode, status, created_at FROM harvest_jobs
+                WHERE status IN ('RUNNING', 'INTERRUPTED')
+                ORDER BY created_at DESC LIMIT 1
+                """,
+                (rs, i) -> new Job(rs.getObject("id", UUID.class), rs.getString("mode"),
+                        rs.getString("status"), rs.getTimestamp("created_at").toLocalDateTime()))
+                .stream().findFirst();
+    }
+
+    public UUID createJob(String mode, List<Seed> seeds) {
+        UUID jobId = jdbcTemplate.queryForObject(
+                "INSERT INTO harvest_jobs (mode) VALUES (?) RETURNING id", UUID.class, mode);
+
+        List<Object[]> rows = new ArrayList<>(seeds.size());
+        for (Seed seed : seeds) {
+            rows.add(new Object[]{jobId, seed.category(), seed.searchTerm(), seed.city()});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO harvest_work_items (job_id, category, search_term, city) VALUES (?, ?, ?, ?)", rows);
+
+        log.info("Created harvest job {} ({}) with {} work items", jobId, mode, seeds.size());
+        return jobId;
+    }
+
+    public void markRunning(UUID jobId) {
+        jdbcTemplate.update("UPDATE harvest_jobs SET status = 'RUNNING', updated_at = NOW() WHERE id = ?", jobId);
+    }
+
+    /**
+     * Claim the next pending item of a job. Concurrent workers skip rows another worker holds.
+     * Stale claims that have used all their attempts are failed instead of handed out again.
+     */
+    public Optional<WorkItem> claimNext(UUID jobId, int maxAttempts) {
+        int expired = jdbcTemplate.update("""
+                UPDATE harvest_work_items
+                SET status = 'FAILED', error_message = 'Claim timed out', claimed_by = NULL
+                WHERE job_id = ? AND status = 'CLAIMED' AND attempts >= ?
+                  AND claimed_at < NOW() - make_interval(secs => ?)
+                """, jobId, maxAttempts, CLAIM_TIMEOUT_SECONDS);
+        if (expired > 0) {
+            log.warn("Failed {} harvest item(s) of job {} whose claims timed out after {} attempts",
+                    expired, jobId, maxAttempts);
+        }
+
+        String claimedBy = UUID.randomUUID().toString();
+        return jdbcTemplate.query("""
+                UPDATE harvest_work_items
+                SET status = 'CLAIMED', claimed_at = NOW(), claimed_by = ?, attempts = attempts + 1,
+                    -- An expired page token cannot be used: search this query again from page one
+                    page_number = CASE WHEN page_token IS NOT NULL
+                                        AND page_token_at < NOW() - make_interval(secs => ?)
+                                       THEN 1 ELSE page_number END,
+                    page_token = CASE WHEN page_token IS NOT NULL
+                                       AND page_token_at < NOW() - make_interval(secs => ?)
+                                      THEN NULL ELSE page_token END
+                WHERE id = (
+                    SELECT id FROM harvest_work_items
+                    WHERE job_id = ?
+                      AND (status = 'PENDING'
+                           OR (status = 'CLAIMED' AND attempts < ?
+                               AND claimed_at < NOW() - make_interval(secs => ?)))
+                    ORDER BY id
+                    LIMIT 1
+                    FOR UPDATE SKIP LOCKED
+                )
+                RETURNING id, category, search_term, city, page_number, page_token, attempts, claimed_by
+                """,
+                (rs, i) -> new WorkItem(rs.getLong("id"), rs.getString("category"), rs.getString("search_term"),
+                        rs.getString("city"), rs.getInt("page_number"), rs.getString("page_token"),
+                        rs.getInt("attempts"), rs.getString("claimed_by")),
+                claimedBy, PAGE_TOKEN_TTL_SECONDS, PAGE_TOKEN_TTL_SECONDS,
+                jobId, maxAttempts, CLAIM_TIMEOUT_SECONDS)
+                .stream().findFirst();
+    }
+
+    /**
+     * Mark an item done and, in the same statement, queue the next page if the search has one.
+     * Nothing happens if the claim was lost to another worker meanwhile, so a reclaimed item
+     * never queues its next page twice. Returns true if a next-page item was queued.
+     */
+    public boolean complete(WorkItem item, int resultsFound, String nextPageToken, int maxPages) {
+        int queued = jdbcTemplate.update("""
+                WITH done AS (
+                    UPDATE harvest_work_items
+                    SET status = 'DONE', results_found = ?, error_message = NULL, completed_at = NOW()
+                    WHERE id = ? AND status = 'CLAIMED' AND claimed_by = ?
+                    RETURNING job_id, category, search_term, city, page_number
+                )
+                INSERT INTO harvest_work_items (job_id, category, search_term, city, page_number,
+                                                page_token, page_token_at)
+                SELECT job_id, category, search_term, city, page_number + 1, CAST(? AS TEXT), NOW()
+                FROM done
+                WHERE CAST(? AS TEXT) IS NOT NULL AND page_number < ?
+                """, resultsFound, item.id(), item.claimedBy(), nextPageToken, nextPageToken, maxPages);
+        touchJob(item);
+        return queued > 0;
+    }
+
+    /**
+     * Record a failed attempt. The item goes back to the queue until it has used maxAttempts.
+     */
+    public void fail(WorkItem item, String error, int maxAttempts) {
+        jdbcTemplate.update("""
+                UPDATE harvest_work_items
+                SET status = CASE WHEN attempts >= ? THEN 'FAILED' ELSE 'PENDING' END,
+                    error_message = ?, claimed_at = NULL, claimed_by = NULL
+                WHERE id = ? AND status = 'CLAIMED' AND claimed_by = ?
+                """, maxAttempts, error, item.id(), item.claimedBy());
+        touchJob(item);
+    }
+
+    public void finishJob(UUID jobId, String status, String error) {
+        jdbcTemplate.update("""
+                UPDATE harvest_jobs SET status = ?, error_message = ?, updated_at = NOW(),
+                    completed_at = CASE WHEN ? = 'COMPLETED' THEN NOW() END
+                WHERE id = ?
+                """, status, error, status, jobId);
+    }
+
+    /**
+     * Item counts by status for a job, plus the number of places found so far.
+     */
+    public Map<String, Object> getProgress(UUID jobId) {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT mode, status, created_at FROM harvest_jobs WHERE id = ?", rs -> {
+            progress.put("jobId", jobId);
+            progress.put("mode", rs.getString("mode"));
+            progress.put("status", rs.getString("status"));
+            progress.put("createdAt", rs.getTimestamp("created_at").toLocalDateTime());
+        }, jobId);
+
+        Map<String, Object> counts = jdbcTemplate.queryForMap("""
+                SELECT COUNT(*) AS total,
+                       COUNT(*) FILTER (WHERE status = 'PENDING') AS pending,
+                       COUNT(*) FILTER (WHERE status = 'CLAIMED') AS claimed,
+                       COUNT(*) FILTER (WHERE status = 'DONE') AS done,
+                       COUNT(*) FILTER (WHERE status = 'FAILED') AS failed,
+                       COALESCE(SUM(results_found), 0) AS results_found
+                FROM harvest_work_items WHERE job_id = ?
+                """, jobId);
+        counts.forEach((key, value) -> progress.put(toCamelCase(key), ((Number) value).longValue()));
+        return progress;
+    }
+
+    public long countOpenItems(UUID jobId) {
+        Long open = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM harvest_work_items WHERE job_id = ? AND status IN ('PENDING', 'CLAIMED')",
+                Long.class, jobId);
+        return open != null ? open : 0;
+    }
+
+    private void touchJob(WorkItem item) {
+        jdbcTemplate.update("""
+                UPDATE harvest_jobs SET updated_at = NOW()
+                WHERE id = (SELECT job_id FROM harvest_work_items WHERE id = ?)
+                """, item.id());
+    }
+
+    private static String toCamelCase(String column) {
+        int underscore = column.indexOf('_');
+        if (underscore < 0) return column;
+        return column.substring(0, underscore)
+                + Character.toUpperCase(column.charAt(underscore + 1))
+                + column.substring(underscore + 2);
+    }
+}
@@ -0,0 +1,14 @@
+package com.buildquote.service;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Receives completed message batch results for the purposes it owns.
+ */
+public interface LlmBatchResultHandler {
+
+    Set<String> getBatchPurposes();
+
+    void handleBatchResult(String purpose, UUID entityId, String response);
+}
@@ -0,0 +1,225 @@
+package com.buildquote.service;
+
+import com.buildquote.entity.LlmBatchRequest;
+import com.buildquote.entity.LlmBatchRequest.BatchStatus;
+import com.buildquote.repository.LlmBatchRequestRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Collects latency-insensitive prompts (background enrichment, bulk bid analysis)
+ * into Anthropic message batches so they don't compete with interactive calls
+ * for rate-limit headroom. State lives in llm_batch_requests, so submitted
+ * batches are picked up again after a restart.
+ */
+@Service
+@Slf4j
+public class LlmBatchService {
+
+    private static final List<BatchStatus> OPEN_STATUSES =
+            List.of(BatchStatus.PENDING, BatchStatus.SUBMITTING, BatchStatus.SUBMITTED);
+    private static final int RETENTION_DAYS = 7;
+    private static final int CLAIM_TIMEOUT_MINUTES = 30;
+
+    private final LlmBatchRequestRepository batchRequestRepository;
+    private final AnthropicService anthropicService;
+    private final AiCacheService aiCacheService;
+    private final List<LlmBatchResultHandler> resultHandlers;
+
+    @Value("${anthropic.batch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${anthropic.batch.max-requests:1000}")
+    private int maxRequestsPerBatch;
+
+    private Map<String, LlmBatchResultHandler> handlerMap;
+
+    public LlmBatchService(
+            LlmBatchRequestRepository batchRequestRepository,
+            AnthropicService anthropicService,
+            AiCacheService aiCacheService,
+            @Lazy List<LlmBatchResultHandler> resultHandlers) {
+        this.batchRequestRepository = batchRequestRepository;
+        this.anthropicService = anthropicService;
+        this.aiCacheService = aiCacheService;
+        this.resultHandlers = resultHandlers;
+    }
+
+    private Map<String, LlmBatchResultHandler> getHandlerMap() {
+        if (handlerMap == null) {
+            Map<String, LlmBatchResultHandler> map = new HashMap<>();
+            for (LlmBatchResultHandler handler : resultHandlers) {
+                for (String purpose : handler.getBatchPurposes()) {
+                    map.put(purpose, handler);
+                }
+            }
+            handlerMap = map;
+        }
+        return handlerMap;
+    }
+
+    /**
+     * Queue a prompt for the next message batch. The purpose doubles as the AI cache namespace,
+     * so results land under the same key the synchronous path would use.
+     * Returns false if an open request already exists for the same purpose and entity.
+     */
+    @Transactional
+    public boolean enqueue(String purpose, UUID entityId, String systemPrompt, String prompt, int cacheTtlHours) {
+        if (batchRequestRepository.existsByPurposeAndEntityIdAndStatusIn(purpose, entityId, OPEN_STATUSES)) {
+            log.debug("Batch request for {} {} already queued", purpose, entityId);
+            return false;
+        }
+
+        batchRequestRepository.save(LlmBatchRequest.builder()
+                .purpose(purpose)
+                .entityId(entityId)
+                .systemPrompt(systemPrompt)
+                .prompt(prompt)
+                .cacheTtlHours(cacheTtlHours)
+                .status(BatchStatus.PENDING)
+                .build());
+        return true;
+    }
+
+    /**
+     * Submit pending requests as one message batch. The rows are claimed first in their own short
+     * transaction (SKIP LOCKED, so replicas never take the same rows), the provider call runs outside
+     * any transaction, and the batch id is recorded afterwards. A failed call releases the claim.
+     */
+    @Scheduled(fixedDelay = 60000) // Every minute
+    public void submitPending() {
+        if (!enabled) return;
+
+        int stale = batchRequestRepository.failStaleClaims(LocalDateTime.now().minusMinutes(CLAIM_TIMEOUT_MINUTES));
+        if (stale > 0) {
+            log.warn("{} batch requests were claimed but never recorded as submitted; marked FAILED", stale);
+        }
+
+        String claim = "claim:" + UUID.randomUUID();
+        if (batchRequestRepository.claimPending(claim, maxRequestsPerBatch) == 0) return;
+        List<LlmBatchRequest> pending = batchRequestRepository.findByBatchIdAndStatus(claim, BatchStatus.SUBMITTING);
+
+        List<AnthropicService.BatchRequest> requests = pending.stream()
+                .map(r -> new AnthropicService.BatchRequest(r.getId().toString(), r.getSystemPrompt(), r.getPrompt()))
+                .collect(Collectors.toList());
+
+        String batchId;
+        try {
+            batchId = anthropicService.createMessageBatch(requests);
+        } catch (RuntimeException e) {
+            batchId = null;
+            log.error("Message batch submission failed: {}", e.getMessage());
+        }
+        if (batchId == null) {
+            batchRequestRepository.releaseClaim(claim);
+            log.warn("Message batch submission failed, {} requests stay pending", pending.size());
+            return;
+        }
+
+        batchRequestRepository.markSubmitted(claim, batchId);
+        log.info("Submitted message batch {} with {} requests", batchId, pending.size());
+    }
+
+    @Scheduled(fixedDelay = 300000, initialDelay = 30000) // Every 5 minutes
+    public void pollSubmitted() {
+        if (!enabled) return;
+
+        for (String batchId : batchRequestRepository.findDistinctBatchIdsByStatus(BatchStatus.SUBMITTED)) {
+            try {
+                JsonNode batch = anthropicService.getMessageBatch(batchId);
+                if (batch == null || !"ended".equals(batch.path("processing_status").asText())) {
+                    continue;
+                }
+                String resultsUrl = batch.path("results_url").asText(null);
+                if (resultsUrl == null) {
+                    log.warn("Message batch {} ended without results_url", batchId);
+                    continue;
+                }
+                List<AnthropicService.BatchResult> results = anthropicService.getMessageBatchResults(resultsUrl);
+                if (results != null) {
+                    processResults(batchId, results);
+                }
+            } catch (Exception e) {
+                log.error("Polling message batch {} failed: {}", batchId, e.getMessage());
+            }
+        }
+    }
+
+    private void processResults(String batchId, List<AnthropicService.BatchResult> results) {
+        Map<String, AnthropicService.BatchResult> byCustomId = results.stream()
+                .collect(Collectors.toMap(AnthropicService.BatchResult::customId, Function.identity(), (a, b) -> a));
+
+        int succeeded = 0;
+        int failed = 0;
+        for (LlmBatchRequest request : batchRequestRepository.findByBatchIdAndStatus(batchId, BatchStatus.SUBMITTED)) {
+            AnthropicService.BatchResult result = byCustomId.get(request.getId().toString());
+            request.setCompletedAt(LocalDateTime.now());
+
+            if (result != null && result.succeeded()) {
+                request.setResponseText(result.text());
+                try {
+                    aiCacheService.cache(request.getPrompt(), request.getPurpose(), result.text(), request.getCacheTtlHours());
+                    LlmBatchResultHandler handler = getHandlerMap().get(request.getPurpose());
+                    if (handler != null) {
+                        handler.handleBatchResult(request.getPurpose(), request.getEntityId(), result.text());
+                    } else {
+                        log.warn("No batch result handler for purpose {}", request.getPurpose());
+                    }
+                    request.setStatus(BatchStatus.SUCCEEDED);
+                    succeeded++;
+                } catch (Exception e) {
+                    log.error("Applying batch result for {} {} failed: {}",
+                            request.getPurpose(), request.getEntityId(), e.getMessage());
+                    request.setStatus(BatchStatus.FAILED);
+                    request.setErrorMessage(e.getMessage());
+                    failed++;
+                }
+            } else {
+                request.setStatus(BatchStatus.FAILED);
+                request.setErrorMessage(result != null ? result.error() : "Missing from batch results");
+                failed++;
+            }
+            batchRequestRepository.save(request);
+        }
+
+        log.info("Message batch {} processed: {} succeeded, {} failed", batchId, succeeded, failed);
+    }
+
+    @Scheduled(cron = "0 30 4 * * *") // 4:30 AM daily
+    @Transactional
+    public void cleanupFinished() {
+        int deleted = batchRequestRepository.deleteFinishedBefore(
+                List.of(BatchStatus.SUCCEEDED, BatchStatus.FAILED),
+                LocalDateTime.now().minusDays(RETENTION_DAYS));
+        if (deleted > 0) {
+            log.info("Cleaned up {} finished LLM batch requests", deleted);
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> counts = new LinkedHashMap<>();
+        for (BatchStatus status : BatchStatus.values()) {
+            counts.put(status.name(), 0L);
+        }
+        for (Object[] row : batchRequestRepository.countByStatus()) {
+            counts.put(((BatchStatus) row[0]).name(), row[1]);
+        }
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("maxRequestsPerBatch", maxRequestsPerBatch);
+        status.put("requests", counts);
+        status.put("openBatches", batchRequestRepository.findDistinctBatchIdsByStatus(BatchStatus.SUBMITTED).size());
+        return status;
+    }
+}
@@ -0,0 +1,349 @@
+package com.buildquote.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Admission control in front of every synchronous Anthropic call.
+ *
+ * Requests wait in a single queue ordered by priority class, then arrival. Each class has
+ * its own concurrency cap, and all classes share request and input-token buckets sized to
+ * the account's RPM/ITPM limits. Background requests only run while the buckets hold more
+ * than the configured reserve, and back off exponentially after 429s, so interactive
+ * parses keep their headroom during nightly runs.
+ */
+@Service
+@Slf4j
+public class LlmRequestScheduler {
+
+    public enum Priority {
+        INTERACTIVE, PIPELINE, BACKGROUND
+    }
+
+    private static final ThreadLocal<Priority> PRIORITY = new ThreadLocal<>();
+
+    private static final long IDLE_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_BACKGROUND_BACKOFF_SECONDS = 600;
+
+    @Value("${anthropic.scheduler.requests-per-minute:50}")
+    private int requestsPerMinute;
+
+    @Value("${anthropic.scheduler.input-tokens-per-minute:30000}")
+    private int inputTokensPerMinute;
+
+    @Value("${anthropic.scheduler.max-concurrent.interactive:8}")
+    private int maxConcurrentInteractive;
+
+    @Value("${anthropic.scheduler.max-concurrent.pipeline:4}")
+    private int maxConcurrentPipeline;
+
+    @Value("${anthropic.scheduler.max-concurrent.background:2}")
+    private int maxConcurrentBackground;
+
+    @Value("${anthropic.scheduler.background-reserve:0.3}")
+    private double backgroundReserve;
+
+    @Value("${anthropic.scheduler.max-wait-seconds:300}")
+    private int maxWaitSeconds;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition stateChanged = lock.newCondition();
+    private final TreeSet<Ticket> waiting = new TreeSet<>();
+    private final int[] inFlight = new int[Priority.values().length];
+    private final ClassStats[] stats = new ClassStats[Priority.values().length];
+    private int[] maxConcurrent;
+    private long nextSequence;
+
+    // Token buckets, refilled continuously
+    private double requestBucket;
+    private double inputTokenBucket;
+    private long lastRefillNanos;
+
+    // Rate-limit backoff
+    private long pausedUntilNanos;
+    private long backgroundPausedUntilNanos;
+    private int consecutiveRateLimits;
+    private long rateLimitedCount;
+
+    @PostConstruct
+    void init() {
+        maxConcurrent = new int[] { maxConcurrentInteractive, maxConcurrentPipeline, maxConcurrentBackground };
+        for (int i = 0; i < stats.length; i++) {
+            stats[i] = new ClassStats();
+        }
+        requestBucket = requestsPerMinute;
+        inputTokenBucket = inputTokensPerMinute;
+        lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Run a task with the given LLM priority for all calls made on this thread.
+     */
+    public static <T> T withPriority(Priority priority, Supplier<T> task) {
+        Priority previous = PRIORITY.get();
+        PRIORITY.set(priority);
+        try {
+            return task.get();
+        } finally {
+            if (previous != null) {
+                PRIORITY.set(previous);
+            } else {
+                PRIORITY.remove();
+            }
+        }
+    }
+
+    /**
+     * Priority of the current thread. Without an explicit priority, calls made while serving
+     * an HTTP request are interactive and everything else is background.
+     */
+    public static Priority currentPriority() {
+        Priority priority = PRIORITY.get();
+        if (priority != null) {
+            return priority;
+        }
+        return RequestContextHolder.getRequestAttributes() != null ? Priority.INTERACTIVE : Priority.BACKGROUND;
+    }
+
+    /**
+     * Task decorator that carries the submitting thread's priority onto executor threads.
+     */
+    public static Runnable propagatePriority(Runnable task) {
+        Priority priority = currentPriority();
+        return () -> withPriority(priority, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Block until the current thread's priority class may issue a request.
+     */
+    public Permit acquire(int estimatedInputTokens) throws InterruptedException {
+        Priority priority = currentPriority();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(maxWaitSeconds);
+
+        lock.lock();
+        try {
+            Ticket ticket = new Ticket(priority, nextSequence++);
+            waiting.add(ticket);
+            stats[priority.ordinal()].submitted++;
+            try {
+                while (true) {
+                    long delay = admissionDelay(ticket, estimatedInputTokens);
+                    if (delay == 0) break;
+
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        stats[priority.ordinal()].timedOut++;
+                        throw new IllegalStateException("LLM admission timed out after " + maxWaitSeconds + "s ("
+                                + priority + ")");
+                    }
+                    stateChanged.awaitNanos(Math.min(delay, remaining));
+                }
+            } finally {
+                waiting.remove(ticket);
+                stateChanged.signalAll();
+            }
+
+            requestBucket -= 1;
+            inputTokenBucket -= estimatedInputTokens;
+            inFlight[priority.ordinal()]++;
+
+            long queuedNanos = System.nanoTime() - start;
+            stats[priority.ordinal()].recordAdmission(queuedNanos);
+            if (queuedNanos > TimeUnit.SECONDS.toNanos(5)) {
+                log.info("LLM {} request admitted after {} ms in queue",
+                        priority, TimeUnit.NANOSECONDS.toMillis(queuedNanos));
+            }
+            return new Permit(priority, estimatedInputTokens);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Correct the input-token bucket with the usage reported by the API.
+     */
+    public void recordActualInputTokens(Permit permit, long actualInputTokens) {
+        lock.lock();
+        try {
+            inputTokenBucket -= (actualInputTokens - permit.estimatedInputTokens());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(Permit permit, boolean success) {
+        lock.lock();
+        try {
+            inFlight[permit.priority().ordinal()]--;
+            if (success) {
+                consecutiveRateLimits = 0;
+            }
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Pause all classes for the server-provided Retry-After, and background traffic
+     * for an exponentially growing multiple of it.
+     */
+    public void onRateLimited(long retryAfterSeconds) {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            long retryAfter = Math.max(1, retryAfterSeconds);
+            consecutiveRateLimits++;
+            rateLimitedCount++;
+
+            long backgroundBackoff = Math.min(MAX_BACKGROUND_BACKOFF_SECONDS,
+                    retryAfter << Math.min(consecutiveRateLimits, 6));
+            pausedUntilNanos = Math.max(pausedUntilNanos, now + TimeUnit.SECONDS.toNanos(retryAfter));
+            backgroundPausedUntilNanos = Math.max(backgroundPausedUntilNanos,
+                    now + TimeUnit.SECONDS.toNanos(backgroundBackoff));
+
+            // The server disagrees with our accounting - start from empty buckets
+            requestBucket = Math.min(requestBucket, 0);
+            inputTokenBucket = Math.min(inputTokenBucket, 0);
+
+            log.warn("Anthropic rate limit hit ({} in a row): pausing for {}s, background for {}s",
+                    consecutiveRateLimits, retryAfter, backgroundBackoff);
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        lock.lock();
+        try {
+            refillBuckets();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("requestsPerMinute", requestsPerMinute);
+            result.put("inputTokensPerMinute", inputTokensPerMinute);
+            result.put("availableRequests", (long) requestBucket);
+            result.put("availableInputTokens", (long) inputTokenBucket);
+            result.put("rateLimited", rateLimitedCount);
+            result.put("consecutiveRateLimits", consecutiveRateLimits);
+
+            Map<String, Object> classes = new LinkedHashMap<>();
+            for (Priority priority : Priority.values()) {
+                ClassStats s = stats[priority.ordinal()];
+                long queued = waiting.stream().filter(t -> t.priority == priority).count();
+
+                Map<String, Object> c = new LinkedHashMap<>();
+                c.put("maxConcurrent", maxConcurrent[priority.ordinal()]);
+                c.put("inFlight", inFlight[priority.ordinal()]);
+                c.put("queued", queued);
+                c.put("submitted", s.submitted);
+                c.put("admitted", s.admitted);
+                c.put("timedOut", s.timedOut);
+                c.put("avgQueueMs", s.admitted > 0 ? TimeUnit.NANOSECONDS.toMillis(s.totalQueueNanos / s.admitted) : 0);
+                c.put("maxQueueMs", TimeUnit.NANOSECONDS.toMillis(s.maxQueueNanos));
+                classes.put(priority.name(), c);
+            }
+            result.put("classes", classes);
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Nanoseconds the ticket still has to wait, or 0 if it can be admitted now. Caller holds the lock.
+     */
+    private long admissionDelay(Ticket ticket, int estimatedInputTokens) {
+        refillBuckets();
+        long now = System.nanoTime();
+        Priority priority = ticket.priority;
+
+        long pausedUntil = priority == Priority.BACKGROUND
+                ? Math.max(pausedUntilNanos, backgroundPausedUntilNanos)
+                : pausedUntilNanos;
+        if (now < pausedUntil) {
+            return pausedUntil - now;
+        }
+
+        if (inFlight[priority.ordinal()] >= maxConcurrent[priority.ordinal()]) {
+            return IDLE_WAIT_NANOS;
+        }
+
+        // Any earlier ticket that could run goes first
+        for (Ticket other : waiting) {
+            if (other == ticket) break;
+            if (inFlight[other.priority.ordinal()] < maxConcurrent[other.priority.ordinal()]) {
+                return IDLE_WAIT_NANOS;
+            }
+        }
+
+        double reserve = priority == Priority.BACKGROUND ? backgroundReserve : 0.0;
+        double neededRequests = 1 + reserve * requestsPerMinute;
+        // A single prompt larger than the bucket still gets through once the bucket is full
+        double neededTokens = Math.min(estimatedInputTokens, inputTokensPerMinute) + reserve * inputTokensPerMinute;
+        neededTokens = Math.min(neededTokens, inputTokensPerMinute);
+
+        long requestWait = refillDelay(neededRequests - requestBucket, requestsPerMinute);
+        long tokenWait = refillDelay(neededTokens - inputTokenBucket, inputTokensPerMinute);
+        return Math.max(requestWait, tokenWait);
+    }
+
+    private long refillDelay(double deficit, int perMinute) {
+        if (deficit <= 0) return 0;
+        return Math.max(1, (long) (deficit / perMinute * TimeUnit.MINUTES.toNanos(1)));
+    }
+
+    private void refillBuckets() {
+        long now = System.nanoTime();
+        double minutes = (now - lastRefillNanos) / (double) TimeUnit.MINUTES.toNanos(1);
+        lastRefillNanos = now;
+        requestBucket = Math.min(requestsPerMinute, requestBucket + minutes * requestsPerMinute);
+        inputTokenBucket = Math.min(inputTokensPerMinute, inputTokenBucket + minutes * inputTokensPerMinute);
+    }
+
+    public record Permit(Priority priority, int estimatedInputTokens) {}
+
+    private static final class Ticket implements Comparable<Ticket> {
+        private final Priority priority;
+        private final long sequence;
+
+        private Ticket(Priority priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Ticket other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static final class ClassStats {
+        private long submitted;
+        private long admitted;
+        private long timedOut;
+        private long totalQueueNanos;
+        private long maxQueueNanos;
+
+        private void recordAdmission(long queuedNanos) {
+            admitted++;
+            totalQueueNanos += queuedNanos;
+            maxQueueNanos = Math.max(maxQueueNanos, queuedNanos);
+        }
+    }
+}
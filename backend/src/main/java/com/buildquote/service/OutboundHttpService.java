@@ -0,0 +1,517 @@
+package com.buildquote.service;
+
+import com.buildquote.util.LruCache;
+import com.buildquote.util.RateLimiter;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The one way out to the internet for crawlers and API clients.
+ *
+ * Requests go through pooled JDK HttpClients with connect and request timeouts. Each host gets
+ * a token bucket and a concurrency limit, so a slow or strict site only holds back requests to
+ * itself: throughput grows with the number of distinct hosts rather than being serialised by
+ * sleeps. Website fetches ({@link #get}) additionally honour robots.txt (cached per host,
+ * including Crawl-delay), follow a bounded number of redirects with the same checks on every
+ * hop, ask for gzip and stop reading at a size cap. API calls go through the RestTemplate from
+ * {@link #newRestTemplate()}, which applies the host limits but not robots.txt.
+ */
+@Service
+@Slf4j
+public class OutboundHttpService {
+
+    public static final String USER_AGENT = "Mozilla/5.0 (compatible; BuildQuote/1.0)";
+    private static final String ROBOTS_AGENT = "buildquote";
+
+    private static final Pattern CHARSET = Pattern.compile("charset=\"?([\\w.:-]+)", Pattern.CASE_INSENSITIVE);
+    private static final long ROBOTS_ERROR_TTL_MS = Duration.ofMinutes(10).toMillis();
+    private static final int ROBOTS_MAX_BYTES = 512 * 1024;
+
+    @Value("${http.connect-timeout-ms:5000}")
+    private int connectTimeoutMs;
+
+    @Value("${http.request-timeout-ms:10000}")
+    private int requestTimeoutMs;
+
+    @Value("${http.max-response-bytes:2097152}")
+    private int maxResponseBytes;
+
+    @Value("${http.max-redirects:5}")
+    private int maxRedirects;
+
+    @Value("${http.crawl.requests-per-second-per-host:1}")
+    private double crawlRequestsPerSecond;
+
+    @Value("${http.crawl.max-concurrent-per-host:2}")
+    private int crawlConcurrencyPerHost;
+
+    @Value("${http.api.requests-per-second-per-host:5}")
+    private double apiRequestsPerSecond;
+
+    @Value("${http.api.max-concurrent-per-host:8}")
+    private int apiConcurrencyPerHost;
+
+    @Value("${http.robots.ttl-hours:24}")
+    private int robotsTtlHours;
+
+    private HttpClient httpClient;
+    private HttpClient apiClient;
+    private LruCache<String, HostState> crawlHosts;
+    private LruCache<String, HostState> apiHosts;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong robotsBlocked = new AtomicLong();
+    private final AtomicLong truncated = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Result of a website fetch. {@code url} is the final URL after redirects; {@code etag} and
+     * {@code lastModified} are the validators to send back on a conditional re-fetch.
+     */
+    public record Response(int status, String url, String contentType, String body, boolean truncated,
+                           String etag, String lastModified) {
+        public boolean isOk() {
+            return status >= 200 && status < 300;
+        }
+
+        public boolean isNotModified() {
+            return status == 304;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        apiClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        // Idle hosts drop out after an hour; robots rules are re-fetched after their own TTL
+        long hostTtl = Duration.ofHours(1).toMillis();
+        crawlHosts = new LruCache<>(10_000, hostTtl);
+        apiHosts = new LruCache<>(100, hostTtl);
+    }
+
+    /**
+     * Fetch a web page politely. Returns the final response, or a 403-style result with an empty
+     * body if robots.txt disallows the URL. Network errors are thrown.
+     */
+    public Response get(String url) throws IOException, InterruptedException {
+        return get(url, null, null);
+    }
+
+    /**
+     * Conditional fetch: sends If-None-Match / If-Modified-Since with the validators from an
+     * earlier response, so an unchanged page comes back as a bodiless 304.
+     */
+    public Response get(String url, String etag, String lastModified) throws IOException, InterruptedException {
+        URI next = toUri(url);
+        for (int hop = 0; ; hop++) {
+            URI uri = next;
+            HostState host = crawlHost(uri);
+            if (!host.robots(this, uri).allows(pathOf(uri))) {
+                robotsBlocked.incrementAndGet();
+                return new Response(403, uri.toString(), null, "", false, null, null);
+            }
+
+            // Validators belong to the requested URL, not to wherever it redirects
+            String ifNoneMatch = hop == 0 ? etag : null;
+            String ifModifiedSince = hop == 0 ? lastModified : null;
+            Response response = host.call(() -> execute(uri, true, ifNoneMatch, ifModifiedSince));
+            if (response.status() < 300 || response.status() >= 400 || response.body() == null) {
+                return response;
+            }
+            if (hop >= maxRedirects) {
+                throw new IOException("Too many redirects from " + url);
+            }
+            // body carries the Location header for redirects
+            next = uri.resolve(response.body().trim());
+        }
+    }
+
+    /**
+     * Fetch and parse an HTML page. Non-2xx responses and robots.txt refusals are thrown.
+     */
+    public Document getDocument(String url) throws IOException, InterruptedException {
+        Response response = get(url);
+        if (!response.isOk()) {
+            throw new IOException("HTTP " + response.status() + " fetching " + response.url());
+        }
+        return Jsoup.parse(response.body(), response.url());
+    }
+
+    public boolean isAllowed(String url) throws InterruptedException {
+        try {
+            URI uri = toUri(url);
+            return crawlHost(uri).robots(this, uri).allows(pathOf(uri));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A RestTemplate on the shared client whose requests wait for the target host's API limits.
+     */
+    public RestTemplate newRestTemplate() {
+        return newRestTemplate(Duration.ofMillis(requestTimeoutMs));
+    }
+
+    /**
+     * Same, for APIs whose responses legitimately take longer than {@code http.request-timeout-ms}.
+     */
+    public RestTemplate newRestTemplate(Duration readTimeout) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(apiClient);
+        factory.setReadTimeout(readTimeout);
+        RestTemplate restTemplate = new RestTemplate(factory);
+
+        ClientHttpRequestInterceptor hostLimits = (request, body, execution) -> {
+            HostState host = apiHost(request.getURI());
+            try {
+                requests.incrementAndGet();
+                return host.call(() -> execution.execute(request, body));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted waiting for " + request.getURI().getHost(), e);
+            }
+        };
+        restTemplate.getInterceptors().add(hostLimits);
+        return restTemplate;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", requests.get());
+        stats.put("bytesRead", bytesRead.get());
+        stats.put("robotsBlocked", robotsBlocked.get());
+        stats.put("truncated", truncated.get());
+        stats.put("failures", failures.get());
+        stats.put("crawlHosts", crawlHosts.size());
+        stats.put("apiHosts", apiHosts.size());
+        return stats;
+    }
+
+    private Response execute(URI uri, boolean textOnly) throws IOException, InterruptedException {
+        return execute(uri, textOnly, null, null);
+    }
+
+    private Response execute(URI uri, boolean textOnly, String ifNoneMatch, String ifModifiedSince)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(requestTimeoutMs))
+                .header("User-Agent", USER_AGENT)
+                .header("Accept", "text/html,application/xhtml+xml,text/plain;q=0.9,*/*;q=0.5")
+                .header("Accept-Encoding", "gzip, deflate")
+                .GET();
+        if (ifNoneMatch != null) builder.header("If-None-Match", ifNoneMatch);
+        if (ifModifiedSince != null) builder.header("If-Modified-Since", ifModifiedSince);
+        HttpRequest request = builder.build();
+
+        requests.incrementAndGet();
+        HttpResponse<InputStream> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException e) {
+            failures.incrementAndGet();
+            throw e;
+        }
+
+        int status = response.statusCode();
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+        if (status >= 300 && status < 400) {
+            response.body().close();
+            // 304 has no Location, so its null body ends the redirect loop in get()
+            return new Response(status, uri.toString(), null,
+                    response.headers().firstValue("Location").orElse(null), false, etag, lastModified);
+        }
+
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+        if (textOnly && !isText(contentType)) {
+            response.body().close();
+            return new Response(status, uri.toString(), contentType, "", false, etag, lastModified);
+        }
+
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("").toLowerCase(Locale.ROOT);
+        try (InputStream raw = response.body();
+             InputStream in = encoding.contains("gzip") ? new GZIPInputStream(raw)
+                     : encoding.contains("deflate") ? new InflaterInputStream(raw) : raw) {
+            int cap = textOnly ? maxResponseBytes : ROBOTS_MAX_BYTES;
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.min(cap, 64 * 1024));
+            byte[] buffer = new byte[8192];
+            boolean cut = false;
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                int room = cap - out.size();
+                if (n >= room) {
+                    out.write(buffer, 0, room);
+                    cut = true;
+                    break;
+                }
+                out.write(buffer, 0, n);
+            }
+            bytesRead.addAndGet(out.size());
+            if (cut) truncated.incrementAndGet();
+            return new Response(status, uri.toString(), contentType, out.toString(charsetOf(contentType)), cut,
+                    etag, lastModified);
+        }
+    }
+
+    private HostState crawlHost(URI uri) {
+        return hostState(crawlHosts, uri, crawlRequestsPerSecond, crawlConcurrencyPerHost);
+    }
+
+    private HostState apiHost(URI uri) {
+        return hostState(apiHosts, uri, apiRequestsPerSecond, apiConcurrencyPerHost);
+    }
+
+    private static HostState hostState(LruCache<String, HostState> hosts, URI uri, double rate, int concurrency) {
+        String key = uri.getHost() != null ? uri.getHost().toLowerCase(Locale.ROOT) : "";
+        synchronized (hosts) {
+            HostState state = hosts.get(key);
+            if (state == null) {
+                state = new HostState(rate, concurrency);
+                hosts.put(key, state);
+            }
+            return state;
+        }
+    }
+
+    private RobotsRules fetchRobots(URI uri) throws InterruptedException {
+        URI robotsUri = URI.create(uri.getScheme() + "://" + uri.getRawAuthority() + "/robots.txt");
+        try {
+            Response response = execute(robotsUri, false);
+            // Follow one redirect, typically http -> https or to the www host
+            if (response.status() >= 300 && response.status() < 400 && response.body() != null) {
+                response = execute(robotsUri.resolve(response.body().trim()), false);
+            }
+            if (response.isOk()) {
+                return RobotsRules.parse(response.body(), ROBOTS_AGENT);
+            }
+            if (response.status() >= 500) {
+                // Server trouble: assume the site wants no crawling for now, and ask again soon
+                return RobotsRules.disallowAll(ROBOTS_ERROR_TTL_MS);
+            }
+            return RobotsRules.allowAll();
+        } catch (IOException e) {
+            return RobotsRules.allowAll(ROBOTS_ERROR_TTL_MS);
+        }
+    }
+
+    private static URI toUri(String url) throws IOException {
+        String normalized = url.trim();
+        if (!normalized.startsWith("http")) {
+            normalized = "https://" + normalized;
+        }
+        try {
+            URI uri = URI.create(normalized);
+            if (uri.getHost() == null) throw new IOException("No host in URL: " + url);
+            return uri;
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid URL: " + url, e);
+        }
+    }
+
+    private static String pathOf(URI uri) {
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        return uri.getRawQuery() != null ? path + "?" + uri.getRawQuery() : path;
+    }
+
+    private static boolean isText(String contentType) {
+        if (contentType.isEmpty()) return true;
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith("text/") || type.contains("html") || type.contains("xml") || type.contains("json");
+    }
+
+    private static Charset charsetOf(String contentType) {
+        Matcher m = CHARSET.matcher(contentType);
+        if (m.find()) {
+            try {
+                return Charset.forName(m.group(1));
+            } catch (Exception e) {
+                // fall through to UTF-8
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    @FunctionalInterface
+    private interface HostCall<T> {
+        T call() throws IOException, InterruptedException;
+    }
+
+    /**
+     * Per-host politeness state: a token bucket, a concurrency limit and the cached robots rules.
+     */
+    private static class HostState {
+        private final double requestsPerSecond;
+        private volatile RateLimiter rateLimiter;
+        private final Semaphore permits;
+        private volatile RobotsRules robots;
+        private volatile long robotsExpiresAt;
+
+        HostState(double requestsPerSecond, int concurrency) {
+            this.requestsPerSecond = requestsPerSecond;
+            this.rateLimiter = new RateLimiter(requestsPerSecond, Math.max(1, concurrency));
+            this.permits = new Semaphore(Math.max(1, concurrency));
+        }
+
+        <T> T call(HostCall<T> call) throws IOException, InterruptedException {
+            permits.acquire();
+            try {
+                rateLimiter.acquire();
+                return call.call();
+            } finally {
+                permits.release();
+            }
+        }
+
+        RobotsRules robots(OutboundHttpService owner, URI uri) throws IOException, InterruptedException {
+            RobotsRules rules = robots;
+            if (rules != null && System.currentTimeMillis() < robotsExpiresAt) {
+                return rules;
+            }
+            synchronized (this) {
+                if (robots == null || System.currentTimeMillis() >= robotsExpiresAt) {
+                    RobotsRules fetched = call(() -> owner.fetchRobots(uri));
+                    long ttl = fetched.ttlMs() > 0 ? fetched.ttlMs() : Duration.ofHours(owner.robotsTtlHours).toMillis();
+                    if (fetched.crawlDelaySeconds() > 0) {
+                        double rate = Math.min(requestsPerSecond, 1.0 / fetched.crawlDelaySeconds());
+                        rateLimiter = new RateLimiter(rate, 1);
+                    }
+                    robots = fetched;
+                    robotsExpiresAt = System.currentTimeMillis() + ttl;
+                }
+                return robots;
+            }
+        }
+    }
+
+    /**
+     * The Allow/Disallow rules of the robots.txt group that applies to us. The longest matching
+     * pattern wins and Allow wins ties; '*' and a trailing '$' are supported.
+     */
+    record RobotsRules(List<Rule> rules, double crawlDelaySeconds, long ttlMs) {
+
+        record Rule(Pattern pattern, int length, boolean allow) {}
+
+        static RobotsRules allowAll() {
+            return new RobotsRules(List.of(), 0, 0);
+        }
+
+        static RobotsRules allowAll(long ttlMs) {
+            return new RobotsRules(List.of(), 0, ttlMs);
+        }
+
+        static RobotsRules disallowAll(long ttlMs) {
+            return new RobotsRules(List.of(new Rule(Pattern.compile("/.*"), 1, false)), 0, ttlMs);
+        }
+
+        boolean allows(String path) {
+            Rule best = null;
+            for (Rule rule : rules) {
+                if (rule.pattern().matcher(path).lookingAt()
+                        && (best == null || rule.length() > best.length()
+                            || (rule.length() == best.length() && rule.allow()))) {
+                    best = rule;
+                }
+            }
+            return best == null || best.allow();
+        }
+
+        static RobotsRules parse(String text, String agent) {
+            List<Rule> ours = new ArrayList<>();
+            List<Rule> wildcard = new ArrayList<>();
+            double oursDelay = 0, wildcardDelay = 0;
+            boolean matchedOurs = false;
+
+            List<String> groupAgents = new ArrayList<>();
+            boolean inRules = false;
+            for (String rawLine : text.split("\\r?\\n")) {
+                String line = rawLine.replaceFirst("#.*", "").trim();
+                int colon = line.indexOf(':');
+                if (colon < 0) continue;
+                String field = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                String value = line.substring(colon + 1).trim();
+
+                if (field.equals("user-agent")) {
+                    if (inRules) {
+                        groupAgents.clear();
+                        inRules = false;
+                    }
+                    groupAgents.add(value.toLowerCase(Locale.ROOT));
+                    continue;
+                }
+                if (groupAgents.isEmpty()) continue;
+                inRules = true;
+
+                boolean forUs = groupAgents.stream().anyMatch(a -> !a.equals("*") && agent.contains(a));
+                boolean forAll = groupAgents.contains("*");
+                if (!forUs && !forAll) continue;
+                matchedOurs |= forUs;
+
+                switch (field) {
+                    case "allow", "disallow" -> {
+                        if (value.isEmpty()) continue;
+                        Rule rule = new Rule(toPattern(value), value.length(), field.equals("allow"));
+                        if (forUs) ours.add(rule);
+                        else wildcard.add(rule);
+                    }
+                    case "crawl-delay" -> {
+                        try {
+                            double delay = Math.min(60, Double.parseDouble(value));
+                            if (forUs) oursDelay = delay;
+                            else wildcardDelay = delay;
+                        } catch (NumberFormatException e) {
+                            // ignore malformed delays
+                        }
+                    }
+                    default -> { }
+                }
+            }
+            return matchedOurs
+                    ? new RobotsRules(ours, oursDelay, 0)
+                    : new RobotsRules(wildcard, wildcardDelay, 0);
+        }
+
+        private static Pattern toPattern(String value) {
+            boolean anchored = value.endsWith("$");
+            String body = anchored ? value.substring(0, value.length() - 1) : value;
+            StringBuilder regex = new StringBuilder();
+            for (String part : body.split("\\*", -1)) {
+                if (regex.length() > 0) regex.append(".*");
+                regex.append(Pattern.quote(part));
+            }
+            if (anchored) regex.append("$");
+            return Pattern.compile(regex.toString());
+        }
+    }
+}
@@ -229,8 +229,7 @@ public class ProjectParserService {
     public ProjectParseResult parseFromText(String description) {
         log.info("Parsing project description (no prices): {}", description.substring(0, Math.min(100, description.length())));
 
-        String prompt = PARSE_PROMPT + description;
-        String response = anthropicService.callClaude(prompt);
+        String response = anthropicService.callClaude(PARSE_PROMPT, description);
 
         if (response == null) {
             log.error("Failed to get response from Claude API");
@@ -334,18 +333,17 @@ public class ProjectParserService {
 
         log.info("Processing file: {} (type: {}, size: {} bytes)", filename, file.getContentType(), file.getSize());
 
-        // SHA-256 cache check
-        byte[] fileBytes = file.getBytes();
-        String sha256 = fileHashCacheService.computeSha256(fileBytes);
-        Optional<String> cachedJson = fileHashCacheService.getCachedResult(sha256, "parse_file");
-        if (cachedJson.isPresent()) {
-            try {
-                ProjectParseResult cached = objectMapper.readValue(cachedJson.get(), ProjectParseResult.class);
+        // SHA-256 cache check, streamed from the spooled upload
+        String sha256 = fileHashCacheService.computeSha256(file);
+        try {
+            Optional<ProjectParseResult> cached =
+                    fileHashCacheService.getCachedValue(sha256, "parse_file", ProjectParseResult.class);
+            if (cached.isPresent()) {
                 log.info("Returning cached parse result for file {} (sha256={})", filename, sha256.substring(0, 12));
-                return cached;
-            } catch (Exception e) {
-                log.warn("Failed to deserialize cached result, re-parsing: {}", e.getMessage());
+                return cached.get();
             }
+        } catch (Exception e) {
+            log.warn("Failed to deserialize cached result, re-parsing: {}", e.getMessage());
         }
 
         // Handle different file types
@@ -402,9 +400,8 @@ public class ProjectParserService {
 
     private void cacheParseResult(String sha256, ProjectParseResult result) {
         try {
-            String json = objectMapper.writeValueAsString(result);
             String promptHash = fileHashCacheService.computePromptHash("parse_file");
-            fileHashCacheService.cacheResult(sha256, "parse_file", promptHash, json, 24);
+            fileHashCacheService.cacheValue(sha256, "parse_file", promptHash, result, 24);
         } catch (Exception e) {
             log.warn("Failed to cache parse result: {}", e.getMessage());
         }
@@ -464,12 +461,12 @@ public class ProjectParserService {
         String visionResponse;
         if (pageImages.size() == 1) {
             visionResponse = anthropicService.callClaudeVision(
-                pageImages.get(0), "image/png", VISION_PROMPT
+                pageImages.get(0), "image/png", VISION_PROMPT, null
             );
         } else {
             visionResponse = anthropicService.callClaudeVisionMultiple(
-                pageImages, mediaTypes,
-                VISION_PROMPT + "\n\nThis document has " + pageCount + " pages. Analyze all pages together."
+                pageImages, mediaTypes, VISION_PROMPT,
+                "This document has " + pageCount + " pages. Analyze all pages together."
             );
         }
 
@@ -489,7 +486,7 @@ public class ProjectParserService {
         byte[] imageBytes = file.getBytes();
         String mediaType = getMediaType(file.getOriginalFilename());
 
-        String visionResponse = anthropicService.callClaudeVision(imageBytes, mediaType, VISION_PROMPT);
+        String visionResponse = anthropicService.callClaudeVision(imageBytes, mediaType, VISION_PROMPT, null);
 
         if (visionResponse != null) {
             String description = "Ehitusplaanilt/fotolt tuvastatud (Vision AI):\n\n" + visionResponse;
@@ -990,7 +987,7 @@ public class ProjectParserService {
         byte[] imageBytes = Files.readAllBytes(imageFile);
         String mediaType = getMediaType(originalName);
 
-        String visionResponse = anthropicService.callClaudeVision(imageBytes, mediaType, VISION_PROMPT);
+        String visionResponse = anthropicService.callClaudeVision(imageBytes, mediaType, VISION_PROMPT, null);
         if (visionResponse != null) {
             return "Pilt analüüsitud (Vision AI):\n" + visionResponse;
         }
@@ -1377,12 +1374,12 @@ public class ProjectParserService {
             String visionResponse;
             if (pageImages.size() == 1) {
                 visionResponse = anthropicService.callClaudeVision(
-                    pageImages.get(0), mediaTypes.get(0), PIPE_SYSTEM_PROMPT
+                    pageImages.get(0), mediaTypes.get(0), PIPE_SYSTEM_PROMPT, null
                 );
             } else {
                 visionResponse = anthropicService.callClaudeVisionMultiple(
-                    pageImages, mediaTypes,
-                    PIPE_SYSTEM_PROMPT + "\n\nThis document has " + pageImages.size() + " pages. Analyze all pages together."
+                    pageImages, mediaTypes, PIPE_SYSTEM_PROMPT,
+                    "This document has " + pageImages.size() + " pages. Analyze all pages together."
                 );
             }
 
@@ -19,7 +19,7 @@ import java.util.stream.Collectors;
 @Service
 @Slf4j
 @RequiredArgsConstructor
-public class QuoteComparisonService {
+public class QuoteComparisonService implements LlmBatchResultHandler {
 
     private final BidRepository bidRepository;
     private final RfqCampaignRepository campaignRepository;
@@ -30,8 +30,60 @@ public class QuoteComparisonService {
     private final NegotiationTargetRepository negotiationTargetRepository;
     private final AnthropicService anthropicService;
     private final AiCacheService aiCacheService;
+    private final LlmBatchService llmBatchService;
     private final ObjectMapper objectMapper;
 
+    private static final String BID_ANALYSIS_PURPOSE = "bid-analysis";
+    private static final int BID_ANALYSIS_CACHE_HOURS = 6;
+
+    private static final String COMPARISON_PROMPT = """
+        You are a construction procurement analyst comparing supplier bids for an Estonian construction project.
+
+        Use a WEIGHTED scoring system to evaluate each bid:
+        - Price competitiveness: 35%
+        - Completeness of bid: 20%
+        - Timeline/schedule: 15%
+        - Company quality (years, risk score, reliability): 15%
+        - Terms and conditions: 10%
+        - Response quality: 5%
+
+        For each bid, also analyze line items against market rates where possible.
+
+        Provide analysis as JSON:
+        {
+          "rankings": [
+            {
+              "supplierName": "str",
+              "bidId": "uuid",
+              "rank": 1,
+              "score": 85,
+              "weightedScore": 82.5,
+              "completeness": 90.0,
+              "priceAssessment": "FAIR|OVERPRICED|UNDERPRICED|GREAT_DEAL",
+              "reason": "str",
+              "redFlags": ["str"],
+              "lineItemAnalysis": [
+                {"item": "str", "bidPrice": 0, "marketPrice": 0, "assessment": "str"}
+              ]
+            }
+          ],
+          "bestValue": "supplier name",
+          "riskFlags": [{"supplierName": "str", "flag": "str"}],
+          "recommendation": "detailed recommendation text",
+          "priceSpread": {"min": 0, "max": 0, "median": 0, "marketAssessment": "str"},
+          "negotiationTargets": [
+            {
+              "supplierName": "str",
+              "bidId": "uuid",
+              "targetPrice": 0,
+              "discountPercent": 0,
+              "reasoning": "str",
+              "leverage": "str"
+            }
+          ]
+        }
+        """;
+
     @Transactional
     public ComparisonResultDto compareBids(UUID campaignId) {
         RfqCampaign campaign = campaignRepository.findById(campaignId)
@@ -76,53 +128,6 @@ public class QuoteComparisonService {
             prompt.append("\n");
         }
 
-        prompt.append("""
-
-            Use a WEIGHTED scoring system to evaluate each bid:
-            - Price competitiveness: 35%
-            - Completeness of bid: 20%
-            - Timeline/schedule: 15%
-            - Company quality (years, risk score, reliability): 15%
-            - Terms and conditions: 10%
-            - Response quality: 5%
-
-            For each bid, also analyze line items against market rates where possible.
-
-            Provide analysis as JSON:
-            {
-              "rankings": [
-                {
-                  "supplierName": "str",
-                  "bidId": "uuid",
-                  "rank": 1,
-                  "score": 85,
-                  "weightedScore": 82.5,
-                  "completeness": 90.0,
-                  "priceAssessment": "FAIR|OVERPRICED|UNDERPRICED|GREAT_DEAL",
-                  "reason": "str",
-                  "redFlags": ["str"],
-                  "lineItemAnalysis": [
-                    {"item": "str", "bidPrice": 0, "marketPrice": 0, "assessment": "str"}
-                  ]
-                }
-              ],
-              "bestValue": "supplier name",
-              "riskFlags": [{"supplierName": "str", "flag": "str"}],
-              "recommendation": "detailed recommendation text",
-              "priceSpread": {"min": 0, "max": 0, "median": 0, "marketAssessment": "str"},
-              "negotiationTargets": [
-                {
-                  "supplierName": "str",
-                  "bidId": "uuid",
-                  "targetPrice": 0,
-                  "discountPercent": 0,
-                  "reasoning": "str",
-                  "leverage": "str"
-                }
-              ]
-            }
-            """);
-
         String promptStr = prompt.toString();
         Optional<String> cached = aiCacheService.getCached(promptStr, "comparison");
         String response;
@@ -130,7 +135,7 @@ public class QuoteComparisonService {
         if (cached.isPresent()) {
             response = cached.get();
         } else {
-            response = anthropicService.callClaude(promptStr);
+            response = anthropicService.callClaude(COMPARISON_PROMPT, promptStr);
             if (response != null) {
                 aiCacheService.cache(promptStr, "comparison", response, 4);
             }
@@ -180,9 +185,64 @@ public class QuoteComparisonService {
         Bid bid = bidRepository.findById(bidId)
                 .orElseThrow(() -> new RuntimeException("Bid not found"));
 
+        String prompt = buildBidAnalysisPrompt(bid);
+
+        Optional<String> cached = aiCacheService.getCached(prompt, BID_ANALYSIS_PURPOSE);
+        String response = cached.orElseGet(() -> {
+            String r = anthropicService.callClaude(prompt);
+            if (r != null) aiCacheService.cache(prompt, BID_ANALYSIS_PURPOSE, r, BID_ANALYSIS_CACHE_HOURS);
+            return r;
+        });
+
+        return applyBidAnalysis(bid, response);
+    }
+
+    /**
+     * Queue analyses for every bid in a campaign through message batches.
+     * Bids with a cached analysis are stored immediately.
+     */
+    @Transactional
+    public Map<String, Object> queueCampaignBidAnalyses(UUID campaignId) {
+        RfqCampaign campaign = campaignRepository.findById(campaignId)
+                .orElseThrow(() -> new RuntimeException("Campaign not found"));
+
+        int queued = 0;
+        int fromCache = 0;
+        for (Bid bid : bidRepository.findByCampaignOrderBySubmittedAtDesc(campaign)) {
+            String prompt = buildBidAnalysisPrompt(bid);
+            Optional<String> cached = aiCacheService.getCached(prompt, BID_ANALYSIS_PURPOSE);
+            if (cached.isPresent()) {
+                applyBidAnalysis(bid, cached.get());
+                fromCache++;
+            } else if (llmBatchService.enqueue(BID_ANALYSIS_PURPOSE, bid.getId(), null, prompt, BID_ANALYSIS_CACHE_HOURS)) {
+                queued++;
+            }
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("campaignId", campaignId);
+        result.put("queued", queued);
+        result.put("fromCache", fromCache);
+        return result;
+    }
+
+    @Override
+    public Set<String> getBatchPurposes() {
+        return Set.of(BID_ANALYSIS_PURPOSE);
+    }
+
+    @Override
+    @Transactional
+    public void handleBatchResult(String purpose, UUID bidId, String response) {
+        bidRepository.findById(bidId).ifPresentOrElse(
+                bid -> applyBidAnalysis(bid, response),
+                () -> log.warn("Bid {} disappeared before batch analysis arrived", bidId));
+    }
+
+    private String buildBidAnalysisPrompt(Bid bid) {
         RfqCampaign campaign = bid.getCampaign();
 
-        String prompt = String.format("""
+        return String.format("""
             Deep analysis of a construction bid:
             Supplier: %s
             Price: EUR %s
@@ -203,16 +263,11 @@ public class QuoteComparisonService {
             }
             """, bid.getSupplierName(), bid.getPrice(), campaign.getCategory(),
                 campaign.getLocation(), bid.getTimelineDays(), bid.getNotes());
+    }
 
-        Optional<String> cached = aiCacheService.getCached(prompt, "bid-analysis");
-        String response = cached.orElseGet(() -> {
-            String r = anthropicService.callClaude(prompt);
-            if (r != null) aiCacheService.cache(prompt, "bid-analysis", r, 6);
-            return r;
-        });
-
+    private Map<String, Object> applyBidAnalysis(Bid bid, String response) {
         Map<String, Object> result = new HashMap<>();
-        result.put("bidId", bidId);
+        result.put("bidId", bid.getId());
         result.put("supplierName", bid.getSupplierName());
         result.put("price", bid.getPrice());
 
@@ -245,7 +300,7 @@ public class QuoteComparisonService {
         // Store analysis
         BidAnalysis analysis = BidAnalysis.builder()
                 .bid(bid)
-                .campaign(campaign)
+                .campaign(bid.getCampaign())
                 .analysisType(BidAnalysis.AnalysisType.PRICE_CHECK)
                 .analysisJson(response)
                 .summary((String) result.get("recommendation"))
@@ -53,7 +53,7 @@ public class QuoteParserService {
         if (cached.isPresent()) {
             response = cached.get();
         } else {
-            response = anthropicService.callClaude(QUOTE_PARSE_PROMPT + emailText);
+            response = anthropicService.callClaude(QUOTE_PARSE_PROMPT, emailText);
             if (response != null) {
                 aiCacheService.cache(cacheKey, "quote-parser", response);
             }
@@ -0,0 +1,544 @@
+package com.buildquote.service;
+
+import com.buildquote.util.OpenDataReader;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Bulk import of the public open-data dumps that EstonianRegistryService otherwise queries live,
+ * one company at a time: Business Register company data, Tax and Customs Board taxes paid /
+ * turnover / employees and tax debtors, and public procurement awards.
+ *
+ * Files (CSV, JSON or XML, optionally .gz/.zip) are dropped into {@code registry.open-data.dir}
+ * and streamed record by record into the registry_* tables (V25), upserting by registry code in
+ * JDBC batches. The dataset is recognised from the file name. Afterwards every supplier with a
+ * registry code is enriched with a set-based join against registry_company_facts, committed in
+ * chunks. Imports run in the background; {@link #getStatus()} reports their progress.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RegistryOpenDataService {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int ENRICH_CHUNK_SIZE = 1000;
+
+    private static final Pattern NON_DIGIT = Pattern.compile("\\D");
+    private static final Pattern YEAR = Pattern.compile("(?<!\\d)(20\\d{2})(?!\\d)");
+    private static final Pattern QUARTER = Pattern.compile(
+            "(?i)q([1-4])|(?<![a-z])(iv|iii|ii|i|[1-4])[ _.-]*(?:kv|kvartal)");
+    private static final List<DateTimeFormatter> DATE_FORMATS = List.of(
+            DateTimeFormatter.ofPattern("d.M.yyyy"),
+            DateTimeFormatter.ISO_LOCAL_DATE);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${registry.open-data.dir:data/registry}")
+    private String dataDir;
+
+    private final AtomicBoolean isRunning = new AtomicBoolean(false);
+    private volatile String currentRunId;
+    private volatile String currentStep = "IDLE";
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    public enum Dataset {
+        // Checked in order: "maksuvolglased" must not be taken for taxes paid
+        TAX_DEBT("volg", "debt"),
+        TAX_PERIODS("tasutud_maksud", "maksud", "taxes"),
+        PROCUREMENT("hange", "hanked", "procurement", "award"),
+        COMPANIES("rekvisiidid", "ettevotja", "ariregister", "compan");
+
+        private final String[] fileHints;
+
+        Dataset(String... fileHints) {
+            this.fileHints = fileHints;
+        }
+
+        static Dataset forFile(String fileName) {
+            String name = OpenDataReader.normalizeKey(fileName);
+            for (Dataset dataset : values()) {
+                for (String hint : dataset.fileHints) {
+                    if (name.contains(hint)) return dataset;
+                }
+            }
+            return null;
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("isRunning", isRunning.get());
+        status.put("runId", currentRunId);
+        status.put("currentStep", currentStep);
+        status.put("dataDir", Path.of(dataDir).toAbsolutePath().toString());
+        status.put("lastRun", lastRun);
+        status.put("tables", tableCounts());
+        return status;
+    }
+
+    /**
+     * Start importing every recognised file in the data directory, then refresh supplier
+     * enrichment, on a background thread. Returns the run id at once; follow the run with
+     * {@link #getStatus()}, which holds its result as lastRun when it is done.
+     */
+    public Map<String, Object> startImport() {
+        if (!isRunning.compareAndSet(false, true)) {
+            return Map.of("success", false, "error", "Already running", "runId", String.valueOf(currentRunId));
+        }
+        String runId = UUID.randomUUID().toString();
+        currentRunId = runId;
+        Thread worker = new Thread(() -> importAll(runId), "registry-import");
+        worker.setDaemon(true);
+        worker.start();
+        return Map.of("success", true, "runId", runId, "message", "Registry open-data import started");
+    }
+
+    private void importAll(String runId) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        LocalDateTime startedAt = LocalDateTime.now();
+        result.put("runId", runId);
+        result.put("startedAt", startedAt);
+        try {
+            Path dir = Path.of(dataDir);
+            if (!Files.isDirectory(dir)) {
+                result.put("success", false);
+                result.put("error", "Open-data directory not found: " + dir.toAbsolutePath());
+                return;
+            }
+
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(dir)) {
+                files = listing.filter(Files::isRegularFile)
+                        .filter(f -> OpenDataReader.isSupported(f.getFileName().toString()))
+                        .sorted()
+                        .toList();
+            }
+
+            Timestamp runStart = Timestamp.valueOf(startedAt);
+            List<Map<String, Object>> imported = new ArrayList<>();
+            List<String> skipped = new ArrayList<>();
+            for (Path file : files) {
+                Dataset dataset = Dataset.forFile(file.getFileName().toString());
+                if (dataset == null) {
+                    skipped.add(file.getFileName().toString());
+                    continue;
+                }
+                currentStep = "IMPORTING " + file.getFileName();
+                imported.add(importFile(file, dataset, runStart));
+            }
+            result.put("files", imported);
+            result.put("skippedFiles", skipped);
+            currentStep = "ENRICHING";
+            result.put("suppliersEnriched", enrichSuppliers());
+            result.put("success", true);
+        } catch (Exception e) {
+            log.error("Registry open-data import failed: {}", e.getMessage(), e);
+            result.put("success", false);
+            result.put("error", e.getMessage());
+        } finally {
+            result.put("completedAt", LocalDateTime.now());
+            lastRun = result;
+            currentStep = "IDLE";
+            isRunning.set(false);
+        }
+    }
+
+    /**
+     * Stream one file into its table. A failing file is reported and the run continues.
+     */
+    public Map<String, Object> importFile(Path file, Dataset dataset, Timestamp runStart) {
+        String fileName = file.getFileName().toString();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("file", fileName);
+        result.put("dataset", dataset.name());
+        long started = System.currentTimeMillis();
+        log.info("Importing {} as {}", fileName, dataset);
+
+        try {
+            Loader loader = switch (dataset) {
+                case COMPANIES -> companyLoader(fileName, runStart);
+                case TAX_PERIODS -> taxPeriodLoader(fileName, runStart);
+                case TAX_DEBT -> taxDebtLoader(fileName, runStart);
+                case PROCUREMENT -> procurementLoader(fileName, runStart);
+            };
+            long records = OpenDataReader.read(file, loader::accept);
+            loader.flush();
+
+            if (dataset == Dataset.TAX_DEBT) {
+                // The debtor list is a snapshot: whoever is no longer on it has paid
+                int cleared = jdbcTemplate.update("DELETE FROM registry_tax_debt WHERE imported_at < ?", runStart);
+                result.put("cleared", cleared);
+            }
+            result.put("records", records);
+            result.put("imported", loader.imported);
+            result.put("skipped", loader.skipped);
+        } catch (IOException | RuntimeException e) {
+            log.error("Import of {} failed: {}", fileName, e.getMessage());
+            result.put("error", e.getMessage());
+        }
+        result.put("millis", System.currentTimeMillis() - started);
+        log.info("Imported {}: {}", fileName, result);
+        return result;
+    }
+
+    /**
+     * Refresh the registry fields of company_enrichments for every supplier with a registry code,
+     * joined against the local tables and committed {@link #ENRICH_CHUNK_SIZE} suppliers at a
+     * time. The chunks run in bulk-load mode (V32), so the per-row directory refresh and cache
+     * NOTIFY triggers stay quiet: each chunk refreshes its directory rows in one statement, and
+     * one invalidation is published at the end.
+     */
+    public int enrichSuppliers() {
+        int updated = 0;
+        UUID after = new UUID(0, 0);
+        while (true) {
+            List<UUID> ids = jdbcTemplate.queryForList("""
+                SELECT id FROM suppliers
+                WHERE registry_code IS NOT NULL AND id > ?
+                ORDER BY id
+                LIMIT ?
+                """, UUID.class, after, ENRICH_CHUNK_SIZE);
+            if (ids.isEmpty()) break;
+            after = ids.get(ids.size() - 1);
+            Integer chunk = transactionTemplate.execute(tx -> enrichChunk(ids.toArray(new UUID[0])));
+            updated += chunk != null ? chunk : 0;
+        }
+
+        // Caches keyed on enrichment rows resync as for any oversized change (see V26)
+        jdbcTemplate.execute("""
+            SELECT pg_notify('cache_invalidation',
+                json_build_object('table', 'company_enrichments', 'op', 'UPDATE', 'overflow', true)::text)
+            """);
+        log.info("Enriched {} suppliers from registry open data", updated);
+        return updated;
+    }
+
+    /**
+     * A dataset that was never imported comes through registry_company_facts as NULL, so fields
+     * only overwrite what an earlier import or live lookup stored when there is a value, and the
+     * open-data summary is merged into registry_data_json under its own key.
+     */
+    private int enrichChunk(UUID[] supplierIds) {
+        jdbcTemplate.queryForObject("SELECT set_config('buildquote.bulk_load', 'on', true)", String.class);
+        int updated = jdbcTemplate.update("""
+            INSERT INTO company_enrichments (supplier_id, tax_debt, tax_debt_amount, years_in_business,
+                annual_revenue, employee_count, public_procurement_count, financial_trend,
+                registry_data_json, registry_checked_at, updated_at)
+            SELECT s.id, f.tax_debt, f.tax_debt_amount, f.years_in_business,
+                   f.annual_revenue, f.employee_count, f.public_procurement_count, f.financial_trend,
+                   jsonb_build_object('openData', jsonb_strip_nulls(jsonb_build_object(
+                       'status', f.status, 'registeredDate', f.registered_date)))::text,
+                   NOW(), NOW()
+            FROM suppliers s
+            JOIN registry_company_facts f ON f.registry_code = s.registry_code
+            WHERE s.id = ANY (?::uuid[])
+            ON CONFLICT (supplier_id) DO UPDATE SET
+                tax_debt = COALESCE(EXCLUDED.tax_debt, company_enrichments.tax_debt),
+                tax_debt_amount = COALESCE(EXCLUDED.tax_debt_amount, company_enrichments.tax_debt_amount),
+                years_in_business = COALESCE(EXCLUDED.years_in_business, company_enrichments.years_in_business),
+                annual_revenue = COALESCE(EXCLUDED.annual_revenue, company_enrichments.annual_revenue),
+                employee_count = COALESCE(EXCLUDED.employee_count, company_enrichments.employee_count),
+                public_procurement_count = COALESCE(EXCLUDED.public_procurement_count,
+                    company_enrichments.public_procurement_count),
+                financial_trend = COALESCE(EXCLUDED.financial_trend, company_enrichments.financial_trend),
+                registry_data_json = (COALESCE(NULLIF(company_enrichments.registry_data_json, ''), '{}')::jsonb
+                    || EXCLUDED.registry_data_json::jsonb)::text,
+                registry_checked_at = EXCLUDED.registry_checked_at,
+                updated_at = EXCLUDED.updated_at
+            """, (Object) supplierIds);
+        jdbcTemplate.queryForList("SELECT company_directory_refresh_suppliers(?::uuid[])", (Object) supplierIds);
+        return updated;
+    }
+
+    private Map<String, Object> tableCounts() {
+        Map<String, Object> counts = new LinkedHashMap<>();
+        jdbcTemplate.query("""
+            SELECT (SELECT COUNT(*) FROM registry_company) AS companies,
+                   (SELECT COUNT(*) FROM registry_tax_period) AS tax_periods,
+                   (SELECT COUNT(*) FROM registry_tax_debt) AS tax_debtors,
+                   (SELECT COUNT(*) FROM registry_procurement_award) AS procurement_awards
+            """, rs -> {
+            counts.put("companies", rs.getLong("companies"));
+            counts.put("taxPeriods", rs.getLong("tax_periods"));
+            counts.put("taxDebtors", rs.getLong("tax_debtors"));
+            counts.put("procurementAwards", rs.getLong("procurement_awards"));
+        });
+        return counts;
+    }
+
+    // ===== Dataset loaders =====
+
+    private Loader companyLoader(String fileName, Timestamp runStart) {
+        return new Loader("""
+            INSERT INTO registry_company (registry_code, name, legal_form, status, registered_date,
+                vat_number, address, county, emtak_code, source_file, imported_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (registry_code) DO UPDATE SET
+                name = COALESCE(EXCLUDED.name, registry_company.name),
+                legal_form = COALESCE(EXCLUDED.legal_form, registry_company.legal_form),
+                status = COALESCE(EXCLUDED.status, registry_company.status),
+                registered_date = COALESCE(EXCLUDED.registered_date, registry_company.registered_date),
+                vat_number = COALESCE(EXCLUDED.vat_number, registry_company.vat_number),
+                address = COALESCE(EXCLUDED.address, registry_company.address),
+                county = COALESCE(EXCLUDED.county, registry_company.county),
+                emtak_code = COALESCE(EXCLUDED.emtak_code, registry_company.emtak_code),
+                source_file = EXCLUDED.source_file,
+                imported_at = EXCLUDED.imported_at
+            """, 1, r -> {
+            String code = registryCode(field(r, "ariregistri_kood", "registrikood", "registry_code", "reg_code", "kood", "code"));
+            if (code == null) return null;
+            return new Object[]{
+                code,
+                field(r, "nimi", "arinimi", "ettevotja_nimi", "name"),
+                truncate(field(r, "ettevotja_oiguslik_vorm", "oiguslik_vorm", "oiguslik_vorm_tekstina", "legal_form"), 100),
+                status(field(r, "ettevotja_staatus", "staatus", "status", "ettevotja_staatus_tekstina", "staatus_tekstina")),
+                date(field(r, "ettevotja_esmakande_kpv", "esmakande_kpv", "esmaregistreerimise_kpv",
+                    "registreerimise_kpv", "registered_date", "registration_date")),
+                truncate(field(r, "kmkr_nr", "kmkr", "vat_number"), 20),
+                field(r, "ads_normaliseeritud_taisaadress", "ettevotja_aadress", "aadress", "address"),
+                truncate(field(r, "maakond", "county", "asukoha_ehak_tekstina"), 100),
+                truncate(field(r, "emtak_kood", "pohitegevusala_emtak_kood", "emtak", "emtak_code"), 10),
+                fileName,
+                runStart
+            };
+        });
+    }
+
+    private Loader taxPeriodLoader(String fileName, Timestamp runStart) {
+        String filePeriod = period(fileName);
+        return new Loader("""
+            INSERT INTO registry_tax_period (registry_code, period, state_taxes, labour_taxes, turnover,
+                employee_count, source_file, imported_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (registry_code, period) DO UPDATE SET
+                state_taxes = EXCLUDED.state_taxes,
+                labour_taxes = EXCLUDED.labour_taxes,
+                turnover = EXCLUDED.turnover,
+                employee_count = EXCLUDED.employee_count,
+                source_file = EXCLUDED.source_file,
+                imported_at = EXCLUDED.imported_at
+            """, 2, r -> {
+            String code = registryCode(field(r, "registrikood", "ariregistri_kood", "registry_code", "reg_code", "kood"));
+            if (code == null) return null;
+            String period = rowPeriod(r);
+            if (period == null) period = filePeriod;
+            if (period == null) {
+                throw new IllegalArgumentException("Cannot tell which quarter " + fileName
+                    + " covers; add a period column or name the file like tasutud_maksud_2024_q1.csv");
+            }
+            BigDecimal employees = decimal(field(r, "tootajate_arv", "tootajaid", "employees", "employee_count"));
+            return new Object[]{
+                code,
+                period,
+                decimal(field(r, "riiklikud_maksud", "state_taxes")),
+                decimal(field(r, "toojoumaksud_ja_maksed", "toojoumaksud", "labour_taxes")),
+                decimal(field(r, "kaive", "turnover")),
+                employees != null ? employees.intValue() : null,
+                fileName,
+                runStart
+            };
+        });
+    }
+
+    private Loader taxDebtLoader(String fileName, Timestamp runStart) {
+        return new Loader("""
+            INSERT INTO registry_tax_debt (registry_code, debt_amount, source_file, imported_at)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (registry_code) DO UPDATE SET
+                debt_amount = EXCLUDED.debt_amount,
+                source_file = EXCLUDED.source_file,
+                imported_at = EXCLUDED.imported_at
+            """, 1, r -> {
+            String code = registryCode(field(r, "registrikood", "ariregistri_kood", "registry_code", "reg_code", "kood"));
+            if (code == null) return null;
+            return new Object[]{
+                code,
+                decimal(field(r, "maksuvola_summa", "maksuvolg", "volg", "volgnevus", "summa", "debt_amount", "debt")),
+                fileName,
+                runStart
+            };
+        });
+    }
+
+    private Loader procurementLoader(String fileName, Timestamp runStart) {
+        long[] rowNumber = {0};
+        return new Loader("""
+            INSERT INTO registry_procurement_award (award_id, registry_code, contract_value, awarded_date,
+                source_file, imported_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (award_id, registry_code) DO UPDATE SET
+                contract_value = EXCLUDED.contract_value,
+                awarded_date = EXCLUDED.awarded_date,
+                source_file = EXCLUDED.source_file,
+                imported_at = EXCLUDED.imported_at
+            """, 2, r -> {
+            rowNumber[0]++;
+            String code = registryCode(field(r, "pakkuja_registrikood", "tarnija_registrikood", "eduka_pakkuja_registrikood",
+                "supplier_registry_code", "supplier_code", "registrikood", "registry_code"));
+            if (code == null) return null;
+            String awardId = field(r, "lepingu_id", "contract_id", "award_id", "hanke_viitenumber", "viitenumber",
+                "procurement_id", "id");
+            return new Object[]{
+                truncate(awardId != null ? awardId : fileName + "#" + rowNumber[0], 100),
+                code,
+                decimal(field(r, "lepingu_maksumus", "lepingu_summa", "maksumus", "contract_value", "value", "amount", "summa")),
+                date(field(r, "lepingu_solmimise_kpv", "solmimise_kpv", "solmimise_kuupaev", "award_date", "kuupaev", "date")),
+                fileName,
+                runStart
+            };
+        });
+    }
+
+    /**
+     * Buffers mapped rows and writes them with one JDBC batch per {@link #BATCH_SIZE} rows. Rows
+     * are keyed by their conflict key so a batch never upserts the same key twice.
+     */
+    private class Loader {
+        private final String sql;
+        private final Function<Map<String, String>, Object[]> mapper;
+        private final int keyColumns;
+        private final Map<String, Object[]> batch = new LinkedHashMap<>();
+        long imported;
+        long skipped;
+
+        /** The first {@code keyColumns} parameters of each row form its conflict key. */
+        Loader(String sql, int keyColumns, Function<Map<String, String>, Object[]> mapper) {
+            this.sql = sql;
+            this.keyColumns = keyColumns;
+            this.mapper = mapper;
+        }
+
+        void accept(Map<String, String> record) {
+            Object[] row = mapper.apply(record);
+            if (row == null) {
+                skipped++;
+                return;
+            }
+            String key = keyColumns == 1 ? (String) row[0] : row[0] + "|" + row[1];
+            batch.put(key, row);
+            if (batch.size() >= BATCH_SIZE) flush();
+        }
+
+        void flush() {
+            if (batch.isEmpty()) return;
+            jdbcTemplate.batchUpdate(sql, new ArrayList<>(batch.values()));
+            imported += batch.size();
+            batch.clear();
+        }
+    }
+
+    // ===== Field parsing =====
+
+    private static String field(Map<String, String> record, String... aliases) {
+        for (String alias : aliases) {
+            String value = record.get(alias);
+            if (value != null && !value.isBlank()) return value.trim();
+        }
+        return null;
+    }
+
+    /** Estonian registry codes are 8 digits; anything else is not a company row. */
+    private static String registryCode(String value) {
+        if (value == null) return null;
+        String digits = NON_DIGIT.matcher(value).replaceAll("");
+        return digits.length() == 8 ? digits : null;
+    }
+
+    /** Business Register status code: R registered, L in liquidation, N bankrupt, K deleted. */
+    private static String status(String value) {
+        if (value == null) return null;
+        String v = OpenDataReader.normalizeKey(value);
+        if (v.length() == 1) return v.toUpperCase(Locale.ROOT);
+        if (v.contains("kustutatud") || v.contains("deleted")) return "K";
+        if (v.contains("pankrot") || v.contains("bankrupt")) return "N";
+        if (v.contains("likvid")) return "L";
+        if (v.contains("kantud") || v.contains("registered")) return "R";
+        return truncate(value, 20);
+    }
+
+    private static Date date(String value) {
+        if (value == null) return null;
+        String v = value.length() > 10 && value.charAt(4) == '-' ? value.substring(0, 10) : value;
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return Date.valueOf(LocalDate.parse(v, format));
+            } catch (DateTimeParseException ignored) {
+                // try the next format
+            }
+        }
+        return null;
+    }
+
+    /** Accepts "1 234,56", "1234.56" and "1.234,56". */
+    private static BigDecimal decimal(String value) {
+        if (value == null) return null;
+        String v = value.replace(" ", "").replace("\u00a0", "");
+        int comma = v.lastIndexOf(',');
+        int dot = v.lastIndexOf('.');
+        if (comma >= 0 && dot >= 0) {
+            v = comma > dot ? v.replace(".", "").replace(',', '.') : v.replace(",", "");
+        } else if (comma >= 0) {
+            v = v.replace(',', '.');
+        }
+        try {
+            return new BigDecimal(v);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String rowPeriod(Map<String, String> record) {
+        String period = field(record, "periood", "period", "kvartal_aasta");
+        if (period != null) return period(period);
+        String year = field(record, "aasta", "year");
+        String quarter = field(record, "kvartal", "quarter");
+        return year != null && quarter != null ? period(year + " " + quarter + " kv") : null;
+    }
+
+    /** "2024-Q1" from texts like "tasutud_maksud_2024_i_kvartal.csv", "2024 Q1" or "2024 4 kv". */
+    private static String period(String text) {
+        Matcher year = YEAR.matcher(text);
+        Matcher quarter = QUARTER.matcher(text.toLowerCase(Locale.ROOT));
+        if (!year.find() || !quarter.find()) return null;
+        String q = quarter.group(1) != null ? quarter.group(1) : quarter.group(2);
+        int n = switch (q) {
+            case "i" -> 1;
+            case "ii" -> 2;
+            case "iii" -> 3;
+            case "iv" -> 4;
+            default -> Integer.parseInt(q);
+        };
+        return year.group(1) + "-Q" + n;
+    }
+
+    private static String truncate(String value, int max) {
+        return value == null || value.length() <= max ? value : value.substring(0, max);
+    }
+}
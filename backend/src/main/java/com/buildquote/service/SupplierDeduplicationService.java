@@ -0,0 +1,305 @@
+package com.buildquote.service;
+
+import com.buildquote.util.MinHash;
+import com.buildquote.util.UnionFind;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Fuzzy supplier deduplication.
+ *
+ * Suppliers are streamed from the database in id-ordered pages into compact records. Names
+ * are normalised (case, diacritics, legal-form suffixes, spacing), so "OÜ Ehitus Meister" and
+ * "Ehitusmeister OÜ" become the same string. Candidate pairs come from two kinds of blocking
+ * key: MinHash/LSH band keys over character shingles of the name, and exact phone, email,
+ * website-domain, registry-code and Google Place ID keys. Confirmed pairs are merged with
+ * union-find, so the whole run is roughly linear in the number of suppliers.
+ *
+ * In each cluster the supplier with the most contact data survives, takes over any contact
+ * fields it was missing, and the rest are deleted.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class SupplierDeduplicationService {
+
+    private static final int PAGE_SIZE = 5000;
+    private static final int SHINGLE_SIZE = 3;
+    private static final int LSH_BANDS = 16;
+    private static final int LSH_ROWS = 4;
+    // Buckets this large are generic names ("ehitus"); comparing them pairwise costs more than it finds
+    private static final int MAX_BUCKET_SIZE = 50;
+
+    // Name-only matches need near-identical names; a shared phone/email/domain needs less
+    private static final double NAME_THRESHOLD = 0.8;
+    private static final double CONTACT_NAME_THRESHOLD = 0.5;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}");
+    private static final Pattern LEGAL_FORMS = Pattern.compile(
+            "\\b(ou|oue|as|osauhing|aktsiaselts|mtu|fie|tu|uu|sa|ltd|llc|oy|ab|sia|uab|gmbh)\\b");
+    private static final Pattern NON_ALNUM = Pattern.compile("[^a-z0-9 ]");
+
+    // Shared mailbox providers say nothing about which company an address belongs to
+    private static final Set<String> FREE_MAIL_DOMAINS = Set.of(
+            "gmail.com", "hot.ee", "mail.ee", "hotmail.com", "outlook.com", "yahoo.com",
+            "icloud.com", "online.ee", "neti.ee", "zone.ee", "live.com", "inbox.lv");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final MinHash minHash = new MinHash(LSH_BANDS, LSH_ROWS, 42);
+
+    /**
+     * Find and merge duplicate suppliers. Returns the number of suppliers removed.
+     * Runs in one transaction, so the deletes and survivor updates land together or not at all.
+     */
+    @Transactional
+    public int deduplicate() {
+        long start = System.currentTimeMillis();
+        List<Candidate> suppliers = loadSuppliers();
+        int n = suppliers.size();
+
+        int[][] shingles = new int[n][];
+        for (int i = 0; i < n; i++) {
+            shingles[i] = MinHash.shingles(suppliers.get(i).nameKey(), SHINGLE_SIZE);
+        }
+
+        UnionFind clusters = new UnionFind(n);
+        // Registry code per cluster root; two different codes are two different companies
+        String[] rootRegistry = new String[n];
+        for (int i = 0; i < n; i++) {
+            rootRegistry[i] = suppliers.get(i).registryCode();
+        }
+
+        // Exact keys: registry code and place ID always merge, so joining each holder to the first is
+        // enough. Contacts need some name overlap, so every pair of holders of a key is compared.
+        Map<String, Integer> firstByKey = new HashMap<>();
+        Map<String, List<Integer>> contactBuckets = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            Candidate c = suppliers.get(i);
+            for (String key : c.identityKeys()) {
+                Integer other = firstByKey.putIfAbsent(key, i);
+                if (other != null) {
+                    merge(clusters, rootRegistry, other, i);
+                }
+            }
+            for (String key : c.contactKeys()) {
+                contactBuckets.computeIfAbsent(key, k -> new ArrayList<>(2)).add(i);
+            }
+        }
+        long comparisons = compareBuckets(contactBuckets.values(), shingles, clusters, rootRegistry, CONTACT_NAME_THRESHOLD);
+
+        // Name LSH: bucket by band key, confirm with the exact shingle Jaccard
+        Map<Long, List<Integer>> buckets = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            if (shingles[i].length == 0) continue;
+            for (long key : minHash.bandKeys(minHash.signature(shingles[i]))) {
+                buckets.computeIfAbsent(key, k -> new ArrayList<>(2)).add(i);
+            }
+        }
+        comparisons += compareBuckets(buckets.values(), shingles, clusters, rootRegistry, NAME_THRESHOLD);
+
+        int removed = resolveClusters(suppliers, clusters);
+        log.info("Deduplicated {} suppliers in {}ms: {} comparisons, {} removed",
+                n, System.currentTimeMillis() - start, comparisons, removed);
+        return removed;
+    }
+
+    /**
+     * Compare every pair within each bucket and merge those whose names are similar enough.
+     * Returns the number of comparisons made.
+     */
+    private long compareBuckets(Collection<List<Integer>> buckets, int[][] shingles, UnionFind clusters,
+                                String[] rootRegistry, double threshold) {
+        long comparisons = 0;
+        for (List<Integer> bucket : buckets) {
+            if (bucket.size() < 2 || bucket.size() > MAX_BUCKET_SIZE) continue;
+            for (int x = 0; x < bucket.size(); x++) {
+                for (int y = x + 1; y < bucket.size(); y++) {
+                    int a = bucket.get(x), b = bucket.get(y);
+                    if (clusters.connected(a, b)) continue;
+                    comparisons++;
+                    if (MinHash.jaccard(shingles[a], shingles[b]) >= threshold) {
+                        merge(clusters, rootRegistry, a, b);
+                    }
+                }
+            }
+        }
+        return comparisons;
+    }
+
+    private void merge(UnionFind clusters, String[] rootRegistry, int a, int b) {
+        int ra = clusters.find(a), rb = clusters.find(b);
+        if (ra == rb) return;
+        String regA = rootRegistry[ra], regB = rootRegistry[rb];
+        if (regA != null && regB != null && !regA.equals(regB)) return;
+
+        int root = clusters.union(ra, rb);
+        rootRegistry[root] = regA != null ? regA : regB;
+    }
+
+    private int resolveClusters(List<Candidate> suppliers, UnionFind clusters) {
+        Map<Integer, List<Candidate>> byRoot = new HashMap<>();
+        for (int i = 0; i < suppliers.size(); i++) {
+            byRoot.computeIfAbsent(clusters.find(i), k -> new ArrayList<>(1)).add(suppliers.get(i));
+        }
+
+        List<Object[]> survivorUpdates = new ArrayList<>();
+        List<UUID> toDelete = new ArrayList<>();
+        for (List<Candidate> cluster : byRoot.values()) {
+            if (cluster.size() < 2) continue;
+            cluster.sort(Comparator.comparingInt(Candidate::contactScore).reversed()
+                    .thenComparing(Candidate::id));
+            Candidate keep = cluster.get(0);
+
+            String email = keep.email(), phone = keep.phone(), website = keep.website(), registry = keep.registryCode();
+            for (int i = 1; i < cluster.size(); i++) {
+                Candidate dup = cluster.get(i);
+                if (email == null) email = dup.email();
+                if (phone == null) phone = dup.phone();
+                if (website == null) website = dup.website();
+                if (registry == null) registry = dup.registryCode();
+                toDelete.add(dup.id());
+            }
+            if (!Objects.equals(email, keep.email()) || !Objects.equals(phone, keep.phone())
+                    || !Objects.equals(website, keep.website()) || !Objects.equals(registry, keep.registryCode())) {
+                survivorUpdates.add(new Object[]{email, phone, website, registry, keep.id()});
+            }
+        }
+
+        // Delete first: the registry code moves from a duplicate to the survivor
+        for (int i = 0; i < toDelete.size(); i += PAGE_SIZE) {
+            List<UUID> chunk = toDelete.subList(i, Math.min(toDelete.size(), i + PAGE_SIZE));
+            jdbcTemplate.update("DELETE FROM suppliers WHERE id = ANY (?)",
+                    (Object) chunk.toArray(new UUID[0]));
+        }
+        if (!survivorUpdates.isEmpty()) {
+            jdbcTemplate.batchUpdate("""
+                    UPDATE suppliers SET email = ?, phone = ?, website = ?, registry_code = ?, updated_at = NOW()
+                    WHERE id = ?
+                    """, survivorUpdates);
+        }
+        return toDelete.size();
+    }
+
+    /**
+     * Stream suppliers in id order, keeping only what deduplication needs.
+     */
+    private List<Candidate> loadSuppliers() {
+        List<Candidate> result = new ArrayList<>();
+        UUID after = null;
+        while (true) {
+            List<Candidate> page = after == null
+                    ? jdbcTemplate.query(
+                        "SELECT id, company_name, registry_code, google_place_id, email, phone, website, address, google_rating " +
+                        "FROM suppliers ORDER BY id LIMIT ?", (rs, i) -> mapCandidate(rs), PAGE_SIZE)
+                    : jdbcTemplate.query(
+                        "SELECT id, company_name, registry_code, google_place_id, email, phone, website, address, google_rating " +
+                        "FROM suppliers WHERE id > ? ORDER BY id LIMIT ?", (rs, i) -> mapCandidate(rs), after, PAGE_SIZE);
+            result.addAll(page);
+            if (page.size() < PAGE_SIZE) break;
+            after = page.get(page.size() - 1).id();
+        }
+        return result;
+    }
+
+    private static Candidate mapCandidate(java.sql.ResultSet rs) throws java.sql.SQLException {
+        return new Candidate(
+                rs.getObject("id", UUID.class),
+                normalizeName(rs.getString("company_name")),
+                blankToNull(rs.getString("registry_code")),
+                blankToNull(rs.getString("google_place_id")),
+                blankToNull(rs.getString("email")),
+                blankToNull(rs.getString("phone")),
+                blankToNull(rs.getString("website")),
+                rs.getString("address") != null && !rs.getString("address").isEmpty(),
+                rs.getBigDecimal("google_rating"));
+    }
+
+    /**
+     * Lowercase, strip diacritics and legal-form words, and drop spacing, so word order around
+     * the legal form and split/joined words don't matter.
+     */
+    public static String normalizeName(String name) {
+        if (name == null) return "";
+        String s = Normalizer.normalize(name.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        s = DIACRITICS.matcher(s).replaceAll("");
+        s = NON_ALNUM.matcher(s).replaceAll(" ");
+        s = LEGAL_FORMS.matcher(s).replaceAll(" ");
+        return s.replaceAll("\\s+", "");
+    }
+
+    static String normalizePhone(String phone) {
+        String digits = phone.replaceAll("\\D", "");
+        if (digits.startsWith("372") && digits.length() > 8) {
+            digits = digits.substring(3);
+        }
+        return digits.length() >= 7 ? digits : null;
+    }
+
+    static String domainOf(String emailOrUrl) {
+        String s = emailOrUrl.toLowerCase(Locale.ROOT).trim();
+        int at = s.lastIndexOf('@');
+        if (at >= 0) {
+            s = s.substring(at + 1);
+        } else {
+            s = s.replaceFirst("^[a-z]+://", "");
+            int slash = s.indexOf('/');
+            if (slash >= 0) s = s.substring(0, slash);
+        }
+        if (s.startsWith("www.")) s = s.substring(4);
+        return s.isEmpty() || FREE_MAIL_DOMAINS.contains(s) ? null : s;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private record Candidate(UUID id, String nameKey, String registryCode, String placeId,
+                             String email, String phone, String website, boolean hasAddress,
+                             BigDecimal googleRating) {
+
+        // Same scoring BatchHarvestService used to pick the supplier to keep
+        int contactScore() {
+            int score = 0;
+            if (email != null) score += 3;
+            if (phone != null) score += 2;
+            if (website != null) score += 1;
+            if (hasAddress) score += 1;
+            if (googleRating != null) score += 1;
+            return score;
+        }
+
+        List<String> identityKeys() {
+            List<String> keys = new ArrayList<>(2);
+            if (registryCode != null) keys.add("reg:" + registryCode);
+            if (placeId != null) keys.add("place:" + placeId);
+            return keys;
+        }
+
+        List<String> contactKeys() {
+            List<String> keys = new ArrayList<>(3);
+            if (phone != null) {
+                String p = normalizePhone(phone);
+                if (p != null) keys.add("phone:" + p);
+            }
+            if (email != null) {
+                keys.add("email:" + email.toLowerCase(Locale.ROOT));
+                String d = domainOf(email);
+                if (d != null) keys.add("domain:" + d);
+            }
+            if (website != null) {
+                String d = domainOf(website);
+                if (d != null && (email == null || !d.equals(domainOf(email)))) keys.add("domain:" + d);
+            }
+            return keys;
+        }
+    }
+}
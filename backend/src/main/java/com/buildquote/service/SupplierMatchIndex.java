@@ -0,0 +1,557 @@
+package com.buildquote.service;
+
+import com.buildquote.util.GeoPoint;
+import com.buildquote.util.SpatialGrid;
+import com.buildquote.util.SqlArrays;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Memory-resident index for supplier matching.
+ *
+ * Every supplier gets a dense ordinal. Category, city and service-area membership are
+ * bitsets over those ordinals; the scoring inputs that don't depend on the query
+ * (response history, risk, financial health, tax debt) are precomputed into primitive
+ * arrays. A category + location query is then a bitset walk and a top-K heap, with no
+ * database access. Rows are reloaded individually when the invalidation bus reports a
+ * change to suppliers or company_enrichments.
+ *
+ * Supplier coordinates sit in a uniform grid, so suppliers within the matching radius of a
+ * project are found by visiting a handful of cells. Location scores decay with distance.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class SupplierMatchIndex implements CacheInvalidationListener {
+
+    private static final String SUPPLIER_SQL = """
+        SELECT s.id, s.company_name, s.email, s.categories, s.city, s.county, s.service_areas,
+               s.emtak_code, s.google_rating, s.is_verified, s.total_rfqs_sent, s.total_bids_received,
+               s.latitude, s.longitude, e.risk_score, e.tax_debt
+        FROM suppliers s
+        LEFT JOIN company_enrichments e ON e.supplier_id = s.id
+        """;
+
+    // ~25 km cells at Estonian latitudes
+    private static final double GRID_CELL_KM = 25;
+    private static final double GRID_REFERENCE_LATITUDE = 58.7;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GazetteerService gazetteerService;
+
+    @Value("${matching.location.radius-km:50}")
+    private double radiusKm;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Ordinal-keyed columns
+    private final Map<UUID, Integer> ordinals = new HashMap<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    private int capacity;
+    private int highWater;
+    private UUID[] ids;
+    private String[] names;
+    private String[] emails;
+    private String[][] categories;
+    private String[] cities;
+    private String[][] serviceAreas;
+    private byte[] responseScores;
+    private byte[] riskScores;
+    private byte[] financialScores;
+    private float[] latitudes;
+    private float[] longitudes;
+
+    private final BitSet live = new BitSet();
+    private final BitSet hasCategories = new BitSet();
+    private final BitSet hasEmtak = new BitSet();
+    private final BitSet hasCounty = new BitSet();
+    private final BitSet taxDebt = new BitSet();
+
+    private final Map<String, BitSet> byCategory = new HashMap<>();
+    private final Map<String, BitSet> byCity = new HashMap<>();
+    private final Map<String, BitSet> byServiceArea = new HashMap<>();
+    private final SpatialGrid grid = new SpatialGrid(GRID_CELL_KM, GRID_REFERENCE_LATITUDE);
+
+    @PostConstruct
+    void init() {
+        rebuild();
+    }
+
+    /**
+     * Full reload. Incremental updates keep the index current; this corrects any missed events.
+     */
+    @Scheduled(cron = "${supplier.match-index.rebuild-cron:0 20 4 * * *}")
+    public void rebuild() {
+        try {
+            long start = System.currentTimeMillis();
+            List<SupplierRow> rows = jdbcTemplate.query(SUPPLIER_SQL, (rs, i) -> mapRow(rs));
+
+            lock.writeLock().lock();
+            try {
+                reset(Math.max(64, rows.size() + rows.size() / 4));
+                for (SupplierRow row : rows) {
+                    put(row);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            log.info("Supplier match index built in {}ms: {} suppliers, {} categories, {} cities, {} service areas, {} grid cells",
+                    System.currentTimeMillis() - start, rows.size(), byCategory.size(), byCity.size(), byServiceArea.size(),
+                    grid.cellCount());
+        } catch (Exception e) {
+            log.warn("Failed to build supplier match index: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public Set<String> getInvalidationTables() {
+        return Set.of("suppliers", "company_enrichments");
+    }
+
+    @Override
+    public void onInvalidation(Event event) {
+        String idField = "suppliers".equals(event.table()) ? "id" : "supplier_id";
+        String id = event.newKeys().path(idField).asText(event.oldKeys().path(idField).asText(null));
+        if (id == null) return;
+        refresh(UUID.fromString(id));
+    }
+
+    @Override
+    public void onResync() {
+        rebuild();
+    }
+
+    /**
+     * Reload one supplier from the database, or drop it if it no longer exists.
+     */
+    public void refresh(UUID supplierId) {
+        List<SupplierRow> rows = jdbcTemplate.query(SUPPLIER_SQL + " WHERE s.id = ?", (rs, i) -> mapRow(rs), supplierId);
+
+        lock.writeLock().lock();
+        try {
+            remove(supplierId);
+            if (!rows.isEmpty()) {
+                put(rows.get(0));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Run a query against a consistent view of the index. All other read methods must be
+     * called from inside the body.
+     */
+    public <T> T read(Supplier<T> body) {
+        lock.readLock().lock();
+        try {
+            return body.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---- query primitives (call inside read) ----
+
+    public BitSet suppliersInCategory(String category) {
+        BitSet bits = byCategory.get(normalizeCategory(category));
+        return bits != null ? (BitSet) bits.clone() : new BitSet();
+    }
+
+    /**
+     * Suppliers whose city or one of whose service areas contains the location, matching the
+     * substring semantics of the original per-row scoring, plus suppliers within the matching
+     * radius of the location's coordinates. The point is geocoded from the location when not given.
+     */
+    public LocationMatch matchLocation(String location, GeoPoint point) {
+        if (location == null || location.isBlank()) {
+            return new LocationMatch(true, new BitSet(), new BitSet(), null, new BitSet());
+        }
+        String needle = location.toLowerCase();
+        if (point == null) {
+            point = gazetteerService.geocode(location).orElse(null);
+        }
+        return new LocationMatch(false, unionContaining(byCity, needle), unionContaining(byServiceArea, needle),
+                point, point != null ? suppliersWithin(point, radiusKm) : new BitSet());
+    }
+
+    public LocationMatch matchLocation(String location) {
+        return matchLocation(location, null);
+    }
+
+    /**
+     * Suppliers with coordinates within the radius of the point.
+     */
+    public BitSet suppliersWithin(GeoPoint point, double radius) {
+        BitSet result = grid.candidatesWithin(point.latitude(), point.longitude(), radius);
+        for (int ord = result.nextSetBit(0); ord >= 0; ord = result.nextSetBit(ord + 1)) {
+            if (point.distanceKm(latitudes[ord], longitudes[ord]) > radius) {
+                result.clear(ord);
+            }
+        }
+        return result;
+    }
+
+    public int categoryScore(int ordinal, String targetCategory, List<String> adjacent) {
+        if (!hasCategories.get(ordinal)) {
+            return hasEmtak.get(ordinal) ? 60 : 20;
+        }
+        if (isIn(byCategory, normalizeCategory(targetCategory), ordinal)) {
+            return 100;
+        }
+        for (String adj : adjacent) {
+            if (isIn(byCategory, normalizeCategory(adj), ordinal)) {
+                return 50;
+            }
+        }
+        return 10;
+    }
+
+    public int locationScore(int ordinal, LocationMatch location) {
+        if (location.blank()) return 50;
+        if (location.city().get(ordinal)) return 100;
+
+        int score = location.serviceArea().get(ordinal) ? 90 : 0;
+        if (location.point() != null && !Float.isNaN(latitudes[ordinal])) {
+            // Both ends geocoded: distance decides, not the county heuristic
+            if (location.nearby().get(ordinal)) {
+                double km = location.point().distanceKm(latitudes[ordinal], longitudes[ordinal]);
+                score = Math.max(score, distanceScore(km));
+            }
+            return Math.max(score, 20);
+        }
+        if (score > 0) return score;
+        if (hasCounty.get(ordinal)) return 40;
+        return 20;
+    }
+
+    /**
+     * 100 at the project, falling linearly to 60 at the edge of the matching radius.
+     */
+    private int distanceScore(double km) {
+        return (int) Math.round(100 - 40 * Math.min(1.0, km / radiusKm));
+    }
+
+    public int responseScore(int ordinal) {
+        return responseScores[ordinal];
+    }
+
+    public int riskScore(int ordinal) {
+        return riskScores[ordinal];
+    }
+
+    public int financialScore(int ordinal) {
+        return financialScores[ordinal];
+    }
+
+    public boolean hasTaxDebt(int ordinal) {
+        return taxDebt.get(ordinal);
+    }
+
+    public UUID supplierId(int ordinal) {
+        return ids[ordinal];
+    }
+
+    public String companyName(int ordinal) {
+        return names[ordinal];
+    }
+
+    public String email(int ordinal) {
+        return emails[ordinal];
+    }
+
+    /**
+     * Rank candidates with a bounded min-heap. Returns the k best ordinals at or above the
+     * threshold (best first, ties broken by ordinal) and how many candidates qualified in total.
+     */
+    public RankResult topK(BitSet candidates, OrdinalScorer scorer, int k, int threshold) {
+        long[] heap = new long[Math.max(1, k)];
+        int heapSize = 0;
+        int qualifying = 0;
+
+        for (int ord = candidates.nextSetBit(0); ord >= 0; ord = candidates.nextSetBit(ord + 1)) {
+            if (!live.get(ord)) continue;
+            int score = scorer.score(ord);
+            if (score < threshold) continue;
+            qualifying++;
+
+            // Higher score wins; for equal scores the lower ordinal wins
+            long key = ((long) score << 32) | (Integer.MAX_VALUE - ord);
+            if (heapSize < k) {
+                heap[heapSize] = key;
+                siftUp(heap, heapSize++);
+            } else if (key > heap[0]) {
+                heap[0] = key;
+                siftDown(heap, heapSize);
+            }
+        }
+
+        long[] sorted = Arrays.copyOf(heap, heapSize);
+        Arrays.sort(sorted);
+        int[] top = new int[heapSize];
+        for (int i = 0; i < heapSize; i++) {
+            top[i] = Integer.MAX_VALUE - (int) sorted[heapSize - 1 - i];
+        }
+        return new RankResult(top, qualifying);
+    }
+
+    // ---- maintenance (write lock held) ----
+
+    private void reset(int newCapacity) {
+        ordinals.clear();
+        freeOrdinals.clear();
+        highWater = 0;
+        capacity = newCapacity;
+        ids = new UUID[capacity];
+        names = new String[capacity];
+        emails = new String[capacity];
+        categories = new String[capacity][];
+        cities = new String[capacity];
+        serviceAreas = new String[capacity][];
+        responseScores = new byte[capacity];
+        riskScores = new byte[capacity];
+        financialScores = new byte[capacity];
+        latitudes = new float[capacity];
+        longitudes = new float[capacity];
+        grid.clear();
+        live.clear();
+        hasCategories.clear();
+        hasEmtak.clear();
+        hasCounty.clear();
+        taxDebt.clear();
+        byCategory.clear();
+        byCity.clear();
+        byServiceArea.clear();
+    }
+
+    private void put(SupplierRow row) {
+        int ord = freeOrdinals.isEmpty() ? highWater++ : freeOrdinals.pop();
+        if (ord >= capacity) {
+            grow(capacity * 2);
+        }
+
+        ordinals.put(row.id(), ord);
+        ids[ord] = row.id();
+        names[ord] = row.companyName();
+        emails[ord] = row.email();
+        live.set(ord);
+
+        categories[ord] = row.categories().stream().map(SupplierMatchIndex::normalizeCategory).toArray(String[]::new);
+        for (String cat : categories[ord]) {
+            byCategory.computeIfAbsent(cat, k -> new BitSet()).set(ord);
+        }
+        hasCategories.set(ord, categories[ord].length > 0);
+
+        cities[ord] = row.city() != null ? row.city().toLowerCase() : null;
+        if (cities[ord] != null) {
+            byCity.computeIfAbsent(cities[ord], k -> new BitSet()).set(ord);
+        }
+
+        serviceAreas[ord] = row.serviceAreas().stream().map(String::toLowerCase).toArray(String[]::new);
+        for (String area : serviceAreas[ord]) {
+            byServiceArea.computeIfAbsent(area, k -> new BitSet()).set(ord);
+        }
+
+        hasEmtak.set(ord, row.emtakCode() != null && !row.emtakCode().isBlank());
+        hasCounty.set(ord, row.county() != null);
+        taxDebt.set(ord, Boolean.TRUE.equals(row.taxDebt()));
+        responseScores[ord] = (byte) computeResponseScore(row.totalRfqsSent(), row.totalBidsReceived());
+        riskScores[ord] = (byte) (row.riskScore() != null ? 100 - row.riskScore() : 50);
+        financialScores[ord] = (byte) computeFinancialScore(row.googleRating(), row.isVerified());
+
+        // Not yet geocoded in the database: resolve from the in-memory gazetteer for now
+        GeoPoint point = row.latitude() != null && row.longitude() != null
+                ? new GeoPoint(row.latitude(), row.longitude())
+                : gazetteerService.geocode(row.city(), row.county()).orElse(null);
+        if (point != null) {
+            latitudes[ord] = (float) point.latitude();
+            longitudes[ord] = (float) point.longitude();
+            grid.add(ord, latitudes[ord], longitudes[ord]);
+        } else {
+            latitudes[ord] = Float.NaN;
+            longitudes[ord] = Float.NaN;
+        }
+    }
+
+    private void remove(UUID supplierId) {
+        Integer ord = ordinals.remove(supplierId);
+        if (ord == null) return;
+
+        for (String cat : categories[ord]) {
+            clearBit(byCategory, cat, ord);
+        }
+        if (cities[ord] != null) {
+            clearBit(byCity, cities[ord], ord);
+        }
+        for (String area : serviceAreas[ord]) {
+            clearBit(byServiceArea, area, ord);
+        }
+        if (!Float.isNaN(latitudes[ord])) {
+            grid.remove(ord, latitudes[ord], longitudes[ord]);
+        }
+        live.clear(ord);
+        ids[ord] = null;
+        names[ord] = null;
+        emails[ord] = null;
+        freeOrdinals.push(ord);
+    }
+
+    private void grow(int newCapacity) {
+        ids = Arrays.copyOf(ids, newCapacity);
+        names = Arrays.copyOf(names, newCapacity);
+        emails = Arrays.copyOf(emails, newCapacity);
+        categories = Arrays.copyOf(categories, newCapacity);
+        cities = Arrays.copyOf(cities, newCapacity);
+        serviceAreas = Arrays.copyOf(serviceAreas, newCapacity);
+        responseScores = Arrays.copyOf(responseScores, newCapacity);
+        riskScores = Arrays.copyOf(riskScores, newCapacity);
+        financialScores = Arrays.copyOf(financialScores, newCapacity);
+        latitudes = Arrays.copyOf(latitudes, newCapacity);
+        longitudes = Arrays.copyOf(longitudes, newCapacity);
+        capacity = newCapacity;
+    }
+
+    // ---- feature computation ----
+
+    private static int computeResponseScore(Integer sent, Integer received) {
+        if (sent == null || sent == 0) {
+            return 50; // neutral - no history
+        }
+        double ratio = (double) (received != null ? received : 0) / sent;
+
+        if (ratio >= 0.7) return 100;
+        if (ratio >= 0.5) return 80;
+        if (ratio >= 0.3) return 60;
+        if (ratio >= 0.1) return 40;
+        return 20; // very low response rate
+    }
+
+    private static int computeFinancialScore(BigDecimal googleRating, Boolean verified) {
+        int score = 50; // baseline
+
+        if (googleRating != null) {
+            double rating = googleRating.doubleValue();
+            if (rating >= 4.5) score += 30;
+            else if (rating >= 4.0) score += 20;
+            else if (rating >= 3.5) score += 10;
+            else if (rating < 3.0) score -= 10;
+        }
+        if (Boolean.TRUE.equals(verified)) {
+            score += 20;
+        }
+        return Math.max(0, Math.min(100, score));
+    }
+
+    // ---- helpers ----
+
+    private static SupplierRow mapRow(ResultSet rs) throws SQLException {
+        return new SupplierRow(
+                rs.getObject("id", UUID.class),
+                rs.getString("company_name"),
+                rs.getString("email"),
+                SqlArrays.toStrings(rs.getObject("categories")),
+                rs.getString("city"),
+                rs.getString("county"),
+                SqlArrays.toStrings(rs.getObject("service_areas")),
+                rs.getString("emtak_code"),
+                rs.getBigDecimal("google_rating"),
+                (Boolean) rs.getObject("is_verified"),
+                (Integer) rs.getObject("total_rfqs_sent"),
+                (Integer) rs.getObject("total_bids_received"),
+                (Double) rs.getObject("latitude"),
+                (Double) rs.getObject("longitude"),
+                (Integer) rs.getObject("risk_score"),
+                (Boolean) rs.getObject("tax_debt"));
+    }
+
+    private static String normalizeCategory(String category) {
+        return category.trim().toUpperCase();
+    }
+
+    private static boolean isIn(Map<String, BitSet> index, String key, int ordinal) {
+        BitSet bits = index.get(key);
+        return bits != null && bits.get(ordinal);
+    }
+
+    private static void clearBit(Map<String, BitSet> index, String key, int ordinal) {
+        BitSet bits = index.get(key);
+        if (bits != null) {
+            bits.clear(ordinal);
+            if (bits.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static BitSet unionContaining(Map<String, BitSet> index, String needle) {
+        BitSet result = new BitSet();
+        index.forEach((key, bits) -> {
+            if (key.contains(needle)) {
+                result.or(bits);
+            }
+        });
+        return result;
+    }
+
+    private static void siftUp(long[] heap, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= heap[i]) break;
+            swap(heap, parent, i);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int i = 0;
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) break;
+            int smallest = left + 1 < size && heap[left + 1] < heap[left] ? left + 1 : left;
+            if (heap[i] <= heap[smallest]) break;
+            swap(heap, i, smallest);
+            i = smallest;
+        }
+    }
+
+    private static void swap(long[] heap, int a, int b) {
+        long tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
+    }
+
+    @FunctionalInterface
+    public interface OrdinalScorer {
+        int score(int ordinal);
+    }
+
+    /**
+     * Location bitsets for one query; blank means no location was given. Point and nearby are
+     * the geocoded location (null if unknown) and the suppliers within the matching radius of it.
+     */
+    public record LocationMatch(boolean blank, BitSet city, BitSet serviceArea, GeoPoint point, BitSet nearby) {}
+
+    /**
+     * Top ordinals, best first, and how many candidates met the threshold.
+     */
+    public record RankResult(int[] ordinals, int qualifying) {}
+
+    private record SupplierRow(UUID id, String companyName, String email, List<String> categories,
+                               String city, String county, List<String> serviceAreas, String emtakCode,
+                               BigDecimal googleRating, Boolean isVerified, Integer totalRfqsSent,
+                               Integer totalBidsReceived, Double latitude, Double longitude,
+                               Integer riskScore, Boolean taxDebt) {}
+}
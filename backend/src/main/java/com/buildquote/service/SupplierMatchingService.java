@@ -1,30 +1,35 @@
 package com.buildquote.service;
 
-import com.buildquote.entity.CompanyEnrichment;
 import com.buildquote.entity.ProjectStage;
-import com.buildquote.entity.Supplier;
-import com.buildquote.repository.CompanyEnrichmentRepository;
-import com.buildquote.repository.SupplierRepository;
+import com.buildquote.util.GeoPoint;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Builder;
 import lombok.Data;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class SupplierMatchingService {
 
-    private final SupplierRepository supplierRepository;
-    private final CompanyEnrichmentRepository enrichmentRepository;
+    private final SupplierMatchIndex matchIndex;
     private final ObjectMapper objectMapper;
+    private final ThreadPoolTaskExecutor matchingExecutor;
+
+    public SupplierMatchingService(
+            SupplierMatchIndex matchIndex,
+            ObjectMapper objectMapper,
+            @Qualifier("matchingExecutor") ThreadPoolTaskExecutor matchingExecutor) {
+        this.matchIndex = matchIndex;
+        this.objectMapper = objectMapper;
+        this.matchingExecutor = matchingExecutor;
+    }
 
     // Scoring weights
     private static final double WEIGHT_CATEGORY = 0.40;
@@ -76,90 +81,101 @@ public class SupplierMatchingService {
             return List.of();
         }
 
-        // Get candidate suppliers matching the category
-        List<Supplier> candidates = supplierRepository.findByCategory(category, 100);
+        List<ScoredSupplier> result = matchIndex.read(
+                () -> rankSuppliers(category, matchIndex.matchLocation(projectLocation)));
 
-        // Score each candidate
-        List<ScoredSupplier> scored = candidates.stream()
-                .map(s -> scoreSupplier(s, category, projectLocation))
-                .sorted(Comparator.comparingInt(ScoredSupplier::getTotalScore).reversed())
-                .collect(Collectors.toList());
+        log.info("Matched {} suppliers for stage '{}' (category={})",
+                result.size(), stage.getName(), category);
+        return result;
+    }
 
-        // Filter by minimum threshold
-        List<ScoredSupplier> qualified = scored.stream()
-                .filter(s -> s.getTotalScore() >= MIN_SCORE_THRESHOLD)
-                .collect(Collectors.toList());
+    /**
+     * Score every stage of a project in one pass, keyed by category. Stages sharing a category
+     * share one ranking, distinct categories are ranked in parallel, and the whole batch sees a
+     * single consistent snapshot of the index. Stages without a category are skipped.
+     * The project point, if already geocoded, saves resolving the location again.
+     */
+    public Map<String, List<ScoredSupplier>> findAndScoreSuppliers(List<ProjectStage> stages,
+                                                                   String projectLocation, GeoPoint projectPoint) {
+        Set<String> categories = new LinkedHashSet<>();
+        for (ProjectStage stage : stages) {
+            if (stage.getCategory() == null) {
+                log.warn("Stage '{}' has no category, cannot match suppliers", stage.getName());
+                continue;
+            }
+            categories.add(stage.getCategory());
+        }
+
+        // This thread holds the read lock while the workers rank, so writers wait for the whole batch
+        Map<String, List<ScoredSupplier>> result = matchIndex.read(() -> {
+            SupplierMatchIndex.LocationMatch location = matchIndex.matchLocation(projectLocation, projectPoint);
+            Map<String, CompletableFuture<List<ScoredSupplier>>> futures = new LinkedHashMap<>();
+            for (String category : categories) {
+                futures.put(category, CompletableFuture.supplyAsync(
+                        () -> rankSuppliers(category, location), matchingExecutor));
+            }
+            Map<String, List<ScoredSupplier>> ranked = new LinkedHashMap<>();
+            futures.forEach((category, future) -> ranked.put(category, future.join()));
+            return ranked;
+        });
+
+        log.info("Matched suppliers for {} stages across {} categories", stages.size(), result.size());
+        return result;
+    }
+
+    /**
+     * Runs entirely against the in-memory index; must be called under its read lock.
+     */
+    private List<ScoredSupplier> rankSuppliers(String category, SupplierMatchIndex.LocationMatch location) {
+        List<String> adjacent = ADJACENT_CATEGORIES.getOrDefault(category, List.of());
+
+        // Candidate suppliers in the category, scored and ranked
+        BitSet candidates = matchIndex.suppliersInCategory(category);
+        SupplierMatchIndex.RankResult ranked = matchIndex.topK(candidates,
+                ord -> totalScore(ord, category, adjacent, location, false),
+                MAX_RESULTS, MIN_SCORE_THRESHOLD);
+        boolean ignoreLocation = false;
 
         // Broadening: if < MIN_CANDIDATES, remove location filter
-        if (qualified.size() < MIN_CANDIDATES) {
+        if (ranked.qualifying() < MIN_CANDIDATES) {
             log.info("Only {} qualified suppliers for category {}, broadening (ignoring location)",
-                    qualified.size(), category);
-            qualified = scored.stream()
-                    .map(s -> {
-                        // Recalculate without location penalty
-                        int adjusted = s.getTotalScore() + (int) ((100 - s.getLocationScore()) * WEIGHT_LOCATION);
-                        return ScoredSupplier.builder()
-                                .supplierId(s.getSupplierId())
-                                .companyName(s.getCompanyName())
-                                .email(s.getEmail())
-                                .totalScore(Math.min(100, adjusted))
-                                .categoryScore(s.getCategoryScore())
-                                .locationScore(100) // treat as matching
-                                .responseScore(s.getResponseScore())
-                                .riskScore(s.getRiskScore())
-                                .financialScore(s.getFinancialScore())
-                                .hasTaxDebt(s.isHasTaxDebt())
-                                .build();
-                    })
-                    .filter(s -> s.getTotalScore() >= MIN_SCORE_THRESHOLD)
-                    .sorted(Comparator.comparingInt(ScoredSupplier::getTotalScore).reversed())
-                    .collect(Collectors.toList());
+                    ranked.qualifying(), category);
+            ignoreLocation = true;
+            ranked = matchIndex.topK(candidates,
+                    ord -> totalScore(ord, category, adjacent, location, true),
+                    MAX_RESULTS, MIN_SCORE_THRESHOLD);
         }
 
+        List<ScoredSupplier> qualified = new ArrayList<>();
+        BitSet taken = new BitSet();
+        for (int ord : ranked.ordinals()) {
+            qualified.add(toScoredSupplier(ord, category, adjacent, location, ignoreLocation));
+            taken.set(ord);
+        }
+        int qualifyingCount = ranked.qualifying();
+
         // Further broadening: include adjacent categories
-        if (qualified.size() < MIN_CANDIDATES) {
-            List<String> adjacent = ADJACENT_CATEGORIES.getOrDefault(category, List.of());
+        if (qualifyingCount < MIN_CANDIDATES) {
             for (String adjCategory : adjacent) {
-                if (qualified.size() >= MIN_CANDIDATES) break;
-                List<Supplier> adjCandidates = supplierRepository.findByCategory(adjCategory, 50);
-                for (Supplier s : adjCandidates) {
-                    if (qualified.stream().noneMatch(q -> q.getSupplierId().equals(s.getId()))) {
-                        ScoredSupplier adjScored = scoreSupplier(s, category, projectLocation);
-                        // Reduce category score for adjacent match
-                        int adjustedCat = (int) (adjScored.getCategoryScore() * 0.6);
-                        int adjustedTotal = (int) (adjustedCat * WEIGHT_CATEGORY
-                                + adjScored.getLocationScore() * WEIGHT_LOCATION
-                                + adjScored.getResponseScore() * WEIGHT_RESPONSE_HISTORY
-                                + adjScored.getRiskScore() * WEIGHT_RISK
-                                + adjScored.getFinancialScore() * WEIGHT_FINANCIAL);
-                        if (adjScored.isHasTaxDebt()) {
-                            adjustedTotal = (int) (adjustedTotal * (1.0 - TAX_DEBT_PENALTY));
-                        }
-                        qualified.add(ScoredSupplier.builder()
-                                .supplierId(s.getId())
-                                .companyName(s.getCompanyName())
-                                .email(s.getEmail())
-                                .totalScore(adjustedTotal)
-                                .categoryScore(adjustedCat)
-                                .locationScore(adjScored.getLocationScore())
-                                .responseScore(adjScored.getResponseScore())
-                                .riskScore(adjScored.getRiskScore())
-                                .financialScore(adjScored.getFinancialScore())
-                                .hasTaxDebt(adjScored.isHasTaxDebt())
-                                .build());
-                    }
+                if (qualifyingCount >= MIN_CANDIDATES) break;
+                BitSet adjCandidates = matchIndex.suppliersInCategory(adjCategory);
+                adjCandidates.andNot(taken);
+
+                SupplierMatchIndex.RankResult adjRanked = matchIndex.topK(adjCandidates,
+                        ord -> adjacentScore(ord, category, adjacent, location),
+                        MAX_RESULTS, 0);
+                for (int ord : adjRanked.ordinals()) {
+                    qualified.add(toAdjacentSupplier(ord, category, adjacent, location));
                 }
+                qualifyingCount += adjRanked.qualifying();
+                taken.or(adjCandidates);
             }
             qualified.sort(Comparator.comparingInt(ScoredSupplier::getTotalScore).reversed());
         }
 
-        List<ScoredSupplier> result = qualified.stream()
+        return qualified.stream()
                 .limit(MAX_RESULTS)
                 .collect(Collectors.toList());
-
-        log.info("Matched {} suppliers for stage '{}' (category={})",
-                result.size(), stage.getName(), category);
-        return result;
     }
 
     public String toJson(List<ScoredSupplier> suppliers) {
@@ -171,141 +187,74 @@ public class SupplierMatchingService {
         }
     }
 
-    private ScoredSupplier scoreSupplier(Supplier supplier, String targetCategory, String projectLocation) {
-        int categoryScore = scoreCategoryOverlap(supplier, targetCategory);
-        int locationScore = scoreLocation(supplier, projectLocation);
-        int responseScore = scoreResponseHistory(supplier);
-        int riskScore = scoreRisk(supplier);
-        int financialScore = scoreFinancialHealth(supplier);
-
-        int rawTotal = (int) (
-                categoryScore * WEIGHT_CATEGORY
-                + locationScore * WEIGHT_LOCATION
-                + responseScore * WEIGHT_RESPONSE_HISTORY
-                + riskScore * WEIGHT_RISK
-                + financialScore * WEIGHT_FINANCIAL
-        );
+    private int totalScore(int ord, String category, List<String> adjacent,
+                           SupplierMatchIndex.LocationMatch location, boolean ignoreLocation) {
+        int locationScore = matchIndex.locationScore(ord, location);
+        int rawTotal = weightedTotal(matchIndex.categoryScore(ord, category, adjacent), locationScore, ord);
 
         // Tax debt penalty
-        boolean hasTaxDebt = false;
-        Optional<CompanyEnrichment> enrichment = enrichmentRepository.findBySupplierId(supplier.getId());
-        if (enrichment.isPresent() && Boolean.TRUE.equals(enrichment.get().getTaxDebt())) {
-            hasTaxDebt = true;
+        if (matchIndex.hasTaxDebt(ord)) {
             rawTotal = (int) (rawTotal * (1.0 - TAX_DEBT_PENALTY));
         }
-
         int total = Math.max(0, Math.min(100, rawTotal));
 
-        return ScoredSupplier.builder()
-                .supplierId(supplier.getId())
-                .companyName(supplier.getCompanyName())
-                .email(supplier.getEmail())
-                .totalScore(total)
-                .categoryScore(categoryScore)
-                .locationScore(locationScore)
-                .responseScore(responseScore)
-                .riskScore(riskScore)
-                .financialScore(financialScore)
-                .hasTaxDebt(hasTaxDebt)
-                .build();
-    }
-
-    private int scoreCategoryOverlap(Supplier supplier, String targetCategory) {
-        if (supplier.getCategories() == null || supplier.getCategories().length == 0) {
-            // Check EMTAK code match
-            if (supplier.getEmtakCode() != null && !supplier.getEmtakCode().isBlank()) {
-                return 60; // partial match via EMTAK
-            }
-            return 20; // no category info at all
-        }
-
-        for (String cat : supplier.getCategories()) {
-            if (targetCategory.equalsIgnoreCase(cat.trim())) {
-                return 100; // exact match
-            }
-        }
-
-        // Check if any of their categories are adjacent
-        List<String> adjacent = ADJACENT_CATEGORIES.getOrDefault(targetCategory, List.of());
-        for (String cat : supplier.getCategories()) {
-            if (adjacent.contains(cat.trim())) {
-                return 50; // adjacent category
-            }
+        if (ignoreLocation) {
+            // Recalculate without location penalty
+            total = Math.min(100, total + (int) ((100 - locationScore) * WEIGHT_LOCATION));
         }
-
-        return 10; // no match
+        return total;
     }
 
-    private int scoreLocation(Supplier supplier, String projectLocation) {
-        if (projectLocation == null || projectLocation.isBlank()) return 50;
-
-        String locLower = projectLocation.toLowerCase();
-
-        // Check city match
-        if (supplier.getCity() != null && supplier.getCity().toLowerCase().contains(locLower)) {
-            return 100;
-        }
-
-        // Check service areas
-        if (supplier.getServiceAreas() != null) {
-            for (String area : supplier.getServiceAreas()) {
-                if (area.toLowerCase().contains(locLower)) {
-                    return 90;
-                }
-            }
-        }
-
-        // Check county match (same region)
-        if (supplier.getCounty() != null) {
-            return 40; // at least in Estonia
+    private int adjacentScore(int ord, String category, List<String> adjacent,
+                              SupplierMatchIndex.LocationMatch location) {
+        // Reduce category score for adjacent match
+        int adjustedCat = (int) (matchIndex.categoryScore(ord, category, adjacent) * 0.6);
+        int adjustedTotal = weightedTotal(adjustedCat, matchIndex.locationScore(ord, location), ord);
+        if (matchIndex.hasTaxDebt(ord)) {
+            adjustedTotal = (int) (adjustedTotal * (1.0 - TAX_DEBT_PENALTY));
         }
-
-        return 20; // no location match
+        return adjustedTotal;
     }
 
-    private int scoreResponseHistory(Supplier supplier) {
-        if (supplier.getTotalRfqsSent() == null || supplier.getTotalRfqsSent() == 0) {
-            return 50; // neutral - no history
-        }
-
-        int sent = supplier.getTotalRfqsSent();
-        int received = supplier.getTotalBidsReceived() != null ? supplier.getTotalBidsReceived() : 0;
-        double ratio = (double) received / sent;
-
-        if (ratio >= 0.7) return 100;
-        if (ratio >= 0.5) return 80;
-        if (ratio >= 0.3) return 60;
-        if (ratio >= 0.1) return 40;
-        return 20; // very low response rate
+    private int weightedTotal(int categoryScore, int locationScore, int ord) {
+        return (int) (
+                categoryScore * WEIGHT_CATEGORY
+                + locationScore * WEIGHT_LOCATION
+                + matchIndex.responseScore(ord) * WEIGHT_RESPONSE_HISTORY
+                + matchIndex.riskScore(ord) * WEIGHT_RISK
+                + matchIndex.financialScore(ord) * WEIGHT_FINANCIAL
+        );
     }
 
-    private int scoreRisk(Supplier supplier) {
-        Optional<CompanyEnrichment> enrichment = enrichmentRepository.findBySupplierId(supplier.getId());
-        if (enrichment.isEmpty() || enrichment.get().getRiskScore() == null) {
-            return 50; // neutral
-        }
-        // riskScore in enrichment: 0=safest, 100=highest risk
-        // Invert for scoring: low risk = high score
-        return 100 - enrichment.get().getRiskScore();
+    private ScoredSupplier toScoredSupplier(int ord, String category, List<String> adjacent,
+                                            SupplierMatchIndex.LocationMatch location, boolean ignoreLocation) {
+        return ScoredSupplier.builder()
+                .supplierId(matchIndex.supplierId(ord))
+                .companyName(matchIndex.companyName(ord))
+                .email(matchIndex.email(ord))
+                .totalScore(totalScore(ord, category, adjacent, location, ignoreLocation))
+                .categoryScore(matchIndex.categoryScore(ord, category, adjacent))
+                .locationScore(ignoreLocation ? 100 : matchIndex.locationScore(ord, location))
+                .responseScore(matchIndex.responseScore(ord))
+                .riskScore(matchIndex.riskScore(ord))
+                .financialScore(matchIndex.financialScore(ord))
+                .hasTaxDebt(matchIndex.hasTaxDebt(ord))
+                .build();
     }
 
-    private int scoreFinancialHealth(Supplier supplier) {
-        int score = 50; // baseline
-
-        // Google rating bonus
-        if (supplier.getGoogleRating() != null) {
-            double rating = supplier.getGoogleRating().doubleValue();
-            if (rating >= 4.5) score += 30;
-            else if (rating >= 4.0) score += 20;
-            else if (rating >= 3.5) score += 10;
-            else if (rating < 3.0) score -= 10;
-        }
-
-        // Verified bonus
-        if (Boolean.TRUE.equals(supplier.getIsVerified())) {
-            score += 20;
-        }
-
-        return Math.max(0, Math.min(100, score));
+    private ScoredSupplier toAdjacentSupplier(int ord, String category, List<String> adjacent,
+                                              SupplierMatchIndex.LocationMatch location) {
+        return ScoredSupplier.builder()
+                .supplierId(matchIndex.supplierId(ord))
+                .companyName(matchIndex.companyName(ord))
+                .email(matchIndex.email(ord))
+                .totalScore(adjacentScore(ord, category, adjacent, location))
+                .categoryScore((int) (matchIndex.categoryScore(ord, category, adjacent) * 0.6))
+                .locationScore(matchIndex.locationScore(ord, location))
+                .responseScore(matchIndex.responseScore(ord))
+                .riskScore(matchIndex.riskScore(ord))
+                .financialScore(matchIndex.financialScore(ord))
+                .hasTaxDebt(matchIndex.hasTaxDebt(ord))
+                .build();
     }
 }
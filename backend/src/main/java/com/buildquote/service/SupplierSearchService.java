@@ -4,11 +4,18 @@ import com.buildquote.entity.GooglePlacesCache;
 import com.buildquote.entity.Supplier;
 import com.buildquote.repository.GooglePlacesCacheRepository;
 import com.buildquote.repository.SupplierRepository;
+import com.buildquote.util.CountMatrix;
+import com.buildquote.util.LruCache;
+import com.buildquote.util.PayloadCodec;
+import com.buildquote.util.SqlArrays;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -16,24 +23,31 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
-public class SupplierSearchService {
+public class SupplierSearchService implements CacheInvalidationListener {
 
     private final GooglePlacesService googlePlacesService;
     private final GooglePlacesCacheRepository cacheRepository;
     private final SupplierRepository supplierRepository;
     private final JdbcTemplate jdbcTemplate;
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private static final TypeReference<List<GooglePlacesService.PlaceResult>> PLACE_RESULTS_TYPE =
+        new TypeReference<>() {};
 
-    // In-memory cache of supplier counts (refreshed every 5 minutes)
-    private volatile Map<String, Integer> categoryCountCache = new ConcurrentHashMap<>();
+    // Exact supplier counts per (category, city), built once and kept current from the invalidation bus.
+    // Suppliers without a city are counted under UNKNOWN_CITY so category totals stay exact.
+    private static final String UNKNOWN_CITY = "";
+    private volatile CountMatrix categoryCityCounts = new CountMatrix();
     private volatile Map<String, Integer> cityCountCache = new ConcurrentHashMap<>();
     private volatile long totalSupplierCount = 0;
     private volatile long crawlerCompanyCount = 0;
@@ -55,8 +69,31 @@ public class SupplierSearchService {
         Map.entry("DEMOLITION", List.of("4311", "43110"))
     );
 
-    // Cache validity: 7 days
-    private static final int CACHE_DAYS = 7;
+    private static final int REFRESH_BACKOFF_MINUTES = 15;
+
+    // Places results older than the soft TTL are still served, but trigger a background refresh.
+    // Results older than the hard TTL are never served.
+    @Value("${places.cache.soft-ttl-days:7}")
+    private int softTtlDays;
+
+    @Value("${places.cache.hard-ttl-days:14}")
+    private int hardTtlDays;
+
+    @Value("${places.cache.near.max-entries:5000}")
+    private int nearCacheMaxEntries;
+
+    // (category, location) -> parsed results, in front of google_places_cache
+    private LruCache<String, NearEntry> nearCache;
+    private LruCache<String, Boolean> refreshBackoff;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder staleServed = new LongAdder();
+    private final LongAdder liveFetches = new LongAdder();
+    private final LongAdder backgroundRefreshes = new LongAdder();
+
+    // google_places_cache.id -> uses not yet written to use_count
+    private final ConcurrentHashMap<Long, LongAdder> pendingUses = new ConcurrentHashMap<>();
 
     // Thread pool for parallel searches
     private final ExecutorService searchExecutor = Executors.newFixedThreadPool(6);
@@ -66,130 +103,92 @@ public class SupplierSearchService {
      */
     @PostConstruct
     public void initCountCache() {
+        nearCache = new LruCache<>(nearCacheMaxEntries, Duration.ofDays(hardTtlDays).toMillis());
+        refreshBackoff = new LruCache<>(nearCacheMaxEntries, Duration.ofMinutes(REFRESH_BACKOFF_MINUTES).toMillis());
         refreshCountCache();
     }
 
     /**
-     * Refresh count cache every 5 minutes.
+     * Full rebuild of the count matrix. Supplier and crawler.company writes are applied incrementally
+     * from the cache invalidation bus; this is the safety net for missed events.
      */
-    @Scheduled(fixedRate = 300000) // 5 minutes
-    public void refreshCountCache() {
+    @Scheduled(cron = "${supplier.count-cache.rebuild-cron:0 15 4 * * *}")
+    public synchronized void refreshCountCache() {
         try {
             long start = System.currentTimeMillis();
+            CountMatrix matrix = new CountMatrix();
+            Map<String, Integer> cities = new ConcurrentHashMap<>();
 
-            // Load category counts from suppliers
-            Map<String, Integer> newCategoryCache = new ConcurrentHashMap<>();
-            for (Object[] row : supplierRepository.countAllByCategory()) {
-                String categories = (String) row[0];
-                int count = ((Number) row[1]).intValue();
-                if (categories != null) {
-                    for (String cat : categories.split(",")) {
-                        cat = cat.trim();
-                        newCategoryCache.merge(cat, count, Integer::sum);
-                    }
-                }
-            }
-
-            // Add counts from crawler.company by EMTAK codes (single optimized query)
-            try {
-                Map<String, Integer> emtakCounts = countAllCrawlerCompaniesByEmtak();
-                for (Map.Entry<String, Integer> entry : emtakCounts.entrySet()) {
-                    newCategoryCache.merge(entry.getKey(), entry.getValue(), Integer::sum);
-                }
-            } catch (Exception e) {
-                log.debug("Could not query crawler.company EMTAK counts: {}", e.getMessage());
+            // Suppliers: cells from the unnested categories, city and total counts from a per-city scan
+            for (Object[] row : supplierRepository.countAllByCategoryAndCity()) {
+                matrix.add((String) row[0], normalizeCity((String) row[1]), ((Number) row[2]).intValue());
             }
-            categoryCountCache = newCategoryCache;
-
-            // Load city counts from suppliers
-            Map<String, Integer> newCityCache = new ConcurrentHashMap<>();
+            long suppliers = 0;
             for (Object[] row : supplierRepository.countAllByCity()) {
-                String city = (String) row[0];
                 int count = ((Number) row[1]).intValue();
-                if (city != null) {
-                    newCityCache.put(city.toUpperCase(), count);
-                }
+                addToCounts(matrix, cities, List.of(), (String) row[0], count);
+                suppliers += count;
             }
 
-            // Add city counts from crawler.company
+            // crawler.company, grouped by (emtak_codes, city) and mapped to categories here
+            long crawlerCompanies = 0;
             try {
-                List<Map<String, Object>> crawlerCities = jdbcTemplate.queryForList(
-                    "SELECT city, COUNT(*) as cnt FROM crawler.company WHERE city IS NOT NULL GROUP BY city");
-                for (Map<String, Object> row : crawlerCities) {
-                    String city = (String) row.get("city");
+                for (Map<String, Object> row : jdbcTemplate.queryForList(
+                        "SELECT emtak_codes, city, COUNT(*) AS cnt FROM crawler.company GROUP BY emtak_codes, city")) {
                     int count = ((Number) row.get("cnt")).intValue();
-                    if (city != null) {
-                        newCityCache.merge(city.toUpperCase(), count, Integer::sum);
-                    }
+                    addToCounts(matrix, cities, emtakCategories(SqlArrays.toStrings(row.get("emtak_codes"))),
+                        (String) row.get("city"), count);
+                    crawlerCompanies += count;
                 }
             } catch (Exception e) {
-                log.debug("Could not query crawler.company cities: {}", e.getMessage());
+                log.debug("Could not count crawler.company: {}", e.getMessage());
             }
-            cityCountCache = newCityCache;
 
-            // Total counts
-            totalSupplierCount = supplierRepository.countAll();
-            try {
-                crawlerCompanyCount = jdbcTemplate.queryForObject(
-                    "SELECT COUNT(*) FROM crawler.company", Long.class);
-            } catch (Exception e) {
-                crawlerCompanyCount = 0;
-            }
+            categoryCityCounts = matrix;
+            cityCountCache = cities;
+            totalSupplierCount = suppliers;
+            crawlerCompanyCount = crawlerCompanies;
 
             long duration = System.currentTimeMillis() - start;
-            log.info("Supplier count cache refreshed in {}ms: {} categories, {} cities, {} suppliers + {} crawler companies",
-                duration, categoryCountCache.size(), cityCountCache.size(), totalSupplierCount, crawlerCompanyCount);
+            log.info("Supplier count matrix built in {}ms: {} categories x {} cities, {} suppliers + {} crawler companies",
+                duration, matrix.rowCount(), matrix.columnCount(), totalSupplierCount, crawlerCompanyCount);
 
         } catch (Exception e) {
             log.warn("Failed to refresh count cache: {}", e.getMessage());
         }
     }
 
+    private static void addToCounts(CountMatrix matrix, Map<String, Integer> cities,
+                                    Collection<String> categories, String city, int delta) {
+        String cityKey = normalizeCity(city);
+        for (String category : categories) {
+            matrix.add(category, cityKey, delta);
+        }
+        if (!cityKey.isEmpty()) {
+            cities.merge(cityKey, delta, Integer::sum);
+        }
+    }
+
+    private static String normalizeCity(String city) {
+        return city != null ? city.trim().toUpperCase() : UNKNOWN_CITY;
+    }
+
     /**
-     * Count all crawler companies by EMTAK prefix in a single efficient query.
-     * Uses EMTAK code prefixes: 41=buildings, 42=civil, 43=specialized
+     * Categories a company belongs to by its EMTAK codes, using the same prefixes as CATEGORY_TO_EMTAK.
      */
-    private Map<String, Integer> countAllCrawlerCompaniesByEmtak() {
-        Map<String, Integer> counts = new HashMap<>();
-
-        // Single query to count by first 2 digits of EMTAK codes
-        String sql = """
-            SELECT
-                CASE
-                    WHEN ec LIKE '411%' OR ec LIKE '412%' THEN 'GENERAL_CONSTRUCTION'
-                    WHEN ec LIKE '4321%' THEN 'ELECTRICAL'
-                    WHEN ec LIKE '4322%' THEN 'PLUMBING'
-                    WHEN ec LIKE '4333%' THEN 'TILING'
-                    WHEN ec LIKE '4334%' OR ec LIKE '4339%' THEN 'FINISHING'
-                    WHEN ec LIKE '4391%' THEN 'ROOFING'
-                    WHEN ec LIKE '4399%' THEN 'FACADE'
-                    WHEN ec LIKE '43331%' THEN 'LANDSCAPING'
-                    WHEN ec LIKE '4332%' THEN 'WINDOWS_DOORS'
-                    WHEN ec LIKE '43221%' OR ec LIKE '43222%' OR ec LIKE '43223%' THEN 'HVAC'
-                    WHEN ec LIKE '43332%' OR ec LIKE '43339%' THEN 'FLOORING'
-                    WHEN ec LIKE '4311%' THEN 'DEMOLITION'
-                    ELSE NULL
-                END as category,
-                COUNT(DISTINCT c.id) as cnt
-            FROM crawler.company c, unnest(c.emtak_codes) ec
-            GROUP BY 1
-            HAVING COUNT(DISTINCT c.id) > 0
-            """;
-
-        try {
-            List<Map<String, Object>> rows = jdbcTemplate.queryForList(sql);
-            for (Map<String, Object> row : rows) {
-                String category = (String) row.get("category");
-                if (category != null) {
-                    int count = ((Number) row.get("cnt")).intValue();
-                    counts.merge(category, count, Integer::sum);
+    private static Set<String> emtakCategories(Collection<String> codes) {
+        Set<String> categories = new HashSet<>();
+        for (String code : codes) {
+            for (Map.Entry<String, List<String>> entry : CATEGORY_TO_EMTAK.entrySet()) {
+                for (String prefix : entry.getValue()) {
+                    if (code.startsWith(prefix)) {
+                        categories.add(entry.getKey());
+                        break;
+                    }
                 }
             }
-        } catch (Exception e) {
-            log.debug("EMTAK count query failed: {}", e.getMessage());
         }
-
-        return counts;
+        return categories;
     }
 
     // Search terms for each category
@@ -209,57 +208,234 @@ public class SupplierSearchService {
         SEARCH_TERMS.put("DEMOLITION", "lammutustööd");
     }
 
+    @Override
+    public Set<String> getInvalidationTables() {
+        return Set.of("suppliers", "crawler.company");
+    }
+
+    /**
+     * Apply a row change to the count matrix: -1 for the old row's keys, +1 for the new row's.
+     * Updates that do not touch categories or city cancel out.
+     */
+    @Override
+    public synchronized void onInvalidation(Event event) {
+        boolean crawler = "crawler.company".equals(event.table());
+        adjustCounts(event.oldKeys(), -1, crawler);
+        adjustCounts(event.newKeys(), 1, crawler);
+
+        int delta = "INSERT".equals(event.op()) ? 1 : "DELETE".equals(event.op()) ? -1 : 0;
+        if (crawler) {
+            crawlerCompanyCount += delta;
+        } else {
+            totalSupplierCount += delta;
+        }
+    }
+
+    @Override
+    public void onResync() {
+        refreshCountCache();
+    }
+
+    private void adjustCounts(JsonNode keys, int delta, boolean crawler) {
+        if (keys == null || keys.isEmpty()) return;
+
+        List<String> categories = crawler
+            ? new ArrayList<>(emtakCategories(jsonStrings(keys.path("emtak_codes"))))
+            : jsonStrings(keys.path("categories"));
+        JsonNode city = keys.path("city");
+        addToCounts(categoryCityCounts, cityCountCache, categories, city.isTextual() ? city.asText() : null, delta);
+    }
+
+    private static List<String> jsonStrings(JsonNode node) {
+        if (node.isArray()) {
+            List<String> result = new ArrayList<>();
+            node.forEach(c -> result.add(c.asText()));
+            return SqlArrays.toStrings(result);
+        }
+        return SqlArrays.toStrings(node.isTextual() ? node.asText() : null);
+    }
+
     /**
      * Search for suppliers in a category and location.
-     * Uses cache if available (searched within last 7 days).
+     * Served from the in-memory near cache, then google_places_cache, then Google Places.
+     * Results past the soft TTL are returned immediately while one background refresh per key runs.
      */
     public List<GooglePlacesService.PlaceResult> searchCached(String category, String location) {
-        LocalDateTime cacheMinDate = LocalDateTime.now().minusDays(CACHE_DAYS);
+        String key = nearKey(category, location);
 
-        // Check cache first
-        Optional<GooglePlacesCache> cached = cacheRepository.findValidCache(category, location, cacheMinDate);
-        if (cached.isPresent()) {
-            GooglePlacesCache cache = cached.get();
-            log.debug("Cache hit for {}:{} (searched {} ago)",
-                category, location, java.time.Duration.between(cache.getSearchedAt(), LocalDateTime.now()));
+        NearEntry near = nearCache.get(key);
+        if (near == null) {
+            near = loadFromDb(category, location, LocalDateTime.now().minusDays(hardTtlDays));
+        }
 
-            // Update usage stats
-            cacheRepository.incrementUseCount(cache.getId(), LocalDateTime.now());
+        if (near != null) {
+            cacheHits.increment();
+            recordUse(near.cacheId());
+            if (near.searchedAt().isBefore(LocalDateTime.now().minusDays(softTtlDays))) {
+                staleServed.increment();
+                refreshInBackground(key, category, location);
+            }
+            return near.results();
+        }
+
+        // Cache miss - fetch from Google Places
+        cacheMisses.increment();
+        return fetchLive(key, category, location).results();
+    }
+
+    private NearEntry loadFromDb(String category, String location, LocalDateTime minDate) {
+        Optional<GooglePlacesCache> cached = cacheRepository.findValidCache(category, location, minDate);
+        if (cached.isEmpty()) return null;
+
+        GooglePlacesCache cache = cached.get();
+        log.debug("Cache hit for {}:{} (searched {} ago)",
+            category, location, Duration.between(cache.getSearchedAt(), LocalDateTime.now()));
+        try {
+            List<GooglePlacesService.PlaceResult> results = cache.getResultsPayload() != null
+                ? PayloadCodec.decodeValue(cache.getResultsPayload(), PLACE_RESULTS_TYPE)
+                : objectMapper.readValue(cache.getResultsJson(), PLACE_RESULTS_TYPE);
+            return putNear(nearKey(category, location), cache.getId(), results, cache.getSearchedAt());
+        } catch (Exception e) {
+            log.warn("Failed to parse cached results, fetching fresh: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private NearEntry fetchLive(String key, String category, String location) {
+        return storeLive(key, category, location, searchLive(category, location), true);
+    }
 
-            // Parse and return cached results
+    private List<GooglePlacesService.PlaceResult> searchLive(String category, String location) {
+        liveFetches.increment();
+        String searchTerm = SEARCH_TERMS.getOrDefault(category, category.toLowerCase());
+        return googlePlacesService.searchPlaces(searchTerm, location);
+    }
+
+    /**
+     * Cache fresh results. Only a search made for a user counts as a use: refreshes keep the key's
+     * recorded demand as it was, so warmup does not rank its own entries as hot.
+     */
+    private NearEntry storeLive(String key, String category, String location,
+                                List<GooglePlacesService.PlaceResult> results, boolean userDemand) {
+        GooglePlacesCache saved = saveToCache(category, location, results, userDemand);
+        return putNear(key, saved != null ? saved.getId() : null, results, LocalDateTime.now());
+    }
+
+    private void refreshInBackground(String key, String category, String location) {
+        if (refreshBackoff.get(key) != null || !refreshing.add(key)) return;
+
+        CompletableFuture.runAsync(() -> {
             try {
-                return objectMapper.readValue(cache.getResultsJson(),
-                    new TypeReference<List<GooglePlacesService.PlaceResult>>() {});
+                // Another instance may already have refreshed the row
+                if (loadFromDb(category, location, LocalDateTime.now().minusDays(softTtlDays)) != null) return;
+
+                backgroundRefreshes.increment();
+                List<GooglePlacesService.PlaceResult> results = searchLive(category, location);
+                if (results.isEmpty()) {
+                    // Keep serving the stale results rather than replacing them with an empty (likely failed) search
+                    refreshBackoff.put(key, Boolean.TRUE);
+                    return;
+                }
+                // The stale hit that triggered this was already counted by recordUse
+                storeLive(key, category, location, results, false);
             } catch (Exception e) {
-                log.warn("Failed to parse cached results, fetching fresh: {}", e.getMessage());
+                refreshBackoff.put(key, Boolean.TRUE);
+                log.warn("Background refresh of {}:{} failed: {}", category, location, e.getMessage());
+            } finally {
+                refreshing.remove(key);
             }
+        }, searchExecutor);
+    }
+
+    /**
+     * Re-run a search now and replace the cached results, unless the live search comes back empty.
+     * Used by warmup; returns the number of results stored, or -1 if the existing entry was kept.
+     */
+    public int refreshEntry(String category, String location) {
+        List<GooglePlacesService.PlaceResult> results = searchLive(category, location);
+        if (results.isEmpty()) {
+            return -1;
         }
+        storeLive(nearKey(category, location), category, location, results, false);
+        return results.size();
+    }
 
-        // Cache miss - fetch from Google Places
-        String searchTerm = SEARCH_TERMS.getOrDefault(category, category.toLowerCase());
-        List<GooglePlacesService.PlaceResult> results = googlePlacesService.searchPlaces(searchTerm, location);
+    public int getSoftTtlDays() {
+        return softTtlDays;
+    }
 
-        // Store in cache
-        saveToCache(category, location, results);
+    private NearEntry putNear(String key, Long cacheId, List<GooglePlacesService.PlaceResult> results,
+                              LocalDateTime searchedAt) {
+        NearEntry entry = new NearEntry(cacheId, List.copyOf(results), searchedAt);
+        long untilHardExpiry = Duration.between(LocalDateTime.now(), searchedAt.plusDays(hardTtlDays)).toMillis();
+        nearCache.put(key, entry, untilHardExpiry);
+        return entry;
+    }
 
-        return results;
+    private static String nearKey(String category, String location) {
+        return category + "|" + location;
     }
 
-    @Transactional
-    protected void saveToCache(String category, String location, List<GooglePlacesService.PlaceResult> results) {
+    private void recordUse(Long cacheId) {
+        if (cacheId != null) {
+            pendingUses.computeIfAbsent(cacheId, k -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * Write accumulated cache use counts in one JDBC batch.
+     */
+    @Scheduled(fixedDelayString = "${places.cache.use-flush-interval-ms:30000}")
+    @PreDestroy
+    public void flushUseCounts() {
+        if (pendingUses.isEmpty()) return;
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> updates = new ArrayList<>();
+        for (Long id : new ArrayList<>(pendingUses.keySet())) {
+            LongAdder adder = pendingUses.remove(id);
+            if (adder != null && adder.sum() > 0) {
+                updates.add(new Object[] { adder.sum(), now, id });
+            }
+        }
+        if (updates.isEmpty()) return;
+
+        try {
+            jdbcTemplate.batchUpdate(
+                "UPDATE google_places_cache SET use_count = COALESCE(use_count, 0) + ?, last_used_at = ? WHERE id = ?",
+                updates);
+            log.debug("Flushed Places cache use counts for {} entries", updates.size());
+        } catch (Exception e) {
+            log.warn("Failed to flush Places cache use counts: {}", e.getMessage());
+        }
+    }
+
+    protected GooglePlacesCache saveToCache(String category, String location,
+                                            List<GooglePlacesService.PlaceResult> results, boolean userDemand) {
         try {
             GooglePlacesCache cache = new GooglePlacesCache();
             cache.setCategory(category);
             cache.setLocation(location);
-            cache.setResultsJson(objectMapper.writeValueAsString(results));
+            cache.setResultsPayload(PayloadCodec.encodeValue(results));
             cache.setResultCount(results.size());
             cache.setSearchedAt(LocalDateTime.now());
-            cache.setLastUsedAt(LocalDateTime.now());
-            cache.setUseCount(1);
-            cacheRepository.save(cache);
+            if (userDemand) {
+                cache.setLastUsedAt(LocalDateTime.now());
+                cache.setUseCount(1);
+            } else {
+                // Carry the key's last use forward; use counts stay on the rows that earned them
+                Timestamp lastUsed = jdbcTemplate.queryForObject(
+                    "SELECT MAX(COALESCE(last_used_at, searched_at)) FROM google_places_cache WHERE category = ? AND location = ?",
+                    Timestamp.class, category, location);
+                cache.setLastUsedAt(lastUsed != null ? lastUsed.toLocalDateTime() : null);
+                cache.setUseCount(0);
+            }
+            GooglePlacesCache saved = cacheRepository.save(cache);
             log.debug("Cached {} results for {}:{}", results.size(), category, location);
+            return saved;
         } catch (Exception e) {
             log.warn("Failed to cache results: {}", e.getMessage());
+            return null;
         }
     }
 
@@ -369,26 +545,24 @@ public class SupplierSearchService {
 
     /**
      * Get count of suppliers for a category/location.
-     * Uses in-memory cache for instant response (no DB queries).
+     * Exact O(1) lookup in the in-memory count matrix (no DB queries), including 0 for an empty
+     * cell. Only categories the matrix does not know fall back to the Places cache.
      */
     public int getSupplierCount(String category, String location) {
-        // Use in-memory cache (instant lookup)
-        int categoryCount = categoryCountCache.getOrDefault(category, 0);
-
-        if (categoryCount > 0) {
-            // If we have city data, estimate based on city distribution
-            int cityCount = cityCountCache.getOrDefault(location.toUpperCase(), 0);
-            if (cityCount > 0 && totalSupplierCount > 0) {
-                // Rough estimate: category suppliers in this city
-                double cityRatio = (double) cityCount / totalSupplierCount;
-                int estimated = (int) Math.max(categoryCount * cityRatio, 5);
-                return Math.min(estimated, categoryCount);
-            }
-            return categoryCount;
+        CountMatrix counts = categoryCityCounts;
+        String city = normalizeCity(location);
+
+        if (counts.hasRow(category)) {
+            // Known city: exact count there. Unknown location (county, free text): whole category.
+            return cityCountCache.containsKey(city) ? counts.get(category, city) : counts.rowTotal(category);
         }
 
-        // Fallback: check Google Places cache
-        LocalDateTime cacheMinDate = LocalDateTime.now().minusDays(CACHE_DAYS);
+        // Unknown category: check Google Places cache
+        NearEntry near = nearCache.get(nearKey(category, location));
+        if (near != null) {
+            return near.results().size();
+        }
+        LocalDateTime cacheMinDate = LocalDateTime.now().minusDays(hardTtlDays);
         Optional<GooglePlacesCache> cached = cacheRepository.findValidCache(category, location, cacheMinDate);
         if (cached.isPresent()) {
             return cached.get().getResultCount();
@@ -413,11 +587,11 @@ public class SupplierSearchService {
     }
 
     /**
-     * Cleanup old cache entries (older than 14 days).
+     * Cleanup cache entries past the hard TTL.
      */
     @Transactional
     public int cleanupOldCache() {
-        LocalDateTime cutoff = LocalDateTime.now().minusDays(14);
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(hardTtlDays);
         int deleted = cacheRepository.deleteOldEntries(cutoff);
         log.info("Cleaned up {} old cache entries", deleted);
         return deleted;
@@ -427,13 +601,27 @@ public class SupplierSearchService {
      * Get cache statistics.
      */
     public Map<String, Object> getCacheStats() {
-        LocalDateTime minDate = LocalDateTime.now().minusDays(CACHE_DAYS);
+        LocalDateTime minDate = LocalDateTime.now().minusDays(hardTtlDays);
         long validEntries = cacheRepository.countValidEntries(minDate);
 
         Map<String, Object> stats = new HashMap<>();
         stats.put("validCacheEntries", validEntries);
-        stats.put("cacheDays", CACHE_DAYS);
+        stats.put("cacheDays", softTtlDays);
+        stats.put("hardTtlDays", hardTtlDays);
+        stats.put("nearCache", nearCache.getStats());
+        long hits = cacheHits.sum();
+        long lookups = hits + cacheMisses.sum();
+        stats.put("cacheHits", hits);
+        stats.put("cacheMisses", cacheMisses.sum());
+        stats.put("hitRatio", lookups > 0 ? (double) hits / lookups : 0.0);
+        stats.put("staleServed", staleServed.sum());
+        stats.put("backgroundRefreshes", backgroundRefreshes.sum());
+        stats.put("refreshesInFlight", refreshing.size());
+        stats.put("liveFetches", liveFetches.sum());
+        stats.put("pendingUseFlushes", pendingUses.size());
         stats.put("totalCategories", SEARCH_TERMS.size());
         return stats;
     }
+
+    private record NearEntry(Long cacheId, List<GooglePlacesService.PlaceResult> results, LocalDateTime searchedAt) {}
 }
@@ -0,0 +1,403 @@
+package com.buildquote.util;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Phone, email and contact-page extraction shared by every crawler.
+ *
+ * One walk over the parsed page collects everything: tel:/mailto: links, schema.org
+ * microdata and JSON-LD, and plain text, which is scanned character by character instead
+ * of being joined into one string and run through several regexes. "info [at] firma [dot] ee"
+ * style addresses are de-obfuscated. Phones are validated against the Estonian numbering
+ * plan and returned as national digits (e.g. 51234567); emails are lower-cased.
+ */
+public final class ContactExtractor {
+
+    // Candidate sources, most reliable first
+    private static final int SOURCE_LINK = 3;
+    private static final int SOURCE_SCHEMA = 2;
+    private static final int SOURCE_TEXT = 1;
+
+    private static final int MAX_PHONE_DIGITS = 15;
+
+    private static final String[] CONTACT_PAGE_HINTS = {"kontakt", "contact", "meist", "about", "info"};
+    private static final String[] ROLE_MAILBOXES = {"info@", "kontakt@", "office@", "post@"};
+    private static final String[] BLOCKED_EMAIL_PARTS = {
+        "example.com", "domain.com", "email.com", "wixpress", "sentry", "google", "facebook", "info@w3"
+    };
+    private static final Set<String> FILE_EXTENSIONS = Set.of("png", "jpg", "jpeg", "gif", "webp", "svg", "css", "js");
+
+    private static final Pattern OBFUSCATED_AT = Pattern.compile("(?i)\\s*[\\[({]\\s*(?:at|ät|@)\\s*[\\])}]\\s*");
+    private static final Pattern OBFUSCATED_DOT = Pattern.compile("(?i)\\s*[\\[({]\\s*(?:dot|punkt|\\.)\\s*[\\])}]\\s*");
+    private static final Pattern PERCENT_ESCAPE = Pattern.compile("%[0-9A-Fa-f]{2}");
+
+    private ContactExtractor() {}
+
+    /**
+     * Contacts found on a parsed page, best candidates first.
+     */
+    public static final class Contacts {
+        private final Map<String, Integer> phones = new LinkedHashMap<>();
+        private final Map<String, Integer> emails = new LinkedHashMap<>();
+        private String contactPageUrl;
+
+        public List<String> phones() {
+            return ranked(phones);
+        }
+
+        public List<String> emails() {
+            return ranked(emails);
+        }
+
+        /** The phone from the most reliable source, or null. */
+        public String bestPhone() {
+            String best = null;
+            int bestRank = 0;
+            for (Map.Entry<String, Integer> e : phones.entrySet()) {
+                if (e.getValue() > bestRank) {
+                    best = e.getKey();
+                    bestRank = e.getValue();
+                }
+            }
+            return best;
+        }
+
+        /** The email from the most reliable source, preferring role mailboxes such as info@, or null. */
+        public String bestEmail() {
+            String best = null;
+            int bestRank = 0;
+            for (Map.Entry<String, Integer> e : emails.entrySet()) {
+                int rank = e.getValue() * 2 + (isRoleMailbox(e.getKey()) ? 1 : 0);
+                if (rank > bestRank) {
+                    best = e.getKey();
+                    bestRank = rank;
+                }
+            }
+            return best;
+        }
+
+        /** First link that looks like a contact / about page, or null. */
+        public String contactPageUrl() {
+            return contactPageUrl;
+        }
+
+        public boolean isEmpty() {
+            return phones.isEmpty() && emails.isEmpty();
+        }
+
+        private void addPhone(String phone, int source) {
+            if (phone != null) phones.merge(phone, source, Math::max);
+        }
+
+        private void addEmail(String email, int source) {
+            if (email != null) emails.merge(email, source, Math::max);
+        }
+
+        private static List<String> ranked(Map<String, Integer> candidates) {
+            List<String> result = new ArrayList<>(candidates.keySet());
+            // Stable: equal ranks keep document order
+            result.sort((a, b) -> Integer.compare(candidates.get(b), candidates.get(a)));
+            return result;
+        }
+    }
+
+    public static Contacts extract(String html, String baseUri) {
+        return extract(Jsoup.parse(html, baseUri));
+    }
+
+    public static Contacts extract(Document doc) {
+        Contacts contacts = new Contacts();
+        doc.traverse((node, depth) -> visit(node, contacts));
+        return contacts;
+    }
+
+    private static void visit(Node node, Contacts contacts) {
+        if (node instanceof TextNode text) {
+            if (text.isBlank()) return;
+            Node parent = text.parent();
+            int source = parent instanceof Element p && !p.attr("itemprop").isEmpty() ? SOURCE_SCHEMA : SOURCE_TEXT;
+            scanText(text.getWholeText(), source, contacts);
+            return;
+        }
+        if (!(node instanceof Element el)) return;
+
+        switch (el.normalName()) {
+            case "a" -> visitLink(el, contacts);
+            case "script" -> {
+                if ("application/ld+json".equalsIgnoreCase(el.attr("type"))) {
+                    scanText(el.data(), SOURCE_SCHEMA, contacts);
+                }
+            }
+            default -> { }
+        }
+
+        // Microdata carried in attributes, e.g. <meta itemprop="telephone" content="...">
+        String itemprop = el.attr("itemprop");
+        if (!itemprop.isEmpty() && el.hasAttr("content")) {
+            if (itemprop.equalsIgnoreCase("telephone")) {
+                contacts.addPhone(normalizePhone(el.attr("content")), SOURCE_SCHEMA);
+            } else if (itemprop.equalsIgnoreCase("email")) {
+                contacts.addEmail(normalizeEmail(stripScheme(el.attr("content"), "mailto:")), SOURCE_SCHEMA);
+            }
+        }
+    }
+
+    private static void visitLink(Element link, Contacts contacts) {
+        String href = link.attr("href").trim();
+        if (href.regionMatches(true, 0, "tel:", 0, 4)) {
+            contacts.addPhone(normalizePhone(href.substring(4)), SOURCE_LINK);
+        } else if (href.regionMatches(true, 0, "mailto:", 0, 7)) {
+            String addresses = href.substring(7);
+            int query = addresses.indexOf('?');
+            if (query >= 0) addresses = addresses.substring(0, query);
+            for (String address : decodePercent(addresses).split(",")) {
+                contacts.addEmail(normalizeEmail(address), SOURCE_LINK);
+            }
+        } else if (contacts.contactPageUrl == null && !href.isEmpty()) {
+            String lowerHref = href.toLowerCase(Locale.ROOT);
+            String lowerText = link.text().toLowerCase(Locale.ROOT);
+            for (String hint : CONTACT_PAGE_HINTS) {
+                if (lowerHref.contains(hint) || lowerText.contains(hint)) {
+                    String url = link.absUrl("href");
+                    if (!url.isEmpty()) contacts.contactPageUrl = url;
+                    break;
+                }
+            }
+        }
+    }
+
+    // ===== Text scanning =====
+
+    private static void scanText(String text, int source, Contacts contacts) {
+        if (mayBeObfuscated(text)) {
+            text = OBFUSCATED_AT.matcher(text).replaceAll("@");
+            text = OBFUSCATED_DOT.matcher(text).replaceAll(".");
+        }
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            char c = text.charAt(i);
+            if (c == '@') {
+                i = scanEmail(text, i, source, contacts);
+            } else if ((c == '+' || isDigit(c)) && (i == 0 || !isWordChar(text.charAt(i - 1)))) {
+                i = scanPhone(text, i, source, contacts);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private static boolean mayBeObfuscated(String text) {
+        return text.indexOf('[') >= 0 || text.indexOf('(') >= 0 || text.indexOf('{') >= 0;
+    }
+
+    /** Expand around an '@' and return the index to continue scanning from. */
+    private static int scanEmail(String text, int at, int source, Contacts contacts) {
+        int start = at;
+        while (start > 0 && isLocalChar(text.charAt(start - 1))) start--;
+        int end = at + 1;
+        while (end < text.length() && isDomainChar(text.charAt(end))) end++;
+        if (start < at && end > at + 1) {
+            contacts.addEmail(normalizeEmail(text.substring(start, end)), source);
+        }
+        return end;
+    }
+
+    /**
+     * Consume a run of digits and single separators ("+372 5123 4567", "(+372) 612-3456") and
+     * return the index to continue scanning from.
+     */
+    private static int scanPhone(String text, int start, int source, Contacts contacts) {
+        int n = text.length();
+        boolean plus = text.charAt(start) == '+';
+        int i = plus ? start + 1 : start;
+        StringBuilder digits = new StringBuilder(16);
+        int firstGroup = 0;
+        int groups = 0;
+        int groupLength = 0;
+        int end = i;
+
+        while (i < n) {
+            char c = text.charAt(i);
+            if (isDigit(c)) {
+                digits.append(c);
+                groupLength++;
+                end = ++i;
+                if (digits.length() > MAX_PHONE_DIGITS) break;
+            } else if (groupLength > 0 && isPhoneSeparator(c)) {
+                // Up to two separators between groups, e.g. ") " after a bracketed prefix
+                int next = i + 1;
+                if (next < n && isPhoneSeparator(text.charAt(next))) next++;
+                if (next >= n || !isDigit(text.charAt(next))) break;
+                if (groups++ == 0) firstGroup = groupLength;
+                groupLength = 0;
+                i = next;
+            } else {
+                break;
+            }
+        }
+        if (groups++ == 0) firstGroup = groupLength;
+
+        // Part of something longer (an id, an email local part, a bigger number)
+        boolean bounded = end >= n || !(isWordChar(text.charAt(end)) || text.charAt(end) == '@');
+        if (bounded && digits.length() <= MAX_PHONE_DIGITS) {
+            String national = toNational(plus, digits.toString());
+            boolean hasCountryCode = national != null && national.length() < digits.length();
+            // Without a country code, "5 000 000" and "23.05.2023" are amounts and dates
+            if (national != null && (hasCountryCode || groups == 1 || firstGroup >= 3)) {
+                contacts.addPhone(national, source);
+            }
+        }
+        return Math.max(end, start + 1);
+    }
+
+    // ===== Normalisation and validation =====
+
+    /**
+     * National digits of an Estonian phone number in any common notation, or null if the
+     * value is not a valid Estonian number.
+     */
+    public static String normalizePhone(String raw) {
+        if (raw == null) return null;
+        String value = decodePercent(raw).trim();
+        boolean plus = value.startsWith("+");
+        StringBuilder digits = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (isDigit(c)) digits.append(c);
+        }
+        return toNational(plus, digits.toString());
+    }
+
+    /** "+372" form of national digits returned by {@link #normalizePhone}. */
+    public static String toInternational(String national) {
+        return national == null ? null : "+372" + national;
+    }
+
+    private static String toNational(boolean plus, String digits) {
+        String national;
+        if (plus) {
+            if (!digits.startsWith("372")) return null;
+            national = digits.substring(3);
+        } else if (digits.startsWith("00372")) {
+            national = digits.substring(5);
+        } else if (digits.startsWith("372") && digits.length() >= 10) {
+            national = digits.substring(3);
+        } else {
+            national = digits;
+        }
+        return isValidNational(national) ? national : null;
+    }
+
+    /**
+     * Estonian numbering plan: 7-digit landlines (3x, 4x, 6x, 7x), 7/8-digit mobiles (5x, 81x,
+     * 82x) and 800 toll-free numbers.
+     */
+    private static boolean isValidNational(String d) {
+        if (d.length() == 7) {
+            char first = d.charAt(0);
+            return (first >= '3' && first <= '7') || d.startsWith("800");
+        }
+        if (d.length() == 8) {
+            return d.charAt(0) == '5' || d.startsWith("81") || d.startsWith("82") || d.startsWith("800");
+        }
+        return false;
+    }
+
+    /** Lower-cased address if it is a plausible contact email, otherwise null. */
+    public static String normalizeEmail(String raw) {
+        if (raw == null) return null;
+        String email = raw.trim().toLowerCase(Locale.ROOT);
+        int at = email.indexOf('@');
+        if (at <= 0 || at > 64 || at != email.lastIndexOf('@')) return null;
+
+        String local = email.substring(0, at);
+        String domain = email.substring(at + 1);
+        while (domain.endsWith(".") || domain.endsWith("-")) {
+            domain = domain.substring(0, domain.length() - 1);
+        }
+        if (local.startsWith(".") || local.endsWith(".") || local.contains("..")) return null;
+        for (int i = 0; i < local.length(); i++) {
+            if (!isLocalChar(local.charAt(i))) return null;
+        }
+
+        String[] labels = domain.split("\\.", -1);
+        if (labels.length < 2) return null;
+        for (String label : labels) {
+            if (label.isEmpty() || label.length() > 63 || label.startsWith("-") || label.endsWith("-")) return null;
+            for (int i = 0; i < label.length(); i++) {
+                char c = label.charAt(i);
+                if (!isAsciiLetter(c) && !isDigit(c) && c != '-') return null;
+            }
+        }
+        String tld = labels[labels.length - 1];
+        if (tld.length() < 2 || tld.length() > 24 || FILE_EXTENSIONS.contains(tld)) return null;
+        for (int i = 0; i < tld.length(); i++) {
+            if (!isAsciiLetter(tld.charAt(i))) return null;
+        }
+
+        email = local + "@" + domain;
+        for (String blocked : BLOCKED_EMAIL_PARTS) {
+            if (email.contains(blocked)) return null;
+        }
+        return email;
+    }
+
+    private static boolean isRoleMailbox(String email) {
+        for (String prefix : ROLE_MAILBOXES) {
+            if (email.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    private static String stripScheme(String value, String scheme) {
+        String trimmed = value.trim();
+        return trimmed.regionMatches(true, 0, scheme, 0, scheme.length()) ? trimmed.substring(scheme.length()) : trimmed;
+    }
+
+    /** Decode %XX escapes in tel:/mailto: hrefs; a literal '+' stays a plus sign. */
+    private static String decodePercent(String value) {
+        if (value.indexOf('%') < 0) return value;
+        return PERCENT_ESCAPE.matcher(value).replaceAll(m -> {
+            char c = (char) Integer.parseInt(m.group().substring(1), 16);
+            return Matcher.quoteReplacement(String.valueOf(c));
+        });
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static boolean isLocalChar(char c) {
+        return isAsciiLetter(c) || isDigit(c) || c == '.' || c == '_' || c == '%' || c == '+' || c == '-';
+    }
+
+    private static boolean isDomainChar(char c) {
+        return isAsciiLetter(c) || isDigit(c) || c == '.' || c == '-';
+    }
+
+    private static boolean isPhoneSeparator(char c) {
+        return c == ' ' || c == '\u00a0' || c == '-' || c == '.' || c == '/' || c == '(' || c == ')';
+    }
+}
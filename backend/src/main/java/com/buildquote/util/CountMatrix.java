@@ -0,0 +1,112 @@
+package com.buildquote.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exact two-dimensional counter (row key x column key) backed by a flat int table.
+ * Keys are mapped to dense ordinals on first use and the table grows as needed.
+ * Row totals are kept alongside the cells so both lookups are O(1).
+ *
+ * Thread-safe; all operations lock the matrix.
+ */
+public class CountMatrix {
+
+    private final Map<String, Integer> rowIds = new HashMap<>();
+    private final Map<String, Integer> colIds = new HashMap<>();
+
+    private int rowCapacity;
+    private int colCapacity;
+    private int[] cells;
+    private int[] rowTotals;
+
+    public CountMatrix() {
+        this(16, 64);
+    }
+
+    public CountMatrix(int initialRows, int initialCols) {
+        this.rowCapacity = Math.max(1, initialRows);
+        this.colCapacity = Math.max(1, initialCols);
+        this.cells = new int[rowCapacity * colCapacity];
+        this.rowTotals = new int[rowCapacity];
+    }
+
+    public synchronized void add(String row, String col, int delta) {
+        int r = rowId(row);
+        int c = colId(col);
+        cells[r * colCapacity + c] += delta;
+        rowTotals[r] += delta;
+    }
+
+    public synchronized int get(String row, String col) {
+        Integer r = rowIds.get(row);
+        Integer c = colIds.get(col);
+        if (r == null || c == null) return 0;
+        return cells[r * colCapacity + c];
+    }
+
+    public synchronized int rowTotal(String row) {
+        Integer r = rowIds.get(row);
+        return r != null ? rowTotals[r] : 0;
+    }
+
+    public synchronized boolean hasRow(String row) {
+        return rowIds.containsKey(row);
+    }
+
+    public synchronized boolean hasColumn(String col) {
+        return colIds.containsKey(col);
+    }
+
+    public synchronized Map<String, Integer> rowTotals() {
+        Map<String, Integer> totals = new LinkedHashMap<>();
+        rowIds.forEach((row, r) -> totals.put(row, rowTotals[r]));
+        return Collections.unmodifiableMap(totals);
+    }
+
+    public synchronized int rowCount() {
+        return rowIds.size();
+    }
+
+    public synchronized int columnCount() {
+        return colIds.size();
+    }
+
+    private int rowId(String row) {
+        Integer id = rowIds.get(row);
+        if (id != null) return id;
+
+        int next = rowIds.size();
+        if (next == rowCapacity) {
+            resize(rowCapacity * 2, colCapacity);
+        }
+        rowIds.put(row, next);
+        return next;
+    }
+
+    private int colId(String col) {
+        Integer id = colIds.get(col);
+        if (id != null) return id;
+
+        int next = colIds.size();
+        if (next == colCapacity) {
+            resize(rowCapacity, colCapacity * 2);
+        }
+        colIds.put(col, next);
+        return next;
+    }
+
+    private void resize(int newRows, int newCols) {
+        int[] newCells = new int[newRows * newCols];
+        for (int r = 0; r < rowIds.size(); r++) {
+            System.arraycopy(cells, r * colCapacity, newCells, r * newCols, colCapacity);
+        }
+        cells = newCells;
+        rowTotals = Arrays.copyOf(rowTotals, newRows);
+        rowCapacity = newRows;
+        colCapacity = newCols;
+    }
+}
@@ -0,0 +1,95 @@
+package com.buildquote.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * MinHash signatures over integer shingle sets, split into LSH bands. Two sets with Jaccard
+ * similarity s share at least one band key with probability 1 - (1 - s^rows)^bands, so
+ * candidate pairs come from band-key collisions instead of comparing every pair.
+ */
+public class MinHash {
+
+    private static final long PRIME = (1L << 31) - 1;
+
+    private final int bands;
+    private final int rows;
+    private final long[] a;
+    private final long[] b;
+
+    public MinHash(int bands, int rows, long seed) {
+        this.bands = bands;
+        this.rows = rows;
+        int hashes = bands * rows;
+        Random random = new Random(seed);
+        a = new long[hashes];
+        b = new long[hashes];
+        for (int i = 0; i < hashes; i++) {
+            a[i] = 1 + random.nextInt(Integer.MAX_VALUE - 1);
+            b[i] = random.nextInt(Integer.MAX_VALUE);
+        }
+    }
+
+    public int[] signature(int[] shingles) {
+        int[] sig = new int[a.length];
+        Arrays.fill(sig, Integer.MAX_VALUE);
+        for (int shingle : shingles) {
+            long x = shingle & 0x7fffffffL;
+            for (int i = 0; i < a.length; i++) {
+                int h = (int) ((a[i] * x + b[i]) % PRIME);
+                if (h < sig[i]) sig[i] = h;
+            }
+        }
+        return sig;
+    }
+
+    /**
+     * One key per band; the band index is mixed in so equal rows in different bands don't collide.
+     */
+    public long[] bandKeys(int[] signature) {
+        long[] keys = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            long h = band * 0x9E3779B97F4A7C15L;
+            for (int r = 0; r < rows; r++) {
+                h = (h ^ signature[band * rows + r]) * 0xBF58476D1CE4E5B9L;
+                h ^= h >>> 31;
+            }
+            keys[band] = h;
+        }
+        return keys;
+    }
+
+    /**
+     * Exact Jaccard similarity of two sorted, de-duplicated shingle arrays.
+     */
+    public static double jaccard(int[] x, int[] y) {
+        if (x.length == 0 && y.length == 0) return 1.0;
+        int i = 0, j = 0, common = 0;
+        while (i < x.length && j < y.length) {
+            if (x[i] == y[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (x[i] < y[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) common / (x.length + y.length - common);
+    }
+
+    /**
+     * Sorted, de-duplicated hashes of the character k-grams of text.
+     */
+    public static int[] shingles(String text, int k) {
+        if (text.length() <= k) {
+            return text.isEmpty() ? new int[0] : new int[]{text.hashCode()};
+        }
+        int[] result = new int[text.length() - k + 1];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = text.substring(i, i + k).hashCode();
+        }
+        return Arrays.stream(result).sorted().distinct().toArray();
+    }
+}
@@ -0,0 +1,342 @@
+package com.buildquote.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Streams records out of open-data dumps (CSV, JSON, XML, optionally .gz or .zip) without
+ * loading the file: each record is handed to the sink as a flat map and then dropped.
+ *
+ * Field names are normalised so the same column matches across formats and spellings:
+ * lower case, diacritics removed, anything else non-alphanumeric turned into '_'
+ * ("Töötajate arv" becomes "tootajate_arv"). Nested JSON objects are flattened; a leaf is
+ * available both under its own name and under its path ("yldandmed_staatus").
+ */
+public final class OpenDataReader {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}");
+    private static final Pattern NON_KEY = Pattern.compile("[^a-z0-9]+");
+
+    private OpenDataReader() {}
+
+    /**
+     * Read every record of the file. Returns the number of records passed to the sink.
+     */
+    public static long read(Path file, Consumer<Map<String, String>> sink) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 64 * 1024)) {
+            return read(in, file.getFileName().toString(), sink);
+        }
+    }
+
+    private static long read(InputStream in, String name, Consumer<Map<String, String>> sink) throws IOException {
+        String lower = name.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".gz")) {
+            return read(new GZIPInputStream(in, 64 * 1024), name.substring(0, name.length() - 3), sink);
+        }
+        if (lower.endsWith(".zip")) {
+            long count = 0;
+            ZipInputStream zip = new ZipInputStream(in, StandardCharsets.UTF_8);
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (!entry.isDirectory() && isSupported(entry.getName())) {
+                    // The entry reader must not close the zip stream
+                    count += read(new FilterInputStream(zip) {
+                        @Override
+                        public void close() {}
+                    }, entry.getName(), sink);
+                }
+            }
+            return count;
+        }
+        if (lower.endsWith(".csv") || lower.endsWith(".txt") || lower.endsWith(".tsv")) {
+            return readCsv(new InputStreamReader(in, StandardCharsets.UTF_8), sink);
+        }
+        if (lower.endsWith(".json")) {
+            return readJson(in, sink);
+        }
+        if (lower.endsWith(".xml")) {
+            return readXml(in, sink);
+        }
+        throw new IOException("Unsupported open-data file type: " + name);
+    }
+
+    public static boolean isSupported(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".gz")) lower = lower.substring(0, lower.length() - 3);
+        return lower.endsWith(".csv") || lower.endsWith(".txt") || lower.endsWith(".tsv")
+                || lower.endsWith(".json") || lower.endsWith(".xml") || lower.endsWith(".zip");
+    }
+
+    public static String normalizeKey(String key) {
+        String k = Normalizer.normalize(key.trim().toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        k = DIACRITICS.matcher(k).replaceAll("");
+        k = NON_KEY.matcher(k).replaceAll("_");
+        int start = 0;
+        int end = k.length();
+        while (start < end && k.charAt(start) == '_') start++;
+        while (end > start && k.charAt(end - 1) == '_') end--;
+        return k.substring(start, end);
+    }
+
+    // ===== CSV =====
+
+    private static long readCsv(Reader raw, Consumer<Map<String, String>> sink) throws IOException {
+        BufferedReader reader = new BufferedReader(raw, 64 * 1024);
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') reader.reset();
+
+        // The delimiter is whichever of ; , TAB occurs most in the header line
+        reader.mark(64 * 1024);
+        String headerLine = reader.readLine();
+        if (headerLine == null) return 0;
+        reader.reset();
+        char delimiter = sniffDelimiter(headerLine);
+
+        List<String> header = nextCsvRow(reader, delimiter);
+        if (header == null) return 0;
+        String[] keys = new String[header.size()];
+        for (int i = 0; i < keys.length; i++) keys[i] = normalizeKey(header.get(i));
+
+        long count = 0;
+        List<String> row;
+        while ((row = nextCsvRow(reader, delimiter)) != null) {
+            if (row.size() == 1 && row.get(0).isEmpty()) continue;
+            Map<String, String> record = new LinkedHashMap<>();
+            for (int i = 0; i < keys.length && i < row.size(); i++) {
+                String value = row.get(i).trim();
+                if (!value.isEmpty()) record.put(keys[i], value);
+            }
+            sink.accept(record);
+            count++;
+        }
+        return count;
+    }
+
+    private static char sniffDelimiter(String line) {
+        int semicolons = 0, commas = 0, tabs = 0;
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') quoted = !quoted;
+            else if (!quoted && c == ';') semicolons++;
+            else if (!quoted && c == ',') commas++;
+            else if (!quoted && c == '\t') tabs++;
+        }
+        if (tabs > semicolons && tabs > commas) return '\t';
+        return semicolons >= commas ? ';' : ',';
+    }
+
+    /** One RFC 4180 row; quoted fields may contain delimiters, "" and line breaks. Null at EOF. */
+    private static List<String> nextCsvRow(BufferedReader reader, char delimiter) throws IOException {
+        int c = reader.read();
+        if (c == -1) return null;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (c != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next != -1) reader.reset();
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // ===== JSON =====
+
+    /**
+     * Records are the objects of the first array in the document: a top-level array, or the
+     * first array-valued field such as {"data": [...]}.
+     */
+    private static long readJson(InputStream in, Consumer<Map<String, String>> sink) throws IOException {
+        try (JsonParser parser = new JsonFactory(JSON).createParser(in)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.START_ARRAY) {
+                // skip to the record array
+            }
+            if (token == null) return 0;
+
+            long count = 0;
+            while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+                JsonNode node = parser.readValueAsTree();
+                Map<String, String> record = new LinkedHashMap<>();
+                flatten(node, "", record);
+                sink.accept(record);
+                count++;
+            }
+            return count;
+        }
+    }
+
+    private static void flatten(JsonNode node, String path, Map<String, String> record) {
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String key = normalizeKey(field.getKey());
+            String fullKey = path.isEmpty() ? key : path + "_" + key;
+            JsonNode value = field.getValue();
+            if (value.isObject()) {
+                flatten(value, fullKey, record);
+            } else if (value.isArray()) {
+                if (value.isEmpty()) continue;
+                if (value.get(0).isObject()) {
+                    // Lists of sub-records (addresses, persons): the first one stands for the list
+                    flatten(value.get(0), fullKey, record);
+                } else {
+                    List<String> items = new ArrayList<>();
+                    value.forEach(v -> { if (!v.isNull()) items.add(v.asText()); });
+                    putLeaf(record, key, fullKey, String.join(",", items));
+                }
+            } else if (!value.isNull()) {
+                putLeaf(record, key, fullKey, value.asText());
+            }
+        }
+    }
+
+    private static void putLeaf(Map<String, String> record, String key, String fullKey, String value) {
+        if (value.isBlank()) return;
+        record.put(fullKey, value.trim());
+        record.putIfAbsent(key, value.trim());
+    }
+
+    // ===== XML =====
+
+    /**
+     * The record element is the parent of the first text-only element below the root's children
+     * (or, for attribute-only rows such as {@code <row a="1"/>}, the root's children themselves).
+     * Every element at that depth is a record; text-only elements and attributes below it are its
+     * fields.
+     */
+    private static long readXml(InputStream in, Consumer<Map<String, String>> sink) throws IOException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+
+        long count = 0;
+        XMLStreamReader xml = null;
+        try {
+            xml = factory.createXMLStreamReader(in);
+            int depth = 0;
+            int recordDepth = -1;
+            Map<String, String> record = null;
+            // Name of the open element while it has no child elements yet
+            String leafKey = null;
+            StringBuilder text = new StringBuilder();
+            List<Map<String, String>> openAttributes = new ArrayList<>();
+
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    leafKey = normalizeKey(xml.getLocalName());
+                    text.setLength(0);
+                    Map<String, String> attributes = new LinkedHashMap<>();
+                    for (int i = 0; i < xml.getAttributeCount(); i++) {
+                        attributes.put(normalizeKey(xml.getAttributeLocalName(i)), xml.getAttributeValue(i));
+                    }
+                    openAttributes.add(attributes);
+                    if (depth == recordDepth) {
+                        record = new LinkedHashMap<>(attributes);
+                    } else if (record != null) {
+                        attributes.forEach(record::putIfAbsent);
+                    }
+                } else if (event == XMLStreamConstants.CHARACTERS) {
+                    if (leafKey != null) text.append(xml.getText());
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    Map<String, String> attributes = openAttributes.remove(openAttributes.size() - 1);
+                    boolean leaf = leafKey != null;
+                    if (recordDepth < 0 && leaf) {
+                        if (depth >= 3) {
+                            recordDepth = depth - 1;
+                            record = new LinkedHashMap<>(openAttributes.get(openAttributes.size() - 1));
+                        } else if (depth == 2 && !attributes.isEmpty()) {
+                            recordDepth = 2;
+                            record = new LinkedHashMap<>(attributes);
+                        }
+                    }
+                    if (record != null && leaf && depth > recordDepth) {
+                        String value = text.toString().trim();
+                        if (!value.isEmpty()) record.putIfAbsent(leafKey, value);
+                    }
+                    if (record != null && depth == recordDepth) {
+                        sink.accept(record);
+                        count++;
+                        record = null;
+                    }
+                    depth--;
+                    leafKey = null;
+                    text.setLength(0);
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid XML: " + e.getMessage(), e);
+        } finally {
+            if (xml != null) {
+                try {
+                    xml.close();
+                } catch (XMLStreamException ignored) {
+                    // the underlying stream is closed by the caller
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,148 @@
+package com.buildquote.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact encoding for cached payloads stored in BYTEA columns.
+ *
+ * Every payload starts with a format byte so rows written by older versions keep decoding:
+ *   1 = UTF-8 text, deflated (free-form text such as LLM responses)
+ *   2 = Smile (binary JSON), deflated (structured values)
+ */
+public final class PayloadCodec {
+
+    public static final byte FORMAT_TEXT_DEFLATE = 1;
+    public static final byte FORMAT_SMILE_DEFLATE = 2;
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final ObjectMapper SMILE = new ObjectMapper(new SmileFactory());
+
+    private PayloadCodec() {}
+
+    public static byte[] encodeText(String text) {
+        return withFormat(FORMAT_TEXT_DEFLATE, deflate(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static byte[] encodeValue(Object value) {
+        try {
+            return withFormat(FORMAT_SMILE_DEFLATE, deflate(SMILE.writeValueAsBytes(value)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode payload", e);
+        }
+    }
+
+    /**
+     * Decode any payload to text. Structured payloads come back as JSON.
+     */
+    public static String decodeText(byte[] payload) {
+        byte[] body = inflate(payload);
+        try {
+            return switch (payload[0]) {
+                case FORMAT_TEXT_DEFLATE -> new String(body, StandardCharsets.UTF_8);
+                case FORMAT_SMILE_DEFLATE -> JSON.writeValueAsString(SMILE.readTree(body));
+                default -> throw unknownFormat(payload[0]);
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode payload", e);
+        }
+    }
+
+    public static <T> T decodeValue(byte[] payload, Class<T> type) {
+        return decodeValue(payload, JSON.getTypeFactory().constructType(type));
+    }
+
+    public static <T> T decodeValue(byte[] payload, TypeReference<T> type) {
+        return decodeValue(payload, JSON.getTypeFactory().constructType(type));
+    }
+
+    /**
+     * Read a legacy JSON text column with the same mapper settings as binary payloads.
+     */
+    public static <T> T decodeJson(String json, Class<T> type) {
+        try {
+            return JSON.readValue(json, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode JSON payload", e);
+        }
+    }
+
+    private static <T> T decodeValue(byte[] payload, JavaType type) {
+        byte[] body = inflate(payload);
+        try {
+            return switch (payload[0]) {
+                case FORMAT_SMILE_DEFLATE -> SMILE.readValue(body, type);
+                case FORMAT_TEXT_DEFLATE -> JSON.readValue(body, type);
+                default -> throw unknownFormat(payload[0]);
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode payload", e);
+        }
+    }
+
+    private static byte[] withFormat(byte format, byte[] body) {
+        byte[] payload = new byte[body.length + 1];
+        payload[0] = format;
+        System.arraycopy(body, 0, payload, 1, body.length);
+        return payload;
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] payload) {
+        if (payload == null || payload.length == 0) {
+            throw new IllegalArgumentException("Empty payload");
+        }
+        if (payload[0] != FORMAT_TEXT_DEFLATE && payload[0] != FORMAT_SMILE_DEFLATE) {
+            throw unknownFormat(payload[0]);
+        }
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(payload, 1, payload.length - 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated payload");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt payload", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static IllegalArgumentException unknownFormat(byte format) {
+        return new IllegalArgumentException("Unknown payload format: " + format);
+    }
+}
@@ -0,0 +1,76 @@
+package com.buildquote.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Token bucket rate limiter. Permits refill continuously at the configured rate,
+ * up to a burst size. Callers either reserve a permit and get the delay until it
+ * becomes usable, or block on {@link #acquire()}.
+ */
+public class RateLimiter {
+
+    private final double permitsPerNano;
+    private final double maxPermits;
+
+    private double storedPermits;
+    private long nextFreeNanos;
+
+    public RateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive");
+        }
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.maxPermits = Math.max(1, burst);
+        this.storedPermits = this.maxPermits;
+        this.nextFreeNanos = System.nanoTime();
+    }
+
+    /**
+     * Take a permit now if one is available.
+     */
+    public synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        refill(now);
+        if (nextFreeNanos > now || storedPermits < 1) {
+            return false;
+        }
+        storedPermits -= 1;
+        return true;
+    }
+
+    /**
+     * Reserve the next permit and return how many nanoseconds the caller must wait before using it.
+     */
+    public synchronized long reserve() {
+        long now = System.nanoTime();
+        refill(now);
+        long availableAt = nextFreeNanos;
+        double fromStore = Math.min(1, storedPermits);
+        storedPermits -= fromStore;
+        nextFreeNanos += (long) ((1 - fromStore) / permitsPerNano);
+        return Math.max(0, availableAt - now);
+    }
+
+    /**
+     * Block until a permit is available.
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        long deadline = System.nanoTime() + waitNanos;
+        while (waitNanos > 0) {
+            LockSupport.parkNanos(this, waitNanos);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            waitNanos = deadline - System.nanoTime();
+        }
+    }
+
+    private void refill(long now) {
+        if (now > nextFreeNanos) {
+            storedPermits = Math.min(maxPermits, storedPermits + (now - nextFreeNanos) * permitsPerNano);
+            nextFreeNanos = now;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.buildquote.util;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Uniform lat/lon grid over integer ids. Cells are roughly square at the reference latitude,
+ * so a radius query only visits the few cells overlapping its bounding box. Candidates are
+ * returned per cell; callers check the exact distance.
+ *
+ * Not thread-safe; callers guard it with their own lock.
+ */
+public class SpatialGrid {
+
+    private static final double KM_PER_DEGREE_LAT = 111.32;
+
+    private final double cellLat;
+    private final double cellLon;
+    private final Map<Long, BitSet> cells = new HashMap<>();
+
+    public SpatialGrid(double cellKm, double referenceLatitude) {
+        this.cellLat = cellKm / KM_PER_DEGREE_LAT;
+        this.cellLon = cellKm / (KM_PER_DEGREE_LAT * Math.cos(Math.toRadians(referenceLatitude)));
+    }
+
+    public void add(int id, double lat, double lon) {
+        cells.computeIfAbsent(cellKey(lat, lon), k -> new BitSet()).set(id);
+    }
+
+    public void remove(int id, double lat, double lon) {
+        long key = cellKey(lat, lon);
+        BitSet bits = cells.get(key);
+        if (bits != null) {
+            bits.clear(id);
+            if (bits.isEmpty()) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    public void clear() {
+        cells.clear();
+    }
+
+    /**
+     * Ids in every cell overlapping the bounding box of the circle. A superset of the ids within the radius.
+     */
+    public BitSet candidatesWithin(double lat, double lon, double radiusKm) {
+        double dLat = radiusKm / KM_PER_DEGREE_LAT;
+        double dLon = radiusKm / (KM_PER_DEGREE_LAT * Math.max(0.01, Math.cos(Math.toRadians(lat))));
+        int minRow = row(lat - dLat), maxRow = row(lat + dLat);
+        int minCol = col(lon - dLon), maxCol = col(lon + dLon);
+
+        BitSet result = new BitSet();
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                BitSet bits = cells.get(key(r, c));
+                if (bits != null) {
+                    result.or(bits);
+                }
+            }
+        }
+        return result;
+    }
+
+    public int cellCount() {
+        return cells.size();
+    }
+
+    private long cellKey(double lat, double lon) {
+        return key(row(lat), col(lon));
+    }
+
+    private int row(double lat) {
+        return (int) Math.floor(lat / cellLat);
+    }
+
+    private int col(double lon) {
+        return (int) Math.floor(lon / cellLon);
+    }
+
+    private static long key(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+}
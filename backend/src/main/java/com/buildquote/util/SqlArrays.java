@@ -0,0 +1,47 @@
+package com.buildquote.util;
+
+import java.sql.Array;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads multi-valued columns (categories, service areas, EMTAK codes) the same way whether
+ * they are stored as comma-separated TEXT or as a Postgres text[] array.
+ */
+public final class SqlArrays {
+
+    private SqlArrays() {}
+
+    /**
+     * Trimmed, non-empty values from a JDBC array, String[], collection or comma-separated string.
+     */
+    public static List<String> toStrings(Object value) {
+        List<String> result = new ArrayList<>();
+        if (value instanceof Array array) {
+            try {
+                addAll(result, (Object[]) array.getArray());
+            } catch (SQLException e) {
+                throw new IllegalArgumentException("Could not read SQL array", e);
+            }
+        } else if (value instanceof Object[] items) {
+            addAll(result, items);
+        } else if (value instanceof Collection<?> items) {
+            addAll(result, items.toArray());
+        } else if (value instanceof String text) {
+            addAll(result, text.split(","));
+        }
+        return result;
+    }
+
+    private static void addAll(List<String> result, Object[] items) {
+        for (Object item : items) {
+            if (item == null) continue;
+            String trimmed = item.toString().trim();
+            if (!trimmed.isEmpty()) {
+                result.add(trimmed);
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.buildquote.util;
+
+/**
+ * Disjoint-set forest over ids 0..n-1 with path halving and union by size.
+ */
+public class UnionFind {
+
+    private final int[] parent;
+    private final int[] size;
+
+    public UnionFind(int n) {
+        parent = new int[n];
+        size = new int[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+            size[i] = 1;
+        }
+    }
+
+    public int find(int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    /**
+     * Merge the sets containing a and b. Returns the new root, or -1 if they were already joined.
+     */
+    public int union(int a, int b) {
+        int ra = find(a);
+        int rb = find(b);
+        if (ra == rb) return -1;
+        if (size[ra] < size[rb]) {
+            int tmp = ra;
+            ra = rb;
+            rb = tmp;
+        }
+        parent[rb] = ra;
+        size[ra] += size[rb];
+        return ra;
+    }
+
+    public boolean connected(int a, int b) {
+        return find(a) == find(b);
+    }
+
+    public int size() {
+        return parent.length;
+    }
+}
@@ -0,0 +1,20 @@
+-- V14: Batch-mode LLM processing for background workloads
+
+CREATE TABLE IF NOT EXISTS llm_batch_requests (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    purpose VARCHAR(50) NOT NULL,
+    entity_id UUID NOT NULL,
+    system_prompt TEXT,
+    prompt TEXT NOT NULL,
+    cache_ttl_hours INTEGER NOT NULL DEFAULT 24,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    batch_id VARCHAR(100),
+    response_text TEXT,
+    error_message TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    submitted_at TIMESTAMP,
+    completed_at TIMESTAMP
+);
+CREATE INDEX idx_llm_batch_status ON llm_batch_requests(status, created_at);
+CREATE INDEX idx_llm_batch_batch_id ON llm_batch_requests(batch_id);
+CREATE INDEX idx_llm_batch_entity ON llm_batch_requests(purpose, entity_id);
@@ -0,0 +1,19 @@
+-- V15: Compact binary payload columns for cached results
+-- New rows are written as PayloadCodec-encoded BYTEA (format byte + deflated Smile/text).
+-- Legacy text columns stay readable until their rows expire.
+
+ALTER TABLE file_hash_cache ADD COLUMN IF NOT EXISTS response_payload BYTEA;
+ALTER TABLE file_hash_cache ALTER COLUMN response_json DROP NOT NULL;
+
+ALTER TABLE google_places_cache ADD COLUMN IF NOT EXISTS results_payload BYTEA;
+
+ALTER TABLE ai_response_cache ADD COLUMN IF NOT EXISTS response_payload BYTEA;
+ALTER TABLE ai_response_cache ALTER COLUMN response_text DROP NOT NULL;
+
+ALTER TABLE pipelines ADD COLUMN IF NOT EXISTS context_payload BYTEA;
+
+-- Payloads are already compressed; skip pglz and store out-of-line without recompression
+ALTER TABLE file_hash_cache ALTER COLUMN response_payload SET STORAGE EXTERNAL;
+ALTER TABLE google_places_cache ALTER COLUMN results_payload SET STORAGE EXTERNAL;
+ALTER TABLE ai_response_cache ALTER COLUMN response_payload SET STORAGE EXTERNAL;
+ALTER TABLE pipelines ALTER COLUMN context_payload SET STORAGE EXTERNAL;
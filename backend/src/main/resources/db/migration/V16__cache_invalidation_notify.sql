@@ -0,0 +1,49 @@
+-- V16: Cross-node cache invalidation via LISTEN/NOTIFY
+-- Row triggers publish the key columns of changed rows on the cache_invalidation channel.
+-- Postgres folds identical notifications within a transaction, so bulk writes to the
+-- same keys produce one message per key.
+
+CREATE OR REPLACE FUNCTION notify_cache_invalidation() RETURNS trigger AS $$
+DECLARE
+    old_keys JSONB := '{}'::jsonb;
+    new_keys JSONB := '{}'::jsonb;
+    col TEXT;
+BEGIN
+    FOREACH col IN ARRAY TG_ARGV LOOP
+        IF TG_OP <> 'INSERT' THEN
+            old_keys := old_keys || jsonb_build_object(col, to_jsonb(OLD) -> col);
+        END IF;
+        IF TG_OP <> 'DELETE' THEN
+            new_keys := new_keys || jsonb_build_object(col, to_jsonb(NEW) -> col);
+        END IF;
+    END LOOP;
+
+    PERFORM pg_notify('cache_invalidation', jsonb_build_object(
+        'table', TG_TABLE_NAME,
+        'op', TG_OP,
+        'old', old_keys,
+        'new', new_keys)::text);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_suppliers_cache_invalidation ON suppliers;
+CREATE TRIGGER trg_suppliers_cache_invalidation
+    AFTER INSERT OR DELETE OR UPDATE OF categories, city, service_areas ON suppliers
+    FOR EACH ROW EXECUTE FUNCTION notify_cache_invalidation('id', 'categories', 'city', 'service_areas');
+
+DROP TRIGGER IF EXISTS trg_market_prices_cache_invalidation ON market_prices;
+CREATE TRIGGER trg_market_prices_cache_invalidation
+    AFTER INSERT OR UPDATE OR DELETE ON market_prices
+    FOR EACH ROW EXECUTE FUNCTION notify_cache_invalidation('category', 'region');
+
+-- component_recipes is managed outside the migrations in some environments
+DO $$
+BEGIN
+    IF to_regclass('component_recipes') IS NOT NULL THEN
+        DROP TRIGGER IF EXISTS trg_component_recipes_cache_invalidation ON component_recipes;
+        CREATE TRIGGER trg_component_recipes_cache_invalidation
+            AFTER INSERT OR UPDATE OR DELETE ON component_recipes
+            FOR EACH ROW EXECUTE FUNCTION notify_cache_invalidation('component_name', 'component_category');
+    END IF;
+END $$;
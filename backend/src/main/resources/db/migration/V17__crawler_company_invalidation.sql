@@ -0,0 +1,38 @@
+-- V17: Publish crawler.company changes on the cache invalidation bus
+-- Tables outside the public schema are published schema-qualified (e.g. crawler.company).
+
+CREATE OR REPLACE FUNCTION notify_cache_invalidation() RETURNS trigger AS $$
+DECLARE
+    old_keys JSONB := '{}'::jsonb;
+    new_keys JSONB := '{}'::jsonb;
+    col TEXT;
+BEGIN
+    FOREACH col IN ARRAY TG_ARGV LOOP
+        IF TG_OP <> 'INSERT' THEN
+            old_keys := old_keys || jsonb_build_object(col, to_jsonb(OLD) -> col);
+        END IF;
+        IF TG_OP <> 'DELETE' THEN
+            new_keys := new_keys || jsonb_build_object(col, to_jsonb(NEW) -> col);
+        END IF;
+    END LOOP;
+
+    PERFORM pg_notify('cache_invalidation', jsonb_build_object(
+        'table', CASE WHEN TG_TABLE_SCHEMA = 'public' THEN TG_TABLE_NAME
+                      ELSE TG_TABLE_SCHEMA || '.' || TG_TABLE_NAME END,
+        'op', TG_OP,
+        'old', old_keys,
+        'new', new_keys)::text);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- The crawler schema is created by the crawler, so it may not exist yet
+DO $$
+BEGIN
+    IF to_regclass('crawler.company') IS NOT NULL THEN
+        DROP TRIGGER IF EXISTS trg_company_cache_invalidation ON crawler.company;
+        CREATE TRIGGER trg_company_cache_invalidation
+            AFTER INSERT OR DELETE OR UPDATE OF emtak_codes, city ON crawler.company
+            FOR EACH ROW EXECUTE FUNCTION notify_cache_invalidation('emtak_codes', 'city');
+    END IF;
+END $$;
@@ -0,0 +1,14 @@
+-- V18: Publish the supplier columns the in-memory match index scores on
+-- The suppliers trigger now also fires for scoring-relevant columns; the published
+-- keys are unchanged, so listeners that only track category/city see a no-op delta.
+
+DROP TRIGGER IF EXISTS trg_suppliers_cache_invalidation ON suppliers;
+CREATE TRIGGER trg_suppliers_cache_invalidation
+    AFTER INSERT OR DELETE OR UPDATE OF categories, city, county, service_areas, company_name, email,
+        emtak_code, google_rating, is_verified, total_rfqs_sent, total_bids_received ON suppliers
+    FOR EACH ROW EXECUTE FUNCTION notify_cache_invalidation('id', 'categories', 'city', 'service_areas');
+
+DROP TRIGGER IF EXISTS trg_company_enrichments_cache_invalidation ON company_enrichments;
+CREATE TRIGGER trg_company_enrichments_cache_invalidation
+    AFTER INSERT OR DELETE OR UPDATE OF risk_score, tax_debt ON company_enrichments
+    FOR EACH ROW EXECUTE FUNCTION notify_cache_invalidation('supplier_id');
@@ -0,0 +1,21 @@
+-- V19: Store supplier categories and service areas as text[] with GIN indexes
+-- Replaces comma-joined TEXT matched with LIKE '%...%', which could not use an index and
+-- matched prefixes of longer category names.
+
+-- Column-specific triggers and the B-tree on the joined string block the type change
+DROP TRIGGER IF EXISTS trg_suppliers_cache_invalidation ON suppliers;
+DROP INDEX IF EXISTS idx_suppliers_category;
+
+ALTER TABLE suppliers
+    ALTER COLUMN categories TYPE TEXT[]
+        USING array_remove(regexp_split_to_array(NULLIF(btrim(categories), ''), '\s*,\s*'), ''),
+    ALTER COLUMN service_areas TYPE TEXT[]
+        USING array_remove(regexp_split_to_array(NULLIF(btrim(service_areas), ''), '\s*,\s*'), '');
+
+CREATE INDEX IF NOT EXISTS idx_suppliers_categories_gin ON suppliers USING GIN (categories);
+CREATE INDEX IF NOT EXISTS idx_suppliers_service_areas_gin ON suppliers USING GIN (service_areas);
+
+CREATE TRIGGER trg_suppliers_cache_invalidation
+    AFTER INSERT OR DELETE OR UPDATE OF categories, city, county, service_areas, company_name, email,
+        emtak_code, google_rating, is_verified, total_rfqs_sent, total_bids_received ON suppliers
+    FOR EACH ROW EXECUTE FUNCTION notify_cache_invalidation('id', 'categories', 'city', 'service_areas');
@@ -0,0 +1,62 @@
+-- V20: Offline gazetteer and geocoded coordinates for suppliers and projects
+-- Settlements are loaded from the bundled gazetteer/ee_settlements.csv on first start.
+
+CREATE TABLE IF NOT EXISTS gazetteer_settlements (
+    id SERIAL PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    name_normalized VARCHAR(255) NOT NULL,
+    county VARCHAR(100),
+    latitude DOUBLE PRECISION NOT NULL,
+    longitude DOUBLE PRECISION NOT NULL,
+    population INTEGER
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_gazetteer_name_county ON gazetteer_settlements(name_normalized, county);
+
+ALTER TABLE suppliers ADD COLUMN IF NOT EXISTS latitude DOUBLE PRECISION;
+ALTER TABLE suppliers ADD COLUMN IF NOT EXISTS longitude DOUBLE PRECISION;
+ALTER TABLE suppliers ADD COLUMN IF NOT EXISTS geocoded_at TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS idx_suppliers_geocode_pending ON suppliers(id) WHERE geocoded_at IS NULL;
+
+ALTER TABLE projects ADD COLUMN IF NOT EXISTS latitude DOUBLE PRECISION;
+ALTER TABLE projects ADD COLUMN IF NOT EXISTS longitude DOUBLE PRECISION;
+
+-- Coordinates are derived from the place name, so a new name means geocoding again
+CREATE OR REPLACE FUNCTION reset_supplier_geocode() RETURNS trigger AS $$
+BEGIN
+    IF NEW.city IS DISTINCT FROM OLD.city OR NEW.county IS DISTINCT FROM OLD.county THEN
+        NEW.latitude := NULL;
+        NEW.longitude := NULL;
+        NEW.geocoded_at := NULL;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_suppliers_reset_geocode ON suppliers;
+CREATE TRIGGER trg_suppliers_reset_geocode
+    BEFORE UPDATE OF city, county ON suppliers
+    FOR EACH ROW EXECUTE FUNCTION reset_supplier_geocode();
+
+CREATE OR REPLACE FUNCTION reset_project_geocode() RETURNS trigger AS $$
+BEGIN
+    IF NEW.location IS DISTINCT FROM OLD.location THEN
+        NEW.latitude := NULL;
+        NEW.longitude := NULL;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_projects_reset_geocode ON projects;
+CREATE TRIGGER trg_projects_reset_geocode
+    BEFORE UPDATE OF location ON projects
+    FOR EACH ROW EXECUTE FUNCTION reset_project_geocode();
+
+-- The match index reloads a supplier when its coordinates change
+DROP TRIGGER IF EXISTS trg_suppliers_cache_invalidation ON suppliers;
+CREATE TRIGGER trg_suppliers_cache_invalidation
+    AFTER INSERT OR DELETE OR UPDATE OF categories, city, county, service_areas, company_name, email,
+        emtak_code, google_rating, is_verified, total_rfqs_sent, total_bids_received, latitude, longitude ON suppliers
+    FOR EACH ROW EXECUTE FUNCTION notify_cache_invalidation('id', 'categories', 'city', 'service_areas');
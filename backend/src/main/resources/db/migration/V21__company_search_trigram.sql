@@ -0,0 +1,21 @@
+-- V21: Trigram indexes for the company directory search
+-- LOWER(col) LIKE '%q%' can use a pg_trgm GIN index on the same expression; the
+-- UNION ALL in CompanyService pushes the filters down to each side.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_suppliers_name_trgm ON suppliers USING GIN (LOWER(company_name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_suppliers_city_trgm ON suppliers USING GIN (LOWER(city) gin_trgm_ops);
+
+-- The crawler schema is created by the crawler, so it may not exist yet
+DO $$
+BEGIN
+    IF to_regclass('crawler.company') IS NOT NULL THEN
+        CREATE INDEX IF NOT EXISTS idx_crawler_company_name_trgm
+            ON crawler.company USING GIN (LOWER(legal_name) gin_trgm_ops);
+        CREATE INDEX IF NOT EXISTS idx_crawler_company_city_trgm
+            ON crawler.company USING GIN (LOWER(city) gin_trgm_ops);
+        CREATE INDEX IF NOT EXISTS idx_crawler_company_categories_gin
+            ON crawler.company USING GIN (categories);
+    END IF;
+END $$;
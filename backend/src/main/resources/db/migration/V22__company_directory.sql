@@ -0,0 +1,133 @@
+-- V22: company_directory read model
+-- One denormalized row per company from suppliers (with enrichment scores) and crawler.company,
+-- kept current by row triggers so /api/companies reads a single indexed table.
+
+CREATE TABLE IF NOT EXISTS company_directory (
+    id TEXT PRIMARY KEY,
+    origin VARCHAR(20) NOT NULL,
+    company_name TEXT NOT NULL,
+    contact_person VARCHAR(255),
+    email TEXT,
+    phone TEXT,
+    website TEXT,
+    address TEXT,
+    city TEXT,
+    county TEXT,
+    source VARCHAR(50),
+    categories TEXT[],
+    service_areas TEXT[],
+    emtak_codes TEXT[],
+    has_email BOOLEAN NOT NULL DEFAULT FALSE,
+    has_phone BOOLEAN NOT NULL DEFAULT FALSE,
+    has_website BOOLEAN NOT NULL DEFAULT FALSE,
+    google_rating DECIMAL(2,1),
+    google_review_count INT,
+    trust_score INT,
+    is_verified BOOLEAN,
+    llm_summary TEXT,
+    risk_score INTEGER,
+    reliability_score INTEGER,
+    updated_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+-- Free-text and category filters
+CREATE INDEX IF NOT EXISTS idx_company_directory_name_trgm ON company_directory USING GIN (LOWER(company_name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_company_directory_city_trgm ON company_directory USING GIN (LOWER(city) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_company_directory_categories ON company_directory USING GIN (categories);
+
+-- Keyset order (nulls last, then id): ascending scans the first index forward,
+-- descending scans the second backward
+CREATE INDEX IF NOT EXISTS idx_company_directory_name_asc ON company_directory ((company_name IS NULL), company_name, id);
+CREATE INDEX IF NOT EXISTS idx_company_directory_name_desc ON company_directory ((company_name IS NOT NULL), company_name, id);
+CREATE INDEX IF NOT EXISTS idx_company_directory_city_asc ON company_directory ((city IS NULL), city, id);
+CREATE INDEX IF NOT EXISTS idx_company_directory_city_desc ON company_directory ((city IS NOT NULL), city, id);
+CREATE INDEX IF NOT EXISTS idx_company_directory_source_asc ON company_directory ((source IS NULL), source, id);
+CREATE INDEX IF NOT EXISTS idx_company_directory_source_desc ON company_directory ((source IS NOT NULL), source, id);
+
+-- Rebuild the rows for the given suppliers, or all suppliers when NULL
+CREATE OR REPLACE FUNCTION company_directory_refresh_suppliers(supplier_ids UUID[]) RETURNS void AS $$
+BEGIN
+    DELETE FROM company_directory
+    WHERE origin = 'SUPPLIER' AND (supplier_ids IS NULL OR id = ANY (supplier_ids::text[]));
+
+    INSERT INTO company_directory (id, origin, company_name, contact_person, email, phone, website, address,
+                                   city, county, source, categories, service_areas, emtak_codes,
+                                   has_email, has_phone, has_website, google_rating, google_review_count,
+                                   trust_score, is_verified, llm_summary, risk_score, reliability_score)
+    SELECT s.id::text, 'SUPPLIER', s.company_name, s.contact_person, NULLIF(s.email, ''), NULLIF(s.phone, ''),
+           s.website, s.address, s.city, s.county, s.source, s.categories, s.service_areas,
+           CASE WHEN COALESCE(s.emtak_code, '') <> '' THEN ARRAY[s.emtak_code] END,
+           COALESCE(s.email, '') <> '', COALESCE(s.phone, '') <> '', COALESCE(s.website, '') <> '',
+           s.google_rating, s.google_review_count, s.trust_score, s.is_verified,
+           e.llm_summary, e.risk_score, e.reliability_score
+    FROM suppliers s
+    LEFT JOIN company_enrichments e ON e.supplier_id = s.id
+    WHERE supplier_ids IS NULL OR s.id = ANY (supplier_ids);
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION company_directory_sync_supplier() RETURNS trigger AS $$
+BEGIN
+    IF TG_TABLE_NAME = 'company_enrichments' THEN
+        PERFORM company_directory_refresh_suppliers(ARRAY[COALESCE(NEW.supplier_id, OLD.supplier_id)]);
+    ELSE
+        PERFORM company_directory_refresh_suppliers(ARRAY[COALESCE(NEW.id, OLD.id)]);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_suppliers_company_directory ON suppliers;
+CREATE TRIGGER trg_suppliers_company_directory
+    AFTER INSERT OR UPDATE OR DELETE ON suppliers
+    FOR EACH ROW EXECUTE FUNCTION company_directory_sync_supplier();
+
+DROP TRIGGER IF EXISTS trg_company_enrichments_company_directory ON company_enrichments;
+CREATE TRIGGER trg_company_enrichments_company_directory
+    AFTER INSERT OR DELETE OR UPDATE OF llm_summary, risk_score, reliability_score ON company_enrichments
+    FOR EACH ROW EXECUTE FUNCTION company_directory_sync_supplier();
+
+-- crawler.company rows, mapped the way the old UNION query did
+CREATE OR REPLACE FUNCTION company_directory_sync_crawler() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP <> 'INSERT' THEN
+        DELETE FROM company_directory WHERE origin = 'CRAWLER' AND id = OLD.id::text;
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        INSERT INTO company_directory (id, origin, company_name, email, phone, website, address, city, county,
+                                       source, categories, emtak_codes, has_email, has_phone, has_website)
+        VALUES (NEW.id::text, 'CRAWLER', COALESCE(NEW.legal_name, ''), NULLIF(NEW.email[1], ''),
+                NULLIF(NEW.phone[1], ''), NEW.website, NEW.address, NEW.city, NEW.county, 'BUSINESS_REGISTRY',
+                NEW.categories, NEW.emtak_codes, COALESCE(NEW.email[1], '') <> '',
+                COALESCE(NEW.phone[1], '') <> '', COALESCE(NEW.website, '') <> '');
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- The crawler schema is created by the crawler, possibly after this migration. The application
+-- calls this at startup and periodically; it backfills and attaches the trigger once the table exists.
+CREATE OR REPLACE FUNCTION company_directory_attach_crawler() RETURNS boolean AS $$
+BEGIN
+    IF to_regclass('crawler.company') IS NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    DELETE FROM company_directory WHERE origin = 'CRAWLER';
+    INSERT INTO company_directory (id, origin, company_name, email, phone, website, address, city, county,
+                                   source, categories, emtak_codes, has_email, has_phone, has_website)
+    SELECT c.id::text, 'CRAWLER', COALESCE(c.legal_name, ''), NULLIF(c.email[1], ''), NULLIF(c.phone[1], ''),
+           c.website, c.address, c.city, c.county, 'BUSINESS_REGISTRY', c.categories, c.emtak_codes,
+           COALESCE(c.email[1], '') <> '', COALESCE(c.phone[1], '') <> '', COALESCE(c.website, '') <> ''
+    FROM crawler.company c;
+
+    DROP TRIGGER IF EXISTS trg_crawler_company_directory ON crawler.company;
+    CREATE TRIGGER trg_crawler_company_directory
+        AFTER INSERT OR UPDATE OR DELETE ON crawler.company
+        FOR EACH ROW EXECUTE FUNCTION company_directory_sync_crawler();
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT company_directory_refresh_suppliers(NULL);
+SELECT company_directory_attach_crawler();
@@ -0,0 +1,31 @@
+-- V23: Checkpointed harvest jobs. Each (category, city, page) search is a work item that
+-- workers claim with FOR UPDATE SKIP LOCKED, so an interrupted run resumes where it stopped.
+
+CREATE TABLE IF NOT EXISTS harvest_jobs (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    mode VARCHAR(20) NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'RUNNING',
+    error_message TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    completed_at TIMESTAMP
+);
+CREATE INDEX idx_harvest_jobs_status ON harvest_jobs(status, created_at);
+
+CREATE TABLE IF NOT EXISTS harvest_work_items (
+    id BIGSERIAL PRIMARY KEY,
+    job_id UUID NOT NULL REFERENCES harvest_jobs(id) ON DELETE CASCADE,
+    category VARCHAR(50) NOT NULL,
+    search_term VARCHAR(255) NOT NULL,
+    city VARCHAR(100) NOT NULL,
+    page_number INTEGER NOT NULL DEFAULT 1,
+    page_token TEXT,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    results_found INTEGER,
+    error_message TEXT,
+    claimed_at TIMESTAMP,
+    completed_at TIMESTAMP
+);
+CREATE INDEX idx_harvest_items_claim ON harvest_work_items(job_id, id) WHERE status = 'PENDING';
+CREATE INDEX idx_harvest_items_job_status ON harvest_work_items(job_id, status);
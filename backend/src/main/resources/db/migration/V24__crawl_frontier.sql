@@ -0,0 +1,20 @@
+-- V24: Persistent crawl frontier. One row per fetched URL with the validators needed for
+-- conditional GET, a hash of the content last seen, and an adaptive re-crawl schedule.
+
+CREATE TABLE IF NOT EXISTS crawl_frontier (
+    url TEXT PRIMARY KEY,
+    host VARCHAR(255) NOT NULL,
+    etag TEXT,
+    last_modified TEXT,
+    content_hash VARCHAR(64),
+    last_status INTEGER,
+    last_fetched_at TIMESTAMP,
+    last_changed_at TIMESTAMP,
+    next_due_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    recrawl_interval_hours INTEGER NOT NULL DEFAULT 168,
+    fetch_count INTEGER NOT NULL DEFAULT 0,
+    change_count INTEGER NOT NULL DEFAULT 0,
+    consecutive_errors INTEGER NOT NULL DEFAULT 0
+);
+CREATE INDEX idx_crawl_frontier_due ON crawl_frontier(next_due_at);
+CREATE INDEX idx_crawl_frontier_host ON crawl_frontier(host);
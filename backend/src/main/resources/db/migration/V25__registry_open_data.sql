@@ -0,0 +1,95 @@
+-- V25: Local copies of the public open-data dumps used for supplier enrichment
+-- (Business Register, Tax and Customs Board, public procurement register), keyed by registry
+-- code so enrichment is an indexed local join instead of three live HTTP calls per company.
+-- Filled by RegistryOpenDataService from files placed in registry.open-data.dir.
+
+CREATE TABLE IF NOT EXISTS registry_company (
+    registry_code VARCHAR(20) PRIMARY KEY,
+    name TEXT,
+    legal_form VARCHAR(100),
+    status VARCHAR(20),
+    registered_date DATE,
+    vat_number VARCHAR(20),
+    address TEXT,
+    county VARCHAR(100),
+    emtak_code VARCHAR(10),
+    source_file VARCHAR(255),
+    imported_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+-- Taxes paid, turnover and employees per quarter (period like 2024-Q1)
+CREATE TABLE IF NOT EXISTS registry_tax_period (
+    registry_code VARCHAR(20) NOT NULL,
+    period VARCHAR(7) NOT NULL,
+    state_taxes DECIMAL(16,2),
+    labour_taxes DECIMAL(16,2),
+    turnover DECIMAL(16,2),
+    employee_count INTEGER,
+    source_file VARCHAR(255),
+    imported_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (registry_code, period)
+);
+
+-- Current tax debtors; each import replaces the previous list
+CREATE TABLE IF NOT EXISTS registry_tax_debt (
+    registry_code VARCHAR(20) PRIMARY KEY,
+    debt_amount DECIMAL(16,2),
+    source_file VARCHAR(255),
+    imported_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+-- Awarded public contracts, one row per (award, supplier)
+CREATE TABLE IF NOT EXISTS registry_procurement_award (
+    award_id VARCHAR(100) NOT NULL,
+    registry_code VARCHAR(20) NOT NULL,
+    contract_value DECIMAL(16,2),
+    awarded_date DATE,
+    source_file VARCHAR(255),
+    imported_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (award_id, registry_code)
+);
+CREATE INDEX IF NOT EXISTS idx_registry_procurement_award_code ON registry_procurement_award(registry_code);
+
+-- Supplier enrichment joins on suppliers.registry_code
+CREATE INDEX IF NOT EXISTS idx_suppliers_registry_code ON suppliers(registry_code) WHERE registry_code IS NOT NULL;
+
+-- Enrichment facts per company, computed from the tables above. Filtering on registry_code
+-- reaches the primary keys, so a single lookup and the bulk supplier join both stay indexed.
+CREATE OR REPLACE VIEW registry_company_facts AS
+SELECT c.registry_code,
+       c.name,
+       c.status,
+       c.status = 'R' AS is_active,
+       c.registered_date,
+       EXTRACT(YEAR FROM AGE(CURRENT_DATE, c.registered_date))::INT AS years_in_business,
+       CASE WHEN debt_list.loaded THEN d.registry_code IS NOT NULL END AS tax_debt,
+       d.debt_amount AS tax_debt_amount,
+       t.annual_revenue,
+       t.employee_count,
+       t.financial_trend,
+       CASE WHEN award_list.loaded THEN COALESCE(p.award_count, 0) END AS public_procurement_count
+FROM registry_company c
+CROSS JOIN (SELECT EXISTS (SELECT 1 FROM registry_tax_debt) AS loaded) debt_list
+CROSS JOIN (SELECT EXISTS (SELECT 1 FROM registry_procurement_award) AS loaded) award_list
+LEFT JOIN registry_tax_debt d ON d.registry_code = c.registry_code
+LEFT JOIN LATERAL (
+    -- Last four quarters: revenue needs a full year, the trend compares the two halves
+    SELECT CASE WHEN COUNT(*) = 4 THEN SUM(q.turnover) END AS annual_revenue,
+           (ARRAY_AGG(q.employee_count ORDER BY q.period DESC))[1] AS employee_count,
+           CASE WHEN COUNT(*) < 4 OR COALESCE(SUM(q.turnover) FILTER (WHERE q.rn > 2), 0) <= 0 THEN NULL
+                WHEN SUM(q.turnover) FILTER (WHERE q.rn <= 2) > 1.1 * SUM(q.turnover) FILTER (WHERE q.rn > 2) THEN 'UP'
+                WHEN SUM(q.turnover) FILTER (WHERE q.rn <= 2) < 0.9 * SUM(q.turnover) FILTER (WHERE q.rn > 2) THEN 'DOWN'
+                ELSE 'STABLE'
+           END AS financial_trend
+    FROM (SELECT tp.turnover, tp.employee_count, tp.period,
+                 ROW_NUMBER() OVER (ORDER BY tp.period DESC) AS rn
+          FROM registry_tax_period tp
+          WHERE tp.registry_code = c.registry_code
+          ORDER BY tp.period DESC
+          LIMIT 4) q
+) t ON TRUE
+LEFT JOIN LATERAL (
+    SELECT COUNT(*)::INT AS award_count
+    FROM registry_procurement_award a
+    WHERE a.registry_code = c.registry_code
+) p ON TRUE;
@@ -0,0 +1,38 @@
+-- V26: Keep cache invalidation notifications under the NOTIFY payload limit
+-- pg_notify raises an error above 8000 bytes, which would roll back the write that fired
+-- the trigger. Rows whose key columns don't fit are published as an overflow event without
+-- keys; listeners treat it as a full invalidation of that table.
+
+CREATE OR REPLACE FUNCTION notify_cache_invalidation() RETURNS trigger AS $$
+DECLARE
+    old_keys JSONB := '{}'::jsonb;
+    new_keys JSONB := '{}'::jsonb;
+    col TEXT;
+    table_name TEXT;
+    payload TEXT;
+BEGIN
+    FOREACH col IN ARRAY TG_ARGV LOOP
+        IF TG_OP <> 'INSERT' THEN
+            old_keys := old_keys || jsonb_build_object(col, to_jsonb(OLD) -> col);
+        END IF;
+        IF TG_OP <> 'DELETE' THEN
+            new_keys := new_keys || jsonb_build_object(col, to_jsonb(NEW) -> col);
+        END IF;
+    END LOOP;
+
+    table_name := CASE WHEN TG_TABLE_SCHEMA = 'public' THEN TG_TABLE_NAME
+                       ELSE TG_TABLE_SCHEMA || '.' || TG_TABLE_NAME END;
+    payload := jsonb_build_object(
+        'table', table_name,
+        'op', TG_OP,
+        'old', old_keys,
+        'new', new_keys)::text;
+
+    IF octet_length(payload) > 7900 THEN
+        payload := jsonb_build_object('table', table_name, 'op', TG_OP, 'overflow', true)::text;
+    END IF;
+
+    PERFORM pg_notify('cache_invalidation', payload);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
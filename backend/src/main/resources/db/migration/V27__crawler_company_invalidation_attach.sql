@@ -0,0 +1,21 @@
+-- V27: Publish crawler.company changes with the row id, and attach the trigger at runtime
+-- Postgres drops duplicate notifications within a transaction, so without the id two inserts
+-- with the same categories and city arrived as one event and the count deltas undercounted.
+-- The crawler creates its schema itself, possibly after migrations ran; CacheInvalidationBus
+-- calls this at startup and periodically until the trigger is in place.
+
+CREATE OR REPLACE FUNCTION cache_invalidation_attach_crawler() RETURNS boolean AS $$
+BEGIN
+    IF to_regclass('crawler.company') IS NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    DROP TRIGGER IF EXISTS trg_company_cache_invalidation ON crawler.company;
+    CREATE TRIGGER trg_company_cache_invalidation
+        AFTER INSERT OR DELETE OR UPDATE OF emtak_codes, city ON crawler.company
+        FOR EACH ROW EXECUTE FUNCTION notify_cache_invalidation('id', 'emtak_codes', 'city');
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT cache_invalidation_attach_crawler();
@@ -0,0 +1,36 @@
+-- V28: Refresh the previous supplier's company_directory row too
+-- A company_enrichments row that is deleted or moved to another supplier left the old
+-- supplier's directory row with stale scores; refresh both OLD and NEW on every change.
+
+CREATE OR REPLACE FUNCTION company_directory_sync_supplier() RETURNS trigger AS $$
+DECLARE
+    ids UUID[] := '{}';
+BEGIN
+    IF TG_TABLE_NAME = 'company_enrichments' THEN
+        IF TG_OP <> 'DELETE' THEN
+            ids := ids || NEW.supplier_id;
+        END IF;
+        IF TG_OP = 'DELETE' THEN
+            ids := ids || OLD.supplier_id;
+        ELSIF TG_OP = 'UPDATE' AND OLD.supplier_id IS DISTINCT FROM NEW.supplier_id THEN
+            ids := ids || OLD.supplier_id;
+        END IF;
+    ELSE
+        IF TG_OP <> 'DELETE' THEN
+            ids := ids || NEW.id;
+        END IF;
+        IF TG_OP = 'DELETE' THEN
+            ids := ids || OLD.id;
+        ELSIF TG_OP = 'UPDATE' AND OLD.id IS DISTINCT FROM NEW.id THEN
+            ids := ids || OLD.id;
+        END IF;
+    END IF;
+    PERFORM company_directory_refresh_suppliers(ids);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_company_enrichments_company_directory ON company_enrichments;
+CREATE TRIGGER trg_company_enrichments_company_directory
+    AFTER INSERT OR DELETE OR UPDATE OF supplier_id, llm_summary, risk_score, reliability_score ON company_enrichments
+    FOR EACH ROW EXECUTE FUNCTION company_directory_sync_supplier();
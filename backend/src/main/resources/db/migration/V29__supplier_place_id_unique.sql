@@ -0,0 +1,15 @@
+-- V29: One supplier per Google place
+-- Parallel harvest workers could insert the same place twice. Existing duplicates keep the
+-- place ID on their oldest row only; the others stay (deduplication merges them by name)
+-- but lose the ID so the unique index can be built.
+
+UPDATE suppliers s SET google_place_id = NULL
+FROM (
+    SELECT id, ROW_NUMBER() OVER (PARTITION BY google_place_id ORDER BY created_at, id) AS rn
+    FROM suppliers
+    WHERE google_place_id IS NOT NULL
+) d
+WHERE s.id = d.id AND d.rn > 1;
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_suppliers_google_place_id
+    ON suppliers(google_place_id) WHERE google_place_id IS NOT NULL;
@@ -0,0 +1,7 @@
+-- V30: Harvest work items record who holds the claim and when their page token was issued
+-- claimed_by lets a worker complete only an item it still holds after a stale claim was
+-- reclaimed; page_token_at lets a resumed job restart searches whose page token has expired.
+
+ALTER TABLE harvest_work_items ADD COLUMN IF NOT EXISTS claimed_by VARCHAR(36);
+ALTER TABLE harvest_work_items ADD COLUMN IF NOT EXISTS page_token_at TIMESTAMP;
+UPDATE harvest_work_items SET page_token_at = claimed_at WHERE page_token IS NOT NULL AND page_token_at IS NULL;
@@ -0,0 +1,11 @@
+-- V31: Key the crawl frontier by crawler as well as URL
+-- Crawlers extract different things from the same page, so one crawler's hash must not make a
+-- page look unchanged to another. Existing rows cannot be attributed to a crawler, and their
+-- hashes were written before the extracted data was persisted, so they are dropped: the pages
+-- are simply fetched and extracted again on the next run.
+
+DELETE FROM crawl_frontier;
+
+ALTER TABLE crawl_frontier ADD COLUMN IF NOT EXISTS crawler VARCHAR(50) NOT NULL;
+ALTER TABLE crawl_frontier DROP CONSTRAINT IF EXISTS crawl_frontier_pkey;
+ALTER TABLE crawl_frontier ADD PRIMARY KEY (crawler, url);
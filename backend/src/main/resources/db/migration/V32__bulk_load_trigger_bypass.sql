@@ -0,0 +1,75 @@
+-- V32: Let bulk loads skip the per-row cache and directory triggers
+-- A transaction that sets buildquote.bulk_load to 'on' (set_config(..., true), so it ends with
+-- the transaction) writes without one company_directory refresh and one NOTIFY per row. The
+-- loader is then responsible for refreshing the directory and publishing a single overflow
+-- invalidation once it is done.
+
+CREATE OR REPLACE FUNCTION notify_cache_invalidation() RETURNS trigger AS $$
+DECLARE
+    old_keys JSONB := '{}'::jsonb;
+    new_keys JSONB := '{}'::jsonb;
+    col TEXT;
+    table_name TEXT;
+    payload TEXT;
+BEGIN
+    IF current_setting('buildquote.bulk_load', true) = 'on' THEN
+        RETURN NULL;
+    END IF;
+
+    FOREACH col IN ARRAY TG_ARGV LOOP
+        IF TG_OP <> 'INSERT' THEN
+            old_keys := old_keys || jsonb_build_object(col, to_jsonb(OLD) -> col);
+        END IF;
+        IF TG_OP <> 'DELETE' THEN
+            new_keys := new_keys || jsonb_build_object(col, to_jsonb(NEW) -> col);
+        END IF;
+    END LOOP;
+
+    table_name := CASE WHEN TG_TABLE_SCHEMA = 'public' THEN TG_TABLE_NAME
+                       ELSE TG_TABLE_SCHEMA || '.' || TG_TABLE_NAME END;
+    payload := jsonb_build_object(
+        'table', table_name,
+        'op', TG_OP,
+        'old', old_keys,
+        'new', new_keys)::text;
+
+    IF octet_length(payload) > 7900 THEN
+        payload := jsonb_build_object('table', table_name, 'op', TG_OP, 'overflow', true)::text;
+    END IF;
+
+    PERFORM pg_notify('cache_invalidation', payload);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION company_directory_sync_supplier() RETURNS trigger AS $$
+DECLARE
+    ids UUID[] := '{}';
+BEGIN
+    IF current_setting('buildquote.bulk_load', true) = 'on' THEN
+        RETURN NULL;
+    END IF;
+
+    IF TG_TABLE_NAME = 'company_enrichments' THEN
+        IF TG_OP <> 'DELETE' THEN
+            ids := ids || NEW.supplier_id;
+        END IF;
+        IF TG_OP = 'DELETE' THEN
+            ids := ids || OLD.supplier_id;
+        ELSIF TG_OP = 'UPDATE' AND OLD.supplier_id IS DISTINCT FROM NEW.supplier_id THEN
+            ids := ids || OLD.supplier_id;
+        END IF;
+    ELSE
+        IF TG_OP <> 'DELETE' THEN
+            ids := ids || NEW.id;
+        END IF;
+        IF TG_OP = 'DELETE' THEN
+            ids := ids || OLD.id;
+        ELSIF TG_OP = 'UPDATE' AND OLD.id IS DISTINCT FROM NEW.id THEN
+            ids := ids || OLD.id;
+        END IF;
+    END IF;
+    PERFORM company_directory_refresh_suppliers(ids);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;